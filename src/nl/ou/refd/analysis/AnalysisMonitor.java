@@ -0,0 +1,53 @@
+package nl.ou.refd.analysis;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Class which makes the progress monitor of a running analysis available to
+ * the parts of the analysis that do not get it passed explicitly, such as
+ * streams evaluating their subdetectors. The monitor is bound to the thread
+ * the analysis runs on.
+ */
+public final class AnalysisMonitor {
+	private AnalysisMonitor(){}
+
+	private static final ThreadLocal<IProgressMonitor> current = new ThreadLocal<IProgressMonitor>();
+
+	/**
+	 * Binds a progress monitor to the current thread.
+	 * @param monitor the monitor of the analysis running on the current thread
+	 */
+	public static void install(IProgressMonitor monitor) {
+		current.set(monitor);
+	}
+
+	/**
+	 * Removes the progress monitor bound to the current thread.
+	 */
+	public static void uninstall() {
+		current.remove();
+	}
+
+	/**
+	 * Gets the progress monitor bound to the current thread.
+	 * @return the bound progress monitor, or null if no analysis runs on the current thread
+	 */
+	public static IProgressMonitor get() {
+		return current.get();
+	}
+
+	/**
+	 * Checks whether the analysis running on the current thread has been cancelled.
+	 * When no monitor is bound to the current thread, this method does nothing.
+	 * @throws OperationCanceledException if the analysis has been cancelled
+	 */
+	public static void checkCanceled() {
+		IProgressMonitor monitor = current.get();
+
+		if (monitor != null && monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+	}
+
+}
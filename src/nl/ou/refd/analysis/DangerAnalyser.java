@@ -3,6 +3,11 @@ package nl.ou.refd.analysis;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
 import nl.ou.refd.analysis.detectors.BrokenLocalReferences;
 import nl.ou.refd.analysis.detectors.BrokenSubTyping;
 import nl.ou.refd.analysis.detectors.CorrespondingSubclassSpecification;
@@ -14,8 +19,13 @@ import nl.ou.refd.analysis.detectors.MissingDefinition;
 import nl.ou.refd.analysis.detectors.MissingSuperImplementation;
 import nl.ou.refd.analysis.detectors.OverloadParameterConversion;
 import nl.ou.refd.analysis.detectors.RemovedConcreteOverride;
+import nl.ou.refd.analysis.metrics.AnalysisMetrics;
+import nl.ou.refd.analysis.metrics.AnalysisMetrics.Kind;
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.metrics.AnalysisTrace.Span;
 import nl.ou.refd.analysis.microsteps.AddClass;
 import nl.ou.refd.analysis.microsteps.AddMethod;
+import nl.ou.refd.analysis.microsteps.CompositeMicrostep;
 import nl.ou.refd.analysis.microsteps.Microstep;
 import nl.ou.refd.analysis.microsteps.MoveMethod;
 import nl.ou.refd.analysis.microsteps.RemoveMethod;
@@ -25,30 +35,59 @@ import nl.ou.refd.locations.graph.Graph;
 
 /**
  * Class representing a danger analyser, which is a visitor which walks
- * the model of microsteps and detectors.
+ * the model of microsteps and detectors. Microsteps are analysed one after
+ * another, as every microstep is executed on the program graph the detectors
+ * of the microsteps after it query.
  */
 public class DangerAnalyser implements ModelVisitor, DangerAggregator {
 	
+	/**
+	 * The category of the spans of refactorings in the AnalysisTrace.
+	 */
+	public static final String TRACE_CATEGORY = "refactoring";
+	
 	private final Refactoring refactoring;
 	private final VerdictFunction verdictFunction;
+	private final DetectorMemo memo;
 	
 	private List<LabeledLocationSet> dangers;
+	private DangerAggregator subscriber;
+	private SubMonitor monitor;
+	private Microstep finalMicrostep;
+	private final List<Microstep> executed = new ArrayList<Microstep>();
 	
 	/**
 	 * Creates the danger analyzer for a refactoring.
 	 * @param refactoring the refactoring to analyze
 	 */
 	public DangerAnalyser(Refactoring refactoring) {
+		this(refactoring, new DetectorMemo());
+	}
+	
+	/**
+	 * Creates the danger analyzer for a refactoring, memoizing detector results in
+	 * the given memo. The memo can be shared with other analyzers, as long as it is
+	 * cleared whenever the program graph is mapped again.
+	 * @param refactoring the refactoring to analyze
+	 * @param memo the memo to store detector results in
+	 */
+	public DangerAnalyser(Refactoring refactoring, DetectorMemo memo) {
 		this.refactoring = refactoring;
 		this.verdictFunction = refactoring.verdictFunction(this);
+		this.memo = memo;
 	}
 	
 	/**
 	 * {@inheritDoc}
+	 * The dangers are pushed to the subscriber of the analysis right away.
 	 */
 	@Override
 	public void aggregateDangers(LabeledLocationSet dangers) {
 		this.dangers.add(dangers);
+		
+		if (this.subscriber != null) {
+			this.subscriber.aggregateDangers(dangers);
+		}
 	}
 	
 	/**
@@ -56,21 +95,210 @@ public class DangerAnalyser implements ModelVisitor, DangerAggregator {
 	 * @return a list of LabeledLocationSet objects representing the dangers found
 	 */
 	public List<LabeledLocationSet> analyse() {		
+		return this.analyse(null);
+	}
+	
+	/**
+	 * Analyzes the refactoring contained within this analyzer, streaming the dangers
+	 * to a subscriber. Every LabeledLocationSet is pushed to the subscriber as soon as
+	 * the verdict function has decided on it, so the subscriber does not have to wait
+	 * for the whole analysis to finish.
+	 * @param subscriber the aggregator to push dangers to as they are found, or null
+	 * @return a list of LabeledLocationSet objects representing all the dangers found
+	 */
+	public List<LabeledLocationSet> analyse(DangerAggregator subscriber) {
+		return this.analyse(subscriber, new NullProgressMonitor());
+	}
+	
+	/**
+	 * Analyzes the refactoring contained within this analyzer, streaming the dangers
+	 * to a subscriber and reporting progress to a progress monitor. Progress is reported
+	 * per microstep. Cancellation of the monitor is checked between microsteps, between
+	 * detectors and between the subdetectors of the streams evaluated by the detectors.
+	 * @param subscriber the aggregator to push dangers to as they are found, or null
+	 * @param monitor the progress monitor to report to
+	 * @return a list of LabeledLocationSet objects representing all the dangers found
+	 * @throws OperationCanceledException if the monitor was cancelled during the analysis
+	 */
+	public List<LabeledLocationSet> analyse(DangerAggregator subscriber, IProgressMonitor monitor) {
+		List<Microstep> microsteps = this.refactoring.getMicrosteps();
+		
 		this.dangers = new ArrayList<LabeledLocationSet>();
-		this.refactoring.getMicrosteps().forEach(microstep -> {
-			microstep.accept(this);
-		});
+		this.subscriber = subscriber;
+		this.monitor = SubMonitor.convert(monitor, "Analysing " + this.refactoring.getClass().getSimpleName(), microsteps.size());
+		AnalysisMonitor.install(this.monitor);
+		DetectorMemo.install(this.memo);
+		
+		Span span = AnalysisTrace.getInstance().begin(TRACE_CATEGORY, this.refactoring.getClass());
+		span.arg("microsteps", microsteps.size());
+		
+		try {
+			analyseSerially(microsteps);
+		}
+		finally {
+			span.arg("dangers", this.dangers.size());
+			span.end();
+			AnalysisMonitor.uninstall();
+			DetectorMemo.uninstall();
+			this.subscriber = null;
+			this.monitor = null;
+		}
 		
 		return new ArrayList<LabeledLocationSet>(this.dangers);
 	}
 	
 	/**
-	 * Convenience method to handle a microstep.
+	 * Analyzes the refactoring contained within this analyzer like analyse(DangerAggregator,
+	 * IProgressMonitor) does, but leaves the program graph as it was before the analysis.
+	 * The microsteps are analysed one after another. The program locations created by
+	 * the microsteps are removed again afterwards, and the final microstep, after which
+	 * no detector runs, is not executed at all. Detector results memoized while the
+	 * microsteps were executed, which read a part of the program graph written by one
+	 * of the executed microsteps, are removed from the memo afterwards. The other
+	 * results stay in the memo, so another analysis sharing it can reuse them.
+	 * @param subscriber the aggregator to push dangers to as they are found, or null
+	 * @param monitor the progress monitor to report to
+	 * @return a list of LabeledLocationSet objects representing all the dangers found
+	 * @throws OperationCanceledException if the monitor was cancelled during the analysis
+	 * @throws IllegalStateException if the refactoring cannot be analysed in this way,
+	 * as checked by canRestore()
+	 */
+	public List<LabeledLocationSet> analyseAndRestore(DangerAggregator subscriber, IProgressMonitor monitor) {
+		List<Microstep> microsteps = this.refactoring.getMicrosteps();
+		
+		if (microsteps.isEmpty()) {
+			return analyse(subscriber, monitor);
+		}
+		
+		if (!canRestore()) {
+			throw new IllegalStateException(this.refactoring.getClass().getSimpleName() + " removes program locations before its final microstep");
+		}
+		
+		this.finalMicrostep = finalMicrostep(microsteps);
+		Graph.getInstance().startJournal();
+		
+		try {
+			return analyse(subscriber, monitor);
+		}
+		finally {
+			this.finalMicrostep = null;
+			Graph.getInstance().rollbackJournal();
+			this.executed.forEach(microstep -> this.memo.invalidate(microstep.writeSet()));
+			this.executed.clear();
+		}
+	}
+	
+	/**
+	 * Checks if the refactoring contained within this analyzer can be analysed by
+	 * analyseAndRestore(DangerAggregator, IProgressMonitor): no microstep other than
+	 * the final one removes program locations, as such a change cannot be undone.
+	 * @return true if the refactoring can be analysed while leaving the program graph as it was
+	 */
+	public boolean canRestore() {
+		List<Microstep> microsteps = this.refactoring.getMicrosteps();
+		
+		if (microsteps.isEmpty()) {
+			return true;
+		}
+		
+		Microstep last = finalMicrostep(microsteps);
+		
+		for (Microstep microstep : microsteps) {
+			if (!canRestore(microstep, last)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Checks if a microstep, and the microsteps it is composed of, can be undone
+	 * or is not executed at all.
+	 * @param microstep the microstep to check
+	 * @param last the final microstep, which is not executed
+	 * @return true if executing the microstep can be undone
+	 */
+	private static boolean canRestore(Microstep microstep, Microstep last) {
+		if (microstep == last) {
+			return true;
+		}
+		
+		if (microstep instanceof CompositeMicrostep) {
+			for (Microstep component : ((CompositeMicrostep)microstep).getComponentMicrosteps()) {
+				if (!canRestore(component, last)) {
+					return false;
+				}
+			}
+			
+			return true;
+		}
+		
+		return !microstep.removesProgramLocations();
+	}
+	
+	/**
+	 * Finds the final microstep of a list of microsteps, descending into the last
+	 * component of composite microsteps.
+	 * @param microsteps the microsteps, not empty
+	 * @return the final microstep
+	 */
+	private static Microstep finalMicrostep(List<Microstep> microsteps) {
+		Microstep last = microsteps.get(microsteps.size() - 1);
+		
+		while (last instanceof CompositeMicrostep && !((CompositeMicrostep)last).getComponentMicrosteps().isEmpty()) {
+			List<Microstep> components = ((CompositeMicrostep)last).getComponentMicrosteps();
+			last = components.get(components.size() - 1);
+		}
+		
+		return last;
+	}
+	
+	/**
+	 * Analyzes microsteps one after another on the calling thread.
+	 * @param microsteps the microsteps to analyze
+	 */
+	private void analyseSerially(List<Microstep> microsteps) {
+		for (Microstep microstep : microsteps) {
+			this.monitor.checkCanceled();
+			this.monitor.subTask(microstep.getClass().getSimpleName());
+			microstep.accept(this);
+			this.monitor.worked(1);
+		}
+	}
+	
+	/**
+	 * Convenience method to handle a microstep. After the microstep is executed on
+	 * the program graph, the memoized detector results it may have changed are removed.
+	 * While the program graph is to be restored, the executed microstep is remembered
+	 * to remove those results again once the graph is restored.
 	 * @param microstep the microstep to handle
 	 */
 	private void handleMicrostep(Microstep microstep) {
-		microstep.getDetectors().forEach(detector -> detector.accept(this));
-		microstep.executeOnGraph(Graph.getInstance());
+		long start = System.nanoTime();
+		Span span = beginMicrostep(microstep);
+		
+		try {
+			handleDetectors(microstep);
+			AnalysisMonitor.checkCanceled();
+			
+			if (microstep == this.finalMicrostep) {
+				recordMicrostep(microstep, start);
+				return;
+			}
+			
+			microstep.executeOnGraph(Graph.getInstance());
+			this.memo.invalidate(microstep.writeSet());
+			
+			if (this.finalMicrostep != null) {
+				this.executed.add(microstep);
+			}
+			
+			recordMicrostep(microstep, start);
+		}
+		finally {
+			span.end();
+		}
 	}
 	
 	/**
@@ -78,8 +306,63 @@ public class DangerAnalyser implements ModelVisitor, DangerAggregator {
 	 * @param microstep the MoveMethod microstep to handle
 	 */
 	private void handleMoveMethodMicrostep(MoveMethod microstep) {
-		microstep.getDetectors().forEach(detector -> detector.accept(this));
-		microstep.getComponentMicrosteps().forEach(componentMicrostep -> componentMicrostep.accept(this));
+		long start = System.nanoTime();
+		Span span = beginMicrostep(microstep);
+		
+		try {
+			handleDetectors(microstep);
+			for (Microstep componentMicrostep : microstep.getComponentMicrosteps()) {
+				AnalysisMonitor.checkCanceled();
+				componentMicrostep.accept(this);
+			}
+			recordMicrostep(microstep, start);
+		}
+		finally {
+			span.end();
+		}
+	}
+	
+	/**
+	 * Begins the span of a microstep in the AnalysisTrace, annotated with the
+	 * specification it changes and its number of detectors.
+	 * @param microstep the microstep to begin the span of
+	 * @return the span of the microstep
+	 */
+	private static Span beginMicrostep(Microstep microstep) {
+		Span span = AnalysisTrace.getInstance().begin(Microstep.TRACE_CATEGORY, microstep.getClass());
+		
+		if (span.isRecording()) {
+			span.arg("specification", microstep.specification());
+			span.arg("detectors", microstep.getDetectors().size());
+		}
+		
+		return span;
+	}
+	
+	/**
+	 * Records the time taken to handle a microstep, including its detectors, in the
+	 * AnalysisMetrics. The number of detectors of the microstep is recorded as its input.
+	 * @param microstep the microstep that was handled
+	 * @param start the value of System.nanoTime() when handling the microstep started
+	 */
+	private static void recordMicrostep(Microstep microstep, long start) {
+		AnalysisMetrics metrics = AnalysisMetrics.getInstance();
+		
+		if (metrics.isEnabled()) {
+			metrics.metrics(Kind.MICROSTEP, microstep.getClass()).record(System.nanoTime() - start, microstep.getDetectors().size(), 0);
+		}
+	}
+	
+	/**
+	 * Convenience method to handle the detectors of a microstep, checking for
+	 * cancellation before each detector.
+	 * @param microstep the microstep whose detectors to handle
+	 */
+	private void handleDetectors(Microstep microstep) {
+		for (Detector<?> detector : microstep.getDetectors()) {
+			AnalysisMonitor.checkCanceled();
+			detector.accept(this);
+		}
 	}
 	
 	/**
@@ -0,0 +1,75 @@
+package nl.ou.refd.analysis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
+import nl.ou.refd.analysis.refactorings.Refactoring;
+import nl.ou.refd.locations.collections.LabeledLocationSet;
+import nl.ou.refd.locations.specifications.ClassSpecification;
+
+/**
+ * Class representing a comparison of the dangers of a refactoring for a number of
+ * candidate destinations, such as all superclasses a method can be pulled up to.
+ * The refactoring is analysed for every destination in one pass. The analyses share
+ * one detector memo and leave the program graph as they found it. The detectors
+ * that do not depend on the destination, such as those of removing the source
+ * method, are evaluated only once. They are then reused for the other destinations.
+ */
+public class DestinationComparison {
+
+	private final Function<ClassSpecification, Refactoring> refactoring;
+	private final List<ClassSpecification> destinations;
+	private long reusedResults;
+
+	/**
+	 * Creates the comparison.
+	 * @param refactoring creates the refactoring for a destination
+	 * @param destinations the candidate destinations to compare
+	 */
+	public DestinationComparison(Function<ClassSpecification, Refactoring> refactoring, List<ClassSpecification> destinations) {
+		this.refactoring = refactoring;
+		this.destinations = new ArrayList<ClassSpecification>(destinations);
+	}
+
+	/**
+	 * Analyses the refactoring for every destination. The number of detector results
+	 * reused from the analyses of the destinations before is kept for getReusedResults().
+	 * @param monitor the progress monitor to report to
+	 * @return the dangers found per destination, in the order the destinations were given
+	 * @throws OperationCanceledException if the monitor was cancelled during the comparison
+	 */
+	public Map<ClassSpecification, List<LabeledLocationSet>> analyse(IProgressMonitor monitor) {
+		SubMonitor progress = SubMonitor.convert(monitor, "Comparing destinations", this.destinations.size());
+		DetectorMemo memo = new DetectorMemo();
+		Map<ClassSpecification, List<LabeledLocationSet>> dangers = new LinkedHashMap<ClassSpecification, List<LabeledLocationSet>>();
+
+		for (ClassSpecification destination : this.destinations) {
+			progress.checkCanceled();
+			progress.subTask(destination.toString());
+
+			memo.beginAnalysis();
+			DangerAnalyser analyser = new DangerAnalyser(this.refactoring.apply(destination), memo);
+			dangers.put(destination, analyser.analyseAndRestore(null, progress.split(1)));
+		}
+
+		this.reusedResults = memo.getReusedHits();
+		return dangers;
+	}
+
+	/**
+	 * Gets the number of detector results the last comparison took from the analyses
+	 * of earlier destinations, instead of searching the program graph again.
+	 * @return the number of reused detector results
+	 */
+	public long getReusedResults() {
+		return this.reusedResults;
+	}
+
+}
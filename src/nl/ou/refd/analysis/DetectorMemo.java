@@ -0,0 +1,170 @@
+package nl.ou.refd.analysis;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import nl.ou.refd.locations.collections.LocationSet;
+
+/**
+ * Class representing a memo of detector results. A result is stored under the
+ * key of the detector that found it, together with the footprint the detector
+ * read to find it. The result stays valid until a microstep writes to a part of
+ * the program graph which overlaps with that footprint.
+ *
+ * The memo used by a running analysis is bound to the thread the analysis runs on,
+ * so detectors can consult it when their risks are requested. A memo can be shared
+ * by several analyses, as long as it is cleared whenever the program graph is
+ * mapped again, as the program locations in the stored results are those of the
+ * mapping they were found in.
+ */
+public class DetectorMemo {
+
+	private static final ThreadLocal<DetectorMemo> current = new ThreadLocal<DetectorMemo>();
+
+	private final Map<Object, Entry> results = new HashMap<Object, Entry>();
+	private long hits;
+	private long misses;
+	private long analysis;
+	private long reusedHits;
+
+	/**
+	 * Binds a memo to the current thread.
+	 * @param memo the memo of the analysis running on the current thread
+	 */
+	public static void install(DetectorMemo memo) {
+		current.set(memo);
+	}
+
+	/**
+	 * Removes the memo bound to the current thread.
+	 */
+	public static void uninstall() {
+		current.remove();
+	}
+
+	/**
+	 * Gets the memo bound to the current thread.
+	 * @return the bound memo, or null if no analysis runs on the current thread
+	 */
+	public static DetectorMemo get() {
+		return current.get();
+	}
+
+	/**
+	 * Looks up the result stored for a detector key.
+	 * @param key the key of the detector
+	 * @return the stored result, or null if no valid result is stored
+	 */
+	public synchronized LocationSet lookup(Object key) {
+		Entry entry = this.results.get(key);
+
+		if (entry == null) {
+			this.misses++;
+			return null;
+		}
+
+		this.hits++;
+		
+		if (entry.analysis != this.analysis) {
+			this.reusedHits++;
+		}
+		
+		return entry.result;
+	}
+
+	/**
+	 * Stores the result of a detector.
+	 * @param key the key of the detector
+	 * @param result the result found by the detector
+	 * @param reads the footprint the detector read to find the result
+	 */
+	public synchronized void store(Object key, LocationSet result, Footprint reads) {
+		this.results.put(key, new Entry(result, reads, this.analysis));
+	}
+
+	/**
+	 * Removes the stored results which were found by reading a part of the program
+	 * graph that overlaps with the footprint written by a microstep.
+	 * @param writes the footprint written by a microstep
+	 */
+	public synchronized void invalidate(Footprint writes) {
+		Iterator<Entry> entries = this.results.values().iterator();
+
+		while (entries.hasNext()) {
+			if (entries.next().reads.conflictsWith(writes)) {
+				entries.remove();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of stored results.
+	 * @return the number of stored results
+	 */
+	public synchronized int size() {
+		return this.results.size();
+	}
+
+	/**
+	 * Removes all stored results.
+	 */
+	public synchronized void clear() {
+		this.results.clear();
+	}
+
+	/**
+	 * Gets the number of lookups which found a stored result.
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Marks the start of another analysis sharing this memo. Results found before
+	 * count as reused by getReusedHits() when they are looked up from now on.
+	 */
+	public synchronized void beginAnalysis() {
+		this.analysis++;
+	}
+
+	/**
+	 * Gets the number of lookups which found a result stored by an earlier analysis
+	 * sharing this memo, as marked by beginAnalysis().
+	 * @return the number of hits on results of earlier analyses
+	 */
+	public synchronized long getReusedHits() {
+		return this.reusedHits;
+	}
+
+	/**
+	 * Gets the number of lookups which did not find a stored result.
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * A stored detector result together with the footprint read to find it.
+	 */
+	private static class Entry {
+		private final LocationSet result;
+		private final Footprint reads;
+		private final long analysis;
+
+		/**
+		 * Creates the entry.
+		 * @param result the result found by the detector
+		 * @param reads the footprint the detector read to find the result
+		 * @param analysis the analysis which found the result
+		 */
+		Entry(LocationSet result, Footprint reads, long analysis) {
+			this.result = result;
+			this.reads = reads;
+			this.analysis = analysis;
+		}
+	}
+
+}
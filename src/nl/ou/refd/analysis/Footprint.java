@@ -0,0 +1,171 @@
+package nl.ou.refd.analysis;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import nl.ou.refd.locations.collections.LocationSet;
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.Tags;
+
+/**
+ * Class representing the part of the program graph a detector reads, or a
+ * microstep writes. A footprint consists of whole classes, of class declarations
+ * and of members of classes. A declaration covers only the class itself (its
+ * existence and its place in the hierarchy), not its members. A member is
+ * identified by its class and its name, so all overloads of a method share one
+ * member. Classes are identified by their name, in the same way the detectors
+ * select classes by name.
+ */
+public class Footprint {
+
+	private static final String MEMBER_SEPARATOR = "#";
+
+	private final Set<String> classes = new HashSet<String>();
+	private final Set<String> declarations = new HashSet<String>();
+	private final Set<String> members = new HashSet<String>();
+
+	/**
+	 * Adds a whole class to the footprint.
+	 * @param className the name of the class
+	 * @return this footprint
+	 */
+	public Footprint withClass(String className) {
+		this.classes.add(className);
+		return this;
+	}
+
+	/**
+	 * Adds the whole classes contained in a location set to the footprint.
+	 * @param classes the location set containing class locations
+	 * @return this footprint
+	 */
+	public Footprint withClasses(LocationSet classes) {
+		for (ProgramLocation location : classes.locations()) {
+			this.withClass(location.<String>getAttribute(Tags.Attributes.NAME));
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the declaration of a class to the footprint, without its members.
+	 * @param className the name of the class
+	 * @return this footprint
+	 */
+	public Footprint withDeclaration(String className) {
+		this.declarations.add(className);
+		return this;
+	}
+
+	/**
+	 * Adds the declarations of the classes contained in a location set to the
+	 * footprint, without their members.
+	 * @param classes the location set containing class locations
+	 * @return this footprint
+	 */
+	public Footprint withDeclarations(LocationSet classes) {
+		for (ProgramLocation location : classes.locations()) {
+			this.withDeclaration(location.<String>getAttribute(Tags.Attributes.NAME));
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a member of a class to the footprint.
+	 * @param className the name of the class the member belongs to
+	 * @param memberName the name of the member
+	 * @return this footprint
+	 */
+	public Footprint withMember(String className, String memberName) {
+		this.members.add(className + MEMBER_SEPARATOR + memberName);
+		return this;
+	}
+
+	/**
+	 * Adds a member with the same name to every class contained in a location set.
+	 * @param classes the location set containing class locations
+	 * @param memberName the name of the member
+	 * @return this footprint
+	 */
+	public Footprint withMembers(LocationSet classes, String memberName) {
+		for (ProgramLocation location : classes.locations()) {
+			this.withMember(location.<String>getAttribute(Tags.Attributes.NAME), memberName);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the methods or fields contained in a location set to the footprint as
+	 * members of the classes they belong to.
+	 * @param members the location set containing method or field locations
+	 * @return this footprint
+	 */
+	public Footprint withMembers(LocationSet members) {
+		for (ProgramLocation member : members.locations()) {
+			for (ProgramLocation parent : Graph.query(member).parent().locations()) {
+				this.withMember(parent.<String>getAttribute(Tags.Attributes.NAME), member.<String>getAttribute(Tags.Attributes.NAME));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Adds everything contained in another footprint to this footprint.
+	 * @param other the other footprint
+	 * @return this footprint
+	 */
+	public Footprint union(Footprint other) {
+		this.classes.addAll(other.classes);
+		this.declarations.addAll(other.declarations);
+		this.members.addAll(other.members);
+		return this;
+	}
+
+	/**
+	 * Checks if this footprint overlaps with another footprint. Two footprints
+	 * overlap if they share a class, a declaration or a member, or if one contains
+	 * a whole class of which the other contains the declaration or a member.
+	 * @param other the other footprint
+	 * @return true if the footprints overlap, false otherwise
+	 */
+	public boolean conflictsWith(Footprint other) {
+		if (!Collections.disjoint(this.classes, other.classes)
+				|| !Collections.disjoint(this.members, other.members)
+				|| !Collections.disjoint(this.declarations, other.declarations)
+				|| !Collections.disjoint(this.classes, other.declarations)
+				|| !Collections.disjoint(this.declarations, other.classes)) {
+			return true;
+		}
+
+		return containsClassOfMember(this.classes, other.members) || containsClassOfMember(other.classes, this.members);
+	}
+
+	/**
+	 * Checks if a set of classes contains the class of any member in a set of members.
+	 * @param classes the set of class names
+	 * @param members the set of members
+	 * @return true if one of the members belongs to one of the classes
+	 */
+	private static boolean containsClassOfMember(Set<String> classes, Set<String> members) {
+		if (classes.isEmpty()) {
+			return false;
+		}
+
+		for (String member : members) {
+			if (classes.contains(member.substring(0, member.indexOf(MEMBER_SEPARATOR)))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "classes " + this.classes + ", declarations " + this.declarations + ", members " + this.members;
+	}
+
+}
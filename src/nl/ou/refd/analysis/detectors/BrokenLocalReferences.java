@@ -1,11 +1,21 @@
 package nl.ou.refd.analysis.detectors;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
+import nl.ou.refd.analysis.subdetectors.InstructionSubdetectors;
 import nl.ou.refd.locations.collections.ClassSet;
 import nl.ou.refd.locations.collections.InstructionSet;
+import nl.ou.refd.locations.collections.MethodSet;
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.InheritedMembers;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.ReferenceSummaries;
 import nl.ou.refd.locations.specifications.ClassSpecification;
-import nl.ou.refd.locations.streams.ClassStream;
 import nl.ou.refd.locations.streams.InstructionStream;
+import nl.ou.refd.locations.streams.StreamPlan;
 
 /**
  * A collection of classes which represent BrokenLocalReferences detectors,
@@ -21,6 +31,10 @@ public final class BrokenLocalReferences {
 	 */
 	public static class Body extends Detector<InstructionSet> {
 		
+		private static final StreamPlan<Body> PARENT_METHODS = StreamPlan
+				.<Body>from(detector -> detector.existingBody.collect())
+				.then(new InstructionSubdetectors.ParentMethods());
+		
 		private final InstructionStream existingBody;
 		private final ClassSpecification newContext;
 		
@@ -37,33 +51,49 @@ public final class BrokenLocalReferences {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public InstructionSet actualRisks() {
-			ClassStream destinationContext = new ClassSet(newContext).stream();
-			ClassStream fullDestinationContext = destinationContext
-												 .unionWithClasses(
-														 destinationContext
-														 .allSuperClasses()
-												 );
+		protected InstructionSet detectRisks(Footprint reads) {
+			Set<ProgramLocation> parentMethods = PARENT_METHODS.execute(this);
+			Set<ProgramLocation> localContext = withSuperClasses(new MethodSet(parentMethods).stream().parentClasses().collect().locations());
+			Set<ProgramLocation> destinationContext = withSuperClasses(new ClassSet(newContext).locations());
+			
+			reads.withMembers(new MethodSet(parentMethods))
+				.withClasses(new ClassSet(localContext))
+				.withDeclaration(newContext.getClassName())
+				.withDeclarations(new ClassSet(destinationContext));
+			
+			Set<ProgramLocation> adjustedLocalContext = new HashSet<ProgramLocation>(localContext);
+			adjustedLocalContext.removeAll(destinationContext);
 			
-			ClassStream localClass = existingBody.parentMethods().parentClasses();
-			ClassStream adjustedLocalContext = localClass
-											   .unionWithClasses(
-													   localClass
-													   .allSuperClasses()
-											   ).differenceWithClasses(fullDestinationContext);
+			Set<ProgramLocation> sites = ReferenceSummaries.getInstance().sitesReferencing(parentMethods, adjustedLocalContext);
+			
+			if (!sites.isEmpty()) {
+				sites.retainAll(Graph.query(existingBody.collect().locations()).contained().locations());
+			}
+			
+			return new InstructionSet(sites);
+		}
+		
+		/**
+		 * Adds all superclasses to classes.
+		 * @param classes the classes
+		 * @return the classes and all their superclasses
+		 */
+		private static Set<ProgramLocation> withSuperClasses(Set<ProgramLocation> classes) {
+			Set<ProgramLocation> hierarchy = new HashSet<ProgramLocation>(classes);
 			
-			InstructionStream body = existingBody;
+			for (ProgramLocation type : classes) {
+				hierarchy.addAll(InheritedMembers.getInstance().superclasses(type));
+			}
 			
-			return body.methodCalls().union(body.fieldCalls())
-			.intersectionWithInstructions(
-					adjustedLocalContext
-				.methods()
-				.methodsCalledAt()
-				.union(adjustedLocalContext
-						.fields()
-						.fieldsCalledAt()
-					)
-			).collect();
+			return hierarchy;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return newContext.toString();
 		}
 
 		/**
@@ -1,8 +1,15 @@
 package nl.ou.refd.analysis.detectors;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
+import nl.ou.refd.locations.collections.ClassSet;
 import nl.ou.refd.locations.collections.MethodSet;
 import nl.ou.refd.locations.generators.ProgramComponentsGenerator;
+import nl.ou.refd.locations.graph.InheritedMembers;
+import nl.ou.refd.locations.graph.ProgramLocation;
 import nl.ou.refd.locations.specifications.MethodSpecification;
 
 /**
@@ -33,16 +40,35 @@ public final class BrokenSubTyping {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public MethodSet actualRisks() {
-			return
-				new ProgramComponentsGenerator()
-				.stream()
-				.classes()
-				.classesByName(subject.getEnclosingClass().getClassName())
-				.allSuperClasses()
-				.methods()
-				.overrideEquivalentMethods(subject) //TODO: Maybe this has to select concrete methods only?
-				.collect();
+		protected MethodSet detectRisks(Footprint reads) {
+			Set<ProgramLocation> inherited = new HashSet<ProgramLocation>();
+			reads.withMember(subject.getEnclosingClass().getClassName(), subject.getMethodName());
+			
+			for (ProgramLocation type : new ProgramComponentsGenerator().classesNamed(subject.getEnclosingClass().getClassName())) {
+				inherited.addAll(InheritedMembers.getInstance().inheritedMethods(type, subject.getMethodName(), subject.getParameterTypes()));
+				reads.withMembers(new ClassSet(InheritedMembers.getInstance().superclasses(type)), subject.getMethodName());
+			}
+			
+			return new MethodSet(inherited)
+					.stream()
+					.overrideEquivalentMethods(subject) //TODO: Maybe this has to select concrete methods only?
+					.collect();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(subject);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return subject.toString();
 		}
 
 		/**
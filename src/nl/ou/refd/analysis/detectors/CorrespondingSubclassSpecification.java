@@ -1,9 +1,13 @@
 package nl.ou.refd.analysis.detectors;
 
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
+import nl.ou.refd.analysis.subdetectors.ClassSubdetectors;
+import nl.ou.refd.analysis.subdetectors.MethodSubdetectors;
 import nl.ou.refd.locations.collections.ClassSet;
 import nl.ou.refd.locations.collections.MethodSet;
 import nl.ou.refd.locations.specifications.MethodSpecification;
+import nl.ou.refd.locations.streams.StreamPlan;
 
 /**
  * A collection of classes which represent CorrespondingSubclassSpecification detectors,
@@ -19,6 +23,13 @@ public final class CorrespondingSubclassSpecification {
 	 */
 	public static class Method extends Detector<MethodSet> {
 		
+		private static final StreamPlan<MethodSpecification> PLAN = StreamPlan
+				.<MethodSpecification>from(methodToAdd -> new ClassSet(methodToAdd.getEnclosingClass()))
+				.then(new ClassSubdetectors.AllSubclasses())
+				.read()
+				.then(new ClassSubdetectors.Methods())
+				.then(methodToAdd -> new MethodSubdetectors.MethodsWithSignature(methodToAdd.getMethodName(), methodToAdd.getParameterTypes()));
+		
 		private final MethodSpecification methodToAdd;
 		
 		/**
@@ -33,15 +44,25 @@ public final class CorrespondingSubclassSpecification {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public MethodSet actualRisks() {
-			return
-				new ClassSet(methodToAdd.getEnclosingClass())
-				.stream()
-				.allSubclasses()
-				.methods()
-				.methodsWithSignature(methodToAdd.getMethodName(),
-					methodToAdd.getParameterTypes())
-				.collect();
+		protected MethodSet detectRisks(Footprint reads) {
+			reads.withMember(methodToAdd.getEnclosingClass().getClassName(), methodToAdd.getMethodName());
+			return new MethodSet(PLAN.execute(methodToAdd, subclasses -> reads.withMembers(new ClassSet(subclasses), methodToAdd.getMethodName())));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(methodToAdd);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return methodToAdd.toString();
 		}
 
 		/**
@@ -1,26 +1,141 @@
 package nl.ou.refd.analysis.detectors;
 
+import java.util.Arrays;
+
+import nl.ou.refd.analysis.DetectorMemo;
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
 import nl.ou.refd.analysis.ModelNode;
 import nl.ou.refd.analysis.ModelVisitor;
 import nl.ou.refd.analysis.VerdictFunction;
 import nl.ou.refd.analysis.Verdictable;
+import nl.ou.refd.analysis.metrics.AnalysisMetrics;
+import nl.ou.refd.analysis.metrics.AnalysisMetrics.Kind;
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.metrics.AnalysisTrace.Span;
 import nl.ou.refd.locations.collections.LocationSet;
+import nl.ou.refd.locations.specifications.ClassSpecification;
+import nl.ou.refd.locations.specifications.MethodSpecification;
 
 /**
  * Class representing a detector. A detector checks the program graph
  * for potential risks. If it finds these, they are determined to be
  * actual risks.
+ *
+ * While a detector searches the program graph, it records the part of the
+ * graph it reads in a footprint, derived from the program locations its
+ * search goes through. When a detector has a memo key, its actual risks are
+ * stored with that footprint in the DetectorMemo of the running analysis, so
+ * detectors with the same key do not search the program graph again until a
+ * microstep changes the part of the graph they read. The time taken to get the actual risks, the number of risks and the memo
+ * hits are recorded in the AnalysisMetrics per detector class, and in the
+ * AnalysisTrace when tracing is enabled.
  * @param <T> the type of LocationSet the detector outputs its results in
  */
 public abstract class Detector<T extends LocationSet> implements ModelNode, Verdictable {
 
 	/**
-	 * Gets the actual risks present in the codebase.
+	 * The category of the spans of detectors in the AnalysisTrace.
+	 */
+	public static final String TRACE_CATEGORY = "detector";
+
+	/**
+	 * Gets the actual risks present in the codebase. The risks are taken
+	 * from the memo of the running analysis if a valid result is stored there.
 	 * @return a LocationSet containing these actual risks
 	 */
-	public abstract T actualRisks();
-	
+	@SuppressWarnings("unchecked")
+	public T actualRisks() {
+		AnalysisMetrics metrics = AnalysisMetrics.getInstance();
+		long start = metrics.isEnabled() ? System.nanoTime() : 0;
+		Span span = AnalysisTrace.getInstance().begin(TRACE_CATEGORY, this.getClass());
+		DetectorMemo memo = DetectorMemo.get();
+		Object key = memo != null ? this.memoKey() : null;
+		T risks = null;
+
+		if (span.isRecording()) {
+			span.arg("specification", this.specification());
+		}
+
+		try {
+			if (key == null) {
+				risks = this.detectRisks(new Footprint());
+			}
+			else {
+				risks = (T)memo.lookup(key);
+				span.arg("memoized", risks != null);
+
+				if (metrics.isEnabled()) {
+					metrics.metrics(Kind.DETECTOR, this.getClass()).recordCacheLookup(risks != null);
+				}
+
+				if (risks == null) {
+					Footprint reads = new Footprint();
+					risks = this.detectRisks(reads);
+					memo.store(key, risks, reads);
+				}
+			}
+
+			if (metrics.isEnabled()) {
+				metrics.metrics(Kind.DETECTOR, this.getClass()).record(System.nanoTime() - start, 0, risks.size());
+			}
+
+			return risks;
+		}
+		finally {
+			if (risks != null) {
+				span.arg("risks", risks.size());
+			}
+			span.end();
+		}
+	}
+
+	/**
+	 * Searches the program graph for the actual risks present in the codebase, and
+	 * adds the part of the graph the search reads to a footprint. The footprint
+	 * includes the parts of the graph which decide what else the search reads.
+	 * @param reads the footprint to add the part of the graph read to
+	 * @return a LocationSet containing these actual risks
+	 */
+	protected abstract T detectRisks(Footprint reads);
+
+	/**
+	 * Gets a description of the specification this detector analyses, to annotate traces with.
+	 * @return the description of the specification, or null if the detector has none
+	 */
+	public String specification() {
+		return null;
+	}
+
+	/**
+	 * Gets the key under which the results of this detector are memoized. Detectors
+	 * of the same type with the same context have equal keys. Detectors without a
+	 * key are not memoized.
+	 * @return the memo key, or null if the results of this detector are not memoized
+	 */
+	public Object memoKey() {
+		return null;
+	}
+
+	/**
+	 * Creates a memo key for a detector of this type with a method as its context.
+	 * @param subject the context
+	 * @return the memo key
+	 */
+	protected Object memoKey(MethodSpecification subject) {
+		return Arrays.asList(this.getClass(), subject.toString(), subject.getReturnType(),
+				subject.getVisibility(), subject.isStatic(), subject.isAbstract());
+	}
+
+	/**
+	 * Creates a memo key for a detector of this type with a class as its context.
+	 * @param subject the context
+	 * @return the memo key
+	 */
+	protected Object memoKey(ClassSpecification subject) {
+		return Arrays.asList(this.getClass(), subject.toString(), subject.getAccessModifier());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -36,6 +151,6 @@ public abstract class Detector<T extends LocationSet> implements ModelNode, Verd
 	public void accept(VerdictFunction verdict) {
 		this.accept((DetectorVisitor)verdict);
 	}
-	
+
 	public abstract void accept(DetectorVisitor visitor);
 }
@@ -0,0 +1,47 @@
+package nl.ou.refd.analysis.detectors;
+
+import static nl.ou.refd.locations.datalog.Atom.of;
+
+import nl.ou.refd.locations.datalog.DatalogProgram;
+import nl.ou.refd.locations.graph.Tags;
+
+/**
+ * Class holding the Datalog program shared by the detectors declared as rules.
+ * Its predicates mirror the subdetectors those detectors were composed of: the
+ * relations of the graph they follow, the tags they filter on, and the transitive
+ * closures they compute, which are materialized once and kept up to date instead
+ * of being followed again by every detector.
+ */
+final class DetectorRules {
+	private DetectorRules(){}
+
+	/**
+	 * The program with the predicates used by the rules of the detectors:
+	 * extends, declares, contains and overrides for the relations of the graph,
+	 * class, abstractClass, method, abstractMethod and memberMethod for the tags,
+	 * and the derived predicates superclass(C, S), for all superclasses S of a class
+	 * C as selected by AllSuperClasses, classMethod(C, M), for the methods M of a
+	 * class C as selected by Methods, and overridden(M, O), for all methods O
+	 * overridden by a method M as followed by Overrides.
+	 */
+	static final DatalogProgram PROGRAM = new DatalogProgram.Builder()
+			.relation("extends", Tags.Relation.EXTENDS)
+			.relation("declares", Tags.Relation.DECLARES)
+			.relation("contains", Tags.Relation.CONTAINS)
+			.relation("overrides", Tags.Relation.OVERRIDES)
+			.tagged("class", Tags.ProgramLocation.CLASS)
+			.tagged("abstractClass", Tags.ProgramLocation.ABSTRACT_CLASS)
+			.tagged("method", Tags.ProgramLocation.METHOD)
+			.tagged("abstractMethod", Tags.ProgramLocation.ABSTRACT_METHOD)
+			.tagged("memberMethod", Tags.ProgramLocation.ABSTRACT_METHOD, Tags.ProgramLocation.INSTANCE_METHOD, Tags.ProgramLocation.CLASS_METHOD)
+			.rule(of("ancestor", "C", "S"), of("extends", "C", "S"))
+			.rule(of("ancestor", "C", "S"), of("ancestor", "C", "X"), of("extends", "X", "S"))
+			.rule(of("superclass", "C", "S"), of("ancestor", "C", "S"), of("class", "S"))
+			.rule(of("declared", "C", "X"), of("declares", "C", "X"))
+			.rule(of("declared", "C", "X"), of("declared", "C", "Y"), of("declares", "Y", "X"))
+			.rule(of("classMethod", "C", "M"), of("declared", "C", "M"), of("method", "M"), of("memberMethod", "M"))
+			.rule(of("overridden", "M", "O"), of("overrides", "M", "O"))
+			.rule(of("overridden", "M", "O"), of("overridden", "M", "X"), of("overrides", "X", "O"))
+			.build();
+
+}
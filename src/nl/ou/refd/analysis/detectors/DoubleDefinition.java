@@ -1,11 +1,14 @@
 package nl.ou.refd.analysis.detectors;
 
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
+import nl.ou.refd.analysis.subdetectors.ClassSubdetectors;
+import nl.ou.refd.analysis.subdetectors.MethodSubdetectors;
 import nl.ou.refd.locations.collections.ClassSet;
 import nl.ou.refd.locations.collections.MethodSet;
-import nl.ou.refd.locations.generators.ProgramComponentsGenerator;
 import nl.ou.refd.locations.specifications.ClassSpecification;
 import nl.ou.refd.locations.specifications.MethodSpecification;
+import nl.ou.refd.locations.streams.StreamPlan;
 
 /**
  * A collection of classes which represent DoubleDefinition detectors,
@@ -21,6 +24,9 @@ public final class DoubleDefinition {
 	 */
 	public static class Class extends Detector<ClassSet> {
 		
+		private static final StreamPlan<ClassSpecification> PLAN = StreamPlan
+				.<ClassSpecification>classesByName(subject -> subject.getClassName());
+		
 		private final ClassSpecification subject;
 		
 		/**
@@ -35,12 +41,25 @@ public final class DoubleDefinition {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public ClassSet actualRisks() {
-			return new ProgramComponentsGenerator()
-					.stream()
-					.classes()
-					.classesByName(subject.getClassName())
-					.collect();
+		protected ClassSet detectRisks(Footprint reads) {
+			reads.withClass(subject.getClassName());
+			return new ClassSet(PLAN.execute(subject));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(subject);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return subject.toString();
 		}
 
 		/**
@@ -60,6 +79,11 @@ public final class DoubleDefinition {
 	 */
 	public static class Method extends Detector<MethodSet> {
 		
+		private static final StreamPlan<MethodSpecification> PLAN = StreamPlan
+				.<MethodSpecification>classesByName(subject -> subject.getEnclosingClass().getClassName())
+				.then(new ClassSubdetectors.Methods())
+				.then(subject -> new MethodSubdetectors.MethodsWithSignature(subject.getMethodName(), subject.getParameterTypes()));
+		
 		private final MethodSpecification subject;
 		
 		/**
@@ -74,14 +98,25 @@ public final class DoubleDefinition {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public MethodSet actualRisks() {
-			return new ProgramComponentsGenerator()
-					.stream()
-					.classes()
-					.classesByName(subject.getEnclosingClass().getClassName())
-					.methods()
-					.methodsWithSignature(subject.getMethodName(), subject.getParameterTypes())
-					.collect();
+		protected MethodSet detectRisks(Footprint reads) {
+			reads.withMember(subject.getEnclosingClass().getClassName(), subject.getMethodName());
+			return new MethodSet(PLAN.execute(subject));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(subject);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return subject.toString();
 		}
 
 		/**
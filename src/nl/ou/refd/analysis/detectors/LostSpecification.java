@@ -1,8 +1,11 @@
 package nl.ou.refd.analysis.detectors;
 
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
+import nl.ou.refd.analysis.subdetectors.MethodSubdetectors;
 import nl.ou.refd.locations.collections.MethodSet;
 import nl.ou.refd.locations.specifications.MethodSpecification;
+import nl.ou.refd.locations.streams.StreamPlan;
 
 /**
  * A collection of classes which represent LostSpecification detectors,
@@ -18,6 +21,10 @@ public final class LostSpecification {
 	 */
 	public static class Method extends Detector<MethodSet> {
 		
+		private static final StreamPlan<MethodSpecification> PLAN = StreamPlan
+				.<MethodSpecification>from(subject -> new MethodSet(subject))
+				.then(new MethodSubdetectors.OverriddenBy());
+		
 		private final MethodSpecification subject;
 		
 		/**
@@ -32,11 +39,27 @@ public final class LostSpecification {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public MethodSet actualRisks() {
-			return new MethodSet(subject)
-					.stream()
-					.overriddenBy()
-					.collect();
+		protected MethodSet detectRisks(Footprint reads) {
+			MethodSet risks = new MethodSet(PLAN.execute(subject));
+			reads.withMember(subject.getEnclosingClass().getClassName(), subject.getMethodName())
+				.withMembers(risks);
+			return risks;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(subject);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return subject.toString();
 		}
 
 		/**
@@ -1,9 +1,13 @@
 package nl.ou.refd.analysis.detectors;
 
+import static nl.ou.refd.locations.datalog.Atom.not;
+import static nl.ou.refd.locations.datalog.Atom.of;
+
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
 import nl.ou.refd.locations.collections.MethodSet;
+import nl.ou.refd.locations.datalog.DatalogQuery;
 import nl.ou.refd.locations.specifications.MethodSpecification;
-import nl.ou.refd.locations.streams.MethodStream;
 
 /**
  * A collection of classes which represent MissingAbstractImplementation detectors,
@@ -19,6 +23,16 @@ public final class MissingAbstractImplementation {
 	 */
 	public static class Method extends Detector<MethodSet> {
 		
+		private static final DatalogQuery<MethodSpecification> QUERY = new DatalogQuery.Builder<MethodSpecification>(DetectorRules.PROGRAM, "risk")
+				.input("subject", subject -> new MethodSet(subject).locations())
+				.rule(of("concrete", "M"), of("subject", "M"), of("method", "M"), not("abstractMethod", "M"))
+				.rule(of("overriddenMethod", "O"), of("concrete", "M"), of("overridden", "M", "O"), of("method", "O"))
+				.rule(of("inheritedAbstract", "O"), of("concrete", "M"), of("contains", "C", "M"), of("superclass", "C", "S"),
+						of("abstractClass", "S"), of("classMethod", "S", "O"), of("abstractMethod", "O"))
+				.rule(of("risk", "O"), of("overriddenMethod", "O"), of("inheritedAbstract", "O"))
+				.read("overriddenMethod")
+				.build();
+		
 		private final MethodSpecification subject;
 		
 		/**
@@ -33,19 +47,25 @@ public final class MissingAbstractImplementation {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public MethodSet actualRisks() {
-			MethodStream concreteMethod = new MethodSet(subject).stream().concreteMethods();
-			
-			return concreteMethod
-				.overrides()
-				.intersectionWithMethods(
-						concreteMethod
-						.parentClasses()
-						.allSuperClasses()
-						.abstractClasses()
-						.methods()
-						.abstractMethods()
-				).collect();
+		protected MethodSet detectRisks(Footprint reads) {
+			reads.withMember(subject.getEnclosingClass().getClassName(), subject.getMethodName());
+			return new MethodSet(QUERY.execute(subject, overridden -> reads.withMembers(new MethodSet(overridden))));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(subject);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return subject.toString();
 		}
 
 		/**
@@ -1,9 +1,12 @@
 package nl.ou.refd.analysis.detectors;
 
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
+import nl.ou.refd.analysis.subdetectors.MethodSubdetectors;
 import nl.ou.refd.locations.collections.InstructionSet;
 import nl.ou.refd.locations.collections.MethodSet;
 import nl.ou.refd.locations.specifications.MethodSpecification;
+import nl.ou.refd.locations.streams.StreamPlan;
 
 /**
  * A collection of classes which represent MissingDefinition detectors,
@@ -19,6 +22,10 @@ public final class MissingDefinition {
 	 */
 	public static class Method extends Detector<InstructionSet> {
 		
+		private static final StreamPlan<MethodSpecification> PLAN = StreamPlan
+				.<MethodSpecification>from(subject -> new MethodSet(subject))
+				.then(new MethodSubdetectors.MethodsCalledAt());
+		
 		private final MethodSpecification subject;
 		
 		/**
@@ -33,8 +40,27 @@ public final class MissingDefinition {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public InstructionSet actualRisks() {
-			return new MethodSet(subject).stream().methodsCalledAt().collect();
+		protected InstructionSet detectRisks(Footprint reads) {
+			InstructionSet risks = new InstructionSet(PLAN.execute(subject));
+			reads.withMember(subject.getEnclosingClass().getClassName(), subject.getMethodName())
+				.withMembers(risks.stream().parentMethods().collect());
+			return risks;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(subject);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return subject.toString();
 		}
 
 		/**
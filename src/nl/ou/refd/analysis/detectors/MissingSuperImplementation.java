@@ -1,10 +1,14 @@
 package nl.ou.refd.analysis.detectors;
 
+import static nl.ou.refd.locations.datalog.Atom.not;
+import static nl.ou.refd.locations.datalog.Atom.of;
+
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
 import nl.ou.refd.locations.collections.ClassSet;
 import nl.ou.refd.locations.collections.MethodSet;
+import nl.ou.refd.locations.datalog.DatalogQuery;
 import nl.ou.refd.locations.specifications.MethodSpecification;
-import nl.ou.refd.locations.streams.MethodStream;
 
 /**
  * A collection of classes which represent MissingSuperImplementation detectors,
@@ -20,6 +24,15 @@ public final class MissingSuperImplementation {
 	 */
 	public static class Method extends Detector<ClassSet> {
 		
+		private static final DatalogQuery<MethodSpecification> QUERY = new DatalogQuery.Builder<MethodSpecification>(DetectorRules.PROGRAM, "risk")
+				.input("subject", subject -> new MethodSet(subject).locations())
+				.rule(of("concrete", "M"), of("subject", "M"), of("method", "M"), not("abstractMethod", "M"))
+				.rule(of("overriderClass", "P"), of("concrete", "M"), of("overrides", "X", "M"), of("contains", "P", "X"))
+				.rule(of("subclass", "D"), of("concrete", "M"), of("contains", "C", "M"), of("extends", "D", "C"), of("class", "D"))
+				.rule(of("risk", "D"), of("subclass", "D"), not("overriderClass", "D"))
+				.read("subclass")
+				.build();
+		
 		private final MethodSpecification subject;
 		
 		/**
@@ -34,15 +47,25 @@ public final class MissingSuperImplementation {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public ClassSet actualRisks() {
-			MethodStream concreteMethod = new MethodSet(subject).stream().concreteMethods();
-			
-			return concreteMethod.parentClasses()
-				.directSubclasses()
-				.differenceWithClasses(
-						concreteMethod.overriddenBy()
-						.parentClasses()
-				).collect();
+		protected ClassSet detectRisks(Footprint reads) {
+			reads.withMember(subject.getEnclosingClass().getClassName(), subject.getMethodName());
+			return new ClassSet(QUERY.execute(subject, subclasses -> reads.withMembers(new ClassSet(subclasses), subject.getMethodName())));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(subject);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return subject.toString();
 		}
 
 		/**
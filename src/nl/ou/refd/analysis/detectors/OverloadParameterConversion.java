@@ -1,8 +1,14 @@
 package nl.ou.refd.analysis.detectors;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
+import nl.ou.refd.analysis.subdetectors.OverloadTable;
 import nl.ou.refd.locations.collections.MethodSet;
 import nl.ou.refd.locations.generators.ProgramComponentsGenerator;
+import nl.ou.refd.locations.graph.ProgramLocation;
 import nl.ou.refd.locations.specifications.MethodSpecification;
 
 /**
@@ -33,14 +39,31 @@ public final class OverloadParameterConversion {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public MethodSet actualRisks() {
-			return new ProgramComponentsGenerator()
-					.stream()
-					.classes()
-					.classesByName(subject.getEnclosingClass().getClassName())
-					.methods()
-					.autoNarrowingOverloads(subject)
-					.collect();
+		protected MethodSet detectRisks(Footprint reads) {
+			Set<ProgramLocation> risks = new HashSet<ProgramLocation>();
+			reads.withMember(subject.getEnclosingClass().getClassName(), subject.getMethodName());
+			
+			for (ProgramLocation type : new ProgramComponentsGenerator().classesNamed(subject.getEnclosingClass().getClassName())) {
+				risks.addAll(OverloadTable.ofClass(type).narrowingOverloads(subject));
+			}
+			
+			return new MethodSet(risks);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(subject);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return subject.toString();
 		}
 
 		/**
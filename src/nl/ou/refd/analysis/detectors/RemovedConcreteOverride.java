@@ -1,8 +1,11 @@
 package nl.ou.refd.analysis.detectors;
 
 import nl.ou.refd.analysis.DetectorVisitor;
+import nl.ou.refd.analysis.Footprint;
+import nl.ou.refd.analysis.subdetectors.MethodSubdetectors;
 import nl.ou.refd.locations.collections.MethodSet;
 import nl.ou.refd.locations.specifications.MethodSpecification;
+import nl.ou.refd.locations.streams.StreamPlan;
 
 /**
  * A collection of classes which represent RemovedConcreteOverride detectors,
@@ -18,6 +21,12 @@ public final class RemovedConcreteOverride {
 	 */
 	public static class Method extends Detector<MethodSet> {
 		
+		private static final StreamPlan<MethodSpecification> PLAN = StreamPlan
+				.<MethodSpecification>from(subject -> new MethodSet(subject))
+				.then(new MethodSubdetectors.Overrides())
+				.read()
+				.then(new MethodSubdetectors.ConcreteMethods());
+		
 		private final MethodSpecification subject;
 		
 		/**
@@ -32,8 +41,25 @@ public final class RemovedConcreteOverride {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public MethodSet actualRisks() {
-			return new MethodSet(subject).stream().overrides().concreteMethods().collect();
+		protected MethodSet detectRisks(Footprint reads) {
+			reads.withMember(subject.getEnclosingClass().getClassName(), subject.getMethodName());
+			return new MethodSet(PLAN.execute(subject, overrides -> reads.withMembers(new MethodSet(overrides))));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object memoKey() {
+			return memoKey(subject);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String specification() {
+			return subject.toString();
 		}
 
 		/**
@@ -0,0 +1,193 @@
+package nl.ou.refd.analysis.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Class representing the runtime metrics of analyses. Metrics are kept per
+ * detector class, per subdetector class, per microstep class and per GraphQuery
+ * operation, and are exposed as MBeans in the platform MBean server under the
+ * domain nl.ou.refd, so they can be read with any JMX client while the IDE runs.
+ *
+ * Recording is off unless the system property nl.ou.refd.metrics is set to true.
+ * Callers check isEnabled() before they start timing an operation.
+ */
+public final class AnalysisMetrics {
+
+	/**
+	 * The JMX domain the metrics are registered in.
+	 */
+	public static final String DOMAIN = "nl.ou.refd";
+
+	/**
+	 * The system property which switches recording of metrics on from the start when set to true.
+	 */
+	public static final String METRICS_PROPERTY = "nl.ou.refd.metrics";
+
+	private static AnalysisMetrics instance;
+
+	private final Map<String, OperationMetrics> metrics = new ConcurrentHashMap<String, OperationMetrics>();
+	private volatile boolean enabled = Boolean.getBoolean(METRICS_PROPERTY);
+
+	/**
+	 * The kinds of operations metrics are kept for.
+	 * The enum is backed by String values, used as the type of the MBeans.
+	 */
+	public enum Kind {
+		DETECTOR("Detector"),
+		SUBDETECTOR("Subdetector"),
+		MICROSTEP("Microstep"),
+		GRAPH_QUERY("GraphQuery");
+
+		private final String type;
+
+		/**
+		 * Creates an enum element from the string specified in its declaration
+		 * @param type the provided string representing the enum element's value
+		 */
+		private Kind(final String type) {
+			this.type = type;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return this.type;
+		}
+	}
+
+	/**
+	 * Gets the singleton instance of the analysis metrics.
+	 * @return the analysis metrics
+	 */
+	public static synchronized AnalysisMetrics getInstance() {
+		if (instance == null) {
+			instance = new AnalysisMetrics();
+		}
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private AnalysisMetrics(){}
+
+	/**
+	 * Checks if metrics are recorded.
+	 * @return true if metrics are recorded
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Switches recording of metrics on or off. Metrics recorded before are kept.
+	 * @param enabled true to record metrics
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the metrics of an operation implemented by a class, such as a detector.
+	 * @param kind the kind of operation
+	 * @param operation the class implementing the operation
+	 * @return the metrics of the operation
+	 */
+	public OperationMetrics metrics(Kind kind, Class<?> operation) {
+		String name = operation.getName();
+		return metrics(kind, name.substring(name.lastIndexOf('.') + 1).replace('$', '.'));
+	}
+
+	/**
+	 * Gets the metrics of an operation, registering them as an MBean the first
+	 * time they are requested.
+	 * @param kind the kind of operation
+	 * @param operation the name of the operation
+	 * @return the metrics of the operation
+	 */
+	public OperationMetrics metrics(Kind kind, String operation) {
+		String key = kind + ":" + operation;
+		OperationMetrics operationMetrics = this.metrics.get(key);
+
+		if (operationMetrics != null) {
+			return operationMetrics;
+		}
+
+		return this.metrics.computeIfAbsent(key, created -> register(kind, operation, new OperationMetrics()));
+	}
+
+	/**
+	 * Resets the metrics of all operations.
+	 */
+	public void reset() {
+		this.metrics.values().forEach(OperationMetrics::reset);
+	}
+
+	/**
+	 * Removes the MBeans of all operations from the platform MBean server and
+	 * forgets their metrics.
+	 */
+	public void unregisterAll() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			for (ObjectName name : server.queryNames(new ObjectName(DOMAIN + ":*"), null)) {
+				server.unregisterMBean(name);
+			}
+		}
+		catch (JMException e) {
+			// The metrics are only diagnostics, the MBeans are left as they are
+		}
+
+		this.metrics.clear();
+	}
+
+	/**
+	 * Registers the metrics of an operation as an MBean. The metrics are still
+	 * recorded when they cannot be registered.
+	 * @param kind the kind of operation
+	 * @param operation the name of the operation
+	 * @param operationMetrics the metrics to register
+	 * @return the metrics
+	 */
+	private static OperationMetrics register(Kind kind, String operation, OperationMetrics operationMetrics) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(DOMAIN, objectNameKeys(kind, operation));
+
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+
+			server.registerMBean(operationMetrics, name);
+		}
+		catch (JMException e) {
+			// The metrics are only diagnostics, they are kept without an MBean
+		}
+
+		return operationMetrics;
+	}
+
+	/**
+	 * Creates the key properties of the object name of an operation.
+	 * @param kind the kind of operation
+	 * @param operation the name of the operation
+	 * @return the key properties
+	 */
+	private static Hashtable<String, String> objectNameKeys(Kind kind, String operation) {
+		Hashtable<String, String> keys = new Hashtable<String, String>();
+		keys.put("type", kind.toString());
+		keys.put("name", ObjectName.quote(operation));
+		return keys;
+	}
+
+}
@@ -0,0 +1,314 @@
+package nl.ou.refd.analysis.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Class representing the trace of analysis runs, in the trace event format read
+ * by chrome://tracing and Perfetto. While tracing is enabled, the layers of an
+ * analysis record spans: the refactoring, its microsteps, their detectors, the
+ * streams evaluated by the detectors, their subdetectors and the evaluation of
+ * graph queries. Spans on the same thread nest by their timestamps.
+ *
+ * When tracing is disabled, begin() returns a span that records nothing, so the
+ * cost of tracing is a single volatile read per span. Arguments that are costly
+ * to compute should only be added when the span is recording.
+ */
+public final class AnalysisTrace {
+
+	/**
+	 * The system property which switches tracing on from the start when set to true.
+	 */
+	public static final String TRACE_PROPERTY = "nl.ou.refd.trace";
+
+	private static AnalysisTrace instance;
+
+	private final Queue<Event> events = new ConcurrentLinkedQueue<Event>();
+	private volatile boolean enabled = Boolean.getBoolean(TRACE_PROPERTY);
+	private volatile long origin = System.nanoTime();
+
+	/**
+	 * Gets the singleton instance of the analysis trace.
+	 * @return the analysis trace
+	 */
+	public static synchronized AnalysisTrace getInstance() {
+		if (instance == null) {
+			instance = new AnalysisTrace();
+		}
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private AnalysisTrace(){}
+
+	/**
+	 * Checks if spans are recorded.
+	 * @return true if spans are recorded
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Switches recording of spans on or off. Spans recorded before are kept.
+	 * @param enabled true to record spans
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Removes all recorded spans. Timestamps of spans recorded afterwards are relative to this moment.
+	 */
+	public void clear() {
+		this.events.clear();
+		this.origin = System.nanoTime();
+	}
+
+	/**
+	 * Begins a span on the current thread. The span is recorded when it is ended.
+	 * @param category the layer of the analysis the span belongs to, such as detector
+	 * @param name the name of the span
+	 * @return the span, which records nothing if tracing is disabled
+	 */
+	public Span begin(String category, String name) {
+		if (!this.enabled) {
+			return Span.NONE;
+		}
+
+		return new Span(this, category, name);
+	}
+
+	/**
+	 * Begins a span on the current thread, named after the class performing the traced operation.
+	 * @param category the layer of the analysis the span belongs to, such as detector
+	 * @param operation the class performing the operation
+	 * @return the span, which records nothing if tracing is disabled
+	 */
+	public Span begin(String category, Class<?> operation) {
+		if (!this.enabled) {
+			return Span.NONE;
+		}
+
+		String name = operation.getName();
+		return new Span(this, category, name.substring(name.lastIndexOf('.') + 1).replace('$', '.'));
+	}
+
+	/**
+	 * Writes the recorded spans to a file in the trace event format.
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(Path file) throws IOException {
+		Files.createDirectories(file.toAbsolutePath().getParent());
+
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			write(writer);
+		}
+	}
+
+	/**
+	 * Writes the recorded spans in the trace event format. Spans begun before the
+	 * trace was last cleared are left out.
+	 * @param writer the writer to write to
+	 * @throws IOException if the spans cannot be written
+	 */
+	public void write(Writer writer) throws IOException {
+		long since = this.origin;
+		List<Event> recorded = new ArrayList<Event>();
+
+		for (Event event : this.events) {
+			if (event.start >= since) {
+				recorded.add(event);
+			}
+		}
+
+		long pid = ProcessHandle.current().pid();
+
+		writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+
+		for (int index = 0; index < recorded.size(); index++) {
+			Event event = recorded.get(index);
+
+			if (index > 0) {
+				writer.write(',');
+			}
+
+			writer.write("\n{\"name\":");
+			writeString(writer, event.name);
+			writer.write(",\"cat\":");
+			writeString(writer, event.category);
+			writer.write(",\"ph\":\"X\",\"ts\":");
+			writer.write(micros(event.start - since));
+			writer.write(",\"dur\":");
+			writer.write(micros(event.duration));
+			writer.write(",\"pid\":" + pid + ",\"tid\":" + event.thread);
+
+			if (!event.args.isEmpty()) {
+				writer.write(",\"args\":{");
+				boolean first = true;
+
+				for (Map.Entry<String, Object> arg : event.args.entrySet()) {
+					if (!first) {
+						writer.write(',');
+					}
+					first = false;
+					writeString(writer, arg.getKey());
+					writer.write(':');
+
+					if (arg.getValue() instanceof Number || arg.getValue() instanceof Boolean) {
+						writer.write(arg.getValue().toString());
+					}
+					else {
+						writeString(writer, String.valueOf(arg.getValue()));
+					}
+				}
+
+				writer.write('}');
+			}
+
+			writer.write('}');
+		}
+
+		writer.write("\n]}\n");
+		writer.flush();
+	}
+
+	/**
+	 * Formats a duration in nanoseconds as microseconds, the unit of the trace event format.
+	 * @param nanos the duration in nanoseconds, not negative
+	 * @return the duration in microseconds
+	 */
+	private static String micros(long nanos) {
+		return (nanos / 1000) + "." + String.format("%03d", nanos % 1000);
+	}
+
+	/**
+	 * Writes a string as a JSON string literal.
+	 * @param writer the writer to write to
+	 * @param value the string to write
+	 * @throws IOException if the string cannot be written
+	 */
+	private static void writeString(Writer writer, String value) throws IOException {
+		writer.write('"');
+
+		for (int index = 0; index < value.length(); index++) {
+			char c = value.charAt(index);
+
+			if (c == '"' || c == '\\') {
+				writer.write('\\');
+				writer.write(c);
+			}
+			else if (c < 0x20) {
+				writer.write(String.format("\\u%04x", (int)c));
+			}
+			else {
+				writer.write(c);
+			}
+		}
+
+		writer.write('"');
+	}
+
+	/**
+	 * Class representing a span of an analysis being traced. A span is ended
+	 * exactly once, on the thread it was begun on.
+	 */
+	public static final class Span {
+
+		/**
+		 * The span returned while tracing is disabled, which records nothing.
+		 */
+		static final Span NONE = new Span(null, null, null);
+
+		private final AnalysisTrace trace;
+		private final String category;
+		private final String name;
+		private final long start;
+		private Map<String, Object> args;
+
+		/**
+		 * Begins a span.
+		 * @param trace the trace to record the span in, or null if it is not recorded
+		 * @param category the layer of the analysis the span belongs to
+		 * @param name the name of the span
+		 */
+		private Span(AnalysisTrace trace, String category, String name) {
+			this.trace = trace;
+			this.category = category;
+			this.name = name;
+			this.start = trace == null ? 0 : System.nanoTime();
+		}
+
+		/**
+		 * Checks if the span is recorded.
+		 * @return true if the span is recorded
+		 */
+		public boolean isRecording() {
+			return this.trace != null;
+		}
+
+		/**
+		 * Annotates the span with an argument, such as the specification analysed or the size of a set.
+		 * @param key the name of the argument
+		 * @param value the value of the argument
+		 * @return this span
+		 */
+		public Span arg(String key, Object value) {
+			if (this.trace != null) {
+				if (this.args == null) {
+					this.args = new LinkedHashMap<String, Object>();
+				}
+				this.args.put(key, value);
+			}
+			return this;
+		}
+
+		/**
+		 * Ends the span and records it.
+		 */
+		public void end() {
+			if (this.trace != null) {
+				this.trace.events.add(new Event(this, System.nanoTime() - this.start));
+			}
+		}
+	}
+
+	/**
+	 * A recorded span.
+	 */
+	private static class Event {
+		private final String category;
+		private final String name;
+		private final long start;
+		private final long duration;
+		private final long thread;
+		private final Map<String, Object> args;
+
+		/**
+		 * Creates the event of an ended span.
+		 * @param span the span
+		 * @param duration the duration of the span in nanoseconds
+		 */
+		Event(Span span, long duration) {
+			this.category = span.category;
+			this.name = span.name;
+			this.start = span.start;
+			this.duration = duration;
+			this.thread = Thread.currentThread().getId();
+			this.args = span.args == null ? Map.of() : span.args;
+		}
+	}
+
+}
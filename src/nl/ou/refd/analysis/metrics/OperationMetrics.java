@@ -0,0 +1,210 @@
+package nl.ou.refd.analysis.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class representing the metrics of one kind of operation of an analysis. The
+ * metrics can be recorded from several threads at the same time.
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+
+	private static final long[] BUCKET_BOUNDS = {
+			1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L, 10_000_000_000L
+	};
+
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder totalTime = new LongAdder();
+	private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+	private final LongAdder[] histogram = new LongAdder[BUCKET_BOUNDS.length + 1];
+	private final LongAdder inputs = new LongAdder();
+	private final LongAdder outputs = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates empty metrics.
+	 */
+	OperationMetrics() {
+		for (int bucket = 0; bucket < this.histogram.length; bucket++) {
+			this.histogram[bucket] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records an invocation of the operation.
+	 * @param nanos the time the invocation took in nanoseconds
+	 * @param input the number of program locations the invocation was given
+	 * @param output the number of program locations the invocation produced
+	 */
+	public void record(long nanos, long input, long output) {
+		this.invocations.increment();
+		this.totalTime.add(nanos);
+		this.maxTime.accumulate(nanos);
+		this.histogram[bucket(nanos)].increment();
+		this.inputs.add(input);
+		this.outputs.add(output);
+	}
+
+	/**
+	 * Records a cache lookup for the operation.
+	 * @param hit true if the lookup found a result
+	 */
+	public void recordCacheLookup(boolean hit) {
+		if (hit) {
+			this.hits.increment();
+		}
+		else {
+			this.misses.increment();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getInvocations() {
+		return this.invocations.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getTotalTimeNanos() {
+		return this.totalTime.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getMeanTimeNanos() {
+		long count = getInvocations();
+		return count == 0 ? 0 : getTotalTimeNanos() / count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getMaxTimeNanos() {
+		return this.maxTime.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long[] getLatencyBucketBoundsNanos() {
+		return BUCKET_BOUNDS.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long[] getLatencyHistogram() {
+		long[] counts = new long[this.histogram.length];
+
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			counts[bucket] = this.histogram[bucket].sum();
+		}
+
+		return counts;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getInputCardinality() {
+		return this.inputs.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getOutputCardinality() {
+		return this.outputs.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getMeanInputCardinality() {
+		long count = getInvocations();
+		return count == 0 ? 0 : (double)getInputCardinality() / count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getMeanOutputCardinality() {
+		long count = getInvocations();
+		return count == 0 ? 0 : (double)getOutputCardinality() / count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getCacheHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getCacheMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getCacheHitRatio() {
+		long hitCount = getCacheHits();
+		long lookups = hitCount + getCacheMisses();
+		return lookups == 0 ? 0 : (double)hitCount / lookups;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset() {
+		this.invocations.reset();
+		this.totalTime.reset();
+		this.maxTime.reset();
+		this.inputs.reset();
+		this.outputs.reset();
+		this.hits.reset();
+		this.misses.reset();
+
+		for (LongAdder bucket : this.histogram) {
+			bucket.reset();
+		}
+	}
+
+	/**
+	 * Finds the latency bucket of an invocation.
+	 * @param nanos the time the invocation took in nanoseconds
+	 * @return the index of the bucket
+	 */
+	private static int bucket(long nanos) {
+		int bucket = 0;
+
+		while (bucket < BUCKET_BOUNDS.length && nanos > BUCKET_BOUNDS[bucket]) {
+			bucket++;
+		}
+
+		return bucket;
+	}
+
+}
@@ -0,0 +1,93 @@
+package nl.ou.refd.analysis.metrics;
+
+/**
+ * Management interface of the metrics of one kind of operation of an analysis,
+ * such as a detector class or a GraphQuery operation, as exposed through JMX.
+ */
+public interface OperationMetricsMBean {
+
+	/**
+	 * Gets the number of times the operation was performed.
+	 * @return the number of invocations
+	 */
+	long getInvocations();
+
+	/**
+	 * Gets the total time spent performing the operation.
+	 * @return the total time in nanoseconds
+	 */
+	long getTotalTimeNanos();
+
+	/**
+	 * Gets the mean time spent performing the operation once.
+	 * @return the mean time in nanoseconds, or zero if the operation was not performed
+	 */
+	long getMeanTimeNanos();
+
+	/**
+	 * Gets the longest time spent performing the operation once.
+	 * @return the longest time in nanoseconds
+	 */
+	long getMaxTimeNanos();
+
+	/**
+	 * Gets the upper bounds of the buckets of the latency histogram. The last
+	 * bucket holds all invocations that took longer than the last bound.
+	 * @return the upper bounds of the buckets in nanoseconds
+	 */
+	long[] getLatencyBucketBoundsNanos();
+
+	/**
+	 * Gets the latency histogram: the number of invocations per latency bucket.
+	 * @return the number of invocations per bucket, one more than there are bucket bounds
+	 */
+	long[] getLatencyHistogram();
+
+	/**
+	 * Gets the total number of program locations the operation was given.
+	 * @return the total input cardinality
+	 */
+	long getInputCardinality();
+
+	/**
+	 * Gets the total number of program locations the operation produced.
+	 * @return the total output cardinality
+	 */
+	long getOutputCardinality();
+
+	/**
+	 * Gets the mean number of program locations the operation was given.
+	 * @return the mean input cardinality, or zero if the operation was not performed
+	 */
+	double getMeanInputCardinality();
+
+	/**
+	 * Gets the mean number of program locations the operation produced.
+	 * @return the mean output cardinality, or zero if the operation was not performed
+	 */
+	double getMeanOutputCardinality();
+
+	/**
+	 * Gets the number of invocations whose result was found in a cache.
+	 * @return the number of cache hits
+	 */
+	long getCacheHits();
+
+	/**
+	 * Gets the number of invocations whose result was not found in a cache.
+	 * @return the number of cache misses
+	 */
+	long getCacheMisses();
+
+	/**
+	 * Gets the fraction of cache lookups that found a result.
+	 * @return the cache hit ratio, or zero if no cache lookup was done
+	 */
+	double getCacheHitRatio();
+
+	/**
+	 * Resets all metrics of the operation to zero.
+	 */
+	void reset();
+
+}
@@ -1,5 +1,6 @@
 package nl.ou.refd.analysis.microsteps;
 
+import nl.ou.refd.analysis.Footprint;
 import nl.ou.refd.analysis.ModelVisitor;
 import nl.ou.refd.analysis.detectors.DoubleDefinition;
 import nl.ou.refd.locations.graph.Graph;
@@ -26,6 +27,14 @@ public class AddClass extends Microstep {
 		potentialRisk(new DoubleDefinition.Class(classToAdd));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String specification() {
+		return this.classToAdd.toString();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -42,4 +51,12 @@ public class AddClass extends Microstep {
 		this.classToAdd.construct(graph);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Footprint writeSet() {
+		return new Footprint().withClass(this.classToAdd.getClassName());
+	}
+
 }
@@ -1,5 +1,6 @@
 package nl.ou.refd.analysis.microsteps;
 
+import nl.ou.refd.analysis.Footprint;
 import nl.ou.refd.analysis.ModelVisitor;
 import nl.ou.refd.analysis.detectors.BrokenSubTyping;
 import nl.ou.refd.analysis.detectors.CorrespondingSubclassSpecification;
@@ -32,6 +33,14 @@ public class AddMethod extends Microstep {
 		potentialRisk(new OverloadParameterConversion.Method(methodToAdd));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String specification() {
+		return this.methodToAdd.toString();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -48,4 +57,12 @@ public class AddMethod extends Microstep {
 		this.methodToAdd.construct(graph);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Footprint writeSet() {
+		return new Footprint().withMember(this.methodToAdd.getEnclosingClass().getClassName(), this.methodToAdd.getMethodName());
+	}
+
 }
@@ -3,6 +3,7 @@ package nl.ou.refd.analysis.microsteps;
 import java.util.ArrayList;
 import java.util.List;
 
+import nl.ou.refd.analysis.Footprint;
 import nl.ou.refd.locations.graph.Graph;
 
 /**
@@ -41,5 +42,15 @@ public abstract class CompositeMicrostep extends Microstep {
 	public void executeOnGraph(Graph graph) {
 		this.getComponentMicrosteps().forEach(microstep -> microstep.executeOnGraph(graph));
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Footprint writeSet() {
+		Footprint writes = new Footprint();
+		this.getComponentMicrosteps().forEach(microstep -> writes.union(microstep.writeSet()));
+		return writes;
+	}
 
 }
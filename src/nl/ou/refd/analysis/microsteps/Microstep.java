@@ -3,6 +3,7 @@ package nl.ou.refd.analysis.microsteps;
 import java.util.HashSet;
 import java.util.Set;
 
+import nl.ou.refd.analysis.Footprint;
 import nl.ou.refd.analysis.ModelNode;
 import nl.ou.refd.analysis.detectors.Detector;
 import nl.ou.refd.locations.graph.Graph;
@@ -16,6 +17,11 @@ import nl.ou.refd.locations.graph.Graph;
  */
 public abstract class Microstep implements ModelNode {
 	
+	/**
+	 * The category of the spans of microsteps in the AnalysisTrace.
+	 */
+	public static final String TRACE_CATEGORY = "microstep";
+	
 	private Set<Detector<?>> potentialRisks = new HashSet<>();
 	
 	/**
@@ -34,9 +40,33 @@ public abstract class Microstep implements ModelNode {
 		return new HashSet<Detector<?>>(this.potentialRisks);
 	}
 	
+	/**
+	 * Gets a description of the specification this microstep changes, to annotate traces with.
+	 * @return the description of the specification, or null if the microstep has none
+	 */
+	public String specification() {
+		return null;
+	}
+	
+	/**
+	 * Checks if executing this microstep on the program graph removes program locations,
+	 * which cannot be undone by rolling back the journal of the graph.
+	 * @return true if the microstep removes program locations
+	 */
+	public boolean removesProgramLocations() {
+		return false;
+	}
+	
 	/**
 	 * Executes the microstep on a program graph, thus simulating the change.
 	 * @param graph the graph to simulate the change on
 	 */
 	public abstract void executeOnGraph(Graph graph);
+	
+	/**
+	 * Gets the part of the program graph this microstep changes when it is
+	 * executed on the program graph.
+	 * @return the footprint written by the microstep
+	 */
+	public abstract Footprint writeSet();
 }
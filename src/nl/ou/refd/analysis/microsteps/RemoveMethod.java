@@ -1,5 +1,6 @@
 package nl.ou.refd.analysis.microsteps;
 
+import nl.ou.refd.analysis.Footprint;
 import nl.ou.refd.analysis.ModelVisitor;
 import nl.ou.refd.analysis.detectors.LostSpecification;
 import nl.ou.refd.analysis.detectors.MissingAbstractImplementation;
@@ -35,6 +36,14 @@ public class RemoveMethod extends Microstep {
 		potentialRisk(new MissingAbstractImplementation.Method(subject));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String specification() {
+		return this.subject.toString();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -43,6 +52,14 @@ public class RemoveMethod extends Microstep {
 		visitor.visit(this);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removesProgramLocations() {
+		return true;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -51,4 +68,12 @@ public class RemoveMethod extends Microstep {
 		graph.removeProgramLocation(new MethodSet(this.subject).singleLocation());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Footprint writeSet() {
+		return new Footprint().withMember(this.subject.getEnclosingClass().getClassName(), this.subject.getMethodName());
+	}
+
 }
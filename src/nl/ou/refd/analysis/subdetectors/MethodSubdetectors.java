@@ -2,18 +2,18 @@ package nl.ou.refd.analysis.subdetectors;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
-import nl.ou.refd.analysis.subdetectors.Constants.Types;
+import nl.ou.refd.analysis.AnalysisMonitor;
 import nl.ou.refd.locations.collections.MethodSet;
 import nl.ou.refd.locations.graph.Graph;
 import nl.ou.refd.locations.graph.GraphQuery;
+import nl.ou.refd.locations.graph.MethodBodies;
 import nl.ou.refd.locations.graph.ProgramLocation;
 import nl.ou.refd.locations.graph.Tags;
 import nl.ou.refd.locations.specifications.MethodSpecification;
-import nl.ou.refd.locations.specifications.ParameterSpecification;
 import nl.ou.refd.locations.specifications.LocationSpecification.AccessModifier;
 import nl.ou.refd.locations.streams.InstructionStream;
 import nl.ou.refd.locations.streams.MethodStream;
@@ -24,32 +24,6 @@ import nl.ou.refd.locations.streams.MethodStream;
 public final class MethodSubdetectors {
 	private MethodSubdetectors(){}
 	
-	/**
-	 * Checks if the provided primitive type2 is narrower than primitive type type1.
-	 * <br><br>
-	 * Lists of type precedence from OCP Oracle Certified Professional Java SE 17 Developer (Exam 1ZO-829) Programmer's Guide
-	 * by Khalid A. Mughal, Vasily A. Strelnikov.
-	 * @param type1 the reference type
-	 * @param type2 the type to check narrowing for
-	 * @return true if type2 is narrowing, false otherwise
-	 */
-	private static boolean isNarrowingConversion(String type1, String type2) {
-		final List<String> CHAR_RELATIONS = Arrays.asList(Types.CHAR, Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE);
-		final List<String> BYTE_RELATIONS = Arrays.asList(Types.BYTE, Types.SHORT, Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE);
-		
-		List<String> l = (type1 == Types.CHAR || type2 == Types.CHAR) ? CHAR_RELATIONS : BYTE_RELATIONS;
-		
-		int type1Index = l.indexOf(type1);
-		int type2Index = l.indexOf(type2);
-		
-		if(type1Index < 0 || type2Index < 0) {
-			//Given type string is not a primitive type
-			return false;
-		}
-		
-		return type1Index - type2Index > 0;
-	}
-	
 	/**
 	 * Filters the provided method locations by name.
 	 * @param methodName the name of the method
@@ -73,7 +47,8 @@ public final class MethodSubdetectors {
 	}
 
 	/**
-	 * Queries the bodies of the provided method locations.
+	 * Queries the bodies of the provided method locations. The body of each method
+	 * is computed once and kept by MethodBodies until the method changes.
 	 * @return the bodies of the provided method locations
 	 */
 	public static class Bodies extends Subdetector {
@@ -82,7 +57,7 @@ public final class MethodSubdetectors {
 		 */
 		@Override
 		public Set<ProgramLocation> applyOn(Set<ProgramLocation> locations) {
-			return Graph.query(locations).forwardDifference(Tags.Relation.HAS_CONTROL_FLOW).locations();
+			return MethodBodies.getInstance().bodies(locations);
 		}
 	}
 
@@ -141,27 +116,29 @@ public final class MethodSubdetectors {
 		 */
 		@Override
 		public Set<ProgramLocation> applyOn(Set<ProgramLocation> locations) {
-			GraphQuery gq = Graph.query(locations);
-			
-			GraphQuery resultMethods = Graph.query();
+			Set<Tags.ProgramLocation> visibilities = EnumSet.noneOf(Tags.ProgramLocation.class);
 			
 			switch (this.visibility) {
 				case PUBLIC:
-					resultMethods = resultMethods.union(gq.locations(Tags.ProgramLocation.PUBLIC_VISIBILITY));
+					visibilities.add(Tags.ProgramLocation.PUBLIC_VISIBILITY);
 				case PROTECTED:
-					resultMethods = resultMethods.union(gq.locations(Tags.ProgramLocation.PUBLIC_VISIBILITY,
-																 Tags.ProgramLocation.PROTECTED_PACKAGE_VISIBILITY));
+					visibilities.addAll(Arrays.asList(Tags.ProgramLocation.PUBLIC_VISIBILITY,
+													  Tags.ProgramLocation.PROTECTED_PACKAGE_VISIBILITY));
 				case PACKAGE:
-					resultMethods = resultMethods.union(gq.locations(Tags.ProgramLocation.PUBLIC_VISIBILITY,
-																 Tags.ProgramLocation.PACKAGE_VISIBILITY,
-																 Tags.ProgramLocation.PROTECTED_PACKAGE_VISIBILITY));
+					visibilities.addAll(Arrays.asList(Tags.ProgramLocation.PUBLIC_VISIBILITY,
+													  Tags.ProgramLocation.PACKAGE_VISIBILITY,
+													  Tags.ProgramLocation.PROTECTED_PACKAGE_VISIBILITY));
 				case PRIVATE:
-					resultMethods = resultMethods.union(gq.locations(Tags.ProgramLocation.PRIVATE_VISIBILITY,
-																 Tags.ProgramLocation.PACKAGE_VISIBILITY,
-																 Tags.ProgramLocation.PROTECTED_PACKAGE_VISIBILITY,
-																 Tags.ProgramLocation.PUBLIC_VISIBILITY));
+					visibilities.addAll(Arrays.asList(Tags.ProgramLocation.PRIVATE_VISIBILITY,
+													  Tags.ProgramLocation.PACKAGE_VISIBILITY,
+													  Tags.ProgramLocation.PROTECTED_PACKAGE_VISIBILITY,
+													  Tags.ProgramLocation.PUBLIC_VISIBILITY));
 			}
-			return resultMethods.locations(Tags.ProgramLocation.METHOD).locations();
+			
+			return Graph.query(locations)
+					.locations(visibilities.toArray(new Tags.ProgramLocation[0]))
+					.locations(Tags.ProgramLocation.METHOD)
+					.locations();
 		}
 	}
 
@@ -189,6 +166,8 @@ public final class MethodSubdetectors {
 			GraphQuery result = Graph.query();
 
 			for (ProgramLocation method : Graph.query(locations).locations()) { 
+				AnalysisMonitor.checkCanceled();
+				
 				// traverse to parameters of methods(go to HasParameter edges, go to the nodes
 				// they point to)
 				List<ProgramLocation> parameters = new ArrayList<ProgramLocation>();
@@ -410,27 +389,7 @@ public final class MethodSubdetectors {
 		 */
 		@Override
 		public Set<ProgramLocation> applyOn(Set<ProgramLocation> locations) {
-			return  new MethodSet(locations).toLocationSpecifications()
-					.stream()
-					.filter( //Same parameter number
-							location -> location.getParameters().size() == subject.getParameters().size()
-					)
-					.filter(location -> location.getMethodName().equals(subject.getMethodName()))
-					.filter(location -> { //At least one parameter is narrowing
-						List<ParameterSpecification> pToCheck = subject.getParameters(),
-													pOriginal = location.getParameters();
-														
-						for (int i = 0; i < pToCheck.size(); i++) {
-							String type1 = pOriginal.get(i).getType();
-							String type2 = pToCheck.get(i).getType();
-							
-							if (isNarrowingConversion(type1, type2)) {
-								return true;
-							}
-						}
-														
-						return false;
-					}).map(methodLocation -> new MethodSet(methodLocation).singleLocation()).collect(Collectors.toSet());
+			return new OverloadTable(locations).narrowingOverloads(subject);
 		}
 	}
 
@@ -458,6 +417,7 @@ public final class MethodSubdetectors {
 			return Graph.query(locations)
 			.locations()
 			.stream()
+			.peek(methodNode -> AnalysisMonitor.checkCanceled())
 			.map(methodNode -> Graph.query(methodNode).contained())
 			.filter(methodQ -> methodQ.intersection(instructionsQ).locationCount() > 0)
 			.reduce(Graph.query(), (q1, q2) -> q1.union(q2))
@@ -551,7 +511,9 @@ public final class MethodSubdetectors {
 	
 	/**
 	 * Filters provided method locations and keeps only those which method subject
-	 * would override if placed in the correct context.
+	 * would override if placed in the correct context. Only the provided methods are
+	 * checked, so the methods of all superclasses of a class should be provided, for
+	 * instance by looking up the signature of the subject in InheritedMembers.
 	 * @param subject the method to check against
 	 * @return methods which method subject would override if placed in the correct context
 	 */
@@ -563,7 +525,6 @@ public final class MethodSubdetectors {
 			this.subject = subject;
 		}
 
-		//TODO This only finds methods in the direct superclass. Not sure if this is intended
 		/**
 		 * {@inheritDoc}
 		 */
@@ -0,0 +1,221 @@
+package nl.ou.refd.analysis.subdetectors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.ou.refd.analysis.subdetectors.Constants.Types;
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.specifications.MethodSpecification;
+import nl.ou.refd.locations.specifications.ParameterSpecification;
+import nl.ou.refd.locations.specifications.SpecificationBindings;
+
+/**
+ * Class representing the overloads of a set of methods, grouped by name and number
+ * of parameters, with their parameter types encoded as ids. The primitive types
+ * have the ids of their ordinal in the widening lattice, so checking whether a
+ * parameter type is narrower than another is a lookup in a precomputed table.
+ * Reference types have ids above those of the primitive types, which never narrow.
+ * Checking a method against the table only compares the parameters of the overloads
+ * with its name and number of parameters, without querying the graph.
+ *
+ * The tables of classes are cached, and all of them are dropped when the epoch of
+ * the graph changes.
+ */
+public final class OverloadTable {
+
+	/**
+	 * The primitive types, by their ordinal in the widening lattice.
+	 */
+	private static final List<String> PRIMITIVES = Arrays.asList(
+			Types.BOOLEAN, Types.BYTE, Types.SHORT, Types.CHAR, Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE);
+
+	/**
+	 * For every pair of primitive types, whether the second type is narrower than the first.
+	 */
+	private static final boolean[][] NARROWING = narrowing();
+
+	private static final Map<String, Integer> typeIds = new HashMap<String, Integer>();
+	private static final Map<ProgramLocation, OverloadTable> classTables = new HashMap<ProgramLocation, OverloadTable>();
+	private static long epoch = -1;
+
+	private final Map<String, List<Overload>> overloads = new HashMap<String, List<Overload>>();
+
+	/**
+	 * Creates the overload table of a set of methods.
+	 * @param methods the method locations
+	 */
+	public OverloadTable(Set<ProgramLocation> methods) {
+		for (ProgramLocation method : methods) {
+			MethodSpecification specification = SpecificationBindings.getInstance().methodSpecification(method);
+			int[] parameters = encode(specification.getParameters());
+
+			this.overloads.computeIfAbsent(key(specification.getMethodName(), parameters.length), key -> new ArrayList<Overload>())
+					.add(new Overload(method, parameters));
+		}
+	}
+
+	/**
+	 * Gets the overload table of the methods of a class, as selected by the Methods
+	 * subdetector. The table is built once for every epoch of the graph.
+	 * @param type the class location
+	 * @return the overload table of the methods of the class
+	 */
+	public static synchronized OverloadTable ofClass(ProgramLocation type) {
+		long current = Graph.getInstance().getEpoch();
+
+		if (current != epoch) {
+			classTables.clear();
+			epoch = current;
+		}
+
+		OverloadTable table = classTables.get(type);
+
+		if (table == null) {
+			table = new OverloadTable(new ClassSubdetectors.Methods().applyOn(Collections.singleton(type)));
+			classTables.put(type, table);
+		}
+
+		return table;
+	}
+
+	/**
+	 * Finds the methods with parameters which could result in a narrowing overload
+	 * when a method would be added next to them: the methods with the same name and
+	 * number of parameters, of which at least one parameter type is wider than the
+	 * parameter type of the added method in the same position.
+	 * @param subject the method to check against
+	 * @return the method locations liable for automatic parameter conversion in relation to the method
+	 */
+	public Set<ProgramLocation> narrowingOverloads(MethodSpecification subject) {
+		int[] parameters = encode(subject.getParameters());
+		List<Overload> candidates = this.overloads.getOrDefault(key(subject.getMethodName(), parameters.length), Collections.emptyList());
+		Set<ProgramLocation> result = new HashSet<ProgramLocation>();
+
+		for (Overload candidate : candidates) {
+			for (int index = 0; index < parameters.length; index++) {
+				if (isNarrowing(candidate.parameters[index], parameters[index])) {
+					result.add(candidate.method);
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Checks if a type is narrower than another, by their names.
+	 * @param type1 the name of the reference type
+	 * @param type2 the name of the type to check narrowing for
+	 * @return true if both are primitive types and type2 is narrower than type1
+	 */
+	static boolean isNarrowing(String type1, String type2) {
+		return isNarrowing(id(type1), id(type2));
+	}
+
+	/**
+	 * Checks if a type is narrower than another, by their ids.
+	 * @param type1 the id of the reference type
+	 * @param type2 the id of the type to check narrowing for
+	 * @return true if both are primitive types and type2 is narrower than type1
+	 */
+	private static boolean isNarrowing(int type1, int type2) {
+		return type1 < PRIMITIVES.size() && type2 < PRIMITIVES.size() && NARROWING[type1][type2];
+	}
+
+	/**
+	 * Encodes the types of parameters as ids.
+	 * @param parameters the parameters
+	 * @return the ids of their types, in order
+	 */
+	private static int[] encode(List<ParameterSpecification> parameters) {
+		int[] ids = new int[parameters.size()];
+
+		for (int index = 0; index < ids.length; index++) {
+			ids[index] = id(parameters.get(index).getType());
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Encodes a type as an id.
+	 * @param type the name of the type
+	 * @return the ordinal of the type in the widening lattice if it is primitive, otherwise its interned id
+	 */
+	private static int id(String type) {
+		int primitive = PRIMITIVES.indexOf(type);
+
+		if (primitive >= 0) {
+			return primitive;
+		}
+
+		synchronized (typeIds) {
+			return typeIds.computeIfAbsent(type, name -> PRIMITIVES.size() + typeIds.size());
+		}
+	}
+
+	/**
+	 * Creates the key of a group of overloads.
+	 * @param name the name of the methods
+	 * @param arity the number of parameters of the methods
+	 * @return the key
+	 */
+	private static String key(String name, int arity) {
+		return name + "/" + arity;
+	}
+
+	/**
+	 * Computes for every pair of primitive types whether the second type is narrower
+	 * than the first, following the lists of type precedence from OCP Oracle Certified
+	 * Professional Java SE 17 Developer (Exam 1ZO-829) Programmer's Guide by Khalid A.
+	 * Mughal, Vasily A. Strelnikov. Types related through char follow the precedence
+	 * of char, the others that of byte.
+	 * @return the table, indexed by the ordinals of the types
+	 */
+	private static boolean[][] narrowing() {
+		List<String> charRelations = Arrays.asList(Types.CHAR, Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE);
+		List<String> byteRelations = Arrays.asList(Types.BYTE, Types.SHORT, Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE);
+		boolean[][] narrowing = new boolean[PRIMITIVES.size()][PRIMITIVES.size()];
+
+		for (int type1 = 0; type1 < PRIMITIVES.size(); type1++) {
+			for (int type2 = 0; type2 < PRIMITIVES.size(); type2++) {
+				String name1 = PRIMITIVES.get(type1);
+				String name2 = PRIMITIVES.get(type2);
+				List<String> relations = name1.equals(Types.CHAR) || name2.equals(Types.CHAR) ? charRelations : byteRelations;
+				int index1 = relations.indexOf(name1);
+				int index2 = relations.indexOf(name2);
+
+				narrowing[type1][type2] = index1 >= 0 && index2 >= 0 && index1 > index2;
+			}
+		}
+
+		return narrowing;
+	}
+
+	/**
+	 * Class representing a method in an overload table.
+	 */
+	private static final class Overload {
+		private final ProgramLocation method;
+		private final int[] parameters;
+
+		/**
+		 * Creates the overload.
+		 * @param method the method location
+		 * @param parameters the ids of its parameter types
+		 */
+		private Overload(ProgramLocation method, int[] parameters) {
+			this.method = method;
+			this.parameters = parameters;
+		}
+	}
+
+}
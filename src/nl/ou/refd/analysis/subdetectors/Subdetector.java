@@ -19,6 +19,11 @@ import nl.ou.refd.locations.streams.Stream;
  */
 public abstract class Subdetector {
 	
+	/**
+	 * The category of the spans of subdetectors in the AnalysisTrace.
+	 */
+	public static final String TRACE_CATEGORY = "subdetector";
+	
 	/**
 	 * Applies the subdetector on an incoming set of program locations and maps
 	 * this to another set of program locations.
@@ -0,0 +1,19 @@
+package nl.ou.refd.exceptions;
+
+/**
+ * Class representing an exception thrown when a Datalog program or query
+ * is not valid, such as when a rule is not safe or the rules cannot be
+ * stratified.
+ */
+public class DatalogException extends RuntimeException {
+
+	private static final long serialVersionUID = 4127905567318223840L;
+
+	/**
+	 * Create the exception with a message to display.
+	 * @param message a message to display
+	 */
+	public DatalogException(String message) {
+		super(message);
+	}
+}
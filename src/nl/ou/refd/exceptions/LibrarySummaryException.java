@@ -0,0 +1,27 @@
+package nl.ou.refd.exceptions;
+
+/**
+ * Class representing an exception thrown when a class file or library summary
+ * cannot be read or written.
+ */
+public class LibrarySummaryException extends RuntimeException {
+
+	private static final long serialVersionUID = 4127760934182255710L;
+
+	/**
+	 * Create the exception with a message to display.
+	 * @param message a message to display
+	 */
+	public LibrarySummaryException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Create the exception with a message to display and the exception that caused it.
+	 * @param message a message to display
+	 * @param cause the exception that caused this exception
+	 */
+	public LibrarySummaryException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
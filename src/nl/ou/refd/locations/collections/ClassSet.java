@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 import nl.ou.refd.locations.generators.ProgramComponentsGenerator;
 import nl.ou.refd.locations.graph.ProgramLocation;
 import nl.ou.refd.locations.specifications.ClassSpecification;
+import nl.ou.refd.locations.specifications.SpecificationBindings;
 import nl.ou.refd.locations.streams.ClassStream;
 
 /**
@@ -51,13 +52,14 @@ public class ClassSet extends LocationSet implements SpecifiableCollection {
 	 * @return the program location the class specification represents
 	 */
 	private static ProgramLocation classSpecificationToProgramLocation(ClassSpecification location) {
-		return
+		return SpecificationBindings.getInstance().classLocation(location, () ->
 			new ProgramComponentsGenerator()
 			.stream()
 			.classes()
 			.classesByName(location.getClassName())
 			.collect()
-			.singleLocation();
+			.singleLocation()
+		);
 	}
 
 	/**
@@ -76,7 +78,7 @@ public class ClassSet extends LocationSet implements SpecifiableCollection {
 		return this
 				.locations()
 				.stream()
-				.map(ClassSpecification::new)
+				.map(SpecificationBindings.getInstance()::classSpecification)
 				.collect(Collectors.toList());
 	}
 	
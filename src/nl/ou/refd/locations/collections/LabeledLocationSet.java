@@ -109,7 +109,24 @@ public class LabeledLocationSet {
 	 * @param f the MarkFunction to use for marking
 	 */
 	public void mark(MarkFunction f) {
-		this.locations.forEach(node -> {
+		this.mark(f, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Marks at most limit elements from the set with a provided MarkFunction. The source
+	 * correspondence the MarkFunction expects can be null when no source correspondence is found.
+	 * @param f the MarkFunction to use for marking
+	 * @param limit the maximum number of elements to mark
+	 * @return the number of elements that were marked
+	 */
+	public long mark(MarkFunction f, long limit) {
+		long marked = 0;
+		
+		for (ProgramLocation node : this.locations) {
+			if (marked >= limit) {
+				break;
+			}
+			
 			String name = node.<String>getAttribute(Tags.Attributes.NAME);
 			com.ensoftcorp.atlas.core.index.common.SourceCorrespondence asc = (com.ensoftcorp.atlas.core.index.common.SourceCorrespondence) node.getAttribute(Tags.Attributes.SOURCE_CORRESPONDENCE);
 			
@@ -122,6 +139,9 @@ public class LabeledLocationSet {
 			}
 			
 			f.mark(this.label, name, sc);
-		});
+			marked++;
+		}
+		
+		return marked;
 	}
 }
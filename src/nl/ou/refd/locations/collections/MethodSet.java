@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 import nl.ou.refd.locations.generators.ProgramComponentsGenerator;
 import nl.ou.refd.locations.graph.ProgramLocation;
 import nl.ou.refd.locations.specifications.MethodSpecification;
+import nl.ou.refd.locations.specifications.SpecificationBindings;
 import nl.ou.refd.locations.streams.MethodStream;
 
 /**
@@ -51,7 +52,7 @@ public class MethodSet extends LocationSet implements SpecifiableCollection {
 	 * @return the program location the method specification represents
 	 */
 	private static ProgramLocation methodSpecificationToProgramLocation(MethodSpecification location) {
-		return
+		return SpecificationBindings.getInstance().methodLocation(location, () ->
 			new ProgramComponentsGenerator()
 			.stream()
 			.classes()
@@ -61,7 +62,8 @@ public class MethodSet extends LocationSet implements SpecifiableCollection {
 			.collect()
 			.locations()
 			.iterator()
-			.next();
+			.next()
+		);
 	}
 
 	/**
@@ -79,7 +81,7 @@ public class MethodSet extends LocationSet implements SpecifiableCollection {
 	public List<MethodSpecification> toLocationSpecifications() {
 		return this.locations()
 				   .stream()
-				   .map(MethodSpecification::new)
+				   .map(SpecificationBindings.getInstance()::methodSpecification)
 				   .collect(Collectors.toList());
 	}
 	
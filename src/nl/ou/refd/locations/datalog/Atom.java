@@ -0,0 +1,97 @@
+package nl.ou.refd.locations.datalog;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class representing an atom of a Datalog rule: a predicate applied to
+ * variables, such as superclass(C, S). Variables are named by strings, and
+ * the variable "_" matches anything without being bound. An atom in the body
+ * of a rule can be negated, in which case it holds if there is no fact
+ * matching it.
+ */
+public final class Atom {
+
+	/**
+	 * The variable matching anything without being bound.
+	 */
+	public static final String ANY = "_";
+
+	private final String predicate;
+	private final List<String> variables;
+	private final boolean negated;
+
+	/**
+	 * Creates an atom.
+	 * @param predicate the name of the predicate
+	 * @param variables the variables the predicate is applied to
+	 * @param negated true if the atom is negated
+	 */
+	private Atom(String predicate, String[] variables, boolean negated) {
+		this.predicate = predicate;
+		this.variables = Collections.unmodifiableList(Arrays.asList(variables.clone()));
+		this.negated = negated;
+	}
+
+	/**
+	 * Creates an atom.
+	 * @param predicate the name of the predicate
+	 * @param variables the variables the predicate is applied to
+	 * @return the atom
+	 */
+	public static Atom of(String predicate, String... variables) {
+		return new Atom(predicate, variables, false);
+	}
+
+	/**
+	 * Creates a negated atom, which holds if there is no fact matching it.
+	 * @param predicate the name of the predicate
+	 * @param variables the variables the predicate is applied to
+	 * @return the negated atom
+	 */
+	public static Atom not(String predicate, String... variables) {
+		return new Atom(predicate, variables, true);
+	}
+
+	/**
+	 * Gets the name of the predicate of the atom.
+	 * @return the name of the predicate
+	 */
+	public String predicate() {
+		return this.predicate;
+	}
+
+	/**
+	 * Gets the variables the predicate is applied to.
+	 * @return the variables, in the order of the columns of the predicate
+	 */
+	public List<String> variables() {
+		return this.variables;
+	}
+
+	/**
+	 * Gets the number of columns of the atom.
+	 * @return the arity of the atom
+	 */
+	public int arity() {
+		return this.variables.size();
+	}
+
+	/**
+	 * Checks if the atom is negated.
+	 * @return true if the atom holds if there is no fact matching it
+	 */
+	public boolean isNegated() {
+		return this.negated;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return (this.negated ? "!" : "") + this.predicate + "(" + String.join(", ", this.variables) + ")";
+	}
+
+}
@@ -0,0 +1,484 @@
+package nl.ou.refd.locations.datalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.metrics.AnalysisTrace.Span;
+import nl.ou.refd.exceptions.DatalogException;
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.GraphListener;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.Relation;
+import nl.ou.refd.locations.graph.Tags;
+
+/**
+ * Class representing a Datalog program over the program graph. The facts of the
+ * program are the relations of the graph with a given tag, as binary predicates,
+ * and the program locations with given tags, as unary predicates. Its rules derive
+ * predicates that do not depend on the context of a detector, such as the transitive
+ * closure of EXTENDS, and are evaluated bottom-up with semi-naive evaluation.
+ * The derived facts are materialized, and shared by all DatalogQueries on the program.
+ *
+ * The materialized facts are kept up to date incrementally. The program listens
+ * to the graph, and before it is queried again it propagates the facts of new
+ * program locations and relations to the derived predicates. The facts of removed
+ * program locations are deleted with the delete-and-rederive method: all facts
+ * derived from them are deleted, and those still derivable in another way are
+ * derived again. Like the other information derived from the graph, the program
+ * follows the program locations and relations created and removed through the
+ * Graph. It is materialized again when the graph is invalidated, and on any
+ * change if the rules use negation, as new facts can then invalidate derived ones.
+ */
+public final class DatalogProgram implements GraphListener {
+
+	/**
+	 * The category of the spans of Datalog evaluations in the AnalysisTrace.
+	 */
+	public static final String TRACE_CATEGORY = "datalog";
+
+	private final Map<String, Tags.Relation> relations;
+	private final Map<String, Tags.ProgramLocation[]> tagged;
+	private final Map<String, Integer> arities;
+	private final List<List<Rule>> strata;
+	private final boolean negation;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private Materialization materialization;
+	private final List<ProgramLocation> locations = new ArrayList<ProgramLocation>();
+	private final Map<ProgramLocation, Integer> ids = new HashMap<ProgramLocation, Integer>();
+	private volatile boolean materialized;
+	private boolean listening;
+
+	private final Set<ProgramLocation> createdLocations = new LinkedHashSet<ProgramLocation>();
+	private final List<Relation> createdRelations = new ArrayList<Relation>();
+	private final Set<ProgramLocation> removedLocations = new LinkedHashSet<ProgramLocation>();
+	private boolean invalidated;
+
+	/**
+	 * Creates the program from its builder.
+	 * @param builder the builder holding the predicates and rules
+	 * @throws DatalogException if a rule is not safe or the rules cannot be stratified
+	 */
+	private DatalogProgram(Builder builder) {
+		this.relations = new LinkedHashMap<String, Tags.Relation>(builder.relations);
+		this.tagged = new LinkedHashMap<String, Tags.ProgramLocation[]>(builder.tagged);
+		this.arities = new HashMap<String, Integer>(builder.arities);
+
+		List<Rule> rules = new ArrayList<Rule>();
+
+		for (Atom[] rule : builder.rules) {
+			rules.add(new Rule(rule[0], Arrays.asList(rule).subList(1, rule.length), Collections.emptySet()));
+		}
+
+		this.strata = Evaluation.stratify(rules);
+		this.negation = rules.stream().anyMatch(rule -> rule.body().stream().anyMatch(Atom::isNegated));
+	}
+
+	/**
+	 * Class building a Datalog program from its predicates and rules.
+	 */
+	public static final class Builder {
+		private final Map<String, Tags.Relation> relations = new LinkedHashMap<String, Tags.Relation>();
+		private final Map<String, Tags.ProgramLocation[]> tagged = new LinkedHashMap<String, Tags.ProgramLocation[]>();
+		private final Map<String, Integer> arities = new HashMap<String, Integer>();
+		private final List<Atom[]> rules = new ArrayList<Atom[]>();
+
+		/**
+		 * Declares a binary predicate holding for the relations of the graph with a tag, from their source to their target.
+		 * @param predicate the name of the predicate
+		 * @param tag the tag of the relations
+		 * @return this builder
+		 * @throws DatalogException if the predicate is already declared
+		 */
+		public Builder relation(String predicate, Tags.Relation tag) {
+			declare(predicate, 2);
+			this.relations.put(predicate, tag);
+			return this;
+		}
+
+		/**
+		 * Declares a unary predicate holding for the program locations tagged with at least one of some tags.
+		 * @param predicate the name of the predicate
+		 * @param tags the tags of the program locations
+		 * @return this builder
+		 * @throws DatalogException if the predicate is already declared
+		 */
+		public Builder tagged(String predicate, Tags.ProgramLocation... tags) {
+			declare(predicate, 1);
+			this.tagged.put(predicate, tags.clone());
+			return this;
+		}
+
+		/**
+		 * Adds a rule deriving facts of its head from the facts matching its body.
+		 * A predicate can be derived by several rules, and rules can be recursive.
+		 * @param head the head of the rule
+		 * @param body the atoms of the body of the rule
+		 * @return this builder
+		 * @throws DatalogException if the head is a declared predicate, or an atom has the wrong arity
+		 */
+		public Builder rule(Atom head, Atom... body) {
+			if (this.relations.containsKey(head.predicate()) || this.tagged.containsKey(head.predicate())) {
+				throw new DatalogException("The facts of " + head.predicate() + " are taken from the graph and cannot be derived");
+			}
+
+			checkArity(this.arities, head);
+			this.rules.add(atoms(head, body));
+			return this;
+		}
+
+		/**
+		 * Builds the program.
+		 * @return the program
+		 * @throws DatalogException if an atom has an undeclared predicate, a rule is not safe, or the rules cannot be stratified
+		 */
+		public DatalogProgram build() {
+			for (Atom[] rule : this.rules) {
+				for (int index = 1; index < rule.length; index++) {
+					if (!this.arities.containsKey(rule[index].predicate())) {
+						throw new DatalogException("Predicate " + rule[index].predicate() + " is not declared nor derived");
+					}
+					checkArity(this.arities, rule[index]);
+				}
+			}
+
+			return new DatalogProgram(this);
+		}
+
+		/**
+		 * Declares a predicate taken from the graph.
+		 * @param predicate the name of the predicate
+		 * @param arity the number of columns
+		 */
+		private void declare(String predicate, int arity) {
+			if (this.arities.containsKey(predicate)) {
+				throw new DatalogException("Predicate " + predicate + " is already declared");
+			}
+
+			this.arities.put(predicate, arity);
+		}
+	}
+
+	/**
+	 * Gets the number of columns of a predicate of the program.
+	 * @param predicate the name of the predicate
+	 * @return the arity, or null if the program has no such predicate
+	 */
+	Integer arity(String predicate) {
+		return this.arities.get(predicate);
+	}
+
+	/**
+	 * Gets the materialized facts of a predicate of the program. Must be called
+	 * within read(), and the facts must not be changed.
+	 * @param predicate the name of the predicate
+	 * @return the table of facts, or null if the program has no such predicate
+	 */
+	Table table(String predicate) {
+		return this.materialization.table(predicate);
+	}
+
+	/**
+	 * Brings the materialized facts up to date, and evaluates something on them
+	 * while they cannot be changed. Several evaluations can run at the same time,
+	 * only bringing the facts up to date is done by one thread at a time.
+	 * @param <T> the type of the result
+	 * @param evaluation the evaluation
+	 * @return the result of the evaluation
+	 */
+	<T> T read(Supplier<T> evaluation) {
+		if (isCurrent()) {
+			this.lock.readLock().lock();
+		}
+		else {
+			this.lock.writeLock().lock();
+
+			try {
+				refresh();
+				this.lock.readLock().lock();
+			}
+			finally {
+				this.lock.writeLock().unlock();
+			}
+		}
+
+		try {
+			return evaluation.get();
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the id of a program location in the tables, assigning one if it has none.
+	 * @param location the program location
+	 * @return the id
+	 */
+	int id(ProgramLocation location) {
+		synchronized (this.ids) {
+			Integer id = this.ids.get(location);
+
+			if (id == null) {
+				id = this.locations.size();
+				this.locations.add(location);
+				this.ids.put(location, id);
+			}
+
+			return id;
+		}
+	}
+
+	/**
+	 * Gets the program location with an id in the tables.
+	 * @param id the id
+	 * @return the program location
+	 */
+	ProgramLocation location(int id) {
+		synchronized (this.ids) {
+			return this.locations.get(id);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationCreated(ProgramLocation location) {
+		if (this.listening) {
+			this.createdLocations.add(location);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void relationCreated(Relation relation) {
+		if (this.listening) {
+			this.createdRelations.add(relation);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationRemoved(ProgramLocation location) {
+		if (this.listening) {
+			this.removedLocations.add(location);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void invalidated() {
+		this.invalidated = true;
+	}
+
+	/**
+	 * Checks if the materialized facts are up to date with the changes to the graph.
+	 * @return true if the facts are materialized and the graph has not changed since
+	 */
+	private synchronized boolean isCurrent() {
+		return this.materialized && !this.invalidated && this.createdLocations.isEmpty()
+				&& this.createdRelations.isEmpty() && this.removedLocations.isEmpty();
+	}
+
+	/**
+	 * Brings the materialized facts up to date with the changes to the graph since
+	 * they were last brought up to date. Must be called with the write lock held.
+	 */
+	private void refresh() {
+		Set<ProgramLocation> created;
+		List<Relation> relations;
+		Set<ProgramLocation> removed;
+		boolean invalid;
+
+		synchronized (this) {
+			if (!this.listening) {
+				Graph.getInstance().addListener(this);
+				this.listening = true;
+			}
+
+			created = new LinkedHashSet<ProgramLocation>(this.createdLocations);
+			relations = new ArrayList<Relation>(this.createdRelations);
+			removed = new HashSet<ProgramLocation>(this.removedLocations);
+			invalid = this.invalidated;
+			this.createdLocations.clear();
+			this.createdRelations.clear();
+			this.removedLocations.clear();
+			this.invalidated = false;
+		}
+
+		if (!this.materialized || invalid) {
+			materialize();
+			return;
+		}
+
+		Set<Integer> removedIds = new HashSet<Integer>();
+
+		synchronized (this.ids) {
+			for (ProgramLocation location : removed) {
+				if (this.ids.containsKey(location)) {
+					removedIds.add(this.ids.get(location));
+				}
+			}
+		}
+
+		created.removeAll(removed);
+		relations.removeIf(relation -> removed.contains(relation.from()) || removed.contains(relation.to()));
+
+		if (removedIds.isEmpty() && created.isEmpty() && relations.isEmpty()) {
+			return;
+		}
+
+		if (this.negation) {
+			materialize();
+			return;
+		}
+
+		Span span = AnalysisTrace.getInstance().begin(TRACE_CATEGORY, "maintain");
+
+		try {
+			if (!removedIds.isEmpty()) {
+				Set<String> declared = new HashSet<String>(this.relations.keySet());
+				declared.addAll(this.tagged.keySet());
+				this.materialization.delete(this.materialization.factsWith(declared, removedIds));
+			}
+
+			this.materialization.insert(facts(created, relations));
+
+			if (span.isRecording()) {
+				span.arg("removed", removedIds.size()).arg("created", created.size()).arg("relations", relations.size());
+			}
+		}
+		finally {
+			span.end();
+		}
+	}
+
+	/**
+	 * Materializes all facts from scratch.
+	 */
+	private void materialize() {
+		Span span = AnalysisTrace.getInstance().begin(TRACE_CATEGORY, "materialize");
+
+		try {
+			this.materialized = false;
+			this.materialization = null;
+
+			synchronized (this.ids) {
+				this.locations.clear();
+				this.ids.clear();
+			}
+
+			Map<String, List<int[]>> facts = new HashMap<String, List<int[]>>();
+
+			for (Map.Entry<String, Tags.Relation> predicate : this.relations.entrySet()) {
+				for (Relation relation : Graph.query().universe().relations(predicate.getValue()).relations()) {
+					fact(facts, predicate.getKey(), id(relation.from()), id(relation.to()));
+				}
+			}
+
+			for (Map.Entry<String, Tags.ProgramLocation[]> predicate : this.tagged.entrySet()) {
+				for (ProgramLocation location : Graph.query().universe().locations(predicate.getValue()).locations()) {
+					fact(facts, predicate.getKey(), id(location));
+				}
+			}
+
+			this.materialization = new Materialization(this.arities, this.strata, facts);
+			this.materialized = true;
+
+			if (span.isRecording()) {
+				span.arg("locations", this.locations.size());
+			}
+		}
+		finally {
+			span.end();
+		}
+	}
+
+	/**
+	 * Gets the facts of new program locations and relations.
+	 * @param created the new program locations
+	 * @param relations the new relations
+	 * @return the facts by predicate
+	 */
+	private Map<String, List<int[]>> facts(Set<ProgramLocation> created, List<Relation> relations) {
+		Map<String, List<int[]>> facts = new HashMap<String, List<int[]>>();
+
+		for (ProgramLocation location : created) {
+			for (Map.Entry<String, Tags.ProgramLocation[]> predicate : this.tagged.entrySet()) {
+				if (Arrays.stream(predicate.getValue()).anyMatch(location::taggedWith)) {
+					fact(facts, predicate.getKey(), id(location));
+				}
+			}
+		}
+
+		for (Relation relation : relations) {
+			for (Map.Entry<String, Tags.Relation> predicate : this.relations.entrySet()) {
+				if (relation.taggedWith(predicate.getValue())) {
+					fact(facts, predicate.getKey(), id(relation.from()), id(relation.to()));
+				}
+			}
+		}
+
+		return facts;
+	}
+
+	/**
+	 * Adds a fact to the facts of its predicate.
+	 * @param facts the facts by predicate
+	 * @param predicate the name of the predicate
+	 * @param values the values of the fact
+	 */
+	private static void fact(Map<String, List<int[]>> facts, String predicate, int... values) {
+		facts.computeIfAbsent(predicate, name -> new ArrayList<int[]>()).add(values);
+	}
+
+	/**
+	 * Checks that an atom has the arity of its predicate, and records the arity of a new predicate.
+	 * @param arities the arities of the predicates so far
+	 * @param atom the atom
+	 * @throws DatalogException if the atom has another arity than its predicate, or more than 31 columns
+	 */
+	static void checkArity(Map<String, Integer> arities, Atom atom) {
+		Integer arity = arities.putIfAbsent(atom.predicate(), atom.arity());
+
+		if (atom.arity() > Integer.SIZE - 1) {
+			throw new DatalogException("Predicate " + atom.predicate() + " has more than " + (Integer.SIZE - 1) + " columns");
+		}
+
+		if (arity != null && arity != atom.arity()) {
+			throw new DatalogException("Predicate " + atom.predicate() + " has " + arity + " columns, not " + atom.arity() + " as in " + atom);
+		}
+	}
+
+	/**
+	 * Collects a rule as its head followed by its body.
+	 * @param head the head of the rule
+	 * @param body the body of the rule
+	 * @return the atoms of the rule
+	 */
+	static Atom[] atoms(Atom head, Atom... body) {
+		Atom[] rule = new Atom[body.length + 1];
+		rule[0] = head;
+		System.arraycopy(body, 0, rule, 1, body.length);
+		return rule;
+	}
+
+}
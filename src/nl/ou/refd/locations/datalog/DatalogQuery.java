@@ -0,0 +1,306 @@
+package nl.ou.refd.locations.datalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.metrics.AnalysisTrace.Span;
+import nl.ou.refd.exceptions.DatalogException;
+import nl.ou.refd.locations.graph.ProgramLocation;
+
+/**
+ * Class representing a query on a DatalogProgram, with a parameter for the
+ * context of the detector it belongs to, such as a method specification. The
+ * query adds input predicates, holding for program locations determined by the
+ * parameter, filter predicates, checking program locations against the
+ * parameter, and rules deriving predicates from those and the predicates of the
+ * program. The result of the query is a unary predicate derived by its rules.
+ *
+ * A query is built once, kept in a constant, and executed with the parameter
+ * bound to it. Its rules are evaluated bottom-up from the facts of its inputs,
+ * on the facts materialized by the program, so recursive predicates that do not
+ * depend on the parameter are not computed again for every execution. A query
+ * is immutable and can be executed by several threads at the same time.
+ *
+ * A query can mark one unary predicate as read, so a detector can derive the part
+ * of the program graph it read from the facts of that predicate in the same
+ * execution that finds its risks, instead of querying the graph again.
+ * @param <P> the type of the parameter the query is executed with
+ */
+public final class DatalogQuery<P> {
+
+	private final DatalogProgram program;
+	private final String result;
+	private final String read;
+	private final Map<String, Function<? super P, ? extends Collection<ProgramLocation>>> inputs;
+	private final Map<String, BiPredicate<? super P, ProgramLocation>> filters;
+	private final Map<String, Integer> arities;
+	private final List<List<Rule>> strata;
+
+	/**
+	 * Creates the query from its builder.
+	 * @param builder the builder holding the predicates and rules
+	 * @throws DatalogException if a rule is not safe or the rules cannot be stratified
+	 */
+	private DatalogQuery(Builder<P> builder) {
+		this.program = builder.program;
+		this.result = builder.result;
+		this.read = builder.read;
+		this.inputs = new LinkedHashMap<String, Function<? super P, ? extends Collection<ProgramLocation>>>(builder.inputs);
+		this.filters = new HashMap<String, BiPredicate<? super P, ProgramLocation>>(builder.filters);
+		this.arities = new HashMap<String, Integer>(builder.arities);
+
+		List<Rule> rules = new ArrayList<Rule>();
+
+		for (Atom[] rule : builder.rules) {
+			rules.add(new Rule(rule[0], Arrays.asList(rule).subList(1, rule.length), this.filters.keySet()));
+		}
+
+		this.strata = Evaluation.stratify(rules);
+	}
+
+	/**
+	 * Class building a Datalog query from its predicates and rules.
+	 * @param <P> the type of the parameter the query is executed with
+	 */
+	public static final class Builder<P> {
+		private final DatalogProgram program;
+		private final String result;
+		private String read;
+		private final Map<String, Function<? super P, ? extends Collection<ProgramLocation>>> inputs = new LinkedHashMap<String, Function<? super P, ? extends Collection<ProgramLocation>>>();
+		private final Map<String, BiPredicate<? super P, ProgramLocation>> filters = new HashMap<String, BiPredicate<? super P, ProgramLocation>>();
+		private final Map<String, Integer> arities = new HashMap<String, Integer>();
+		private final List<Atom[]> rules = new ArrayList<Atom[]>();
+
+		/**
+		 * Creates a builder for a query on a program.
+		 * @param program the program the query uses the predicates of
+		 * @param result the name of the unary predicate resulting from the query
+		 */
+		public Builder(DatalogProgram program, String result) {
+			this.program = program;
+			this.result = result;
+		}
+
+		/**
+		 * Declares a unary predicate holding for the program locations determined by the parameter.
+		 * @param predicate the name of the predicate
+		 * @param locations gets the program locations from the parameter
+		 * @return this builder
+		 * @throws DatalogException if the predicate is already declared
+		 */
+		public Builder<P> input(String predicate, Function<? super P, ? extends Collection<ProgramLocation>> locations) {
+			declare(predicate);
+			this.inputs.put(predicate, locations);
+			return this;
+		}
+
+		/**
+		 * Declares a unary predicate holding for the program locations accepted by a
+		 * check against the parameter. A filter can only be used in the body of a rule
+		 * on a variable bound by another atom.
+		 * @param predicate the name of the predicate
+		 * @param filter checks a program location against the parameter
+		 * @return this builder
+		 * @throws DatalogException if the predicate is already declared
+		 */
+		public Builder<P> filter(String predicate, BiPredicate<? super P, ProgramLocation> filter) {
+			declare(predicate);
+			this.filters.put(predicate, filter);
+			return this;
+		}
+
+		/**
+		 * Adds a rule deriving facts of its head from the facts matching its body.
+		 * @param head the head of the rule
+		 * @param body the atoms of the body of the rule
+		 * @return this builder
+		 * @throws DatalogException if the head is a predicate of the program or a declared
+		 * predicate, or an atom has the wrong arity
+		 */
+		public Builder<P> rule(Atom head, Atom... body) {
+			if (this.program.arity(head.predicate()) != null || this.inputs.containsKey(head.predicate())
+					|| this.filters.containsKey(head.predicate())) {
+				throw new DatalogException("Predicate " + head.predicate() + " cannot be derived by the query");
+			}
+
+			DatalogProgram.checkArity(this.arities, head);
+			this.rules.add(DatalogProgram.atoms(head, body));
+			return this;
+		}
+
+		/**
+		 * Marks a unary predicate of the query as read. When the query is executed with
+		 * a reader, the program locations it holds for are passed to it.
+		 * @param predicate the name of the predicate
+		 * @return this builder
+		 */
+		public Builder<P> read(String predicate) {
+			this.read = predicate;
+			return this;
+		}
+
+		/**
+		 * Builds the query.
+		 * @return the query
+		 * @throws DatalogException if the result or the predicate marked as read is not a unary
+		 * predicate of the query, or the result is not derived by it, an atom has an undeclared predicate, a rule is not safe, or the rules cannot be stratified
+		 */
+		public DatalogQuery<P> build() {
+			for (Atom[] rule : this.rules) {
+				for (int index = 1; index < rule.length; index++) {
+					Integer arity = this.program.arity(rule[index].predicate());
+
+					if (arity != null) {
+						if (arity != rule[index].arity()) {
+							throw new DatalogException("Predicate " + rule[index].predicate() + " has " + arity + " columns, not " + rule[index].arity());
+						}
+					}
+					else if (this.arities.containsKey(rule[index].predicate())) {
+						DatalogProgram.checkArity(this.arities, rule[index]);
+					}
+					else {
+						throw new DatalogException("Predicate " + rule[index].predicate() + " is not declared nor derived");
+					}
+				}
+			}
+
+			if (this.inputs.containsKey(this.result) || this.filters.containsKey(this.result)
+					|| !Integer.valueOf(1).equals(this.arities.get(this.result))) {
+				throw new DatalogException("The result " + this.result + " must be a unary predicate derived by the query");
+			}
+
+			if (this.read != null && (this.filters.containsKey(this.read) || !Integer.valueOf(1).equals(this.arities.get(this.read)))) {
+				throw new DatalogException("The predicate " + this.read + " read must be a unary predicate of the query");
+			}
+
+			return new DatalogQuery<P>(this);
+		}
+
+		/**
+		 * Declares a unary predicate of the query.
+		 * @param predicate the name of the predicate
+		 */
+		private void declare(String predicate) {
+			if (this.program.arity(predicate) != null || this.arities.containsKey(predicate)) {
+				throw new DatalogException("Predicate " + predicate + " is already declared");
+			}
+
+			this.arities.put(predicate, 1);
+		}
+	}
+
+	/**
+	 * Executes the query with a parameter bound to it.
+	 * @param parameter the parameter
+	 * @return the program locations resulting from the query
+	 * @throws org.eclipse.core.runtime.OperationCanceledException if the analysis executing this query is cancelled
+	 */
+	public Set<ProgramLocation> execute(P parameter) {
+		return execute(parameter, locations -> {});
+	}
+
+	/**
+	 * Executes the query with a parameter bound to it, passing the program locations
+	 * the predicate marked as read holds for to a reader.
+	 * @param parameter the parameter
+	 * @param reader receives the program locations of the predicate marked as read, if any
+	 * @return the program locations resulting from the query
+	 * @throws org.eclipse.core.runtime.OperationCanceledException if the analysis executing this query is cancelled
+	 */
+	public Set<ProgramLocation> execute(P parameter, Consumer<Set<ProgramLocation>> reader) {
+		Span span = AnalysisTrace.getInstance().begin(DatalogProgram.TRACE_CATEGORY, this.result);
+		Set<ProgramLocation> result = null;
+
+		try {
+			Map<String, Collection<? extends ProgramLocation>> inputs = new HashMap<String, Collection<? extends ProgramLocation>>();
+
+			for (Map.Entry<String, Function<? super P, ? extends Collection<ProgramLocation>>> input : this.inputs.entrySet()) {
+				inputs.put(input.getKey(), input.getValue().apply(parameter));
+			}
+
+			Set<ProgramLocation> read = new HashSet<ProgramLocation>();
+			result = this.program.read(() -> evaluate(parameter, inputs, read));
+
+			if (this.read != null) {
+				reader.accept(read);
+			}
+
+			return result;
+		}
+		finally {
+			if (span.isRecording() && result != null) {
+				span.arg("result", result.size());
+			}
+			span.end();
+		}
+	}
+
+	/**
+	 * Evaluates the rules of the query on the materialized facts of the program.
+	 * @param parameter the parameter
+	 * @param inputs the program locations of the inputs
+	 * @param read the set to add the program locations of the predicate marked as read to
+	 * @return the program locations resulting from the query
+	 */
+	private Set<ProgramLocation> evaluate(P parameter, Map<String, Collection<? extends ProgramLocation>> inputs, Set<ProgramLocation> read) {
+		Map<String, Table> tables = new HashMap<String, Table>();
+		Map<String, List<int[]>> delta = new HashMap<String, List<int[]>>();
+
+		for (Map.Entry<String, Integer> predicate : this.arities.entrySet()) {
+			if (!this.filters.containsKey(predicate.getKey())) {
+				tables.put(predicate.getKey(), new Table(predicate.getValue()));
+			}
+		}
+
+		for (Map.Entry<String, Collection<? extends ProgramLocation>> input : inputs.entrySet()) {
+			Table table = tables.get(input.getKey());
+
+			for (ProgramLocation location : input.getValue()) {
+				int[] fact = {this.program.id(location)};
+
+				if (table.add(fact)) {
+					delta.computeIfAbsent(input.getKey(), name -> new ArrayList<int[]>()).add(fact);
+				}
+			}
+		}
+
+		Evaluation evaluation = new Evaluation(
+				predicate -> this.filters.containsKey(predicate) ? null : tables.getOrDefault(predicate, this.program.table(predicate)),
+				(predicate, id) -> this.filters.get(predicate).test(parameter, this.program.location(id)));
+
+		evaluation.propagate(this.strata, delta, tables.keySet(), (predicate, fact) -> tables.get(predicate).add(fact));
+
+		if (this.read != null) {
+			read.addAll(locations(tables.get(this.read)));
+		}
+
+		return locations(tables.get(this.result));
+	}
+
+	/**
+	 * Gets the program locations a unary predicate holds for.
+	 * @param table the table of the predicate
+	 * @return the program locations
+	 */
+	private Set<ProgramLocation> locations(Table table) {
+		Set<ProgramLocation> locations = new HashSet<ProgramLocation>();
+
+		for (int[] fact : table.facts()) {
+			locations.add(this.program.location(fact[0]));
+		}
+
+		return locations;
+	}
+
+}
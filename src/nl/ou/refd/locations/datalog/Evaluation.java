@@ -0,0 +1,291 @@
+package nl.ou.refd.locations.datalog;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import nl.ou.refd.analysis.AnalysisMonitor;
+import nl.ou.refd.exceptions.DatalogException;
+
+/**
+ * Class representing the bottom-up evaluation of stratified Datalog rules on
+ * tables of facts. The strata are evaluated in order, each to a fixpoint, with
+ * semi-naive evaluation: every round only evaluates the rules on the facts that
+ * were new in the round before, so a fact is not derived again from facts that
+ * were already known. The same evaluation propagates the facts added to the
+ * tables of some predicates to the predicates derived from them, which is how
+ * derived facts are kept up to date incrementally.
+ */
+final class Evaluation {
+
+	private final Function<String, Table> tables;
+	private final BiPredicate<String, Integer> filters;
+
+	/**
+	 * Creates an evaluation.
+	 * @param tables gets the table of facts of a predicate, or null if the predicate is a filter
+	 * @param filters checks if a program location id satisfies a filter predicate
+	 */
+	Evaluation(Function<String, Table> tables, BiPredicate<String, Integer> filters) {
+		this.tables = tables;
+		this.filters = filters;
+	}
+
+	/**
+	 * Groups rules in strata, so that the predicates used by a rule are derived
+	 * in the same stratum as its head or before it, and predicates used negated
+	 * are derived before it. Predicates not derived by the rules are known beforehand.
+	 * @param rules the rules
+	 * @return the rules of every stratum, in the order the strata must be evaluated in
+	 * @throws DatalogException if a predicate depends on its own negation
+	 */
+	static List<List<Rule>> stratify(Collection<Rule> rules) {
+		Map<String, Integer> strata = new HashMap<String, Integer>();
+
+		for (Rule rule : rules) {
+			strata.put(rule.head().predicate(), 0);
+		}
+
+		boolean changed = true;
+
+		while (changed) {
+			changed = false;
+
+			for (Rule rule : rules) {
+				int stratum = strata.get(rule.head().predicate());
+
+				for (Atom atom : rule.body()) {
+					Integer used = strata.get(atom.predicate());
+
+					if (used != null && used + (atom.isNegated() ? 1 : 0) > stratum) {
+						stratum = used + (atom.isNegated() ? 1 : 0);
+
+						if (stratum > strata.size()) {
+							throw new DatalogException("The rules cannot be stratified, " + rule.head().predicate() + " depends on its own negation");
+						}
+
+						strata.put(rule.head().predicate(), stratum);
+						changed = true;
+					}
+				}
+			}
+		}
+
+		Map<Integer, List<Rule>> grouped = new TreeMap<Integer, List<Rule>>();
+
+		for (Rule rule : rules) {
+			grouped.computeIfAbsent(strata.get(rule.head().predicate()), stratum -> new ArrayList<Rule>()).add(rule);
+		}
+
+		return new ArrayList<List<Rule>>(grouped.values());
+	}
+
+	/**
+	 * Evaluates strata of rules on facts new to some predicates. The rules of every
+	 * stratum are first evaluated on the new facts of the predicates they use, then
+	 * on the facts they derived themselves in the round before, until no new facts
+	 * are derived. The facts derived are new to the strata after it.
+	 *
+	 * A fresh predicate starts with no facts, so all its facts are new. A rule with a
+	 * fresh head and no positive atom of a fresh predicate, which would never see new
+	 * facts, is evaluated on all facts once instead.
+	 * @param strata the rules of every stratum
+	 * @param delta the new facts by predicate, to which the derived facts are added
+	 * @param fresh the predicates that start without facts
+	 * @param derive accepts a fact derived for a predicate, returning true if it is new
+	 * @throws org.eclipse.core.runtime.OperationCanceledException if the analysis running the evaluation is cancelled
+	 */
+	void propagate(List<List<Rule>> strata, Map<String, List<int[]>> delta, Set<String> fresh, BiPredicate<String, int[]> derive) {
+		for (List<Rule> stratum : strata) {
+			Map<String, List<int[]>> round = delta;
+			boolean first = true;
+
+			while (true) {
+				AnalysisMonitor.checkCanceled();
+				Map<String, List<int[]>> derived = new HashMap<String, List<int[]>>();
+
+				for (Rule rule : stratum) {
+					if (first && fresh.contains(rule.head().predicate()) && !usesAny(rule, fresh)) {
+						fire(rule, Rule.FULL, null, derive, derived);
+					}
+
+					for (int index = 0; index < rule.body().size(); index++) {
+						List<int[]> facts = round.get(rule.body().get(index).predicate());
+
+						if (facts != null && !facts.isEmpty() && rule.plan(index) != null) {
+							fire(rule, index, facts, derive, derived);
+						}
+					}
+				}
+
+				if (derived.isEmpty()) {
+					break;
+				}
+
+				for (Map.Entry<String, List<int[]>> facts : derived.entrySet()) {
+					delta.computeIfAbsent(facts.getKey(), predicate -> new ArrayList<int[]>()).addAll(facts.getValue());
+				}
+
+				round = derived;
+				first = false;
+			}
+		}
+	}
+
+	/**
+	 * Checks if a fact of the head of a rule can be derived from the facts in the tables.
+	 * @param rule the rule
+	 * @param fact the fact
+	 * @return true if the body of the rule holds for the fact
+	 */
+	boolean derives(Rule rule, int[] fact) {
+		int[] binding = new int[rule.variables()];
+		int[] slots = rule.headSlots();
+		BitSet bound = new BitSet();
+
+		for (int column = 0; column < slots.length; column++) {
+			if (bound.get(slots[column]) && binding[slots[column]] != fact[column]) {
+				return false;
+			}
+
+			binding[slots[column]] = fact[column];
+			bound.set(slots[column]);
+		}
+
+		return run(rule.plan(Rule.HEAD_BOUND), 0, binding, null, values -> true);
+	}
+
+	/**
+	 * Evaluates a rule with one of its plans, and collects the new facts of its head.
+	 * The facts are only passed on after the evaluation, as the rule may use the
+	 * table of its own head.
+	 * @param rule the rule
+	 * @param plan the plan to evaluate
+	 * @param facts the new facts the plan scans, or null if the plan scans none
+	 * @param derive accepts a derived fact, returning true if it is new
+	 * @param derived the new facts by predicate, to add the new facts of the head to
+	 */
+	private void fire(Rule rule, int plan, List<int[]> facts, BiPredicate<String, int[]> derive, Map<String, List<int[]>> derived) {
+		List<int[]> heads = new ArrayList<int[]>();
+		int[] slots = rule.headSlots();
+
+		run(rule.plan(plan), 0, new int[rule.variables()], facts, binding -> {
+			int[] head = new int[slots.length];
+
+			for (int column = 0; column < slots.length; column++) {
+				head[column] = binding[slots[column]];
+			}
+
+			heads.add(head);
+			return false;
+		});
+
+		String predicate = rule.head().predicate();
+
+		for (int[] head : heads) {
+			if (derive.test(predicate, head)) {
+				derived.computeIfAbsent(predicate, name -> new ArrayList<int[]>()).add(head);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the steps of a plan from a given step on, by backtracking over the matching facts.
+	 * @param plan the steps of the plan
+	 * @param next the step to evaluate
+	 * @param binding the values bound to the variables by the steps before
+	 * @param delta the new facts scanned by the delta step, if any
+	 * @param match called for every binding of all steps, returning true to stop the evaluation
+	 * @return true if the evaluation was stopped
+	 */
+	private boolean run(Rule.Step[] plan, int next, int[] binding, List<int[]> delta, Match match) {
+		if (next == plan.length) {
+			return match.found(binding);
+		}
+
+		Rule.Step step = plan[next];
+		int[] key = new int[step.keySlots.length];
+
+		for (int index = 0; index < key.length; index++) {
+			key[index] = binding[step.keySlots[index]];
+		}
+
+		Table table = this.tables.apply(step.predicate);
+
+		if (table == null) {
+			// A filter: its single column is always bound.
+			return this.filters.test(step.predicate, key[0]) != step.negated && run(plan, next + 1, binding, delta, match);
+		}
+
+		if (step.negated) {
+			return table.lookup(step.mask, key).isEmpty() && run(plan, next + 1, binding, delta, match);
+		}
+
+		for (int[] fact : step.delta ? delta : table.lookup(step.mask, key)) {
+			if (bind(step, fact, binding)) {
+				if (run(plan, next + 1, binding, delta, match)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Binds the variables of a step to the values of a fact.
+	 * @param step the step
+	 * @param fact the fact
+	 * @param binding the values bound to the variables, updated with the values of the fact
+	 * @return true if the fact matches the values bound before
+	 */
+	private static boolean bind(Rule.Step step, int[] fact, int[] binding) {
+		for (int column = 0; column < fact.length; column++) {
+			switch (step.modes[column]) {
+			case Rule.Step.BIND:
+				binding[step.slots[column]] = fact[column];
+				break;
+			case Rule.Step.CHECK:
+				if (binding[step.slots[column]] != fact[column]) {
+					return false;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks if a rule has a positive atom of one of some predicates.
+	 * @param rule the rule
+	 * @param predicates the predicates
+	 * @return true if the body of the rule uses one of the predicates positively
+	 */
+	private static boolean usesAny(Rule rule, Set<String> predicates) {
+		return rule.body().stream().anyMatch(atom -> !atom.isNegated() && predicates.contains(atom.predicate()));
+	}
+
+	/**
+	 * Function receiving the bindings of a plan.
+	 */
+	private interface Match {
+
+		/**
+		 * Receives a binding of all steps of a plan.
+		 * @param binding the values bound to the variables
+		 * @return true to stop the evaluation
+		 */
+		boolean found(int[] binding);
+	}
+
+}
@@ -0,0 +1,200 @@
+package nl.ou.refd.locations.datalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class representing the materialized facts of a Datalog program: the facts
+ * given for its declared predicates and all facts derived from them by its
+ * rules. Given facts can be added and deleted, after which the derived facts
+ * are brought up to date incrementally. Added facts are propagated with
+ * semi-naive evaluation. Deleted facts are handled with the delete-and-rederive
+ * method: first every fact with a derivation using a deleted fact is deleted,
+ * then the deleted facts that can still be derived without them are derived
+ * again, and propagated. Deleting facts requires rules without negation.
+ */
+final class Materialization {
+
+	private final Map<String, Table> tables = new HashMap<String, Table>();
+	private final List<List<Rule>> strata;
+
+	/**
+	 * Creates the materialization from given facts.
+	 * @param arities the arities of all predicates of the program
+	 * @param strata the rules of the program grouped in strata
+	 * @param facts the given facts by predicate
+	 */
+	Materialization(Map<String, Integer> arities, List<List<Rule>> strata, Map<String, List<int[]>> facts) {
+		this.strata = strata;
+
+		for (Map.Entry<String, Integer> predicate : arities.entrySet()) {
+			this.tables.put(predicate.getKey(), new Table(predicate.getValue()));
+		}
+
+		Map<String, List<int[]>> delta = new HashMap<String, List<int[]>>();
+
+		for (Map.Entry<String, List<int[]>> predicate : facts.entrySet()) {
+			for (int[] fact : predicate.getValue()) {
+				add(predicate.getKey(), fact, delta);
+			}
+		}
+
+		evaluation().propagate(this.strata, delta, arities.keySet(), this::derive);
+	}
+
+	/**
+	 * Gets the facts of a predicate. The facts must not be changed.
+	 * @param predicate the name of the predicate
+	 * @return the table of facts, or null if the program has no such predicate
+	 */
+	Table table(String predicate) {
+		return this.tables.get(predicate);
+	}
+
+	/**
+	 * Adds given facts, and derives the facts that follow from them.
+	 * @param facts the given facts by predicate
+	 */
+	void insert(Map<String, List<int[]>> facts) {
+		Map<String, List<int[]>> delta = new HashMap<String, List<int[]>>();
+
+		for (Map.Entry<String, List<int[]>> predicate : facts.entrySet()) {
+			for (int[] fact : predicate.getValue()) {
+				add(predicate.getKey(), fact, delta);
+			}
+		}
+
+		if (!delta.isEmpty()) {
+			evaluation().propagate(this.strata, delta, Collections.emptySet(), this::derive);
+		}
+	}
+
+	/**
+	 * Deletes given facts, and the derived facts that no longer follow from the
+	 * remaining facts. The rules must not use negation.
+	 * @param facts the given facts by predicate
+	 */
+	void delete(Map<String, List<int[]>> facts) {
+		Map<String, List<int[]>> deleted = new HashMap<String, List<int[]>>();
+		Map<String, Table> marked = new HashMap<String, Table>();
+
+		for (Map.Entry<String, List<int[]>> predicate : facts.entrySet()) {
+			for (int[] fact : predicate.getValue()) {
+				if (this.tables.get(predicate.getKey()).contains(fact)) {
+					mark(predicate.getKey(), fact, marked);
+				}
+			}
+		}
+
+		for (Map.Entry<String, Table> predicate : marked.entrySet()) {
+			deleted.put(predicate.getKey(), predicate.getValue().facts());
+		}
+
+		if (deleted.isEmpty()) {
+			return;
+		}
+
+		Evaluation evaluation = evaluation();
+
+		// Mark all facts with a derivation using a deleted fact, while they are still in the tables.
+		evaluation.propagate(this.strata, deleted, Collections.emptySet(),
+				(predicate, fact) -> this.tables.get(predicate).contains(fact) && mark(predicate, fact, marked));
+
+		for (Map.Entry<String, List<int[]>> predicate : deleted.entrySet()) {
+			for (int[] fact : predicate.getValue()) {
+				this.tables.get(predicate.getKey()).remove(fact);
+			}
+		}
+
+		// Derive the marked facts that still follow from the remaining facts again.
+		Map<String, List<int[]>> rederived = new HashMap<String, List<int[]>>();
+
+		for (List<Rule> stratum : this.strata) {
+			for (Rule rule : stratum) {
+				String head = rule.head().predicate();
+
+				for (int[] fact : deleted.getOrDefault(head, Collections.emptyList())) {
+					if (!this.tables.get(head).contains(fact) && evaluation.derives(rule, fact)) {
+						add(head, fact, rederived);
+					}
+				}
+			}
+		}
+
+		if (!rederived.isEmpty()) {
+			evaluation.propagate(this.strata, rederived, Collections.emptySet(), this::derive);
+		}
+	}
+
+	/**
+	 * Gets the facts of some predicates which hold one of some values in any column.
+	 * @param predicates the names of the predicates
+	 * @param values the values
+	 * @return the facts by predicate
+	 */
+	Map<String, List<int[]>> factsWith(Set<String> predicates, Set<Integer> values) {
+		Map<String, List<int[]>> facts = new HashMap<String, List<int[]>>();
+
+		for (String predicate : predicates) {
+			Table table = this.tables.get(predicate);
+
+			for (int value : values) {
+				for (int column = 0; column < table.arity(); column++) {
+					List<int[]> matches = table.lookup(1 << column, new int[] {value});
+
+					if (!matches.isEmpty()) {
+						facts.computeIfAbsent(predicate, name -> new ArrayList<int[]>()).addAll(matches);
+					}
+				}
+			}
+		}
+
+		return facts;
+	}
+
+	/**
+	 * Creates an evaluation on the facts.
+	 * @return the evaluation
+	 */
+	private Evaluation evaluation() {
+		return new Evaluation(this.tables::get, (predicate, id) -> false);
+	}
+
+	/**
+	 * Adds a fact to the table of its predicate, and to the new facts if it was not in the table yet.
+	 * @param predicate the name of the predicate
+	 * @param fact the fact
+	 * @param delta the new facts by predicate
+	 */
+	private void add(String predicate, int[] fact, Map<String, List<int[]>> delta) {
+		if (this.tables.get(predicate).add(fact)) {
+			delta.computeIfAbsent(predicate, name -> new ArrayList<int[]>()).add(fact);
+		}
+	}
+
+	/**
+	 * Adds a derived fact to the table of its predicate.
+	 * @param predicate the name of the predicate
+	 * @param fact the fact
+	 * @return true if the fact was not in the table yet
+	 */
+	private boolean derive(String predicate, int[] fact) {
+		return this.tables.get(predicate).add(fact);
+	}
+
+	/**
+	 * Marks a fact to be deleted.
+	 * @param predicate the name of the predicate
+	 * @param fact the fact
+	 * @param marked the facts marked so far by predicate
+	 * @return true if the fact was not marked yet
+	 */
+	private static boolean mark(String predicate, int[] fact, Map<String, Table> marked) {
+		return marked.computeIfAbsent(predicate, name -> new Table(fact.length)).add(fact);
+	}
+
+}
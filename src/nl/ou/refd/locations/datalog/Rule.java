@@ -0,0 +1,350 @@
+package nl.ou.refd.locations.datalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.ou.refd.exceptions.DatalogException;
+
+/**
+ * Class representing a Datalog rule, compiled into join plans. A plan orders
+ * the atoms of the body so that each positive atom is looked up by the columns
+ * bound by the atoms before it, with the most bound columns first, and negated
+ * atoms and filters are checked as soon as their variables are bound. A rule
+ * has a plan for a full evaluation, a plan per positive atom for an evaluation
+ * on the new facts of that atom only, as used by semi-naive evaluation, and a
+ * plan for checking if a given fact of the head can be derived.
+ */
+final class Rule {
+
+	/**
+	 * The plan evaluating the rule on all facts.
+	 */
+	static final int FULL = -1;
+
+	/**
+	 * The plan checking if a fact of the head, bound beforehand, can be derived.
+	 */
+	static final int HEAD_BOUND = -2;
+
+	private static final int ANY = -1;
+
+	private final Atom head;
+	private final List<Atom> body;
+	private final int variables;
+	private final int[] headSlots;
+	private final int[][] bodySlots;
+	private final Map<Integer, Step[]> plans = new HashMap<Integer, Step[]>();
+
+	/**
+	 * Compiles a rule.
+	 * @param head the head of the rule
+	 * @param body the body of the rule
+	 * @param filters the names of the predicates which are filters, and can only be checked
+	 * @throws DatalogException if the rule is not safe: if a variable of the head, a negated
+	 * atom or a filter is not bound by a positive atom, or if the body has no positive atom
+	 */
+	Rule(Atom head, List<Atom> body, Set<String> filters) {
+		this.head = head;
+		this.body = new ArrayList<Atom>(body);
+
+		if (head.isNegated() || head.variables().contains(Atom.ANY)) {
+			throw new DatalogException("The head of rule " + this + " must be positive and bind all its variables");
+		}
+
+		Map<String, Integer> slots = new HashMap<String, Integer>();
+		this.bodySlots = new int[this.body.size()][];
+
+		for (int index = 0; index < this.body.size(); index++) {
+			this.bodySlots[index] = slots(this.body.get(index), slots);
+		}
+
+		this.headSlots = slots(head, slots);
+		this.variables = slots.size();
+
+		boolean positive = false;
+
+		for (int index = 0; index < this.body.size(); index++) {
+			if (!this.body.get(index).isNegated() && !filters.contains(this.body.get(index).predicate())) {
+				positive = true;
+				this.plans.put(index, plan(index, filters));
+			}
+		}
+
+		if (!positive) {
+			throw new DatalogException("Rule " + this + " has no positive atom to evaluate");
+		}
+
+		this.plans.put(FULL, plan(FULL, filters));
+		this.plans.put(HEAD_BOUND, plan(HEAD_BOUND, filters));
+	}
+
+	/**
+	 * Gets the head of the rule.
+	 * @return the head
+	 */
+	Atom head() {
+		return this.head;
+	}
+
+	/**
+	 * Gets the body of the rule.
+	 * @return the atoms of the body
+	 */
+	List<Atom> body() {
+		return this.body;
+	}
+
+	/**
+	 * Gets the number of distinct variables in the rule.
+	 * @return the number of variables
+	 */
+	int variables() {
+		return this.variables;
+	}
+
+	/**
+	 * Gets the slots of the variables of the head.
+	 * @return the slot of the variable in each column of the head
+	 */
+	int[] headSlots() {
+		return this.headSlots;
+	}
+
+	/**
+	 * Gets a plan of the rule.
+	 * @param delta the index of the positive atom evaluated on new facts only, FULL or HEAD_BOUND
+	 * @return the steps of the plan
+	 */
+	Step[] plan(int delta) {
+		return this.plans.get(delta);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder rule = new StringBuilder(this.head.toString()).append(" :- ");
+
+		for (int index = 0; index < this.body.size(); index++) {
+			rule.append(index == 0 ? "" : ", ").append(this.body.get(index));
+		}
+
+		return rule.toString();
+	}
+
+	/**
+	 * Assigns slots to the variables of an atom.
+	 * @param atom the atom
+	 * @param slots the slots assigned so far, by variable name
+	 * @return the slot of the variable in each column of the atom, or ANY
+	 */
+	private static int[] slots(Atom atom, Map<String, Integer> slots) {
+		int[] columns = new int[atom.arity()];
+
+		for (int column = 0; column < columns.length; column++) {
+			String variable = atom.variables().get(column);
+			columns[column] = variable.equals(Atom.ANY) ? ANY : slots.computeIfAbsent(variable, name -> slots.size());
+		}
+
+		return columns;
+	}
+
+	/**
+	 * Orders the atoms of the body into a plan.
+	 * @param delta the index of the atom evaluated on new facts only, FULL or HEAD_BOUND
+	 * @param filters the names of the predicates which are filters
+	 * @return the steps of the plan
+	 * @throws DatalogException if the rule is not safe
+	 */
+	private Step[] plan(int delta, Set<String> filters) {
+		boolean[] bound = new boolean[this.variables];
+		boolean[] placed = new boolean[this.body.size()];
+		List<Step> steps = new ArrayList<Step>();
+
+		if (delta == HEAD_BOUND) {
+			for (int slot : this.headSlots) {
+				bound[slot] = true;
+			}
+		}
+		else if (delta != FULL) {
+			steps.add(step(delta, bound, true));
+			placed[delta] = true;
+		}
+
+		while (true) {
+			boolean checked = false;
+
+			for (int index = 0; index < this.body.size(); index++) {
+				Atom atom = this.body.get(index);
+
+				if (!placed[index] && (atom.isNegated() || filters.contains(atom.predicate())) && allBound(this.bodySlots[index], bound)) {
+					steps.add(step(index, bound, false));
+					placed[index] = true;
+					checked = true;
+				}
+			}
+
+			if (checked) {
+				continue;
+			}
+
+			int next = -1;
+			int mostBound = -1;
+
+			for (int index = 0; index < this.body.size(); index++) {
+				Atom atom = this.body.get(index);
+
+				if (!placed[index] && !atom.isNegated() && !filters.contains(atom.predicate())) {
+					int boundColumns = 0;
+
+					for (int slot : this.bodySlots[index]) {
+						boundColumns += slot != ANY && bound[slot] ? 1 : 0;
+					}
+
+					if (boundColumns > mostBound) {
+						next = index;
+						mostBound = boundColumns;
+					}
+				}
+			}
+
+			if (next == -1) {
+				break;
+			}
+
+			steps.add(step(next, bound, false));
+			placed[next] = true;
+		}
+
+		for (int index = 0; index < this.body.size(); index++) {
+			if (!placed[index]) {
+				throw new DatalogException("The variables of " + this.body.get(index) + " are not bound by a positive atom in rule " + this);
+			}
+		}
+
+		if (!allBound(this.headSlots, bound)) {
+			throw new DatalogException("The variables of the head are not bound by a positive atom in rule " + this);
+		}
+
+		return steps.toArray(new Step[steps.size()]);
+	}
+
+	/**
+	 * Creates the step of an atom in a plan, and marks the variables it binds as bound.
+	 * @param index the index of the atom in the body
+	 * @param bound the variables bound by the steps before, updated with the variables bound by this step
+	 * @param delta true if the step scans the new facts of the atom
+	 * @return the step
+	 */
+	private Step step(int index, boolean[] bound, boolean delta) {
+		int[] slots = this.bodySlots[index];
+		int[] modes = new int[slots.length];
+		List<Integer> keySlots = new ArrayList<Integer>();
+		int mask = 0;
+
+		for (int column = 0; column < slots.length; column++) {
+			int slot = slots[column];
+
+			if (slot == ANY) {
+				modes[column] = Step.SKIP;
+			}
+			else if (bound[slot] && !delta) {
+				modes[column] = Step.KEY;
+				mask |= 1 << column;
+				keySlots.add(slot);
+			}
+			else if (bound[slot] || firstColumn(slots, column) < column) {
+				modes[column] = Step.CHECK;
+			}
+			else {
+				modes[column] = Step.BIND;
+			}
+		}
+
+		for (int slot : slots) {
+			if (slot != ANY) {
+				bound[slot] = true;
+			}
+		}
+
+		Atom atom = this.body.get(index);
+		return new Step(index, atom.predicate(), delta, atom.isNegated(), slots, modes, mask,
+				keySlots.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	/**
+	 * Gets the first column of an atom holding the same variable as a column.
+	 * @param slots the slots of the columns of the atom
+	 * @param column the column
+	 * @return the first column with the same variable
+	 */
+	private static int firstColumn(int[] slots, int column) {
+		for (int other = 0; other < column; other++) {
+			if (slots[other] == slots[column]) {
+				return other;
+			}
+		}
+
+		return column;
+	}
+
+	/**
+	 * Checks if all variables of an atom are bound.
+	 * @param slots the slots of the columns of the atom
+	 * @param bound the variables bound
+	 * @return true if all variables are bound
+	 */
+	private static boolean allBound(int[] slots, boolean[] bound) {
+		return Arrays.stream(slots).allMatch(slot -> slot == ANY || bound[slot]);
+	}
+
+	/**
+	 * Class representing a single step of a plan, matching one atom of the body.
+	 * For every column a step either looks up the facts by the value already bound
+	 * to its variable, binds its variable, checks it against the value bound earlier
+	 * in the same atom, or skips it.
+	 */
+	static final class Step {
+		static final int KEY = 0;
+		static final int BIND = 1;
+		static final int CHECK = 2;
+		static final int SKIP = 3;
+
+		final int atom;
+		final String predicate;
+		final boolean delta;
+		final boolean negated;
+		final int[] slots;
+		final int[] modes;
+		final int mask;
+		final int[] keySlots;
+
+		/**
+		 * Creates the step.
+		 * @param atom the index of the atom in the body
+		 * @param predicate the predicate of the atom
+		 * @param delta true if the step scans new facts only
+		 * @param negated true if the atom is negated
+		 * @param slots the slot of the variable in each column, or ANY
+		 * @param modes the mode of each column
+		 * @param mask the columns looked up, one bit per column
+		 * @param keySlots the slots of the values looked up, in column order
+		 */
+		Step(int atom, String predicate, boolean delta, boolean negated, int[] slots, int[] modes, int mask, int[] keySlots) {
+			this.atom = atom;
+			this.predicate = predicate;
+			this.delta = delta;
+			this.negated = negated;
+			this.slots = slots;
+			this.modes = modes;
+			this.mask = mask;
+			this.keySlots = keySlots;
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+package nl.ou.refd.locations.datalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class representing the facts of a single predicate, as tuples of program
+ * location ids. Joins look facts up by the values of the columns bound so far,
+ * so for every combination of bound columns used, the table keeps a hash index
+ * from those values to the matching facts. An index is built the first time it
+ * is used, and kept up to date with the facts added and removed afterwards.
+ */
+final class Table {
+
+	private static final List<int[]> NONE = Collections.emptyList();
+
+	private final int arity;
+	private final Set<Tuple> facts = new HashSet<Tuple>();
+	private final Map<Integer, Map<Tuple, List<int[]>>> indexes = new HashMap<Integer, Map<Tuple, List<int[]>>>();
+
+	/**
+	 * Creates an empty table.
+	 * @param arity the number of columns of the facts
+	 */
+	Table(int arity) {
+		this.arity = arity;
+	}
+
+	/**
+	 * Gets the number of columns of the facts.
+	 * @return the arity of the table
+	 */
+	int arity() {
+		return this.arity;
+	}
+
+	/**
+	 * Gets the number of facts.
+	 * @return the number of facts in the table
+	 */
+	synchronized int size() {
+		return this.facts.size();
+	}
+
+	/**
+	 * Adds a fact.
+	 * @param fact the fact
+	 * @return true if the fact was not in the table yet
+	 */
+	synchronized boolean add(int[] fact) {
+		if (!this.facts.add(new Tuple(fact))) {
+			return false;
+		}
+
+		for (Map.Entry<Integer, Map<Tuple, List<int[]>>> index : this.indexes.entrySet()) {
+			index.getValue().computeIfAbsent(key(index.getKey(), fact), key -> new ArrayList<int[]>()).add(fact);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Removes a fact.
+	 * @param fact the fact
+	 * @return true if the fact was in the table
+	 */
+	synchronized boolean remove(int[] fact) {
+		if (!this.facts.remove(new Tuple(fact))) {
+			return false;
+		}
+
+		for (Map.Entry<Integer, Map<Tuple, List<int[]>>> index : this.indexes.entrySet()) {
+			Tuple key = key(index.getKey(), fact);
+			List<int[]> bucket = index.getValue().get(key);
+			bucket.removeIf(other -> Arrays.equals(other, fact));
+
+			if (bucket.isEmpty()) {
+				index.getValue().remove(key);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks if the table holds a fact.
+	 * @param fact the fact
+	 * @return true if the fact is in the table
+	 */
+	synchronized boolean contains(int[] fact) {
+		return this.facts.contains(new Tuple(fact));
+	}
+
+	/**
+	 * Looks up the facts with given values in some columns. The facts returned must
+	 * not be changed, and the list is only valid until the table is changed.
+	 * @param mask the bound columns, one bit per column
+	 * @param values the values of the bound columns, in column order
+	 * @return the matching facts
+	 */
+	synchronized List<int[]> lookup(int mask, int[] values) {
+		Map<Tuple, List<int[]>> index = this.indexes.get(mask);
+
+		if (index == null) {
+			index = new HashMap<Tuple, List<int[]>>();
+
+			for (Tuple fact : this.facts) {
+				index.computeIfAbsent(key(mask, fact.values), key -> new ArrayList<int[]>()).add(fact.values);
+			}
+
+			this.indexes.put(mask, index);
+		}
+
+		return index.getOrDefault(new Tuple(values), NONE);
+	}
+
+	/**
+	 * Gets all facts. The facts returned must not be changed.
+	 * @return a copy of the list of facts
+	 */
+	synchronized List<int[]> facts() {
+		List<int[]> facts = new ArrayList<int[]>(this.facts.size());
+
+		for (Tuple fact : this.facts) {
+			facts.add(fact.values);
+		}
+
+		return facts;
+	}
+
+	/**
+	 * Gets the values of the bound columns of a fact.
+	 * @param mask the bound columns
+	 * @param fact the fact
+	 * @return the key of the fact in the index of the bound columns
+	 */
+	private static Tuple key(int mask, int[] fact) {
+		int[] values = new int[Integer.bitCount(mask)];
+		int next = 0;
+
+		for (int column = 0; column < fact.length; column++) {
+			if ((mask & (1 << column)) != 0) {
+				values[next++] = fact[column];
+			}
+		}
+
+		return new Tuple(values);
+	}
+
+	/**
+	 * A tuple of program location ids, compared by value.
+	 */
+	private static final class Tuple {
+		private final int[] values;
+		private final int hash;
+
+		/**
+		 * Creates the tuple.
+		 * @param values the ids, which must not be changed afterwards
+		 */
+		Tuple(int[] values) {
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Tuple && Arrays.equals(this.values, ((Tuple)other).values);
+		}
+	}
+
+}
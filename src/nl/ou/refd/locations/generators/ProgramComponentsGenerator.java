@@ -1,14 +1,18 @@
 package nl.ou.refd.locations.generators;
 
+import java.util.HashSet;
 import java.util.Set;
 
 import nl.ou.refd.locations.graph.Graph;
 import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.Tags;
+import nl.ou.refd.locations.graph.TypeIndex;
 import nl.ou.refd.locations.streams.ProgramComponentStream;
 
 /**
  * Class representing a generator that generates all program components
- * from the current program graph.
+ * from the current program graph. If a project is active, only the program
+ * components in the view of that project are generated.
  */
 public class ProgramComponentsGenerator extends LocationGenerator {
 
@@ -25,7 +29,33 @@ public class ProgramComponentsGenerator extends LocationGenerator {
 	 */
 	@Override
 	public Set<ProgramLocation> generate() {
+		ProjectView view = ProjectView.active();
+		
+		if (view != null) {
+			return view.components();
+		}
+		
 		return Graph.query().universe().locations();
 	}
 
+	/**
+	 * Generates the classes with a given simple name. This is the same as selecting
+	 * them by name from the stream of all program components, but looks them up
+	 * in the TypeIndex instead of filtering all program components.
+	 * @param className the simple name of the classes
+	 * @return the program locations of the classes, empty if there are none
+	 */
+	public Set<ProgramLocation> classesNamed(String className) {
+		ProjectView view = ProjectView.active();
+		Set<ProgramLocation> classes = new HashSet<ProgramLocation>();
+
+		for (ProgramLocation type : TypeIndex.getInstance().typesNamed(className)) {
+			if (type.taggedWith(Tags.ProgramLocation.CLASS) && (view == null || view.contains(type))) {
+				classes.add(type);
+			}
+		}
+
+		return classes;
+	}
+
 }
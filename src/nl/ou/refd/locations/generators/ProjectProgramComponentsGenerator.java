@@ -2,9 +2,7 @@ package nl.ou.refd.locations.generators;
 
 import java.util.Set;
 
-import nl.ou.refd.locations.graph.Graph;
 import nl.ou.refd.locations.graph.ProgramLocation;
-import nl.ou.refd.locations.graph.Tags;
 import nl.ou.refd.locations.streams.ProgramComponentStream;
 
 /**
@@ -37,7 +35,7 @@ public class ProjectProgramComponentsGenerator extends LocationGenerator {
 	 */
 	@Override
 	public Set<ProgramLocation> generate() {
-		return Graph.query().universe().locations(Tags.ProgramLocation.PROJECT).selectLocation(Tags.Attributes.NAME, this.projectName).contained().locations();
+		return ProjectView.of(this.projectName).projectComponents();
 	}
 
 }
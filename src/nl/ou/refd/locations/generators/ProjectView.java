@@ -0,0 +1,306 @@
+package nl.ou.refd.locations.generators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.GraphListener;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.Relation;
+import nl.ou.refd.locations.graph.Tags;
+import nl.ou.refd.locations.libraries.LibrarySummaries;
+
+/**
+ * Class representing a materialized view of the program components of one project:
+ * its classes, methods and fields, together with the library classes they extend
+ * and the methods and fields of those. Generators read the view instead of the
+ * whole universe, so detectors never enumerate the internals of libraries or other
+ * projects they cannot report on.
+ *
+ * The view is materialized the first time it is read. Program locations and
+ * relations created later, such as the classes and methods created by microsteps,
+ * are added when the view is read again. Removed program locations are dropped
+ * right away. When the graph is invalidated the view is materialized again.
+ * The union of the project and library components is kept until the view changes,
+ * so generating all program components does not copy them every time.
+ */
+public final class ProjectView implements GraphListener {
+
+	private static final Map<String, ProjectView> views = new HashMap<String, ProjectView>();
+	private static volatile String activeProject;
+
+	private final String projectName;
+	private final Set<ProgramLocation> containers = new HashSet<ProgramLocation>();
+	private final Set<ProgramLocation> projectComponents = new HashSet<ProgramLocation>();
+	private final Set<ProgramLocation> libraryComponents = new HashSet<ProgramLocation>();
+	private final List<ProgramLocation> createdLocations = new ArrayList<ProgramLocation>();
+	private final List<Relation> createdRelations = new ArrayList<Relation>();
+	private Set<ProgramLocation> components;
+	private boolean materialized;
+
+	/**
+	 * Gets the view of a project.
+	 * @param projectName the name of the project
+	 * @return the view of the project
+	 */
+	public static synchronized ProjectView of(String projectName) {
+		ProjectView view = views.get(projectName);
+
+		if (view == null) {
+			view = new ProjectView(projectName);
+			views.put(projectName, view);
+			Graph.getInstance().addListener(view);
+		}
+
+		return view;
+	}
+
+	/**
+	 * Sets the project analyses run on, whose view is read by the ProgramComponentsGenerator.
+	 * The view is brought up to date right away, so library classes are completed from
+	 * their summaries before the analysis starts changing the graph.
+	 * @param projectName the name of the project, or null to read the whole universe
+	 */
+	public static void activate(String projectName) {
+		activeProject = projectName;
+
+		if (projectName != null) {
+			of(projectName).update();
+		}
+	}
+
+	/**
+	 * Gets the view of the project analyses run on.
+	 * @return the view of the active project, or null if no project is active
+	 */
+	public static ProjectView active() {
+		String projectName = activeProject;
+		return projectName == null ? null : of(projectName);
+	}
+
+	/**
+	 * Creates the view of a project.
+	 * @param projectName the name of the project
+	 */
+	private ProjectView(String projectName) {
+		this.projectName = projectName;
+	}
+
+	/**
+	 * Gets the classes, methods and fields of the project.
+	 * @return the program components of the project
+	 */
+	public synchronized Set<ProgramLocation> projectComponents() {
+		refresh();
+		return new HashSet<ProgramLocation>(this.projectComponents);
+	}
+
+	/**
+	 * Gets the classes, methods and fields of the project, and of the library classes
+	 * the classes of the project extend. The set is shared until the view changes,
+	 * so it cannot be modified.
+	 * @return the program components in the view
+	 */
+	public synchronized Set<ProgramLocation> components() {
+		refresh();
+
+		if (this.components == null) {
+			Set<ProgramLocation> components = new HashSet<ProgramLocation>(this.projectComponents);
+			components.addAll(this.libraryComponents);
+			this.components = Collections.unmodifiableSet(components);
+		}
+
+		return this.components;
+	}
+
+	/**
+	 * Checks if a program location is one of the components in the view, without
+	 * copying the components.
+	 * @param location the program location
+	 * @return true if the program location is a program component in the view
+	 */
+	public synchronized boolean contains(ProgramLocation location) {
+		refresh();
+		return this.projectComponents.contains(location) || this.libraryComponents.contains(location);
+	}
+
+	/**
+	 * Brings the view up to date without reading it.
+	 */
+	private synchronized void update() {
+		refresh();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationCreated(ProgramLocation location) {
+		if (this.materialized) {
+			this.createdLocations.add(location);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void relationCreated(Relation relation) {
+		if (this.materialized) {
+			this.createdRelations.add(relation);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationRemoved(ProgramLocation location) {
+		this.containers.remove(location);
+		this.projectComponents.remove(location);
+		this.libraryComponents.remove(location);
+		this.components = null;
+		this.createdLocations.remove(location);
+		this.createdRelations.removeIf(relation -> relation.from().equals(location) || relation.to().equals(location));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void invalidated() {
+		this.containers.clear();
+		this.projectComponents.clear();
+		this.libraryComponents.clear();
+		this.components = null;
+		this.createdLocations.clear();
+		this.createdRelations.clear();
+		this.materialized = false;
+	}
+
+	/**
+	 * Brings the view up to date, materializing it or adding what was created since it was last read.
+	 */
+	private void refresh() {
+		if (!this.materialized) {
+			materialize();
+			return;
+		}
+
+		List<ProgramLocation> locations = new ArrayList<ProgramLocation>(this.createdLocations);
+		List<Relation> relations = new ArrayList<Relation>(this.createdRelations);
+		this.createdLocations.clear();
+		this.createdRelations.clear();
+
+		for (ProgramLocation location : locations) {
+			if (Graph.query(location).parent().locations().stream().anyMatch(this.containers::contains)) {
+				add(location);
+			}
+		}
+
+		Set<ProgramLocation> supertypes = new HashSet<ProgramLocation>();
+
+		for (Relation relation : relations) {
+			if ((relation.taggedWith(Tags.Relation.EXTENDS) || relation.taggedWith(Tags.Relation.SUPERTYPE))
+					&& this.projectComponents.contains(relation.from())
+					&& !this.projectComponents.contains(relation.to())) {
+				supertypes.add(relation.to());
+			}
+		}
+
+		if (!supertypes.isEmpty()) {
+			addLibrarySupertypes(supertypes);
+		}
+	}
+
+	/**
+	 * Materializes the view from the program graph.
+	 */
+	private void materialize() {
+		Set<ProgramLocation> contained = Graph.query()
+				.universe()
+				.locations(Tags.ProgramLocation.PROJECT)
+				.selectLocation(Tags.Attributes.NAME, this.projectName)
+				.contained()
+				.locations(Tags.ProgramLocation.PROJECT, Tags.ProgramLocation.PACKAGE, Tags.ProgramLocation.CLASS,
+						Tags.ProgramLocation.METHOD, Tags.ProgramLocation.FIELD)
+				.locations();
+
+		for (ProgramLocation location : contained) {
+			add(location);
+		}
+
+		Set<ProgramLocation> classes = Graph.query(this.projectComponents).locations(Tags.ProgramLocation.CLASS).locations();
+
+		if (!classes.isEmpty()) {
+			addLibrarySupertypes(classes);
+		}
+
+		this.materialized = true;
+	}
+
+	/**
+	 * Adds a program location of the project to the view.
+	 * @param location the program location to add
+	 */
+	private void add(ProgramLocation location) {
+		this.components = null;
+
+		if (location.taggedWith(Tags.ProgramLocation.PROJECT) || location.taggedWith(Tags.ProgramLocation.PACKAGE)) {
+			this.containers.add(location);
+		}
+		else if (location.taggedWith(Tags.ProgramLocation.CLASS)) {
+			this.containers.add(location);
+			this.projectComponents.add(location);
+		}
+		else if (location.taggedWith(Tags.ProgramLocation.METHOD) || location.taggedWith(Tags.ProgramLocation.FIELD)) {
+			this.projectComponents.add(location);
+		}
+	}
+
+	/**
+	 * Adds the library classes the given classes extend, directly or indirectly, to the view,
+	 * together with their methods and fields. Library classes that are summarized but
+	 * not mapped in full are completed from their summaries first.
+	 * @param classes the classes to start from
+	 */
+	private void addLibrarySupertypes(Set<ProgramLocation> classes) {
+		Set<ProgramLocation> supertypes = librarySupertypes(classes);
+
+		if (supertypes.isEmpty()) {
+			return;
+		}
+
+		if (!LibrarySummaries.getInstance().complete(supertypes).isEmpty()) {
+			supertypes = librarySupertypes(classes);
+		}
+
+		this.components = null;
+		this.libraryComponents.addAll(supertypes);
+		this.libraryComponents.addAll(Graph.query(supertypes)
+				.children()
+				.locations(Tags.ProgramLocation.METHOD, Tags.ProgramLocation.FIELD)
+				.locations());
+	}
+
+	/**
+	 * Finds the library classes the given classes extend, directly or indirectly.
+	 * @param classes the classes to start from
+	 * @return the library classes the classes extend
+	 */
+	private Set<ProgramLocation> librarySupertypes(Set<ProgramLocation> classes) {
+		Set<ProgramLocation> supertypes = Graph.query(classes)
+				.forwardOn(Graph.query().universe().relations(Tags.Relation.EXTENDS, Tags.Relation.SUPERTYPE))
+				.locations(Tags.ProgramLocation.CLASS)
+				.locations();
+
+		supertypes.removeAll(this.projectComponents);
+		return supertypes;
+	}
+
+}
@@ -0,0 +1,710 @@
+package nl.ou.refd.locations.graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.graph.UniverseGraph;
+import com.ensoftcorp.atlas.core.index.common.SourceCorrespondence;
+
+/**
+ * Class representing a snapshot of the program graph stored off-heap, in a memory
+ * mapped file in compressed sparse row (CSR) form. Program locations are addressed
+ * by the ids of the LocationStore. For every program location the file holds the
+ * bitmask of its tags, its name, its parameter index, its source correspondence,
+ * and the ranges of its forward and reverse relations. For every relation it holds the id of the program location
+ * at the other end and the bitmask of its tags. Queries on the snapshot, through
+ * CsrQuery, walk these arrays and keep their results in bitmaps, so they create no
+ * objects per program location.
+ *
+ * The snapshot is only valid as long as the graph does not change. Querying it after
+ * the graph has changed throws an IllegalStateException. A snapshot file can also be
+ * opened detached, without a program graph, to evaluate queries outside the IDE.
+ * Snapshots are only written on request, such as by the QueryLog; the analysis
+ * itself queries the program graph in Atlas.
+ *
+ * The file starts with a header holding a magic number, the version of the format
+ * and the sizes of the sections. Snapshots of another version are not opened.
+ */
+public final class CsrGraph implements QueryBackend<CsrQuery> {
+
+	private static final int MAGIC = 0x52435352;
+	private static final int VERSION = 2;
+	private static final int HEADER_BYTES = 32;
+	private static final int NO_SOURCE = -1;
+	private static final Tags.Relation[] RELATION_TAGS = Tags.Relation.values();
+	static final long DETACHED = -1;
+
+	private final long epoch;
+	private final long generation;
+	private final int nodeCount;
+	private final LongBuffer nodeTags;
+	private final IntBuffer parameterIndices;
+	private final IntBuffer nameOffsets;
+	private final ByteBuffer names;
+	private final IntBuffer forwardOffsets;
+	private final IntBuffer forwardTargets;
+	private final LongBuffer forwardTags;
+	private final IntBuffer reverseOffsets;
+	private final IntBuffer reverseTargets;
+	private final LongBuffer reverseTags;
+	private final IntBuffer sourceFiles;
+	private final IntBuffer sourceOffsets;
+	private final IntBuffer sourceLengths;
+	private final IntBuffer fileNameOffsets;
+	private final ByteBuffer fileNames;
+	private LocationBitmap allNodes;
+
+	/**
+	 * Writes a snapshot of the current program graph to a file and maps it.
+	 * @param file the file to write the snapshot to, which is overwritten if it exists
+	 * @return the snapshot
+	 * @throws UncheckedIOException if the file cannot be written
+	 */
+	public static CsrGraph write(Path file) {
+		try (FileChannel channel = create(file)) {
+			return write(channel);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not write graph snapshot to " + file, e);
+		}
+	}
+
+	/**
+	 * Opens a snapshot written before, without a program graph. The snapshot is
+	 * detached: it is never considered outdated, but its program locations cannot
+	 * be converted to ProgramLocation objects, so its queries can only be counted.
+	 * This is how snapshots are read by tools running outside the IDE.
+	 * @param file the file holding the snapshot
+	 * @return the snapshot
+	 * @throws UncheckedIOException if the file cannot be read or does not hold a snapshot of this version
+	 */
+	public static CsrGraph open(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+
+			if (header.getInt() != MAGIC) {
+				throw new IOException(file + " is not a graph snapshot");
+			}
+
+			int version = header.getInt();
+
+			if (version != VERSION) {
+				throw new IOException(file + " is a graph snapshot of version " + version + ", expected version " + VERSION);
+			}
+
+			int nodeCount = header.getInt();
+			int edgeCount = header.getInt();
+			long nameBytes = header.getLong();
+			int fileCount = header.getInt();
+			int fileNameBytes = header.getInt();
+
+			return new CsrGraph(channel, FileChannel.MapMode.READ_ONLY, nodeCount, edgeCount, nameBytes, fileCount,
+					fileNameBytes, DETACHED, DETACHED);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not open graph snapshot " + file, e);
+		}
+	}
+
+	/**
+	 * Creates a file to write a snapshot to, overwriting it if it exists.
+	 * @param file the file
+	 * @return the channel of the file
+	 * @throws IOException if the file cannot be created
+	 */
+	static FileChannel create(Path file) throws IOException {
+		return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Writes a snapshot of the current program graph to a channel and maps its sections.
+	 * All program locations are loaded into the LocationStore first, to number them,
+	 * so their ids, tags and names are kept on the heap while the snapshot is written.
+	 * Names and source correspondences are read twice, once to size the sections and
+	 * once to fill them, so the sections themselves are not built up in memory.
+	 * @param channel the channel of the file to write to
+	 * @return the snapshot
+	 * @throws IOException if the file cannot be written
+	 */
+	private static CsrGraph write(FileChannel channel) throws IOException {
+		LocationStore store = LocationStore.getInstance();
+		UniverseGraph universe = com.ensoftcorp.atlas.core.db.graph.Graph.U;
+
+		long epoch = Graph.getInstance().getEpoch();
+		long generation = store.generation();
+		int nodeCount = store.loadAll();
+
+		int[] outDegrees = new int[nodeCount];
+		int[] inDegrees = new int[nodeCount];
+
+		for (Edge edge : universe.edges()) {
+			outDegrees[store.idOf(edge.from())]++;
+			inDegrees[store.idOf(edge.to())]++;
+		}
+
+		long nameBytes = 0;
+		Map<String, Integer> files = new LinkedHashMap<String, Integer>();
+
+		for (int id = 0; id < nodeCount; id++) {
+			String name = store.nameOf(id);
+			nameBytes += name == null ? 0 : name.getBytes(StandardCharsets.UTF_8).length;
+
+			SourceCorrespondence source = sourceCorrespondence(store.nodeOf(id));
+			if (source != null) {
+				files.putIfAbsent(sourceFile(source), files.size());
+			}
+		}
+
+		Builder builder = new Builder(channel, outDegrees, inDegrees, nameBytes, new ArrayList<String>(files.keySet()), epoch, generation);
+
+		for (int id = 0; id < nodeCount; id++) {
+			String name = store.nameOf(id);
+			SourceCorrespondence source = sourceCorrespondence(store.nodeOf(id));
+
+			builder.location(id, store.tagsOf(id), store.parameterIndexOf(id), name == null ? null : name.getBytes(StandardCharsets.UTF_8),
+					source == null ? NO_SOURCE : files.get(sourceFile(source)),
+					source == null ? 0 : source.offset,
+					source == null ? 0 : source.length);
+		}
+
+		for (Edge edge : universe.edges()) {
+			builder.relation(store.idOf(edge.from()), store.idOf(edge.to()), relationTags(edge));
+		}
+
+		return builder.finish();
+	}
+
+	/**
+	 * Maps the sections of a snapshot file.
+	 * @param channel the channel of the file
+	 * @param mode the mode to map the sections in
+	 * @param nodeCount the number of program locations in the snapshot
+	 * @param edgeCount the number of relations in the snapshot
+	 * @param nameBytes the size of the names section in bytes
+	 * @param fileCount the number of source files in the snapshot
+	 * @param fileNameBytes the size of the source file names section in bytes
+	 * @param epoch the epoch of the graph the snapshot was written at, or DETACHED
+	 * @param generation the generation of the LocationStore the snapshot was written at, or DETACHED
+	 * @throws IOException if the sections cannot be mapped
+	 */
+	private CsrGraph(FileChannel channel, FileChannel.MapMode mode, int nodeCount, long edgeCount, long nameBytes,
+			int fileCount, int fileNameBytes, long epoch, long generation) throws IOException {
+		this.epoch = epoch;
+		this.generation = generation;
+		this.nodeCount = nodeCount;
+
+		long position = HEADER_BYTES;
+		this.nodeTags = map(channel, mode, position, 8L * nodeCount).asLongBuffer();
+		position += 8L * nodeCount;
+		this.parameterIndices = map(channel, mode, position, 4L * nodeCount).asIntBuffer();
+		position += 4L * nodeCount;
+		this.nameOffsets = map(channel, mode, position, 4L * (nodeCount + 1)).asIntBuffer();
+		position += 4L * (nodeCount + 1);
+		this.forwardOffsets = map(channel, mode, position, 4L * (nodeCount + 1)).asIntBuffer();
+		position += 4L * (nodeCount + 1);
+		this.forwardTargets = map(channel, mode, position, 4L * edgeCount).asIntBuffer();
+		position += 4L * edgeCount;
+		this.forwardTags = map(channel, mode, position, 8L * edgeCount).asLongBuffer();
+		position += 8L * edgeCount;
+		this.reverseOffsets = map(channel, mode, position, 4L * (nodeCount + 1)).asIntBuffer();
+		position += 4L * (nodeCount + 1);
+		this.reverseTargets = map(channel, mode, position, 4L * edgeCount).asIntBuffer();
+		position += 4L * edgeCount;
+		this.reverseTags = map(channel, mode, position, 8L * edgeCount).asLongBuffer();
+		position += 8L * edgeCount;
+		this.sourceFiles = map(channel, mode, position, 4L * nodeCount).asIntBuffer();
+		position += 4L * nodeCount;
+		this.sourceOffsets = map(channel, mode, position, 4L * nodeCount).asIntBuffer();
+		position += 4L * nodeCount;
+		this.sourceLengths = map(channel, mode, position, 4L * nodeCount).asIntBuffer();
+		position += 4L * nodeCount;
+		this.fileNameOffsets = map(channel, mode, position, 4L * (fileCount + 1)).asIntBuffer();
+		position += 4L * (fileCount + 1);
+		this.names = map(channel, mode, position, nameBytes);
+		position += nameBytes;
+		this.fileNames = map(channel, mode, position, fileNameBytes);
+	}
+
+	/**
+	 * Maps a section of the file.
+	 * @param channel the channel of the file
+	 * @param mode the mode to map the section in
+	 * @param position the start of the section
+	 * @param size the size of the section in bytes
+	 * @return the mapped section
+	 * @throws IOException if the section cannot be mapped
+	 * @throws IllegalStateException if the section is larger than a single mapping allows
+	 */
+	private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Graph snapshot section of " + size + " bytes is too large to map");
+		}
+
+		return channel.map(mode, position, size);
+	}
+
+	/**
+	 * Writes the offsets of the relation ranges from the degrees of the program locations.
+	 * @param offsets the offsets section to write to
+	 * @param degrees the number of relations of every program location
+	 * @return the start of the range of every program location, to be used as cursors
+	 */
+	private static int[] offsets(IntBuffer offsets, int[] degrees) {
+		int[] cursors = new int[degrees.length];
+		int offset = 0;
+
+		for (int id = 0; id < degrees.length; id++) {
+			offsets.put(id, offset);
+			cursors[id] = offset;
+			offset += degrees[id];
+		}
+
+		offsets.put(degrees.length, offset);
+		return cursors;
+	}
+
+	/**
+	 * Gets the bitmask of the tags of a relation.
+	 * @param edge the Atlas edge of the relation
+	 * @return the bitmask of its tags
+	 */
+	static long relationTags(Edge edge) {
+		long tags = 0;
+
+		for (Tags.Relation tag : RELATION_TAGS) {
+			if (edge.taggedWith(tag.toString())) {
+				tags |= relationBit(tag);
+			}
+		}
+
+		return tags;
+	}
+
+	/**
+	 * Gets the source correspondence of a program location.
+	 * @param node the Atlas node of the program location
+	 * @return the source correspondence, or null if the program location has none in a source file
+	 */
+	static SourceCorrespondence sourceCorrespondence(Node node) {
+		Object source = node.getAttr(Tags.Attributes.SOURCE_CORRESPONDENCE.toString());
+
+		if (source instanceof SourceCorrespondence && ((SourceCorrespondence)source).sourceFile != null) {
+			return (SourceCorrespondence)source;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets the workspace path of the source file of a source correspondence.
+	 * @param source the source correspondence
+	 * @return the full path of the source file in the workspace
+	 */
+	static String sourceFile(SourceCorrespondence source) {
+		return source.sourceFile.getFullPath().toString();
+	}
+
+	/**
+	 * Gets the bit representing a relation tag in a bitmask of relation tags.
+	 * @param tag the relation tag
+	 * @return the bit of the tag
+	 */
+	static long relationBit(Tags.Relation tag) {
+		return 1L << tag.ordinal();
+	}
+
+	/**
+	 * Gets the bitmask representing a number of relation tags.
+	 * @param tags the relation tags
+	 * @return the bitmask of the tags
+	 */
+	static long relationMask(Tags.Relation... tags) {
+		long mask = 0;
+
+		for (Tags.Relation tag : tags) {
+			mask |= relationBit(tag);
+		}
+
+		return mask;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CsrQuery universe() {
+		return new CsrQuery(this, allNodes(), ~0L);
+	}
+
+	/**
+	 * Creates a query from a set of program locations.
+	 * @param locations the program locations
+	 * @return the query
+	 */
+	public CsrQuery query(Set<ProgramLocation> locations) {
+		checkCurrent();
+		return new CsrQuery(this, LocationStore.getInstance().bitmap(locations), 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The ids are the ids of the LocationStore at the time the snapshot was written.
+	 */
+	@Override
+	public CsrQuery locations(int[] ids) {
+		checkCurrent();
+
+		LocationBitmap nodes = new LocationBitmap();
+
+		for (int id : ids) {
+			nodes.add(id);
+		}
+
+		return new CsrQuery(this, nodes, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CsrQuery empty() {
+		return new CsrQuery(this, new LocationBitmap(), 0);
+	}
+
+	/**
+	 * Checks if the snapshot was opened without a program graph.
+	 * @return true if the snapshot is detached
+	 */
+	public boolean isDetached() {
+		return this.epoch == DETACHED;
+	}
+
+	/**
+	 * Gets the number of program locations in the snapshot.
+	 * @return the number of program locations
+	 */
+	public int nodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * Gets the bitmap of all program locations in the snapshot.
+	 * @return the bitmap of all program locations
+	 */
+	synchronized LocationBitmap allNodes() {
+		checkCurrent();
+
+		if (this.allNodes == null) {
+			this.allNodes = new LocationBitmap();
+
+			for (int id = 0; id < this.nodeCount; id++) {
+				if (this.nodeTags.get(id) != 0) {
+					this.allNodes.add(id);
+				}
+			}
+		}
+
+		return this.allNodes;
+	}
+
+	/**
+	 * Gets the bitmask of the tags of a program location.
+	 * @param id the id of the program location
+	 * @return the bitmask of its tags
+	 */
+	long tags(int id) {
+		return this.nodeTags.get(id);
+	}
+
+	/**
+	 * Gets the parameter index of a program location.
+	 * @param id the id of the program location
+	 * @return the parameter index, or -1 if the program location has no parameter index
+	 */
+	int parameterIndex(int id) {
+		return this.parameterIndices.get(id);
+	}
+
+	/**
+	 * Checks if the name of a program location equals a value, without decoding the name.
+	 * A program location without a name has the same name as one with an empty name.
+	 * @param id the id of the program location
+	 * @param encodedName the UTF-8 encoded value
+	 * @return true if the name equals the value
+	 */
+	boolean nameEquals(int id, byte[] encodedName) {
+		int start = this.nameOffsets.get(id);
+
+		if (this.nameOffsets.get(id + 1) - start != encodedName.length) {
+			return false;
+		}
+
+		for (int index = 0; index < encodedName.length; index++) {
+			if (this.names.get(start + index) != encodedName[index]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the name of a program location.
+	 * @param id the id of the program location
+	 * @return the name, which is empty if the program location has no name
+	 */
+	String name(int id) {
+		return decode(this.names, this.nameOffsets.get(id), this.nameOffsets.get(id + 1));
+	}
+
+	/**
+	 * Gets the workspace path of the source file of a program location.
+	 * @param id the id of the program location
+	 * @return the full path of the source file, or null if the program location has no source correspondence
+	 */
+	String sourceFile(int id) {
+		int file = this.sourceFiles.get(id);
+
+		if (file == NO_SOURCE) {
+			return null;
+		}
+
+		return decode(this.fileNames, this.fileNameOffsets.get(file), this.fileNameOffsets.get(file + 1));
+	}
+
+	/**
+	 * Gets the offset of a program location in its source file.
+	 * @param id the id of the program location
+	 * @return the offset in characters, or zero if the program location has no source correspondence
+	 */
+	int sourceOffset(int id) {
+		return this.sourceOffsets.get(id);
+	}
+
+	/**
+	 * Gets the length of a program location in its source file.
+	 * @param id the id of the program location
+	 * @return the length in characters, or zero if the program location has no source correspondence
+	 */
+	int sourceLength(int id) {
+		return this.sourceLengths.get(id);
+	}
+
+	/**
+	 * Decodes a UTF-8 encoded string from a section of the file.
+	 * @param section the section holding the string
+	 * @param start the start of the string
+	 * @param end the end of the string, exclusive
+	 * @return the string
+	 */
+	private static String decode(ByteBuffer section, int start, int end) {
+		byte[] encoded = new byte[end - start];
+		section.get(start, encoded);
+		return new String(encoded, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Performs an action for every program location one forward relation away.
+	 * @param id the id of the program location to start from
+	 * @param mask the bitmask of the relation tags to follow
+	 * @param action the action to perform with the id of every program location reached
+	 */
+	void forEachSuccessor(int id, long mask, IntConsumer action) {
+		for (int edge = this.forwardOffsets.get(id); edge < this.forwardOffsets.get(id + 1); edge++) {
+			if ((this.forwardTags.get(edge) & mask) != 0) {
+				action.accept(this.forwardTargets.get(edge));
+			}
+		}
+	}
+
+	/**
+	 * Performs an action for every program location one reverse relation away.
+	 * @param id the id of the program location to start from
+	 * @param mask the bitmask of the relation tags to follow
+	 * @param action the action to perform with the id of every program location reached
+	 */
+	void forEachPredecessor(int id, long mask, IntConsumer action) {
+		for (int edge = this.reverseOffsets.get(id); edge < this.reverseOffsets.get(id + 1); edge++) {
+			if ((this.reverseTags.get(edge) & mask) != 0) {
+				action.accept(this.reverseTargets.get(edge));
+			}
+		}
+	}
+
+	/**
+	 * Checks that the graph has not changed since the snapshot was written.
+	 * @throws IllegalStateException if the graph has changed
+	 */
+	void checkCurrent() {
+		if (this.epoch == DETACHED) {
+			return;
+		}
+
+		if (Graph.getInstance().getEpoch() != this.epoch || LocationStore.getInstance().generation() != this.generation) {
+			throw new IllegalStateException("The graph has changed since the snapshot was written");
+		}
+	}
+
+	/**
+	 * Class writing the sections of a new snapshot file. The sizes of all sections
+	 * are known before anything is written, so the program locations and relations
+	 * can be streamed into the file. Program locations are written in the order of
+	 * their ids, relations in any order.
+	 */
+	static final class Builder {
+
+		private final CsrGraph graph;
+		private final int[] forwardCursors;
+		private final int[] reverseCursors;
+		private int nextId;
+		private int nameOffset;
+
+		/**
+		 * Writes the header, the relation offsets and the source file names of a new snapshot.
+		 * @param channel the channel of the file to write to
+		 * @param outDegrees the number of forward relations of every program location
+		 * @param inDegrees the number of reverse relations of every program location
+		 * @param nameBytes the total size of the UTF-8 encoded names of the program locations
+		 * @param files the workspace paths of the source files, indexed by the program locations
+		 * @param epoch the epoch of the graph the snapshot is written at, or DETACHED
+		 * @param generation the generation of the LocationStore the snapshot is written at, or DETACHED
+		 * @throws IOException if the file cannot be written
+		 */
+		Builder(FileChannel channel, int[] outDegrees, int[] inDegrees, long nameBytes, List<String> files,
+				long epoch, long generation) throws IOException {
+			int nodeCount = outDegrees.length;
+			long edgeCount = 0;
+
+			for (int degree : outDegrees) {
+				edgeCount += degree;
+			}
+
+			List<byte[]> encodedFiles = new ArrayList<byte[]>();
+			long fileNameBytes = 0;
+
+			for (String file : files) {
+				byte[] encoded = file.getBytes(StandardCharsets.UTF_8);
+				encodedFiles.add(encoded);
+				fileNameBytes += encoded.length;
+			}
+
+			if (edgeCount > Integer.MAX_VALUE || fileNameBytes > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Graph of " + edgeCount + " relations is too large for a snapshot");
+			}
+
+			MappedByteBuffer header = map(channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putInt(nodeCount).putInt((int)edgeCount)
+					.putLong(nameBytes).putInt(files.size()).putInt((int)fileNameBytes);
+
+			this.graph = new CsrGraph(channel, FileChannel.MapMode.READ_WRITE, nodeCount, edgeCount, nameBytes,
+					files.size(), (int)fileNameBytes, epoch, generation);
+			this.forwardCursors = offsets(this.graph.forwardOffsets, outDegrees);
+			this.reverseCursors = offsets(this.graph.reverseOffsets, inDegrees);
+
+			int fileNameOffset = 0;
+
+			for (int file = 0; file < encodedFiles.size(); file++) {
+				this.graph.fileNameOffsets.put(file, fileNameOffset);
+				this.graph.fileNames.position(fileNameOffset);
+				this.graph.fileNames.put(encodedFiles.get(file));
+				fileNameOffset += encodedFiles.get(file).length;
+			}
+
+			this.graph.fileNameOffsets.put(encodedFiles.size(), fileNameOffset);
+		}
+
+		/**
+		 * Writes a program location. Program locations with lower ids that were not
+		 * written are written without tags, name and source correspondence.
+		 * @param id the id of the program location
+		 * @param tags the bitmask of its tags
+		 * @param parameterIndex its parameter index, or -1 if it has none
+		 * @param name its UTF-8 encoded name, or null if it has none
+		 * @param file the index of its source file, or -1 if it has no source correspondence
+		 * @param sourceOffset its offset in the source file
+		 * @param sourceLength its length in the source file
+		 * @throws IllegalArgumentException if a program location with this or a higher id was written before
+		 */
+		void location(int id, long tags, int parameterIndex, byte[] name, int file, int sourceOffset, int sourceLength) {
+			if (id < this.nextId) {
+				throw new IllegalArgumentException("Program location " + id + " is not written in the order of the ids");
+			}
+
+			while (this.nextId < id) {
+				write(this.nextId++, 0, -1, null, NO_SOURCE, 0, 0);
+			}
+
+			write(id, tags, parameterIndex, name, file, sourceOffset, sourceLength);
+			this.nextId = id + 1;
+		}
+
+		/**
+		 * Writes a relation.
+		 * @param from the id of the program location the relation starts at
+		 * @param to the id of the program location the relation ends at
+		 * @param tags the bitmask of the relation tags of the relation
+		 */
+		void relation(int from, int to, long tags) {
+			this.graph.forwardTargets.put(this.forwardCursors[from], to);
+			this.graph.forwardTags.put(this.forwardCursors[from]++, tags);
+			this.graph.reverseTargets.put(this.reverseCursors[to], from);
+			this.graph.reverseTags.put(this.reverseCursors[to]++, tags);
+		}
+
+		/**
+		 * Writes the program locations that were not written and completes the snapshot.
+		 * @return the snapshot
+		 */
+		CsrGraph finish() {
+			while (this.nextId < this.graph.nodeCount) {
+				write(this.nextId++, 0, -1, null, NO_SOURCE, 0, 0);
+			}
+
+			this.graph.nameOffsets.put(this.graph.nodeCount, this.nameOffset);
+			return this.graph;
+		}
+
+		/**
+		 * Writes the columns of a program location.
+		 * @param id the id of the program location
+		 * @param tags the bitmask of its tags
+		 * @param parameterIndex its parameter index, or -1 if it has none
+		 * @param name its UTF-8 encoded name, or null if it has none
+		 * @param file the index of its source file, or -1 if it has no source correspondence
+		 * @param sourceOffset its offset in the source file
+		 * @param sourceLength its length in the source file
+		 */
+		private void write(int id, long tags, int parameterIndex, byte[] name, int file, int sourceOffset, int sourceLength) {
+			this.graph.nodeTags.put(id, tags);
+			this.graph.parameterIndices.put(id, parameterIndex);
+			this.graph.nameOffsets.put(id, this.nameOffset);
+			this.graph.sourceFiles.put(id, file);
+			this.graph.sourceOffsets.put(id, sourceOffset);
+			this.graph.sourceLengths.put(id, sourceLength);
+
+			if (name != null) {
+				this.graph.names.position(this.nameOffset);
+				this.graph.names.put(name);
+				this.nameOffset += name.length;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,540 @@
+package nl.ou.refd.locations.graph;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import nl.ou.refd.exceptions.LocationSetException;
+
+/**
+ * Class representing a query of a CsrGraph snapshot. It offers the operators of
+ * GraphQuery, but evaluates them directly on the arrays of the snapshot. A query
+ * consists of a bitmap of program locations and a bitmask of relation tags. The
+ * relations in the query are the relations with one of these tags between two of
+ * its program locations. Selecting program locations drops the relations, the
+ * universe holds all relations.
+ */
+public class CsrQuery implements QueryOperations<CsrQuery> {
+
+	private final CsrGraph graph;
+	private final LocationBitmap nodes;
+	private final long relationMask;
+
+	/**
+	 * Creates a query.
+	 * @param graph the snapshot the query is on
+	 * @param nodes the bitmap of program locations in the query
+	 * @param relationMask the bitmask of the relation tags of the relations in the query
+	 */
+	CsrQuery(CsrGraph graph, LocationBitmap nodes, long relationMask) {
+		this.graph = graph;
+		this.nodes = nodes;
+		this.relationMask = relationMask;
+	}
+
+	/**
+	 * Creates a query on the same snapshot with only program locations.
+	 * @param nodes the bitmap of program locations
+	 * @return the resulting query
+	 */
+	private CsrQuery withNodes(LocationBitmap nodes) {
+		return new CsrQuery(this.graph, nodes, 0);
+	}
+
+	/**
+	 * Gets the set of program locations resulting from the query.
+	 * @return the set of program locations resulting from the query
+	 */
+	public Set<ProgramLocation> locations() {
+		this.graph.checkCurrent();
+		return LocationStore.getInstance().locations(this.nodes);
+	}
+
+	/**
+	 * Checks if the query results in a single program location and returns this location.
+	 * @return the single program location
+	 * @throws LocationSetException if the query results in more than one program location
+	 */
+	public ProgramLocation singleLocation() {
+		if (this.nodes.cardinality() != 1) {
+			throw new LocationSetException("CsrQuery did not result in exactly one program location");
+		}
+		return locations().iterator().next();
+	}
+
+	/**
+	 * Gets the number of program locations contained.
+	 * @return the number of program locations contained
+	 */
+	public long locationCount() {
+		return this.nodes.cardinality();
+	}
+
+	/**
+	 * Gets the number of relations contained: the relations with one of the tags
+	 * of the query between two of its program locations.
+	 * @return the number of relations contained
+	 */
+	public long relationCount() {
+		this.graph.checkCurrent();
+
+		long[] count = {0};
+		this.nodes.forEach(id -> this.graph.forEachSuccessor(id, this.relationMask, target -> {
+			if (this.nodes.contains(target)) {
+				count[0]++;
+			}
+		}));
+		return count[0];
+	}
+
+	/**
+	 * Returns the universe the query is a part of.
+	 * @return the universe the query is a part of
+	 */
+	public CsrQuery universe() {
+		return this.graph.universe();
+	}
+
+	/**
+	 * Selects program locations tagged by at least one of the provided tags.
+	 * @param tags the tags to select program locations for
+	 * @return the resulting query
+	 */
+	public CsrQuery locations(Tags.ProgramLocation... tags) {
+		long mask = LocationStore.mask(tags);
+		LocationBitmap selected = new LocationBitmap();
+		this.nodes.forEach(id -> {
+			if ((this.graph.tags(id) & mask) != 0) {
+				selected.add(id);
+			}
+		});
+		return withNodes(selected);
+	}
+
+	/**
+	 * Selects program locations tagged by all of the provided tags.
+	 * @param tags the tags to select program locations for
+	 * @return the resulting query
+	 */
+	public CsrQuery locationsTaggedWithAll(Tags.ProgramLocation... tags) {
+		long mask = LocationStore.mask(tags);
+		LocationBitmap selected = new LocationBitmap();
+		this.nodes.forEach(id -> {
+			if ((this.graph.tags(id) & mask) == mask) {
+				selected.add(id);
+			}
+		});
+		return withNodes(selected);
+	}
+
+	/**
+	 * Select relations tagged with provided tags. ProgramLocations are retained.
+	 * @param tags the tags to select edges from
+	 * @return the resulting query
+	 */
+	public CsrQuery relations(Tags.Relation... tags) {
+		return new CsrQuery(this.graph, this.nodes, this.relationMask & CsrGraph.relationMask(tags));
+	}
+
+	/**
+	 * Selects program locations based on the value they have stored for a specific attribute.
+	 * Only the name and the parameter index are stored in the snapshot.
+	 * @param <T> the type of the attribute value
+	 * @param attribute the tag of the attribute
+	 * @param value the value the attribute is supposed to have
+	 * @return the resulting query
+	 * @throws IllegalArgumentException if the attribute is not stored in the snapshot
+	 */
+	public <T> CsrQuery selectLocation(Tags.Attributes attribute, T value) {
+		LocationBitmap selected = new LocationBitmap();
+
+		if (attribute == Tags.Attributes.NAME) {
+			byte[] encodedName = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+			this.nodes.forEach(id -> {
+				if (this.graph.nameEquals(id, encodedName)) {
+					selected.add(id);
+				}
+			});
+		}
+		else if (attribute == Tags.Attributes.PARAMETER_INDEX && value instanceof Integer) {
+			int parameterIndex = (Integer)value;
+			this.nodes.forEach(id -> {
+				if (this.graph.parameterIndex(id) == parameterIndex) {
+					selected.add(id);
+				}
+			});
+		}
+		else {
+			throw new IllegalArgumentException("Attribute " + attribute + " with value " + value + " cannot be selected on a graph snapshot");
+		}
+
+		return withNodes(selected);
+	}
+
+	/**
+	 * Combines this query with a given one, removing duplicate elements.
+	 * @param expr the query to combine with this one
+	 * @return the resulting query
+	 */
+	public CsrQuery union(CsrQuery expr) {
+		return union(new CsrQuery[] {expr});
+	}
+
+	/**
+	 * Combines this query with the given ones, removing duplicate elements.
+	 * @param expr the queries to combine with this one
+	 * @return the resulting query
+	 */
+	public CsrQuery union(CsrQuery... expr) {
+		LocationBitmap nodes = this.nodes.copy();
+		long relationMask = this.relationMask;
+
+		for (CsrQuery query : expr) {
+			nodes = nodes.or(query.nodes);
+			relationMask |= query.relationMask;
+		}
+
+		return new CsrQuery(this.graph, nodes, relationMask);
+	}
+
+	/**
+	 * Selects the graph elements present in this query and the given one.
+	 * @param expr the query to check the intersection with
+	 * @return the resulting query
+	 */
+	public CsrQuery intersection(CsrQuery expr) {
+		return intersection(new CsrQuery[] {expr});
+	}
+
+	/**
+	 * Selects the graph elements present in this query and the given ones.
+	 * @param expr the queries to check the intersection with
+	 * @return the resulting query
+	 */
+	public CsrQuery intersection(CsrQuery... expr) {
+		LocationBitmap nodes = this.nodes.copy();
+		long relationMask = this.relationMask;
+
+		for (CsrQuery query : expr) {
+			nodes = nodes.and(query.nodes);
+			relationMask &= query.relationMask;
+		}
+
+		return new CsrQuery(this.graph, nodes, relationMask);
+	}
+
+	/**
+	 * Remove program locations of the given query from the current query.
+	 * @param expr the query containing elements to remove
+	 * @return the resulting query
+	 */
+	public CsrQuery difference(CsrQuery expr) {
+		return difference(new CsrQuery[] {expr});
+	}
+
+	/**
+	 * Remove program locations of the given queries from the current query.
+	 * @param expr the queries containing elements to remove
+	 * @return the resulting query
+	 */
+	public CsrQuery difference(CsrQuery... expr) {
+		LocationBitmap nodes = this.nodes.copy();
+
+		for (CsrQuery query : expr) {
+			nodes = nodes.andNot(query.nodes);
+		}
+
+		return new CsrQuery(this.graph, nodes, this.relationMask);
+	}
+
+	/**
+	 * From within relations, selects the program locations reachable from the program
+	 * locations in this along a path length of 1, not including the origin.
+	 * @param relations the relations to move forward on
+	 * @return the resulting query
+	 */
+	public CsrQuery successorsOn(CsrQuery relations) {
+		return withNodes(step(relations, true));
+	}
+
+	/**
+	 * From within relations, selects the program locations reaching the program
+	 * locations in this along a path length of 1, not including the origin.
+	 * @param relations the relations to move backward on
+	 * @return the resulting query
+	 */
+	public CsrQuery predecessorsOn(CsrQuery relations) {
+		return withNodes(step(relations, false));
+	}
+
+	/**
+	 * Moves 1 step forward on the given relations from the contained program locations,
+	 * including the origin.
+	 * @param relations the relations to move forward on
+	 * @return the resulting query
+	 */
+	public CsrQuery forwardStepOn(CsrQuery relations) {
+		return new CsrQuery(this.graph, this.nodes.or(step(relations, true)), relations.relationMask);
+	}
+
+	/**
+	 * Moves 1 step backwards on the given relations from the contained program locations,
+	 * including the origin.
+	 * @param relations the relations to move backward on
+	 * @return the resulting query
+	 */
+	public CsrQuery reverseStepOn(CsrQuery relations) {
+		return new CsrQuery(this.graph, this.nodes.or(step(relations, false)), relations.relationMask);
+	}
+
+	/**
+	 * Moves forward on the given relations from the contained program locations, including the origin.
+	 * @param relations the relations to move forward on
+	 * @return the resulting query
+	 */
+	public CsrQuery forwardOn(CsrQuery relations) {
+		return new CsrQuery(this.graph, closure(relations, true), relations.relationMask);
+	}
+
+	/**
+	 * Moves backwards on the given relations from the contained program locations, including the origin.
+	 * @param relations the relations to move backward on
+	 * @return the resulting query
+	 */
+	public CsrQuery reverseOn(CsrQuery relations) {
+		return new CsrQuery(this.graph, closure(relations, false), relations.relationMask);
+	}
+
+	/**
+	 * Moves forward on the contained relations from the given program locations.
+	 * @param locations the program locations to move forward from
+	 * @return the resulting query
+	 */
+	public CsrQuery forward(CsrQuery locations) {
+		return locations.forwardOn(this);
+	}
+
+	/**
+	 * Moves 1 step forward on the contained relations from the given program locations.
+	 * @param locations the program locations to move forward from
+	 * @return the resulting query
+	 */
+	public CsrQuery forwardStep(CsrQuery locations) {
+		return locations.forwardStepOn(this);
+	}
+
+	/**
+	 * Moves backwards on the contained relations from the given program locations.
+	 * @param locations the program locations to move backwards from
+	 * @return the resulting query
+	 */
+	public CsrQuery reverse(CsrQuery locations) {
+		return locations.reverseOn(this);
+	}
+
+	/**
+	 * Moves 1 step backwards on the contained relations from the given program locations.
+	 * @param locations the program locations to move backwards from
+	 * @return the resulting query
+	 */
+	public CsrQuery reverseStep(CsrQuery locations) {
+		return locations.reverseStepOn(this);
+	}
+
+	/**
+	 * Selects the successors of the given program locations on the contained relations.
+	 * @param locations the program locations to move forward from
+	 * @return the resulting query
+	 */
+	public CsrQuery successors(CsrQuery locations) {
+		return locations.successorsOn(this);
+	}
+
+	/**
+	 * Selects the predecessors of the given program locations on the contained relations.
+	 * @param locations the program locations to move backwards from
+	 * @return the resulting query
+	 */
+	public CsrQuery predecessors(CsrQuery locations) {
+		return locations.predecessorsOn(this);
+	}
+
+	/**
+	 * From relations, selects the subgraph reachable from the program locations in this using reverse transitive traversal.
+	 * The program locations are only included if they are themselves reachable.
+	 * @param relations the relations to select the program locations from
+	 * @return the resulting query
+	 */
+	public CsrQuery ancestorsOn(CsrQuery relations) {
+		return this.predecessorsOn(relations).reverseOn(relations);
+	}
+
+	/**
+	 * From relations, selects the subgraph reachable from the program locations in this using forward transitive traversal.
+	 * The program locations are only included if they are themselves reachable.
+	 * @param relations the relations to select the program locations from
+	 * @return the resulting query
+	 */
+	public CsrQuery descendantsOn(CsrQuery relations) {
+		return this.successorsOn(relations).forwardOn(relations);
+	}
+
+	/**
+	 * Selects the program locations directly contained by the program locations in the query.
+	 * @return the resulting query
+	 */
+	public CsrQuery children() {
+		return successorsOn(containment());
+	}
+
+	/**
+	 * Selects the program locations that contain the program locations currently in the query.
+	 * @return the resulting query
+	 */
+	public CsrQuery parent() {
+		return predecessorsOn(containment());
+	}
+
+	/**
+	 * Select the program locations which are descendants along Tags.Relation.Contains, including the origin.
+	 * @return the resulting query
+	 */
+	public CsrQuery contained() {
+		return forwardOn(containment());
+	}
+
+	/**
+	 * Select the program locations which are ancestors along Tags.Relation.Contains, including the origin.
+	 * @return the resulting query
+	 */
+	public CsrQuery containers() {
+		return reverseOn(containment());
+	}
+
+	/**
+	 * Queries methods by name from the contained program locations.
+	 * @param methodName the name to select methods for
+	 * @return the resulting query
+	 */
+	public CsrQuery methods(String methodName) {
+		return contained().locations(Tags.ProgramLocation.METHOD).selectLocation(Tags.Attributes.NAME, methodName);
+	}
+
+	/**
+	 * Selects fields by name from the contained program locations.
+	 * @param fieldName the name to select fields by
+	 * @return the resulting query
+	 */
+	public CsrQuery fields(String fieldName) {
+		return contained().locations(Tags.ProgramLocation.FIELD).selectLocation(Tags.Attributes.NAME, fieldName);
+	}
+
+	/**
+	 * Select types in the contained program locations by given name.
+	 * @param typeName the name to select types for
+	 * @return the resulting query
+	 */
+	public CsrQuery types(String typeName) {
+		return contained().locations(Tags.ProgramLocation.TYPE).selectLocation(Tags.Attributes.NAME, typeName);
+	}
+
+	/**
+	 * Selects packages for the given name from the contained program locations.
+	 * @param packageName the name to select packages for
+	 * @return the resulting query
+	 */
+	public CsrQuery pkg(String packageName) {
+		return contained().locations(Tags.ProgramLocation.PACKAGE).selectLocation(Tags.Attributes.NAME, packageName);
+	}
+
+	/**
+	 * Selects projects by name from the locations contained in the query.
+	 * @param projectName the name to select projects for
+	 * @return the resulting query
+	 */
+	public CsrQuery project(String projectName) {
+		return locations(Tags.ProgramLocation.PROJECT).selectLocation(Tags.Attributes.NAME, projectName);
+	}
+
+	/**
+	 * Forward difference for tag on contained program locations
+	 * @param tag the tag to select for
+	 * @return the resulting query
+	 */
+	public CsrQuery forwardDifference(Tags.Relation tag) {
+		return universe().relations(tag).forward(this).difference(this);
+	}
+
+	/**
+	 * Gets the containment relations of the whole snapshot.
+	 * @return the query holding the containment relations
+	 */
+	private CsrQuery containment() {
+		return universe().relations(Tags.Relation.CONTAINS);
+	}
+
+	/**
+	 * Takes one step on relations from the program locations in the query.
+	 * @param relations the relations to step on
+	 * @param forward true to follow relations forward, false to follow them backwards
+	 * @return the bitmap of program locations reached, not including the origin unless reached
+	 */
+	private LocationBitmap step(CsrQuery relations, boolean forward) {
+		this.graph.checkCurrent();
+
+		LocationBitmap reached = new LocationBitmap();
+		LocationBitmap origins = this.nodes.and(relations.nodes);
+
+		origins.forEach(id -> visit(relations, forward, id, next -> reached.add(next)));
+		return reached;
+	}
+
+	/**
+	 * Follows relations transitively from the program locations in the query.
+	 * @param relations the relations to follow
+	 * @param forward true to follow relations forward, false to follow them backwards
+	 * @return the bitmap of program locations reached, including the origin
+	 */
+	private LocationBitmap closure(CsrQuery relations, boolean forward) {
+		this.graph.checkCurrent();
+
+		LocationBitmap reached = this.nodes.copy();
+		LocationBitmap frontier = this.nodes.and(relations.nodes);
+
+		while (frontier.cardinality() > 0) {
+			LocationBitmap next = new LocationBitmap();
+			frontier.forEach(id -> visit(relations, forward, id, target -> {
+				if (!reached.contains(target)) {
+					reached.add(target);
+					next.add(target);
+				}
+			}));
+			frontier = next;
+		}
+
+		return reached;
+	}
+
+	/**
+	 * Visits the program locations one relation away from a program location, within relations.
+	 * @param relations the relations to visit on
+	 * @param forward true to follow relations forward, false to follow them backwards
+	 * @param id the id of the program location to start from
+	 * @param action the action to perform with the id of every program location reached
+	 */
+	private void visit(CsrQuery relations, boolean forward, int id, IntConsumer action) {
+		IntConsumer within = target -> {
+			if (relations.nodes.contains(target)) {
+				action.accept(target);
+			}
+		};
+
+		if (forward) {
+			this.graph.forEachSuccessor(id, relations.relationMask, within);
+		}
+		else {
+			this.graph.forEachPredecessor(id, relations.relationMask, within);
+		}
+	}
+
+}
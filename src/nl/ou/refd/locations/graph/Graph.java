@@ -1,8 +1,11 @@
 package nl.ou.refd.locations.graph;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.ensoftcorp.atlas.core.db.graph.UniverseGraph;
 import com.ensoftcorp.atlas.core.xcsg.XCSG;
@@ -12,11 +15,17 @@ import com.ensoftcorp.atlas.core.xcsg.XCSG;
  * graph is a singleton because only one program can be under review.
  * The class can be used to create queries on this graph, but its
  * instance can be used to create program locations in the graph,
- * or remove them.
+ * or remove them. The instance is also the QueryBackend of the live
+ * graph, so a QueryPlan can be replayed on it.
  */
-public class Graph {
+public class Graph implements QueryBackend<GraphQuery> {
 	private static Graph instance;
 	
+	private List<Runnable> journal;
+	private Set<ProgramLocation> journalCreated;
+	private volatile long epoch;
+	private final List<GraphListener> listeners = new CopyOnWriteArrayList<GraphListener>();
+	
 	/**
 	 * Gets the central graph.
 	 * @return the central graph
@@ -59,6 +68,36 @@ public class Graph {
 	public static GraphQuery query(ProgramLocation... locations) {
 		return new GraphQuery(new HashSet<ProgramLocation>(Arrays.asList(locations)));
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public GraphQuery empty() {
+		return new GraphQuery();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public GraphQuery universe() {
+		return new GraphQuery().universe();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public GraphQuery locations(int[] ids) {
+		LocationBitmap selection = new LocationBitmap();
+		
+		for (int id : ids) {
+			selection.add(id);
+		}
+		
+		return new GraphQuery(selection);
+	}
 
 	/**
 	 * Creates a new program location node in the graph. This is automatically tagged with some
@@ -66,12 +105,20 @@ public class Graph {
 	 * @return a fresh program location node already inserted into the graph
 	 */
 	public ProgramLocation createProgramLocation() {
-		com.ensoftcorp.atlas.core.db.graph.Node atlasNode = com.ensoftcorp.atlas.core.db.graph.Graph.U.createNode();
-		atlasNode.tag(XCSG.ModelElement);
-		atlasNode.tag(XCSG.Language.Java);
+		ProgramLocation rNode = newProgramLocation();
+		
+		synchronized (this) {
+			if (this.journal != null) {
+				this.journal.add(() -> removeProgramLocation(rNode));
+				this.journalCreated.add(rNode);
+			}
+		}
 		
-		ProgramLocation rNode = new ProgramLocation(atlasNode);
 		rNode.tag(Tags.ProgramLocation.NODE);
+		this.epoch++;
+		
+		this.listeners.forEach(listener -> listener.locationCreated(rNode));
+		
 		return rNode;
 	}
 
@@ -82,24 +129,198 @@ public class Graph {
 	 * @return a fresh relation between pl1 and pl2, already inserted into the graph
 	 */
 	public Relation createRelation(ProgramLocation pl1, ProgramLocation pl2) {
-		com.ensoftcorp.atlas.core.db.graph.Edge atlasEdge = com.ensoftcorp.atlas.core.db.graph.Graph.U.createEdge(pl1.getAtlasElement(), pl2.getAtlasElement());
-		atlasEdge.tag(XCSG.ModelElement);
-		atlasEdge.tag(XCSG.Language.Java);
-		
-		Relation rEdge = new Relation(atlasEdge);
+		Relation rEdge = newRelation(pl1, pl2);
 		rEdge.tag(Tags.Relation.EDGE);
 		rEdge.tag(Tags.Relation.REFACTOR_CREATED_EDGE);
+		this.epoch++;
+		
+		this.listeners.forEach(listener -> listener.relationCreated(rEdge));
+		
+		return rEdge;
+	}
+	
+	/**
+	 * Creates a new program location node in the graph as part of the mapped program,
+	 * like the program locations Atlas maps, for instance to complete a library type
+	 * from its summary. Unlike createProgramLocation(), the program location is not
+	 * removed by rollbackJournal() and changes to it are not journaled, and the epoch
+	 * of the graph does not change. The listeners are notified.
+	 * @return a fresh program location node already inserted into the graph
+	 */
+	public ProgramLocation createMappedProgramLocation() {
+		ProgramLocation rNode = newProgramLocation();
+		
+		synchronized (this) {
+			if (this.journal != null) {
+				this.journalCreated.add(rNode);
+			}
+		}
+		
+		rNode.tag(Tags.ProgramLocation.NODE);
+		
+		this.listeners.forEach(listener -> listener.locationCreated(rNode));
+		
+		return rNode;
+	}
+	
+	/**
+	 * Creates a new relation between two program location nodes in the graph as part
+	 * of the mapped program, like the relations Atlas maps. Unlike createRelation(), the
+	 * relation is not tagged as created by a refactoring, and the epoch of the graph
+	 * does not change. The listeners are notified.
+	 * @param from the starting node
+	 * @param to the ending node
+	 * @return a fresh relation between the nodes, already inserted into the graph
+	 */
+	public Relation createMappedRelation(ProgramLocation from, ProgramLocation to) {
+		Relation rEdge = newRelation(from, to);
+		rEdge.tag(Tags.Relation.EDGE);
+		
+		this.listeners.forEach(listener -> listener.relationCreated(rEdge));
 		
 		return rEdge;
 	}
 	
+	/**
+	 * Creates the Atlas node of a new program location, tagged as a Java model element.
+	 * @return the new program location
+	 */
+	private static ProgramLocation newProgramLocation() {
+		com.ensoftcorp.atlas.core.db.graph.Node atlasNode = com.ensoftcorp.atlas.core.db.graph.Graph.U.createNode();
+		atlasNode.tag(XCSG.ModelElement);
+		atlasNode.tag(XCSG.Language.Java);
+		
+		return new ProgramLocation(atlasNode);
+	}
+	
+	/**
+	 * Creates the Atlas edge of a new relation, tagged as a Java model element.
+	 * @param from the starting node
+	 * @param to the ending node
+	 * @return the new relation
+	 */
+	private static Relation newRelation(ProgramLocation from, ProgramLocation to) {
+		com.ensoftcorp.atlas.core.db.graph.Edge atlasEdge = com.ensoftcorp.atlas.core.db.graph.Graph.U.createEdge(from.getAtlasElement(), to.getAtlasElement());
+		atlasEdge.tag(XCSG.ModelElement);
+		atlasEdge.tag(XCSG.Language.Java);
+		
+		return new Relation(atlasEdge);
+	}
+	
 	/**
 	 * Removes a program location node from the graph
 	 * @param pr the program location to remove
+	 * @throws IllegalStateException if a journal is kept, as a removal cannot be rolled back
 	 */
 	public void removeProgramLocation(ProgramLocation pr) {
+		synchronized (this) {
+			if (this.journal != null) {
+				throw new IllegalStateException("Program locations cannot be removed while a journal is kept");
+			}
+		}
+		
 		UniverseGraph universe = com.ensoftcorp.atlas.core.db.graph.Graph.U;
 		universe.delete(pr.getAtlasElement());
+		this.epoch++;
+		
+		this.listeners.forEach(listener -> listener.locationRemoved(pr));
+	}
+	
+	/**
+	 * Gets the epoch of the graph. The epoch changes whenever the graph changes
+	 * through this class, or is mapped again, so information derived from the graph
+	 * is known to be up to date as long as the epoch has not changed.
+	 * @return the current epoch of the graph
+	 */
+	public long getEpoch() {
+		return this.epoch;
+	}
+	
+	/**
+	 * Signals that the graph has changed outside of this class, for instance because
+	 * the workspace was mapped again. Information derived from the graph is outdated.
+	 */
+	public void invalidate() {
+		this.epoch++;
+		
+		this.listeners.forEach(GraphListener::invalidated);
+	}
+	
+	/**
+	 * Adds a listener which is notified of changes to the graph.
+	 * @param listener the listener to add
+	 */
+	public void addListener(GraphListener listener) {
+		this.listeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener which was notified of changes to the graph.
+	 * @param listener the listener to remove
+	 */
+	public void removeListener(GraphListener listener) {
+		this.listeners.remove(listener);
+	}
+	
+	/**
+	 * Starts keeping a journal of the program locations created in the graph, and
+	 * of the changes to the tags and attributes of the program locations that were
+	 * already in it, so they can be undone by rollbackJournal(). While the journal
+	 * is kept, program locations cannot be removed from the graph.
+	 * @throws IllegalStateException if a journal is already kept
+	 */
+	public synchronized void startJournal() {
+		if (this.journal != null) {
+			throw new IllegalStateException("A journal is already kept");
+		}
+		
+		this.journal = new ArrayList<Runnable>();
+		this.journalCreated = new HashSet<ProgramLocation>();
+	}
+	
+	/**
+	 * Records a change to the tags or attributes of a program location in the journal,
+	 * if a journal is kept. Changes to program locations created while the journal is
+	 * kept are not recorded, as those program locations are removed by rollbackJournal().
+	 * @param location the program location that was changed
+	 * @param undo the action undoing the change
+	 */
+	synchronized void journalChange(ProgramLocation location, Runnable undo) {
+		if (journals(location)) {
+			this.journal.add(undo);
+		}
+	}
+	
+	/**
+	 * Checks if changes to the tags or attributes of a program location are recorded in the journal.
+	 * @param location the program location
+	 * @return true if a journal is kept and the program location was not created while it is kept, by
+	 * either createProgramLocation() or createMappedProgramLocation()
+	 */
+	synchronized boolean journals(ProgramLocation location) {
+		return this.journal != null && !this.journalCreated.contains(location);
+	}
+	
+	/**
+	 * Undoes the changes recorded since startJournal() was called, in reverse order:
+	 * the tags and attributes of program locations that were already in the graph
+	 * are restored, through ProgramLocation, so the LocationStore is restored with
+	 * them, and the program locations created are removed together with the relations
+	 * connected to them. The journal is no longer kept afterwards.
+	 * @throws IllegalStateException if no journal is kept
+	 */
+	public synchronized void rollbackJournal() {
+		if (this.journal == null) {
+			throw new IllegalStateException("No journal is kept");
+		}
+		
+		List<Runnable> changes = this.journal;
+		this.journal = null;
+		this.journalCreated = null;
+		
+		for (int index = changes.size() - 1; index >= 0; index--) {
+			changes.get(index).run();
+		}
 	}
 	
 }
@@ -0,0 +1,463 @@
+package nl.ou.refd.locations.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.ensoftcorp.atlas.core.db.graph.Edge;
+import com.ensoftcorp.atlas.core.index.common.SourceCorrespondence;
+
+/**
+ * Class representing the portable export of the program graph. The export holds
+ * the subset of the graph ReFD uses: the tags of Tags, the name, the parameter
+ * index and the source correspondence of every program location, and the tags
+ * of every relation. It is a compressed stream of records, written and read
+ * one record at a time, so exporting and importing take memory proportional to
+ * the number of program locations and source files, but not to the number of
+ * relations or the size of the names.
+ *
+ * Tags are written as positions in dictionaries of tag names at the start of the
+ * export, so an export stays readable when tags are added to Tags. Tags the
+ * reader does not know are dropped. Program locations are identified by their
+ * LocationStore ids, so the ids in an export match the ids in a QueryLog.
+ *
+ * An export is imported into a detached CsrGraph, which can be queried without
+ * Atlas. Exports are written by the Export Program Graph command of the plugin.
+ *
+ * Usage: GraphExport &lt;export file&gt; &lt;snapshot file&gt;. The export is imported
+ * into the snapshot file, and the size of the graph is printed.
+ */
+public final class GraphExport {
+
+	/**
+	 * The extension of exported graph files.
+	 */
+	public static final String EXTENSION = ".rfdg";
+
+	private static final int MAGIC = 0x52464447;
+	private static final int VERSION = 1;
+	private static final int END_RECORD = 0;
+	private static final int LOCATION_RECORD = 1;
+	private static final int RELATION_RECORD = 2;
+	private static final int HAS_NAME = 1;
+	private static final int HAS_PARAMETER_INDEX = 2;
+	private static final int HAS_SOURCE = 4;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Private constructor, this class only holds static methods.
+	 */
+	private GraphExport(){}
+
+	/**
+	 * Imports an exported graph into a snapshot file and prints its size to standard output.
+	 * @param args the export file and the snapshot file
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: GraphExport <export file> <snapshot file>");
+			System.exit(2);
+		}
+
+		try {
+			CsrGraph snapshot = load(Paths.get(args[0]), Paths.get(args[1]));
+			System.out.println(args[1] + ": " + snapshot.universe().locationCount() + " program locations, " + snapshot.universe().relationCount() + " relations");
+		}
+		catch (UncheckedIOException e) {
+			System.err.println("Could not import " + args[0] + ": " + e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Exports the current program graph to a file.
+	 * @param file the file to export to, which is overwritten if it exists
+	 * @throws UncheckedIOException if the file cannot be written
+	 */
+	public static void write(Path file) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+			write(out);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not export the graph to " + file, e);
+		}
+	}
+
+	/**
+	 * Imports an exported graph into a snapshot file and opens it detached.
+	 * The export is read twice: once to size the sections of the snapshot, once to fill them.
+	 * @param file the exported graph
+	 * @param snapshot the file to write the snapshot to, which is overwritten if it exists
+	 * @return the snapshot
+	 * @throws UncheckedIOException if the export cannot be read or the snapshot cannot be written
+	 */
+	public static CsrGraph load(Path file, Path snapshot) {
+		try {
+			Sizes sizes;
+
+			try (DataInputStream in = open(file)) {
+				sizes = measure(in);
+			}
+
+			try (DataInputStream in = open(file); FileChannel channel = CsrGraph.create(snapshot)) {
+				CsrGraph.Builder builder = new CsrGraph.Builder(channel, sizes.outDegrees, sizes.inDegrees, sizes.nameBytes,
+						sizes.files, CsrGraph.DETACHED, CsrGraph.DETACHED);
+				fill(in, builder);
+				return builder.finish();
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not import the graph from " + file, e);
+		}
+	}
+
+	/**
+	 * Writes the export of the current program graph.
+	 * @param out the output to write to
+	 * @throws IOException if the export cannot be written
+	 */
+	private static void write(DataOutputStream out) throws IOException {
+		LocationStore store = LocationStore.getInstance();
+		int nodeCount = store.loadAll();
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeVarInt(out, Tags.ProgramLocation.values().length);
+		for (Tags.ProgramLocation tag : Tags.ProgramLocation.values()) {
+			out.writeUTF(tag.name());
+		}
+		writeVarInt(out, Tags.Relation.values().length);
+		for (Tags.Relation tag : Tags.Relation.values()) {
+			out.writeUTF(tag.name());
+		}
+		writeVarInt(out, nodeCount);
+
+		Map<String, Integer> files = new HashMap<String, Integer>();
+		int locations = 0;
+		int previous = -1;
+
+		for (int id = 0; id < nodeCount; id++) {
+			long tags = store.tagsOf(id);
+
+			if (tags == 0) {
+				continue;
+			}
+
+			String name = store.nameOf(id);
+			int parameterIndex = store.parameterIndexOf(id);
+			SourceCorrespondence source = CsrGraph.sourceCorrespondence(store.nodeOf(id));
+
+			out.writeByte(LOCATION_RECORD);
+			writeVarInt(out, id - previous);
+			writeVarLong(out, tags);
+			out.writeByte((name != null ? HAS_NAME : 0) | (parameterIndex >= 0 ? HAS_PARAMETER_INDEX : 0)
+					| (source != null ? HAS_SOURCE : 0));
+
+			if (name != null) {
+				out.writeUTF(name);
+			}
+
+			if (parameterIndex >= 0) {
+				writeVarInt(out, parameterIndex);
+			}
+
+			if (source != null) {
+				String path = CsrGraph.sourceFile(source);
+				Integer file = files.get(path);
+
+				if (file == null) {
+					writeVarInt(out, files.size());
+					out.writeUTF(path);
+					files.put(path, files.size());
+				}
+				else {
+					writeVarInt(out, file);
+				}
+
+				writeVarInt(out, source.offset);
+				writeVarInt(out, source.length);
+			}
+
+			previous = id;
+			locations++;
+		}
+
+		long relations = 0;
+
+		for (Edge edge : com.ensoftcorp.atlas.core.db.graph.Graph.U.edges()) {
+			out.writeByte(RELATION_RECORD);
+			writeVarInt(out, store.idOf(edge.from()));
+			writeVarInt(out, store.idOf(edge.to()));
+			writeVarLong(out, CsrGraph.relationTags(edge));
+			relations++;
+		}
+
+		out.writeByte(END_RECORD);
+		writeVarInt(out, locations);
+		writeVarLong(out, relations);
+	}
+
+	/**
+	 * Opens an export and checks its header.
+	 * @param file the exported graph
+	 * @return the input positioned after the header
+	 * @throws IOException if the export cannot be read, or is not an export of this version
+	 */
+	private static DataInputStream open(Path file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not an exported graph");
+			}
+
+			int version = in.readInt();
+
+			if (version != VERSION) {
+				throw new IOException(file + " is an exported graph of version " + version + ", expected version " + VERSION);
+			}
+		}
+		catch (IOException e) {
+			in.close();
+			throw e;
+		}
+
+		return in;
+	}
+
+	/**
+	 * Reads the dictionaries of tag names and maps every tag in them to the bit of the
+	 * tag with the same name in Tags.
+	 * @param in the input positioned after the header
+	 * @return the bits of the location tags and of the relation tags, indexed by their position in the export
+	 * @throws IOException if the dictionaries cannot be read
+	 */
+	private static long[][] readDictionaries(DataInputStream in) throws IOException {
+		long[] locationBits = new long[readVarInt(in)];
+
+		for (int index = 0; index < locationBits.length; index++) {
+			String name = in.readUTF();
+			for (Tags.ProgramLocation tag : Tags.ProgramLocation.values()) {
+				if (tag.name().equals(name)) {
+					locationBits[index] = LocationStore.bit(tag);
+				}
+			}
+		}
+
+		long[] relationBits = new long[readVarInt(in)];
+
+		for (int index = 0; index < relationBits.length; index++) {
+			String name = in.readUTF();
+			for (Tags.Relation tag : Tags.Relation.values()) {
+				if (tag.name().equals(name)) {
+					relationBits[index] = CsrGraph.relationBit(tag);
+				}
+			}
+		}
+
+		return new long[][] {locationBits, relationBits};
+	}
+
+	/**
+	 * Translates a bitmask of tags from the positions in the export to the bits of Tags.
+	 * @param exported the bitmask as exported
+	 * @param bits the bits of the tags, indexed by their position in the export
+	 * @return the bitmask of the tags known to Tags
+	 */
+	private static long translate(long exported, long[] bits) {
+		long tags = 0;
+
+		for (int index = 0; index < bits.length && index < Long.SIZE; index++) {
+			if ((exported & (1L << index)) != 0) {
+				tags |= bits[index];
+			}
+		}
+
+		return tags;
+	}
+
+	/**
+	 * Reads an export to find the sizes of the sections of its snapshot.
+	 * @param in the input positioned after the header
+	 * @return the sizes
+	 * @throws IOException if the export cannot be read or is truncated
+	 */
+	private static Sizes measure(DataInputStream in) throws IOException {
+		readDictionaries(in);
+
+		Sizes sizes = new Sizes(readVarInt(in));
+		int id = -1;
+
+		while (true) {
+			switch (in.readUnsignedByte()) {
+			case LOCATION_RECORD:
+				id += readVarInt(in);
+				readVarLong(in);
+				int flags = in.readUnsignedByte();
+
+				if ((flags & HAS_NAME) != 0) {
+					sizes.nameBytes += in.readUTF().getBytes(StandardCharsets.UTF_8).length;
+				}
+
+				if ((flags & HAS_PARAMETER_INDEX) != 0) {
+					readVarInt(in);
+				}
+
+				if ((flags & HAS_SOURCE) != 0) {
+					if (readVarInt(in) == sizes.files.size()) {
+						sizes.files.add(in.readUTF());
+					}
+					readVarInt(in);
+					readVarInt(in);
+				}
+				break;
+			case RELATION_RECORD:
+				sizes.outDegrees[readVarInt(in)]++;
+				sizes.inDegrees[readVarInt(in)]++;
+				readVarLong(in);
+				break;
+			case END_RECORD:
+				return sizes;
+			default:
+				throw new IOException("Exported graph is corrupt");
+			}
+		}
+	}
+
+	/**
+	 * Reads an export into the sections of its snapshot.
+	 * @param in the input positioned after the header
+	 * @param builder the builder of the snapshot
+	 * @throws IOException if the export cannot be read or is truncated
+	 */
+	private static void fill(DataInputStream in, CsrGraph.Builder builder) throws IOException {
+		long[][] bits = readDictionaries(in);
+		readVarInt(in);
+
+		List<String> files = new ArrayList<String>();
+		int id = -1;
+
+		while (true) {
+			switch (in.readUnsignedByte()) {
+			case LOCATION_RECORD:
+				id += readVarInt(in);
+				long tags = translate(readVarLong(in), bits[0]);
+				int flags = in.readUnsignedByte();
+				byte[] name = (flags & HAS_NAME) != 0 ? in.readUTF().getBytes(StandardCharsets.UTF_8) : null;
+				int parameterIndex = (flags & HAS_PARAMETER_INDEX) != 0 ? readVarInt(in) : -1;
+				int file = -1;
+				int sourceOffset = 0;
+				int sourceLength = 0;
+
+				if ((flags & HAS_SOURCE) != 0) {
+					file = readVarInt(in);
+					if (file == files.size()) {
+						files.add(in.readUTF());
+					}
+					sourceOffset = readVarInt(in);
+					sourceLength = readVarInt(in);
+				}
+
+				builder.location(id, tags, parameterIndex, name, file, sourceOffset, sourceLength);
+				break;
+			case RELATION_RECORD:
+				builder.relation(readVarInt(in), readVarInt(in), translate(readVarLong(in), bits[1]));
+				break;
+			case END_RECORD:
+				return;
+			default:
+				throw new IOException("Exported graph is corrupt");
+			}
+		}
+	}
+
+	/**
+	 * Writes a non-negative int in as few bytes as possible, seven bits per byte.
+	 * @param out the output to write to
+	 * @param value the value to write
+	 * @throws IOException if the value cannot be written
+	 */
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Writes a long in as few bytes as possible, seven bits per byte.
+	 * @param out the output to write to
+	 * @param value the value to write, treated as unsigned
+	 * @throws IOException if the value cannot be written
+	 */
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int)(value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int)value);
+	}
+
+	/**
+	 * Reads an int written by writeVarInt().
+	 * @param in the input to read from
+	 * @return the value read
+	 * @throws IOException if the value cannot be read
+	 */
+	private static int readVarInt(DataInputStream in) throws IOException {
+		return (int)readVarLong(in);
+	}
+
+	/**
+	 * Reads a long written by writeVarLong().
+	 * @param in the input to read from
+	 * @return the value read
+	 * @throws IOException if the value cannot be read
+	 */
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = in.readUnsignedByte();
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	/**
+	 * The sizes of the sections of the snapshot of an export.
+	 */
+	private static class Sizes {
+		private final int[] outDegrees;
+		private final int[] inDegrees;
+		private final List<String> files = new ArrayList<String>();
+		private long nameBytes;
+
+		/**
+		 * Creates the sizes of a snapshot without relations, names and source files.
+		 * @param nodeCount the number of ids of program locations in the export
+		 */
+		Sizes(int nodeCount) {
+			this.outDegrees = new int[nodeCount];
+			this.inDegrees = new int[nodeCount];
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package nl.ou.refd.locations.graph;
+
+/**
+ * Interface which represents a listener for changes to the program graph,
+ * so information derived from the graph can be kept up to date.
+ */
+public interface GraphListener {
+	
+	/**
+	 * Called after a program location has been created in the graph. The program
+	 * location may not have its tags, attributes and relations yet.
+	 * @param location the created program location
+	 */
+	default void locationCreated(ProgramLocation location) {}
+	
+	/**
+	 * Called after a relation has been created in the graph. The relation may not
+	 * have all its tags yet.
+	 * @param relation the created relation
+	 */
+	default void relationCreated(Relation relation) {}
+	
+	/**
+	 * Called after a program location has been removed from the graph.
+	 * @param location the removed program location
+	 */
+	void locationRemoved(ProgramLocation location);
+	
+	/**
+	 * Called after the graph has changed outside of the Graph class, for
+	 * instance because the workspace was mapped again. All information
+	 * derived from the graph is outdated.
+	 */
+	void invalidated();
+}
@@ -13,20 +13,55 @@ import com.ensoftcorp.atlas.core.query.Query;
 import com.ensoftcorp.atlas.core.script.Common;
 import com.ensoftcorp.atlas.core.script.CommonQueries;
 
+import nl.ou.refd.analysis.metrics.AnalysisMetrics;
+import nl.ou.refd.analysis.metrics.AnalysisMetrics.Kind;
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.metrics.AnalysisTrace.Span;
 import nl.ou.refd.exceptions.LocationSetException;
+import nl.ou.refd.locations.graph.QueryLog.Terminal;
+import nl.ou.refd.locations.graph.QueryPlan.Operator;
 
 /**
  * Class representing a query of the graph.
+ *
+ * Operations on Atlas queries are lazy, so the time they take is recorded in the
+ * AnalysisMetrics, and traced in the AnalysisTrace, when the query is evaluated by
+ * locations() and relations().
+ * Operations on bitmaps are recorded when they are performed, and so are the
+ * conversions between sets of program locations, bitmaps and Atlas queries.
+ *
+ * While the QueryLog captures queries, every query derived from the empty query,
+ * the universe or a set of program locations keeps its QueryPlan, and its
+ * evaluations are written to the log.
  */
-public class GraphQuery {
+public class GraphQuery implements QueryOperations<GraphQuery> {
+	
+	/**
+	 * The category of the spans of graph query evaluations in the AnalysisTrace.
+	 */
+	public static final String TRACE_CATEGORY = "graph query";
+	
+	private static final String FROM_SET = "fromSet";
+	private static final String TO_SET = "toSet";
+	private static final String TO_ATLAS = "toAtlas";
+	private static final String RELATIONS = "relations";
+	private static final String UNION = "union";
+	private static final String INTERSECTION = "intersection";
+	private static final String DIFFERENCE = "difference";
+	private static final String SELECT_ANY = "locations";
+	private static final String SELECT_ALL = "locationsTaggedWithAll";
 	
 	private Q q;
+	private final LocationBitmap selection;
+	private final boolean universe;
+	private QueryPlan plan;
 	
 	/**
 	 * Creates an empty graph query.
 	 */
 	GraphQuery() {
-		this.q = Query.empty();
+		this(Query.empty());
+		this.plan = QueryLog.getInstance().isCapturing() ? QueryPlan.empty() : null;
 	}
 	
 	/**
@@ -34,15 +69,165 @@ public class GraphQuery {
 	 * @param q the Atlas query
 	 */
 	GraphQuery(Q q) {
-		this.q = q;
+		this(q, null, false);
 	}
 	
 	/**
-	 * Creates a graph query from a set of program locations.
+	 * Creates a graph query from a set of program locations. Selecting locations
+	 * by tag from such a query, and combining it with other such queries, is done
+	 * on the bitmaps of the LocationStore without evaluating an Atlas query. The
+	 * Atlas query is only created when another step is taken.
 	 * @param locations a set of program locations
 	 */
 	GraphQuery(Set<ProgramLocation> locations) {
-		this(Common.toQ(programLocationSetToAtlasHashSet(locations)));
+		this(fromSet(locations));
+		this.plan = QueryLog.getInstance().isCapturing() ? QueryPlan.set(this.selection) : null;
+	}
+	
+	/**
+	 * Creates a graph query from a bitmap of program location ids.
+	 * @param selection the bitmap of program location ids
+	 */
+	GraphQuery(LocationBitmap selection) {
+		this(null, selection, false);
+	}
+	
+	/**
+	 * Creates a graph query.
+	 * @param q the Atlas query, or null if it is created when needed
+	 * @param selection the bitmap of program location ids, or null if the query is not backed by one
+	 * @param universe true if the query is the whole graph
+	 */
+	private GraphQuery(Q q, LocationBitmap selection, boolean universe) {
+		this.q = q;
+		this.selection = selection;
+		this.universe = universe;
+	}
+	
+	/**
+	 * Gets the Atlas query of this graph query, creating it from the bitmap
+	 * of program locations the query was created from if necessary.
+	 * @return the Atlas query
+	 */
+	private Q q() {
+		if (this.q == null) {
+			if (this.universe) {
+				this.q = Query.universe();
+			}
+			else {
+				long start = startTiming();
+				this.q = Common.toQ(programLocationSetToAtlasHashSet(LocationStore.getInstance().locations(this.selection)));
+				record(TO_ATLAS, start, this.selection);
+			}
+		}
+		
+		return this.q;
+	}
+	
+	/**
+	 * Converts a set of program locations to a bitmap of their ids.
+	 * @param locations the set of program locations
+	 * @return the bitmap of program location ids
+	 */
+	private static LocationBitmap fromSet(Set<ProgramLocation> locations) {
+		long start = startTiming();
+		LocationBitmap selection = LocationStore.getInstance().bitmap(locations);
+		record(FROM_SET, start, locations.size(), selection.cardinality());
+		return selection;
+	}
+	
+	/**
+	 * Gets the time to start timing an operation from, if metrics are recorded.
+	 * @return the value of System.nanoTime(), or zero if no metrics are recorded
+	 */
+	private static long startTiming() {
+		return AnalysisMetrics.getInstance().isEnabled() ? System.nanoTime() : 0;
+	}
+	
+	/**
+	 * Records an operation on a bitmap in the AnalysisMetrics, if metrics are recorded.
+	 * @param operation the name of the operation
+	 * @param start the time timing the operation started at
+	 * @param result the bitmap resulting from the operation
+	 */
+	private void record(String operation, long start, LocationBitmap result) {
+		if (AnalysisMetrics.getInstance().isEnabled()) {
+			record(operation, start, this.selection == null ? 0 : this.selection.cardinality(), result.cardinality());
+		}
+	}
+	
+	/**
+	 * Records an operation in the AnalysisMetrics, if metrics are recorded.
+	 * @param operation the name of the operation
+	 * @param start the time timing the operation started at
+	 * @param input the number of program locations the operation was given
+	 * @param output the number of program locations the operation produced
+	 */
+	private static void record(String operation, long start, long input, long output) {
+		AnalysisMetrics metrics = AnalysisMetrics.getInstance();
+		
+		if (metrics.isEnabled()) {
+			metrics.metrics(Kind.GRAPH_QUERY, operation).record(System.nanoTime() - start, input, output);
+		}
+	}
+	
+	/**
+	 * Checks if this query and the given ones are all backed by bitmaps.
+	 * @param expr the other queries
+	 * @return true if all queries are backed by bitmaps
+	 */
+	private boolean allSelections(GraphQuery[] expr) {
+		if (this.selection == null) {
+			return false;
+		}
+		
+		for (GraphQuery query : expr) {
+			if (query.selection == null) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Gives a query derived from this one the plan of the operator it was derived
+	 * by, if this query and all other operands have a plan.
+	 * @param result the derived query
+	 * @param operator the operator the query was derived by
+	 * @param argument the argument of the operator, or null if it takes none
+	 * @param operands the other operands of the operator
+	 * @return the derived query
+	 */
+	private GraphQuery derive(GraphQuery result, Operator operator, Object argument, GraphQuery... operands) {
+		if (this.plan == null || !QueryLog.getInstance().isCapturing()) {
+			return result;
+		}
+		
+		QueryPlan[] plans = new QueryPlan[operands.length + 1];
+		plans[0] = this.plan;
+		
+		for (int index = 0; index < operands.length; index++) {
+			if (operands[index].plan == null) {
+				return result;
+			}
+			plans[index + 1] = operands[index].plan;
+		}
+		
+		result.plan = QueryPlan.apply(operator, argument, plans);
+		return result;
+	}
+	
+	/**
+	 * Writes an evaluation of this query to the QueryLog, if the query has a plan.
+	 * @param terminal the way the result was evaluated
+	 * @param start the value of System.nanoTime() when the evaluation started
+	 * @param size the size of the result
+	 */
+	private void capture(Terminal terminal, long start, long size) {
+		if (this.plan != null) {
+			QueryLog.getInstance().record(this.plan, terminal, System.nanoTime() - start, size);
+		}
 	}
 	
 	/**
@@ -61,10 +246,29 @@ public class GraphQuery {
 	 * @return the set of program locations resulting from the query
 	 */
 	public Set<ProgramLocation> locations() {
-		return this.atlasSetToList(this.eval().nodes())
-				.stream()
-				.map(node -> new ProgramLocation(node))
-				.collect(Collectors.toSet());
+		long captureStart = this.plan != null ? System.nanoTime() : 0;
+		long start = startTiming();
+		Span span = AnalysisTrace.getInstance().begin(TRACE_CATEGORY, TO_SET);
+		Set<ProgramLocation> locations = null;
+		
+		try {
+			if (this.selection != null) {
+				locations = LocationStore.getInstance().locations(this.selection);
+			}
+			else {
+				locations = this.atlasSetToList(this.eval().nodes())
+						.stream()
+						.map(node -> new ProgramLocation(node))
+						.collect(Collectors.toSet());
+			}
+		}
+		finally {
+			endEvaluation(span, locations);
+		}
+		
+		record(TO_SET, start, 0, locations.size());
+		capture(Terminal.LOCATIONS, captureStart, locations.size());
+		return locations;
 	}
 	
 	/**
@@ -85,10 +289,42 @@ public class GraphQuery {
 	 * @return a set of all relations in the current query space
 	 */
 	public Set<Relation> relations() {
-		return this.atlasSetToList(this.eval().edges())
-				.stream()
-				.map(edge -> new Relation(edge))
-				.collect(Collectors.toSet());
+		long captureStart = this.plan != null ? System.nanoTime() : 0;
+		long start = startTiming();
+		Span span = AnalysisTrace.getInstance().begin(TRACE_CATEGORY, RELATIONS);
+		Set<Relation> relations = null;
+		
+		try {
+			relations = this.atlasSetToList(this.eval().edges())
+					.stream()
+					.map(edge -> new Relation(edge))
+					.collect(Collectors.toSet());
+		}
+		finally {
+			endEvaluation(span, relations);
+		}
+		
+		record(RELATIONS, start, 0, relations.size());
+		capture(Terminal.RELATIONS, captureStart, relations.size());
+		return relations;
+	}
+	
+	/**
+	 * Ends the span of the evaluation of this query, annotated with how the query
+	 * is backed and the size of its result.
+	 * @param span the span of the evaluation
+	 * @param result the result of the evaluation, or null if the evaluation failed
+	 */
+	private void endEvaluation(Span span, Set<?> result) {
+		if (span.isRecording()) {
+			span.arg("backing", this.selection != null ? "bitmap" : this.universe ? "universe" : "atlas");
+			
+			if (result != null) {
+				span.arg("result", result.size());
+			}
+		}
+		
+		span.end();
 	}
 	
 	/**
@@ -119,7 +355,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery children() {
-		return new GraphQuery(this.q.children());
+		return derive(new GraphQuery(this.q().children()), Operator.CHILDREN, null);
 	}
 
 	/**
@@ -127,7 +363,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery contained() {
-		return new GraphQuery(this.q.contained());
+		return derive(new GraphQuery(this.q().contained()), Operator.CONTAINED, null);
 	}
 
 	/**
@@ -135,7 +371,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery containers() {
-		return new GraphQuery(this.q.containers());
+		return derive(new GraphQuery(this.q().containers()), Operator.CONTAINERS, null);
 	}
 	
 	/**
@@ -148,13 +384,33 @@ public class GraphQuery {
 		return this.successorsOn(relations).forwardOn(relations);
 	}
 
+	/**
+	 * Remove elements of the given query from the current query.
+	 * @param expr the query containing elements to remove
+	 * @return the resulting query
+	 */
+	public GraphQuery difference(GraphQuery expr) {
+		return difference(new GraphQuery[] {expr});
+	}
+	
 	/**
 	 * Remove elements from the given queries from the current query.
 	 * @param expr the queries containing elements to remove
 	 * @return the resulting query
 	 */
 	public GraphQuery difference(GraphQuery... expr) {
-		return new GraphQuery(this.q.difference(gqArrToQArr(expr)));
+		if (allSelections(expr)) {
+			long start = startTiming();
+			LocationBitmap result = this.selection;
+			for (GraphQuery query : expr) {
+				result = result.andNot(query.selection);
+			}
+			result = result == this.selection ? result.copy() : result;
+			record(DIFFERENCE, start, result);
+			return derive(new GraphQuery(result), Operator.DIFFERENCE, null, expr);
+		}
+		
+		return derive(new GraphQuery(this.q().difference(gqArrToQArr(expr))), Operator.DIFFERENCE, null, expr);
 	}
 	
 	/**
@@ -176,7 +432,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery relations(Tags.Relation... tags) {
-		return new GraphQuery(this.q.edges(convertEdgeTagsArr(tags)));
+		return derive(new GraphQuery(this.q().edges(convertEdgeTagsArr(tags))), Operator.RELATIONS, tags);
 	}
 	
 	/**
@@ -184,7 +440,7 @@ public class GraphQuery {
 	 * @return the Atlas graph the query evaluates to
 	 */
 	private Graph eval() {
-		return this.q.eval();
+		return this.q().eval();
 	}
 
 	/**
@@ -193,7 +449,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery fields(String fieldName) {
-		return new GraphQuery(this.q.fields(fieldName));
+		return derive(new GraphQuery(this.q().fields(fieldName)), Operator.FIELDS, fieldName);
 	}
 
 	/**
@@ -202,7 +458,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery forward(GraphQuery locations) {
-		return new GraphQuery(this.q.forward(locations.q));
+		return derive(new GraphQuery(this.q().forward(locations.q())), Operator.FORWARD, null, locations);
 	}
 
 	/**
@@ -211,7 +467,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery forwardOn(GraphQuery relations) {
-		return new GraphQuery(this.q.forwardOn(relations.q));
+		return derive(new GraphQuery(this.q().forwardOn(relations.q())), Operator.FORWARD_ON, null, relations);
 	}
 
 	/**
@@ -220,7 +476,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery forwardStep(GraphQuery nodes) {
-		return new GraphQuery(this.q.forwardStep(nodes.q));
+		return derive(new GraphQuery(this.q().forwardStep(nodes.q())), Operator.FORWARD_STEP, null, nodes);
 	}
 
 	/**
@@ -229,16 +485,36 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery forwardStepOn(GraphQuery relations) {
-		return new GraphQuery(this.q.forwardStepOn(relations.q));
+		return derive(new GraphQuery(this.q().forwardStepOn(relations.q())), Operator.FORWARD_STEP_ON, null, relations);
 	}
 
+	/**
+	 * Selects the graph elements present in this query and the given one.
+	 * @param expr the query to check the intersection with
+	 * @return the resulting query
+	 */
+	public GraphQuery intersection(GraphQuery expr) {
+		return intersection(new GraphQuery[] {expr});
+	}
+	
 	/**
 	 * Selects the graph elements present in this query and the given one.
 	 * @param expr the query to check the intersection with
 	 * @return the resulting query
 	 */
 	public GraphQuery intersection(GraphQuery... expr) {
-		return new GraphQuery(this.q.intersection(gqArrToQArr(expr)));
+		if (allSelections(expr)) {
+			long start = startTiming();
+			LocationBitmap result = this.selection;
+			for (GraphQuery query : expr) {
+				result = result.and(query.selection);
+			}
+			result = result == this.selection ? result.copy() : result;
+			record(INTERSECTION, start, result);
+			return derive(new GraphQuery(result), Operator.INTERSECTION, null, expr);
+		}
+		
+		return derive(new GraphQuery(this.q().intersection(gqArrToQArr(expr))), Operator.INTERSECTION, null, expr);
 	}
 
 	/**
@@ -247,7 +523,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery methods(String methodName) {
-		return new GraphQuery(this.q.methods(methodName));
+		return derive(new GraphQuery(this.q().methods(methodName)), Operator.METHODS, methodName);
 	}
 
 	/**
@@ -256,7 +532,16 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery locations(Tags.ProgramLocation... tags) {
-		return new GraphQuery(this.q.nodes(convertLocationTagsArr(tags)));
+		if (this.universe || this.selection != null) {
+			long start = startTiming();
+			LocationBitmap result = this.universe
+					? LocationStore.getInstance().universeAny(LocationStore.mask(tags))
+					: LocationStore.getInstance().selectAny(this.selection, LocationStore.mask(tags));
+			record(SELECT_ANY, start, result);
+			return derive(new GraphQuery(result), Operator.LOCATIONS, tags);
+		}
+		
+		return derive(new GraphQuery(this.q().nodes(convertLocationTagsArr(tags))), Operator.LOCATIONS, tags);
 	}
 	
 	/**
@@ -264,7 +549,22 @@ public class GraphQuery {
 	 * @return the number of program locations contained
 	 */
 	public long locationCount() {
-		return CommonQueries.nodeSize(this.q);
+		long captureStart = this.plan != null ? System.nanoTime() : 0;
+		long count = this.selection != null ? this.selection.cardinality() : CommonQueries.nodeSize(this.q());
+		capture(Terminal.LOCATION_COUNT, captureStart, count);
+		return count;
+	}
+	
+	/**
+	 * Gets the number of relations contained. A query backed by a bitmap holds no relations.
+	 * @return the number of relations contained
+	 */
+	public long relationCount() {
+		if (this.selection != null) {
+			return 0;
+		}
+		
+		return CommonQueries.edgeSize(this.q());
 	}
 	
 	/**
@@ -287,7 +587,16 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery locationsTaggedWithAll(Tags.ProgramLocation... tags) {
-		return new GraphQuery(this.q.nodesTaggedWithAll(convertLocationTagsArr(tags)));
+		if (this.universe || this.selection != null) {
+			long start = startTiming();
+			LocationBitmap result = this.universe
+					? LocationStore.getInstance().universeAll(LocationStore.mask(tags))
+					: LocationStore.getInstance().selectAll(this.selection, LocationStore.mask(tags));
+			record(SELECT_ALL, start, result);
+			return derive(new GraphQuery(result), Operator.LOCATIONS_TAGGED_WITH_ALL, tags);
+		}
+		
+		return derive(new GraphQuery(this.q().nodesTaggedWithAll(convertLocationTagsArr(tags))), Operator.LOCATIONS_TAGGED_WITH_ALL, tags);
 	}
 	
 	/**
@@ -295,7 +604,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery parent() {
-		return new GraphQuery(this.q.parent());
+		return derive(new GraphQuery(this.q().parent()), Operator.PARENT, null);
 	}
 	
 	/**
@@ -304,7 +613,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery pkg(String packageName) {
-		return new GraphQuery(this.q.pkg(packageName));
+		return derive(new GraphQuery(this.q().pkg(packageName)), Operator.PKG, packageName);
 	}
 	
 	/**
@@ -313,7 +622,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery predecessors(GraphQuery locations) {
-		return new GraphQuery(this.q.predecessors(locations.q));
+		return derive(new GraphQuery(this.q().predecessors(locations.q())), Operator.PREDECESSORS, null, locations);
 	}
 	
 	/**
@@ -322,7 +631,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery predecessorsOn(GraphQuery relations) {
-		return new GraphQuery(this.q.predecessorsOn(relations.q));
+		return derive(new GraphQuery(this.q().predecessorsOn(relations.q())), Operator.PREDECESSORS_ON, null, relations);
 	}
 	
 	/**
@@ -331,7 +640,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery project(String projectName) {
-		return new GraphQuery(this.q.project(projectName));
+		return derive(new GraphQuery(this.q().project(projectName)), Operator.PROJECT, projectName);
 	}
 	
 	/**
@@ -340,7 +649,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery reverse(GraphQuery locations) {
-		return new GraphQuery(this.q.reverse(locations.q));
+		return derive(new GraphQuery(this.q().reverse(locations.q())), Operator.REVERSE, null, locations);
 	}
 	
 	/**
@@ -349,7 +658,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery reverseOn(GraphQuery relations) {
-		return new GraphQuery(this.q.reverseOn(relations.q));
+		return derive(new GraphQuery(this.q().reverseOn(relations.q())), Operator.REVERSE_ON, null, relations);
 	}
 	
 	/**
@@ -358,7 +667,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery reverseStep(GraphQuery nodes) {
-		return new GraphQuery(this.q.reverseStep(nodes.q));
+		return derive(new GraphQuery(this.q().reverseStep(nodes.q())), Operator.REVERSE_STEP, null, nodes);
 	}
 	
 	/**
@@ -367,7 +676,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery reverseStepOn(GraphQuery edges) {
-		return new GraphQuery(this.q.reverseStepOn(edges.q));
+		return derive(new GraphQuery(this.q().reverseStepOn(edges.q())), Operator.REVERSE_STEP_ON, null, edges);
 	}
 	/**
 	 * Moves forward on the contained relations from the given program locations.
@@ -375,7 +684,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery successors(GraphQuery nodes) {
-		return new GraphQuery(this.q.successors(nodes.q));
+		return derive(new GraphQuery(this.q().successors(nodes.q())), Operator.SUCCESSORS, null, nodes);
 	}
 	
 	/**
@@ -384,7 +693,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery successorsOn(GraphQuery edges) {
-		return new GraphQuery(this.q.successorsOn(edges.q));
+		return derive(new GraphQuery(this.q().successorsOn(edges.q())), Operator.SUCCESSORS_ON, null, edges);
 	}
 	
 	/**
@@ -393,7 +702,16 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery types(String typeName) {
-		return new GraphQuery(this.q.types(typeName));
+		return derive(new GraphQuery(this.q().types(typeName)), Operator.TYPES, typeName);
+	}
+	
+	/**
+	 * Combines this query with a given one, removing duplicate elements.
+	 * @param expr the query to combine with this one
+	 * @return the resulting query
+	 */
+	public GraphQuery union(GraphQuery expr) {
+		return union(new GraphQuery[] {expr});
 	}
 	
 	/**
@@ -402,7 +720,18 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public GraphQuery union(GraphQuery... expr) {
-		return new GraphQuery(this.q.union(gqArrToQArr(expr)));
+		if (allSelections(expr)) {
+			long start = startTiming();
+			LocationBitmap result = this.selection;
+			for (GraphQuery query : expr) {
+				result = result.or(query.selection);
+			}
+			result = result == this.selection ? result.copy() : result;
+			record(UNION, start, result);
+			return derive(new GraphQuery(result), Operator.UNION, null, expr);
+		}
+		
+		return derive(new GraphQuery(this.q().union(gqArrToQArr(expr))), Operator.UNION, null, expr);
 	}
 	
 	/**
@@ -410,7 +739,9 @@ public class GraphQuery {
 	 * @return the universe the query is a part of
 	 */
 	public GraphQuery universe() {
-		return new GraphQuery(this.q.universe());
+		GraphQuery universe = new GraphQuery(null, null, true);
+		universe.plan = QueryLog.getInstance().isCapturing() ? QueryPlan.universe() : null;
+		return universe;
 	}
 	
 	/**
@@ -431,7 +762,7 @@ public class GraphQuery {
 	 * @return the resulting query
 	 */
 	public <T> GraphQuery selectLocation(Tags.Attributes attribute, T value) {
-		return new GraphQuery(this.q.selectNode(attribute.toString(), value));
+		return derive(new GraphQuery(this.q().selectNode(attribute.toString(), value)), Operator.SELECT_LOCATION, new Object[] {attribute, value});
 	}
 	
 	/**
@@ -443,7 +774,7 @@ public class GraphQuery {
 		Q[] ar = new Q[args.length];
 		
 		for (int i = 0; i < args.length; i++) {
-			ar[i] = args[i].q;
+			ar[i] = args[i].q();
 		}
 		
 		return ar;
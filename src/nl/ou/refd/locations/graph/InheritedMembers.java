@@ -0,0 +1,256 @@
+package nl.ou.refd.locations.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Class representing an index of the methods classes inherit, like a table of
+ * virtual methods. For every class it holds the methods of all its superclasses,
+ * as selected by the AllSuperClasses and Methods subdetectors, by signature: their
+ * name and the names of their parameter types, in order. Each method is held with
+ * the superclass it is a method of. Finding the methods of the superclasses of a
+ * class a method would override is a lookup of its signature, instead of a walk
+ * over the hierarchy followed by filtering all methods found.
+ *
+ * The table of a class is built the first time it is used, from the tables of its
+ * direct superclasses and their own methods. A table is dropped when a relation is
+ * created to or from a program location it was built from, or such a program
+ * location is removed, and so are the tables built from it. All tables are dropped
+ * when the graph is invalidated.
+ */
+public final class InheritedMembers implements GraphListener {
+
+	private static InheritedMembers instance;
+
+	private final Map<ProgramLocation, Table> tables = new HashMap<ProgramLocation, Table>();
+	private final Map<ProgramLocation, Set<ProgramLocation>> readers = new HashMap<ProgramLocation, Set<ProgramLocation>>();
+	private final Set<ProgramLocation> building = new HashSet<ProgramLocation>();
+
+	/**
+	 * Gets the singleton instance of the index.
+	 * @return the singleton instance
+	 */
+	public static synchronized InheritedMembers getInstance() {
+		if (instance == null) {
+			instance = new InheritedMembers();
+			Graph.getInstance().addListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private InheritedMembers(){}
+
+	/**
+	 * Finds the methods of the superclasses of a class with a given signature.
+	 * @param type the program location of the class
+	 * @param methodName the name of the methods
+	 * @param parameterTypes the names of the parameter types of the methods, in order
+	 * @return the program locations of the methods, empty if there are none
+	 */
+	public synchronized Set<ProgramLocation> inheritedMethods(ProgramLocation type, String methodName, List<String> parameterTypes) {
+		Map<ProgramLocation, ProgramLocation> members = table(type).members.getOrDefault(signature(methodName, parameterTypes), Collections.emptyMap());
+		return new HashSet<ProgramLocation>(members.keySet());
+	}
+
+	/**
+	 * Gets all superclasses of a class, as selected by the AllSuperClasses subdetector.
+	 * @param type the program location of the class
+	 * @return the program locations of the superclasses, empty if there are none
+	 */
+	public synchronized Set<ProgramLocation> superclasses(ProgramLocation type) {
+		return new HashSet<ProgramLocation>(table(type).superclasses);
+	}
+
+	/**
+	 * Gets the superclass a method in the table of a class is a method of.
+	 * @param type the program location of the class
+	 * @param method the program location of the inherited method
+	 * @return the program location of the superclass, or null if the class does not inherit the method
+	 */
+	public synchronized ProgramLocation declaringClass(ProgramLocation type, ProgramLocation method) {
+		for (Map<ProgramLocation, ProgramLocation> members : table(type).members.values()) {
+			ProgramLocation declaringClass = members.get(method);
+
+			if (declaringClass != null) {
+				return declaringClass;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void relationCreated(Relation relation) {
+		drop(relation.from());
+		drop(relation.to());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationRemoved(ProgramLocation location) {
+		drop(location);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void invalidated() {
+		this.tables.clear();
+		this.readers.clear();
+	}
+
+	/**
+	 * Gets the table of a class, building it if necessary. A class which is reached
+	 * again while its own table is built, through a cycle of EXTENDS relations,
+	 * adds nothing to the tables built from it.
+	 * @param type the program location of the class
+	 * @return the table of the class
+	 */
+	private Table table(ProgramLocation type) {
+		Table table = this.tables.get(type);
+
+		if (table != null) {
+			return table;
+		}
+
+		table = new Table();
+
+		if (!this.building.add(type)) {
+			return table;
+		}
+
+		try {
+			List<ProgramLocation> read = new ArrayList<ProgramLocation>();
+			read.add(type);
+
+			for (Relation extension : type.out(Tags.Relation.EXTENDS)) {
+				ProgramLocation superType = extension.to();
+				Table inherited = table(superType);
+
+				read.add(superType);
+				table.add(inherited);
+
+				if (superType.taggedWith(Tags.ProgramLocation.CLASS)) {
+					table.superclasses.add(superType);
+					addMethods(table, superType, read);
+				}
+			}
+
+			for (ProgramLocation location : read) {
+				this.readers.computeIfAbsent(location, key -> new HashSet<ProgramLocation>()).add(type);
+			}
+
+			this.tables.put(type, table);
+			return table;
+		}
+		finally {
+			this.building.remove(type);
+		}
+	}
+
+	/**
+	 * Adds the methods of a superclass to a table, as selected by the Methods subdetector.
+	 * @param table the table
+	 * @param superclass the program location of the superclass
+	 * @param read the program locations the table is built from, to add the ones read to
+	 */
+	private static void addMethods(Table table, ProgramLocation superclass, List<ProgramLocation> read) {
+		Set<ProgramLocation> declared = Graph.query(superclass)
+				.forwardOn(Graph.query().universe().relations(Tags.Relation.DECLARES))
+				.locations();
+
+		read.addAll(declared);
+
+		for (ProgramLocation method : declared) {
+			if (!method.taggedWith(Tags.ProgramLocation.METHOD)
+					|| !(method.taggedWith(Tags.ProgramLocation.ABSTRACT_METHOD)
+							|| method.taggedWith(Tags.ProgramLocation.INSTANCE_METHOD)
+							|| method.taggedWith(Tags.ProgramLocation.CLASS_METHOD))) {
+				continue;
+			}
+
+			Map<Integer, String> parameterTypes = new TreeMap<Integer, String>();
+
+			for (Relation hasParameter : method.out(Tags.Relation.HAS_PARAMETER)) {
+				ProgramLocation parameter = hasParameter.to();
+				String typeName = null;
+
+				read.add(parameter);
+
+				for (Relation typeOf : parameter.out(Tags.Relation.TYPE_OF)) {
+					typeName = typeOf.to().getAttribute(Tags.Attributes.NAME);
+				}
+
+				parameterTypes.put(parameter.<Integer>getAttribute(Tags.Attributes.PARAMETER_INDEX), typeName);
+			}
+
+			table.members.computeIfAbsent(signature(method.getAttribute(Tags.Attributes.NAME), new ArrayList<String>(parameterTypes.values())),
+					key -> new HashMap<ProgramLocation, ProgramLocation>()).put(method, superclass);
+		}
+	}
+
+	/**
+	 * Drops the tables built from a program location, and the tables built from those.
+	 * @param location the program location
+	 */
+	private void drop(ProgramLocation location) {
+		Set<ProgramLocation> types = this.readers.remove(location);
+
+		if (types == null) {
+			return;
+		}
+
+		for (ProgramLocation type : types) {
+			if (this.tables.remove(type) != null) {
+				drop(type);
+			}
+		}
+	}
+
+	/**
+	 * Creates the signature of a method.
+	 * @param methodName the name of the method
+	 * @param parameterTypes the names of the parameter types of the method, in order
+	 * @return the signature
+	 */
+	private static String signature(Object methodName, List<String> parameterTypes) {
+		return methodName + "(" + String.join(",", parameterTypes.stream().map(String::valueOf).toArray(String[]::new)) + ")";
+	}
+
+	/**
+	 * Class representing the table of a class.
+	 */
+	private static final class Table {
+		private final Map<String, Map<ProgramLocation, ProgramLocation>> members = new HashMap<String, Map<ProgramLocation, ProgramLocation>>();
+		private final Set<ProgramLocation> superclasses = new HashSet<ProgramLocation>();
+
+		/**
+		 * Adds the methods and superclasses of another table to this table.
+		 * @param other the other table
+		 */
+		private void add(Table other) {
+			for (Map.Entry<String, Map<ProgramLocation, ProgramLocation>> members : other.members.entrySet()) {
+				this.members.computeIfAbsent(members.getKey(), key -> new HashMap<ProgramLocation, ProgramLocation>()).putAll(members.getValue());
+			}
+
+			this.superclasses.addAll(other.superclasses);
+		}
+	}
+
+}
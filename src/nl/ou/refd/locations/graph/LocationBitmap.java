@@ -0,0 +1,731 @@
+package nl.ou.refd.locations.graph;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Class representing a compressed set of program location ids, as handed out by
+ * the LocationStore. The ids are split in chunks of 65536 by their upper 16 bits.
+ * Each chunk is stored as a sorted array of its lower 16 bits while it holds at
+ * most 4096 ids, and as a bitset of 1024 longs when it holds more. Sparse sets
+ * are small, dense sets can be combined a word at a time.
+ *
+ * The operations and(), or() and andNot() create a new bitmap and leave their
+ * operands untouched.
+ */
+final class LocationBitmap {
+
+	private static final int ARRAY_LIMIT = 4096;
+	private static final int BITSET_WORDS = 1024;
+
+	private char[] keys;
+	private Container[] containers;
+	private int size;
+
+	/**
+	 * Creates an empty bitmap.
+	 */
+	LocationBitmap() {
+		this(4);
+	}
+
+	/**
+	 * Creates an empty bitmap with room for a number of chunks.
+	 * @param capacity the number of chunks to reserve room for
+	 */
+	private LocationBitmap(int capacity) {
+		this.keys = new char[Math.max(capacity, 1)];
+		this.containers = new Container[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Adds an id to the bitmap.
+	 * @param id the id to add
+	 */
+	void add(int id) {
+		char key = high(id);
+		int index = find(key);
+
+		if (index < 0) {
+			index = -index - 1;
+			insert(index, key, new ArrayContainer());
+		}
+
+		this.containers[index] = this.containers[index].add(low(id));
+	}
+
+	/**
+	 * Removes an id from the bitmap.
+	 * @param id the id to remove
+	 */
+	void remove(int id) {
+		int index = find(high(id));
+
+		if (index < 0) {
+			return;
+		}
+
+		Container container = this.containers[index].remove(low(id));
+
+		if (container.cardinality() == 0) {
+			delete(index);
+		}
+		else {
+			this.containers[index] = container;
+		}
+	}
+
+	/**
+	 * Checks if the bitmap contains an id.
+	 * @param id the id to check for
+	 * @return true if the bitmap contains the id
+	 */
+	boolean contains(int id) {
+		int index = find(high(id));
+		return index >= 0 && this.containers[index].contains(low(id));
+	}
+
+	/**
+	 * Gets the number of ids in the bitmap.
+	 * @return the number of ids
+	 */
+	int cardinality() {
+		int cardinality = 0;
+
+		for (int index = 0; index < this.size; index++) {
+			cardinality += this.containers[index].cardinality();
+		}
+
+		return cardinality;
+	}
+
+	/**
+	 * Creates the intersection of this bitmap and another.
+	 * @param other the other bitmap
+	 * @return a bitmap with the ids in both bitmaps
+	 */
+	LocationBitmap and(LocationBitmap other) {
+		LocationBitmap result = new LocationBitmap(Math.min(this.size, other.size));
+		int left = 0;
+		int right = 0;
+
+		while (left < this.size && right < other.size) {
+			if (this.keys[left] < other.keys[right]) {
+				left++;
+			}
+			else if (this.keys[left] > other.keys[right]) {
+				right++;
+			}
+			else {
+				Container container = this.containers[left].and(other.containers[right]);
+
+				if (container.cardinality() > 0) {
+					result.append(this.keys[left], container);
+				}
+
+				left++;
+				right++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Creates the union of this bitmap and another.
+	 * @param other the other bitmap
+	 * @return a bitmap with the ids in either bitmap
+	 */
+	LocationBitmap or(LocationBitmap other) {
+		LocationBitmap result = new LocationBitmap(this.size + other.size);
+		int left = 0;
+		int right = 0;
+
+		while (left < this.size || right < other.size) {
+			if (right == other.size || (left < this.size && this.keys[left] < other.keys[right])) {
+				result.append(this.keys[left], this.containers[left].copy());
+				left++;
+			}
+			else if (left == this.size || this.keys[left] > other.keys[right]) {
+				result.append(other.keys[right], other.containers[right].copy());
+				right++;
+			}
+			else {
+				result.append(this.keys[left], this.containers[left].or(other.containers[right]));
+				left++;
+				right++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Creates the difference of this bitmap and another.
+	 * @param other the other bitmap
+	 * @return a bitmap with the ids in this bitmap but not in the other
+	 */
+	LocationBitmap andNot(LocationBitmap other) {
+		LocationBitmap result = new LocationBitmap(this.size);
+		int right = 0;
+
+		for (int left = 0; left < this.size; left++) {
+			while (right < other.size && other.keys[right] < this.keys[left]) {
+				right++;
+			}
+
+			if (right < other.size && other.keys[right] == this.keys[left]) {
+				Container container = this.containers[left].andNot(other.containers[right]);
+
+				if (container.cardinality() > 0) {
+					result.append(this.keys[left], container);
+				}
+			}
+			else {
+				result.append(this.keys[left], this.containers[left].copy());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Creates a copy of the bitmap.
+	 * @return the copy
+	 */
+	LocationBitmap copy() {
+		LocationBitmap copy = new LocationBitmap(this.size);
+
+		for (int index = 0; index < this.size; index++) {
+			copy.append(this.keys[index], this.containers[index].copy());
+		}
+
+		return copy;
+	}
+
+	/**
+	 * Performs an action for every id in the bitmap, in ascending order.
+	 * @param action the action to perform
+	 */
+	void forEach(IntConsumer action) {
+		for (int index = 0; index < this.size; index++) {
+			this.containers[index].forEach(this.keys[index] << 16, action);
+		}
+	}
+
+	/**
+	 * Finds the chunk with a key.
+	 * @param key the upper 16 bits of the ids in the chunk
+	 * @return the index of the chunk, or (-(insertion point) - 1) if there is no such chunk
+	 */
+	private int find(char key) {
+		return Arrays.binarySearch(this.keys, 0, this.size, key);
+	}
+
+	/**
+	 * Inserts a chunk at an index.
+	 * @param index the index to insert the chunk at
+	 * @param key the key of the chunk
+	 * @param container the container of the chunk
+	 */
+	private void insert(int index, char key, Container container) {
+		ensureCapacity();
+		System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+		System.arraycopy(this.containers, index, this.containers, index + 1, this.size - index);
+		this.keys[index] = key;
+		this.containers[index] = container;
+		this.size++;
+	}
+
+	/**
+	 * Appends a chunk with a key larger than all keys in the bitmap.
+	 * @param key the key of the chunk
+	 * @param container the container of the chunk
+	 */
+	private void append(char key, Container container) {
+		ensureCapacity();
+		this.keys[this.size] = key;
+		this.containers[this.size] = container;
+		this.size++;
+	}
+
+	/**
+	 * Deletes the chunk at an index.
+	 * @param index the index of the chunk
+	 */
+	private void delete(int index) {
+		System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+		System.arraycopy(this.containers, index + 1, this.containers, index, this.size - index - 1);
+		this.size--;
+		this.containers[this.size] = null;
+	}
+
+	/**
+	 * Makes room for at least one more chunk.
+	 */
+	private void ensureCapacity() {
+		if (this.size == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, this.size * 2);
+			this.containers = Arrays.copyOf(this.containers, this.size * 2);
+		}
+	}
+
+	/**
+	 * Gets the upper 16 bits of an id.
+	 * @param id the id
+	 * @return the upper 16 bits
+	 */
+	private static char high(int id) {
+		return (char)(id >>> 16);
+	}
+
+	/**
+	 * Gets the lower 16 bits of an id.
+	 * @param id the id
+	 * @return the lower 16 bits
+	 */
+	private static char low(int id) {
+		return (char)id;
+	}
+
+	/**
+	 * Class representing the lower 16 bits of the ids in one chunk of the bitmap.
+	 * Adding and removing values changes the container, and can replace it by a
+	 * container of another kind. Combining containers creates a new container.
+	 */
+	private abstract static class Container {
+
+		/**
+		 * Adds a value.
+		 * @param value the value to add
+		 * @return the container holding the result, which may be this container
+		 */
+		abstract Container add(char value);
+
+		/**
+		 * Removes a value.
+		 * @param value the value to remove
+		 * @return the container holding the result, which may be this container
+		 */
+		abstract Container remove(char value);
+
+		/**
+		 * Checks if the container holds a value.
+		 * @param value the value to check for
+		 * @return true if the container holds the value
+		 */
+		abstract boolean contains(char value);
+
+		/**
+		 * Gets the number of values in the container.
+		 * @return the number of values
+		 */
+		abstract int cardinality();
+
+		/**
+		 * Creates the intersection of this container and another.
+		 * @param other the other container
+		 * @return a new container
+		 */
+		abstract Container and(Container other);
+
+		/**
+		 * Creates the union of this container and another.
+		 * @param other the other container
+		 * @return a new container
+		 */
+		abstract Container or(Container other);
+
+		/**
+		 * Creates the difference of this container and another.
+		 * @param other the other container
+		 * @return a new container
+		 */
+		abstract Container andNot(Container other);
+
+		/**
+		 * Creates a copy of the container.
+		 * @return the copy
+		 */
+		abstract Container copy();
+
+		/**
+		 * Performs an action for every value, combined with the upper bits of the chunk.
+		 * @param high the upper bits of the chunk, already shifted into place
+		 * @param action the action to perform
+		 */
+		abstract void forEach(int high, IntConsumer action);
+	}
+
+	/**
+	 * Container holding its values as a sorted array, for chunks with few values.
+	 */
+	private static final class ArrayContainer extends Container {
+
+		private char[] values;
+		private int cardinality;
+
+		/**
+		 * Creates an empty array container.
+		 */
+		ArrayContainer() {
+			this(new char[4], 0);
+		}
+
+		/**
+		 * Creates an array container from sorted values.
+		 * @param values the sorted values
+		 * @param cardinality the number of values used from the array
+		 */
+		ArrayContainer(char[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container add(char value) {
+			int index = Arrays.binarySearch(this.values, 0, this.cardinality, value);
+
+			if (index >= 0) {
+				return this;
+			}
+
+			if (this.cardinality == ARRAY_LIMIT) {
+				return toBitset().add(value);
+			}
+
+			index = -index - 1;
+
+			if (this.cardinality == this.values.length) {
+				this.values = Arrays.copyOf(this.values, Math.min(this.cardinality * 2, ARRAY_LIMIT));
+			}
+
+			System.arraycopy(this.values, index, this.values, index + 1, this.cardinality - index);
+			this.values[index] = value;
+			this.cardinality++;
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container remove(char value) {
+			int index = Arrays.binarySearch(this.values, 0, this.cardinality, value);
+
+			if (index >= 0) {
+				System.arraycopy(this.values, index + 1, this.values, index, this.cardinality - index - 1);
+				this.cardinality--;
+			}
+
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		boolean contains(char value) {
+			return Arrays.binarySearch(this.values, 0, this.cardinality, value) >= 0;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		int cardinality() {
+			return this.cardinality;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container and(Container other) {
+			char[] result = new char[this.cardinality];
+			int count = 0;
+
+			for (int index = 0; index < this.cardinality; index++) {
+				if (other.contains(this.values[index])) {
+					result[count++] = this.values[index];
+				}
+			}
+
+			return new ArrayContainer(result, count);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container or(Container other) {
+			if (other instanceof BitsetContainer) {
+				return other.or(this);
+			}
+
+			ArrayContainer array = (ArrayContainer)other;
+			char[] result = new char[this.cardinality + array.cardinality];
+			int count = 0;
+			int left = 0;
+			int right = 0;
+
+			while (left < this.cardinality || right < array.cardinality) {
+				if (right == array.cardinality || (left < this.cardinality && this.values[left] < array.values[right])) {
+					result[count++] = this.values[left++];
+				}
+				else if (left == this.cardinality || this.values[left] > array.values[right]) {
+					result[count++] = array.values[right++];
+				}
+				else {
+					result[count++] = this.values[left++];
+					right++;
+				}
+			}
+
+			ArrayContainer union = new ArrayContainer(result, count);
+			return count > ARRAY_LIMIT ? union.toBitset() : union;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container andNot(Container other) {
+			char[] result = new char[this.cardinality];
+			int count = 0;
+
+			for (int index = 0; index < this.cardinality; index++) {
+				if (!other.contains(this.values[index])) {
+					result[count++] = this.values[index];
+				}
+			}
+
+			return new ArrayContainer(result, count);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(this.values, Math.max(this.cardinality, 1)), this.cardinality);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		void forEach(int high, IntConsumer action) {
+			for (int index = 0; index < this.cardinality; index++) {
+				action.accept(high | this.values[index]);
+			}
+		}
+
+		/**
+		 * Converts the container to a bitset container with the same values.
+		 * @return the bitset container
+		 */
+		private BitsetContainer toBitset() {
+			BitsetContainer bitset = new BitsetContainer();
+
+			for (int index = 0; index < this.cardinality; index++) {
+				bitset.add(this.values[index]);
+			}
+
+			return bitset;
+		}
+	}
+
+	/**
+	 * Container holding its values as a bitset, for chunks with many values.
+	 */
+	private static final class BitsetContainer extends Container {
+
+		private final long[] words;
+		private int cardinality;
+
+		/**
+		 * Creates an empty bitset container.
+		 */
+		BitsetContainer() {
+			this(new long[BITSET_WORDS], 0);
+		}
+
+		/**
+		 * Creates a bitset container from its words.
+		 * @param words the words of the bitset
+		 * @param cardinality the number of bits set in the words
+		 */
+		BitsetContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container add(char value) {
+			long bit = 1L << value;
+
+			if ((this.words[value >>> 6] & bit) == 0) {
+				this.words[value >>> 6] |= bit;
+				this.cardinality++;
+			}
+
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container remove(char value) {
+			long bit = 1L << value;
+
+			if ((this.words[value >>> 6] & bit) != 0) {
+				this.words[value >>> 6] &= ~bit;
+				this.cardinality--;
+			}
+
+			return this.cardinality > ARRAY_LIMIT ? this : toArray();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		boolean contains(char value) {
+			return (this.words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		int cardinality() {
+			return this.cardinality;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+
+			long[] otherWords = ((BitsetContainer)other).words;
+			long[] result = new long[BITSET_WORDS];
+			int count = 0;
+
+			for (int index = 0; index < BITSET_WORDS; index++) {
+				result[index] = this.words[index] & otherWords[index];
+				count += Long.bitCount(result[index]);
+			}
+
+			return compact(result, count);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container or(Container other) {
+			BitsetContainer result = (BitsetContainer)copy();
+
+			if (other instanceof ArrayContainer) {
+				other.forEach(0, value -> result.add((char)value));
+				return result;
+			}
+
+			long[] otherWords = ((BitsetContainer)other).words;
+			int count = 0;
+
+			for (int index = 0; index < BITSET_WORDS; index++) {
+				result.words[index] |= otherWords[index];
+				count += Long.bitCount(result.words[index]);
+			}
+
+			result.cardinality = count;
+			return result;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container andNot(Container other) {
+			long[] result = Arrays.copyOf(this.words, BITSET_WORDS);
+
+			if (other instanceof ArrayContainer) {
+				other.forEach(0, value -> result[value >>> 6] &= ~(1L << value));
+			}
+			else {
+				long[] otherWords = ((BitsetContainer)other).words;
+
+				for (int index = 0; index < BITSET_WORDS; index++) {
+					result[index] &= ~otherWords[index];
+				}
+			}
+
+			int count = 0;
+
+			for (long word : result) {
+				count += Long.bitCount(word);
+			}
+
+			return compact(result, count);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		Container copy() {
+			return new BitsetContainer(Arrays.copyOf(this.words, BITSET_WORDS), this.cardinality);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		void forEach(int high, IntConsumer action) {
+			for (int index = 0; index < BITSET_WORDS; index++) {
+				long word = this.words[index];
+
+				while (word != 0) {
+					action.accept(high | (index << 6) | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+		}
+
+		/**
+		 * Converts the container to an array container with the same values.
+		 * @return the array container
+		 */
+		private ArrayContainer toArray() {
+			char[] values = new char[Math.max(this.cardinality, 1)];
+			int[] count = {0};
+			forEach(0, value -> values[count[0]++] = (char)value);
+			return new ArrayContainer(values, this.cardinality);
+		}
+
+		/**
+		 * Creates the smallest container for the result of combining bitsets.
+		 * @param words the words of the result
+		 * @param cardinality the number of bits set in the words
+		 * @return the container holding the result
+		 */
+		private static Container compact(long[] words, int cardinality) {
+			BitsetContainer bitset = new BitsetContainer(words, cardinality);
+			return cardinality > ARRAY_LIMIT ? bitset : bitset.toArray();
+		}
+	}
+
+}
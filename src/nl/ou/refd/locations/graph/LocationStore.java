@@ -0,0 +1,471 @@
+package nl.ou.refd.locations.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.ensoftcorp.atlas.core.db.graph.Node;
+import com.ensoftcorp.atlas.core.db.graph.UniverseGraph;
+import com.ensoftcorp.atlas.core.query.Query;
+
+/**
+ * Class representing a columnar store of the tags and most used attributes of
+ * the program locations in the graph. Every program location gets an id the
+ * first time it is looked up, which indexes a bitmask of its tags and columns
+ * holding its name and parameter index. Checking tags or selecting locations by
+ * tag then only takes bitwise operations, instead of string lookups in Atlas.
+ * For every tag the store also keeps a compressed bitmap of the ids tagged with
+ * it, so a set of locations can be narrowed to a tag with a single bitmap AND.
+ *
+ * The tags fit in a single long because Tags.ProgramLocation has less than 64
+ * elements. The store is kept up to date by ProgramLocation, which writes all
+ * changes to its tags and stored attributes through to the store, and is
+ * cleared when the graph is invalidated. This class is constrained to the
+ * current package because it uses Atlas elements.
+ */
+final class LocationStore implements GraphListener {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int NO_PARAMETER_INDEX = -1;
+	private static final Tags.ProgramLocation[] TAGS = Tags.ProgramLocation.values();
+
+	private static LocationStore instance;
+
+	private final Map<Node, Integer> ids = new HashMap<Node, Integer>();
+	private final LocationBitmap[] tagged = new LocationBitmap[TAGS.length];
+	private final boolean[] tagLoaded = new boolean[TAGS.length];
+	private Node[] nodes = new Node[INITIAL_CAPACITY];
+	private long[] tags = new long[INITIAL_CAPACITY];
+	private String[] names = new String[INITIAL_CAPACITY];
+	private int[] parameterIndices = new int[INITIAL_CAPACITY];
+	private int size;
+	private boolean universeLoaded;
+	private long generation;
+
+	/**
+	 * Gets the singleton instance of the store.
+	 * @return the singleton instance
+	 */
+	static synchronized LocationStore getInstance() {
+		if (instance == null) {
+			instance = new LocationStore();
+			Graph.getInstance().addListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private LocationStore() {
+		clearTagged();
+	}
+
+	/**
+	 * Gets the bit representing a tag in a bitmask of tags.
+	 * @param tag the tag
+	 * @return the bit of the tag
+	 */
+	static long bit(Tags.ProgramLocation tag) {
+		return 1L << tag.ordinal();
+	}
+
+	/**
+	 * Gets the bitmask representing a number of tags.
+	 * @param tags the tags
+	 * @return the bitmask of the tags
+	 */
+	static long mask(Tags.ProgramLocation... tags) {
+		long mask = 0;
+
+		for (Tags.ProgramLocation tag : tags) {
+			mask |= bit(tag);
+		}
+
+		return mask;
+	}
+
+	/**
+	 * Gets the bitmask of the tags of a program location.
+	 * @param node the Atlas node of the program location
+	 * @return the bitmask of its tags
+	 */
+	synchronized long tags(Node node) {
+		return this.tags[id(node)];
+	}
+
+	/**
+	 * Checks if a program location is tagged with a tag.
+	 * @param node the Atlas node of the program location
+	 * @param tag the tag to check for
+	 * @return true if the program location is tagged with the tag
+	 */
+	synchronized boolean taggedWith(Node node, Tags.ProgramLocation tag) {
+		return (this.tags[id(node)] & bit(tag)) != 0;
+	}
+
+	/**
+	 * Records that a program location was tagged or untagged with a tag.
+	 * @param node the Atlas node of the program location
+	 * @param tag the tag
+	 * @param tagged true if the tag was added, false if it was removed
+	 */
+	synchronized void setTagged(Node node, Tags.ProgramLocation tag, boolean tagged) {
+		int id = id(node);
+
+		if (tagged) {
+			this.tags[id] |= bit(tag);
+			this.tagged[tag.ordinal()].add(id);
+		}
+		else {
+			this.tags[id] &= ~bit(tag);
+			this.tagged[tag.ordinal()].remove(id);
+		}
+	}
+
+	/**
+	 * Gets the name of a program location.
+	 * @param node the Atlas node of the program location
+	 * @return the name, or null if the program location has no name
+	 */
+	synchronized String name(Node node) {
+		return this.names[id(node)];
+	}
+
+	/**
+	 * Records that the name of a program location was changed.
+	 * @param node the Atlas node of the program location
+	 * @param name the new name, or null if the name was removed
+	 */
+	synchronized void setName(Node node, String name) {
+		this.names[id(node)] = name;
+	}
+
+	/**
+	 * Gets the parameter index of a program location.
+	 * @param node the Atlas node of the program location
+	 * @return the parameter index, or null if the program location has no parameter index
+	 */
+	synchronized Integer parameterIndex(Node node) {
+		int parameterIndex = this.parameterIndices[id(node)];
+		return parameterIndex == NO_PARAMETER_INDEX ? null : parameterIndex;
+	}
+
+	/**
+	 * Records that the parameter index of a program location was changed.
+	 * @param node the Atlas node of the program location
+	 * @param parameterIndex the new parameter index, or null if the parameter index was removed
+	 */
+	synchronized void setParameterIndex(Node node, Integer parameterIndex) {
+		this.parameterIndices[id(node)] = parameterIndex == null ? NO_PARAMETER_INDEX : parameterIndex;
+	}
+
+	/**
+	 * Creates a bitmap of the ids of a set of program locations.
+	 * @param locations the program locations
+	 * @return the bitmap of their ids
+	 */
+	synchronized LocationBitmap bitmap(Set<ProgramLocation> locations) {
+		LocationBitmap bitmap = new LocationBitmap();
+		locations.forEach(location -> bitmap.add(id(location.getAtlasElement())));
+		return bitmap;
+	}
+
+	/**
+	 * Gets the program locations with the ids in a bitmap.
+	 * @param bitmap the bitmap of ids
+	 * @return the program locations
+	 */
+	synchronized Set<ProgramLocation> locations(LocationBitmap bitmap) {
+		Set<ProgramLocation> locations = new HashSet<ProgramLocation>();
+		bitmap.forEach(id -> locations.add(new ProgramLocation(this.nodes[id])));
+		return locations;
+	}
+
+	/**
+	 * Selects the ids in a bitmap of program locations tagged with at least one of
+	 * the tags in a bitmask.
+	 * @param bitmap the bitmap to select from
+	 * @param mask the bitmask of the tags
+	 * @return the bitmap of selected ids
+	 */
+	synchronized LocationBitmap selectAny(LocationBitmap bitmap, long mask) {
+		LocationBitmap selected = new LocationBitmap();
+
+		for (Tags.ProgramLocation tag : TAGS) {
+			if ((mask & bit(tag)) != 0) {
+				selected = selected.or(bitmap.and(this.tagged[tag.ordinal()]));
+			}
+		}
+
+		return selected;
+	}
+
+	/**
+	 * Selects the ids in a bitmap of program locations tagged with all of the tags
+	 * in a bitmask.
+	 * @param bitmap the bitmap to select from
+	 * @param mask the bitmask of the tags
+	 * @return the bitmap of selected ids
+	 */
+	synchronized LocationBitmap selectAll(LocationBitmap bitmap, long mask) {
+		LocationBitmap selected = bitmap;
+
+		for (Tags.ProgramLocation tag : TAGS) {
+			if ((mask & bit(tag)) != 0) {
+				selected = selected.and(this.tagged[tag.ordinal()]);
+			}
+		}
+
+		return selected == bitmap ? bitmap.copy() : selected;
+	}
+
+	/**
+	 * Selects the program locations in the whole graph tagged with at least one of
+	 * the tags in a bitmask. The first selection of a tag loads the program locations
+	 * tagged with it.
+	 * @param mask the bitmask of the tags
+	 * @return the bitmap of selected ids
+	 */
+	synchronized LocationBitmap universeAny(long mask) {
+		LocationBitmap selected = new LocationBitmap();
+
+		for (Tags.ProgramLocation tag : TAGS) {
+			if ((mask & bit(tag)) != 0) {
+				loadTagged(tag);
+				selected = selected.or(this.tagged[tag.ordinal()]);
+			}
+		}
+
+		return selected;
+	}
+
+	/**
+	 * Selects the program locations in the whole graph tagged with all of the tags
+	 * in a bitmask. The first selection of a tag loads the program locations tagged
+	 * with it. Selecting with an empty bitmask loads all program locations in the
+	 * graph, as it selects every tagged program location.
+	 * @param mask the bitmask of the tags
+	 * @return the bitmap of selected ids
+	 */
+	synchronized LocationBitmap universeAll(long mask) {
+		LocationBitmap selected = null;
+
+		for (Tags.ProgramLocation tag : TAGS) {
+			if ((mask & bit(tag)) != 0) {
+				loadTagged(tag);
+				selected = selected == null ? this.tagged[tag.ordinal()].copy() : selected.and(this.tagged[tag.ordinal()]);
+			}
+		}
+
+		if (selected == null) {
+			loadUniverse();
+			selected = new LocationBitmap();
+			for (int id = 0; id < this.size; id++) {
+				if (this.tags[id] != 0) {
+					selected.add(id);
+				}
+			}
+		}
+
+		return selected;
+	}
+
+	/**
+	 * Loads all program locations in the graph, so every program location in the
+	 * graph has an id below the returned number.
+	 * @return the number of ids handed out
+	 */
+	synchronized int loadAll() {
+		loadUniverse();
+		return this.size;
+	}
+
+	/**
+	 * Gets the id of a program location.
+	 * @param node the Atlas node of the program location
+	 * @return the id of the program location
+	 */
+	synchronized int idOf(Node node) {
+		return id(node);
+	}
+
+	/**
+	 * Gets the Atlas node of the program location with an id.
+	 * @param id the id of the program location
+	 * @return the Atlas node
+	 */
+	synchronized Node nodeOf(int id) {
+		return this.nodes[id];
+	}
+
+	/**
+	 * Gets the bitmask of the tags of the program location with an id.
+	 * @param id the id of the program location
+	 * @return the bitmask of its tags
+	 */
+	synchronized long tagsOf(int id) {
+		return this.tags[id];
+	}
+
+	/**
+	 * Gets the name of the program location with an id.
+	 * @param id the id of the program location
+	 * @return the name, or null if the program location has no name
+	 */
+	synchronized String nameOf(int id) {
+		return this.names[id];
+	}
+
+	/**
+	 * Gets the parameter index of the program location with an id.
+	 * @param id the id of the program location
+	 * @return the parameter index, or -1 if the program location has no parameter index
+	 */
+	synchronized int parameterIndexOf(int id) {
+		return this.parameterIndices[id];
+	}
+
+	/**
+	 * Gets the generation of the store. The generation changes whenever the store
+	 * is cleared, after which earlier ids no longer belong to the same program locations.
+	 * @return the generation of the store
+	 */
+	synchronized long generation() {
+		return this.generation;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The tags of a removed program location are cleared, so it is no longer selected
+	 * by tag. Its name is kept, so other listeners can still identify it.
+	 */
+	@Override
+	public synchronized void locationRemoved(ProgramLocation location) {
+		Integer id = this.ids.get(location.getAtlasElement());
+
+		if (id != null) {
+			for (Tags.ProgramLocation tag : TAGS) {
+				this.tagged[tag.ordinal()].remove(id);
+			}
+			this.tags[id] = 0;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void invalidated() {
+		this.ids.clear();
+		this.nodes = new Node[INITIAL_CAPACITY];
+		this.tags = new long[INITIAL_CAPACITY];
+		this.names = new String[INITIAL_CAPACITY];
+		this.parameterIndices = new int[INITIAL_CAPACITY];
+		this.size = 0;
+		this.universeLoaded = false;
+		Arrays.fill(this.tagLoaded, false);
+		this.generation++;
+		clearTagged();
+	}
+
+	/**
+	 * Creates an empty bitmap for every tag.
+	 */
+	private void clearTagged() {
+		for (Tags.ProgramLocation tag : TAGS) {
+			this.tagged[tag.ordinal()] = new LocationBitmap();
+		}
+	}
+
+	/**
+	 * Loads all program locations in the graph, so the bitmaps of the tags cover
+	 * the whole graph. Program locations created later are loaded when they are
+	 * tagged for the first time.
+	 */
+	private void loadUniverse() {
+		if (this.universeLoaded) {
+			return;
+		}
+
+		UniverseGraph universe = com.ensoftcorp.atlas.core.db.graph.Graph.U;
+		universe.nodes().forEach(this::id);
+		this.universeLoaded = true;
+	}
+
+	/**
+	 * Loads the program locations in the graph tagged with a tag, looked up in the
+	 * tag index of Atlas, so the bitmap of the tag covers the whole graph. Program
+	 * locations tagged later are added to the bitmap when they are tagged.
+	 * @param tag the tag
+	 */
+	private void loadTagged(Tags.ProgramLocation tag) {
+		if (this.universeLoaded || this.tagLoaded[tag.ordinal()]) {
+			return;
+		}
+
+		Query.universe().nodes(tag.toString()).eval().nodes().forEach(this::id);
+		this.tagLoaded[tag.ordinal()] = true;
+	}
+
+	/**
+	 * Gets the id of a program location, loading its tags and attributes from
+	 * Atlas if it has not been looked up before.
+	 * @param node the Atlas node of the program location
+	 * @return the id of the program location
+	 */
+	private int id(Node node) {
+		Integer id = this.ids.get(node);
+
+		if (id == null) {
+			id = load(node);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Gives a program location an id and loads its tags and attributes from Atlas.
+	 * @param node the Atlas node of the program location
+	 * @return the id of the program location
+	 */
+	private int load(Node node) {
+		if (this.size == this.tags.length) {
+			int capacity = this.size * 2;
+			this.nodes = Arrays.copyOf(this.nodes, capacity);
+			this.tags = Arrays.copyOf(this.tags, capacity);
+			this.names = Arrays.copyOf(this.names, capacity);
+			this.parameterIndices = Arrays.copyOf(this.parameterIndices, capacity);
+		}
+
+		int id = this.size++;
+		long mask = 0;
+
+		for (Tags.ProgramLocation tag : TAGS) {
+			if (node.taggedWith(tag.toString())) {
+				mask |= bit(tag);
+			}
+		}
+
+		Object name = node.getAttr(Tags.Attributes.NAME.toString());
+		Object parameterIndex = node.getAttr(Tags.Attributes.PARAMETER_INDEX.toString());
+
+		for (Tags.ProgramLocation tag : TAGS) {
+			if ((mask & bit(tag)) != 0) {
+				this.tagged[tag.ordinal()].add(id);
+			}
+		}
+
+		this.nodes[id] = node;
+		this.tags[id] = mask;
+		this.names[id] = name instanceof String ? (String)name : null;
+		this.parameterIndices[id] = parameterIndex instanceof Integer ? (Integer)parameterIndex : NO_PARAMETER_INDEX;
+		this.ids.put(node, id);
+
+		return id;
+	}
+
+}
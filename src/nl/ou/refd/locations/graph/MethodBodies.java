@@ -0,0 +1,138 @@
+package nl.ou.refd.locations.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class representing a cache of the bodies of methods: the program locations
+ * reached from a method along HAS_CONTROL_FLOW relations. The body of a method is
+ * computed once and stored as a sorted array of the ids the LocationStore gives
+ * its program locations, so reading it again takes time in the size of the body
+ * instead of a query on all HAS_CONTROL_FLOW relations of the graph.
+ *
+ * The body of a method is dropped when a relation is created from the method or
+ * from a program location in its body, or one of those is removed. All bodies
+ * are dropped when the graph is invalidated.
+ */
+public final class MethodBodies implements GraphListener {
+
+	private static MethodBodies instance;
+
+	private final Map<ProgramLocation, int[]> bodies = new HashMap<ProgramLocation, int[]>();
+	private final Map<ProgramLocation, Set<ProgramLocation>> readers = new HashMap<ProgramLocation, Set<ProgramLocation>>();
+	private long generation = -1;
+
+	/**
+	 * Gets the singleton instance of the cache.
+	 * @return the singleton instance
+	 */
+	public static synchronized MethodBodies getInstance() {
+		if (instance == null) {
+			instance = new MethodBodies();
+			Graph.getInstance().addListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private MethodBodies(){}
+
+	/**
+	 * Gets the bodies of methods, the same as forwardDifference on HAS_CONTROL_FLOW
+	 * from the methods.
+	 * @param methods the program locations of the methods
+	 * @return the program locations in the bodies of the methods, without the methods themselves
+	 */
+	public synchronized Set<ProgramLocation> bodies(Set<ProgramLocation> methods) {
+		LocationStore store = LocationStore.getInstance();
+
+		if (store.generation() != this.generation) {
+			this.bodies.clear();
+			this.readers.clear();
+			this.generation = store.generation();
+		}
+
+		Set<ProgramLocation> result = new HashSet<ProgramLocation>();
+
+		for (ProgramLocation method : methods) {
+			for (int id : body(method, store)) {
+				result.add(new ProgramLocation(store.nodeOf(id)));
+			}
+		}
+
+		result.removeAll(methods);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void relationCreated(Relation relation) {
+		drop(relation.from());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationRemoved(ProgramLocation location) {
+		drop(location);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void invalidated() {
+		this.bodies.clear();
+		this.readers.clear();
+	}
+
+	/**
+	 * Gets the body of a method, computing it if necessary.
+	 * @param method the program location of the method
+	 * @param store the store giving the ids of the program locations
+	 * @return the sorted ids of the program locations in the body
+	 */
+	private int[] body(ProgramLocation method, LocationStore store) {
+		int[] body = this.bodies.get(method);
+
+		if (body != null) {
+			return body;
+		}
+
+		Set<ProgramLocation> locations = Graph.query(method).forwardDifference(Tags.Relation.HAS_CONTROL_FLOW).locations();
+		body = new int[locations.size()];
+		int index = 0;
+
+		for (ProgramLocation location : locations) {
+			body[index++] = store.idOf(location.getAtlasElement());
+			this.readers.computeIfAbsent(location, key -> new HashSet<ProgramLocation>()).add(method);
+		}
+
+		Arrays.sort(body);
+		this.readers.computeIfAbsent(method, key -> new HashSet<ProgramLocation>()).add(method);
+		this.bodies.put(method, body);
+		return body;
+	}
+
+	/**
+	 * Drops the bodies which were computed from a program location.
+	 * @param location the program location
+	 */
+	private void drop(ProgramLocation location) {
+		Set<ProgramLocation> methods = this.readers.remove(location);
+
+		if (methods != null) {
+			this.bodies.keySet().removeAll(methods);
+		}
+	}
+
+}
@@ -5,12 +5,16 @@ import java.util.Set;
 
 import com.ensoftcorp.atlas.core.db.graph.Node;
 
+import nl.ou.refd.exceptions.IncorrectAttributeTypeException;
+
 /**
  * Class representing an program location in the graph. These
  * ProgramLocation objects have attributes and can be tagged.
  * The ProgramLocation can also have relations to other elements
  * in the graph. The type of the ProgramLocation is based on the
- * tags it has.
+ * tags it has. The tags, name and parameter index of the
+ * ProgramLocation are read from the LocationStore, to which all
+ * changes to them are written through.
  */
 public class ProgramLocation extends SimpleGraphElement<Node, Tags.ProgramLocation> {
 	
@@ -22,6 +26,139 @@ public class ProgramLocation extends SimpleGraphElement<Node, Tags.ProgramLocati
 		super(node);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean taggedWith(Tags.ProgramLocation tag) {
+		return LocationStore.getInstance().taggedWith(this.getAtlasElement(), tag);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean tag(Tags.ProgramLocation tag) {
+		if (super.tag(tag)) {
+			LocationStore.getInstance().setTagged(this.getAtlasElement(), tag, true);
+			Graph.getInstance().journalChange(this, () -> this.untag(tag));
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean untag(Tags.ProgramLocation tag) {
+		if (super.untag(tag)) {
+			LocationStore.getInstance().setTagged(this.getAtlasElement(), tag, false);
+			Graph.getInstance().journalChange(this, () -> this.tag(tag));
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T getAttribute(Tags.Attributes key) {
+		switch (key) {
+			case NAME:
+				return (T)LocationStore.getInstance().name(this.getAtlasElement());
+			case PARAMETER_INDEX:
+				return (T)LocationStore.getInstance().parameterIndex(this.getAtlasElement());
+			default:
+				return super.getAttribute(key);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasAttribute(Tags.Attributes key) {
+		switch (key) {
+			case NAME:
+			case PARAMETER_INDEX:
+				return this.getAttribute(key) != null;
+			default:
+				return super.hasAttribute(key);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @throws IncorrectAttributeTypeException if the name is not a String, or the parameter index not an Integer
+	 */
+	@Override
+	public <T> void putAttribute(Tags.Attributes key, T attribute) {
+		journalAttribute(key);
+		
+		if (key == Tags.Attributes.NAME) {
+			if (!(attribute instanceof String)) {
+				throw new IncorrectAttributeTypeException("Attribute for key " + key.toString() + " should be a String");
+			}
+			super.putAttribute(key, attribute);
+			LocationStore.getInstance().setName(this.getAtlasElement(), (String)attribute);
+		}
+		else if (key == Tags.Attributes.PARAMETER_INDEX) {
+			if (!(attribute instanceof Integer)) {
+				throw new IncorrectAttributeTypeException("Attribute for key " + key.toString() + " should be an Integer");
+			}
+			super.putAttribute(key, attribute);
+			LocationStore.getInstance().setParameterIndex(this.getAtlasElement(), (Integer)attribute);
+		}
+		else {
+			super.putAttribute(key, attribute);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removeAttribute(Tags.Attributes key) {
+		journalAttribute(key);
+		boolean removed = super.removeAttribute(key);
+		
+		if (key == Tags.Attributes.NAME) {
+			LocationStore.getInstance().setName(this.getAtlasElement(), null);
+		}
+		else if (key == Tags.Attributes.PARAMETER_INDEX) {
+			LocationStore.getInstance().setParameterIndex(this.getAtlasElement(), null);
+		}
+		
+		return removed;
+	}
+	
+	/**
+	 * Records the current value of an attribute in the journal of the graph, if one is
+	 * kept, so changing the attribute can be undone.
+	 * @param key the key of the attribute that is about to change
+	 */
+	private void journalAttribute(Tags.Attributes key) {
+		if (!Graph.getInstance().journals(this)) {
+			return;
+		}
+		
+		Object previous = this.hasAttribute(key) ? this.getAttribute(key) : null;
+		
+		Graph.getInstance().journalChange(this, () -> {
+			if (previous != null) {
+				this.putAttribute(key, previous);
+			}
+			else {
+				this.removeAttribute(key);
+			}
+		});
+	}
+	
 	/**
 	 * Gets the relations which end in this program location.
 	 * @return a list of in relations
@@ -0,0 +1,29 @@
+package nl.ou.refd.locations.graph;
+
+/**
+ * Interface of a backend the program graph can be queried on. A backend creates
+ * the queries a QueryPlan starts from, the plan applies its operators to them.
+ * @param <Q> the type of query of the backend
+ */
+public interface QueryBackend<Q extends QueryOperations<Q>> {
+
+	/**
+	 * Creates an empty query.
+	 * @return the query
+	 */
+	Q empty();
+
+	/**
+	 * Creates a query on the whole graph.
+	 * @return the query
+	 */
+	Q universe();
+
+	/**
+	 * Creates a query from program locations given by their LocationStore ids.
+	 * @param ids the ids of the program locations
+	 * @return the query
+	 */
+	Q locations(int[] ids);
+
+}
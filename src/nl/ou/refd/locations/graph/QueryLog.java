@@ -0,0 +1,194 @@
+package nl.ou.refd.locations.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Class representing the capture of the evaluations of graph queries into a log.
+ * While capturing, every GraphQuery built from the empty query, the universe or
+ * a set of program locations keeps its QueryPlan, and every evaluation of such a
+ * query is written to the log with the time it took and the size of its result.
+ * Queries created before capturing started are not logged.
+ *
+ * Sets of program locations are logged as LocationStore ids. To make them
+ * meaningful outside the IDE, the log directory also holds a CsrGraph snapshot
+ * of the graph, which is written before the first evaluation and again whenever
+ * the graph has changed since the last snapshot. The ids of a snapshot are the
+ * ids of the LocationStore, so QueryReplay can evaluate the logged plans on the
+ * snapshots headlessly.
+ */
+public final class QueryLog {
+
+	/**
+	 * The system property holding the directory to capture queries into from the start.
+	 */
+	public static final String LOG_PROPERTY = "nl.ou.refd.querylog";
+
+	/**
+	 * The name of the log file in the log directory.
+	 */
+	public static final String LOG_FILE = "queries.log";
+
+	static final int MAGIC = 0x52464451;
+	static final int VERSION = 1;
+	static final byte SNAPSHOT_RECORD = 0;
+	static final byte QUERY_RECORD = 1;
+
+	private static QueryLog instance;
+
+	private volatile boolean capturing;
+	private Path directory;
+	private DataOutputStream out;
+	private long snapshotEpoch;
+	private long snapshotGeneration;
+	private int snapshots;
+	private long queries;
+
+	/**
+	 * The ways the result of a query is evaluated.
+	 */
+	public enum Terminal {
+		LOCATIONS,
+		RELATIONS,
+		LOCATION_COUNT
+	}
+
+	/**
+	 * Gets the singleton instance of the query log.
+	 * @return the query log
+	 */
+	public static synchronized QueryLog getInstance() {
+		if (instance == null) {
+			instance = new QueryLog();
+		}
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private QueryLog(){}
+
+	/**
+	 * Checks if queries are captured.
+	 * @return true if queries are captured
+	 */
+	public boolean isCapturing() {
+		return this.capturing;
+	}
+
+	/**
+	 * Starts capturing queries into a directory. A log captured into the directory
+	 * before is overwritten. Capturing into another directory is stopped first.
+	 * @param directory the directory to write the log and the snapshots to
+	 * @throws UncheckedIOException if the log cannot be created
+	 */
+	public synchronized void start(Path directory) {
+		stop();
+
+		try {
+			Files.createDirectories(directory);
+			this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(LOG_FILE))));
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(VERSION);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not create query log in " + directory, e);
+		}
+
+		this.directory = directory;
+		this.snapshotEpoch = -1;
+		this.snapshotGeneration = -1;
+		this.snapshots = 0;
+		this.queries = 0;
+		this.capturing = true;
+	}
+
+	/**
+	 * Stops capturing queries and closes the log.
+	 */
+	public synchronized void stop() {
+		this.capturing = false;
+
+		if (this.out != null) {
+			try {
+				this.out.close();
+			}
+			catch (IOException e) {
+				// The log is only diagnostics, it is left as far as it was written
+			}
+			this.out = null;
+		}
+	}
+
+	/**
+	 * Gets the number of queries captured since capturing last started.
+	 * @return the number of queries captured
+	 */
+	public synchronized long queryCount() {
+		return this.queries;
+	}
+
+	/**
+	 * Writes an evaluation of a query to the log, preceded by a snapshot of the graph
+	 * if it changed since the last one. Capturing stops if the log cannot be written.
+	 * @param plan the plan of the query
+	 * @param terminal the way the result was evaluated
+	 * @param nanos the time the evaluation took in nanoseconds
+	 * @param size the size of the result
+	 */
+	synchronized void record(QueryPlan plan, Terminal terminal, long nanos, long size) {
+		if (!this.capturing) {
+			return;
+		}
+
+		try {
+			long epoch = Graph.getInstance().getEpoch();
+			long generation = LocationStore.getInstance().generation();
+
+			if (epoch != this.snapshotEpoch || generation != this.snapshotGeneration) {
+				String fileName = "graph-" + this.snapshots++ + ".csr";
+				CsrGraph.write(this.directory.resolve(fileName));
+				this.out.writeByte(SNAPSHOT_RECORD);
+				this.out.writeUTF(fileName);
+				this.snapshotEpoch = epoch;
+				this.snapshotGeneration = generation;
+			}
+
+			this.out.writeByte(QUERY_RECORD);
+			this.out.writeByte(terminal.ordinal());
+			this.out.writeLong(nanos);
+			this.out.writeLong(size);
+			plan.encode(this.out);
+			this.queries++;
+		}
+		catch (IOException | UncheckedIOException e) {
+			// The log is only diagnostics, capturing stops rather than failing the analysis
+			stop();
+		}
+	}
+
+	/**
+	 * Opens a log written by a capture and checks its header.
+	 * @param directory the directory the log was captured into
+	 * @return the input to read the records of the log from
+	 * @throws IOException if the log cannot be read or is not a query log
+	 */
+	static DataInputStream open(Path directory) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(directory.resolve(LOG_FILE))));
+
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			in.close();
+			throw new IOException(directory.resolve(LOG_FILE) + " is not a query log");
+		}
+
+		return in;
+	}
+
+}
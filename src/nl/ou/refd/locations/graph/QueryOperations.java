@@ -0,0 +1,225 @@
+package nl.ou.refd.locations.graph;
+
+/**
+ * Interface of the operators shared by the queries of every backend the program
+ * graph can be queried on, such as GraphQuery on Atlas and CsrQuery on a graph
+ * snapshot. A QueryPlan is evaluated through these operators, so a plan recorded
+ * on one backend can be replayed on another.
+ * @param <Q> the type of query of the backend
+ */
+public interface QueryOperations<Q extends QueryOperations<Q>> {
+
+	/**
+	 * Gets the number of program locations contained.
+	 * @return the number of program locations contained
+	 */
+	long locationCount();
+
+	/**
+	 * Gets the number of relations contained.
+	 * @return the number of relations contained
+	 */
+	long relationCount();
+
+	/**
+	 * Returns the universe the query is a part of.
+	 * @return the universe the query is a part of
+	 */
+	Q universe();
+
+	/**
+	 * Selects program locations tagged by at least one of the provided tags.
+	 * @param tags the tags to select program locations for
+	 * @return the resulting query
+	 */
+	Q locations(Tags.ProgramLocation... tags);
+
+	/**
+	 * Selects program locations tagged by all of the provided tags.
+	 * @param tags the tags to select program locations for
+	 * @return the resulting query
+	 */
+	Q locationsTaggedWithAll(Tags.ProgramLocation... tags);
+
+	/**
+	 * Select relations tagged with provided tags. ProgramLocations are retained.
+	 * @param tags the tags to select edges from
+	 * @return the resulting query
+	 */
+	Q relations(Tags.Relation... tags);
+
+	/**
+	 * Selects program locations based on the value they have stored for a specific attribute.
+	 * @param <T> the type of the attribute value
+	 * @param attribute the tag of the attribute
+	 * @param value the value the attribute is supposed to have
+	 * @return the resulting query
+	 */
+	<T> Q selectLocation(Tags.Attributes attribute, T value);
+
+	/**
+	 * Combines this query with a given one, removing duplicate elements.
+	 * @param expr the query to combine with this one
+	 * @return the resulting query
+	 */
+	Q union(Q expr);
+
+	/**
+	 * Selects the graph elements present in this query and the given one.
+	 * @param expr the query to check the intersection with
+	 * @return the resulting query
+	 */
+	Q intersection(Q expr);
+
+	/**
+	 * Remove elements of the given query from the current query.
+	 * @param expr the query containing elements to remove
+	 * @return the resulting query
+	 */
+	Q difference(Q expr);
+
+	/**
+	 * Moves forward on the given relations from the contained program locations.
+	 * @param relations the relations to move forward on
+	 * @return the resulting query
+	 */
+	Q successorsOn(Q relations);
+
+	/**
+	 * Moves backwards on the given relations from the contained program locations.
+	 * @param relations the relations to move backward on
+	 * @return the resulting query
+	 */
+	Q predecessorsOn(Q relations);
+
+	/**
+	 * Moves 1 step forward on the given relations from the contained program locations.
+	 * @param relations the relations to move forward on
+	 * @return the resulting query
+	 */
+	Q forwardStepOn(Q relations);
+
+	/**
+	 * Moves 1 step backwards on the given relations from the contained program locations.
+	 * @param relations the relations to move backward on
+	 * @return the resulting query
+	 */
+	Q reverseStepOn(Q relations);
+
+	/**
+	 * Moves forward on the given relations from the contained program locations.
+	 * @param relations the relations to move forward on
+	 * @return the resulting query
+	 */
+	Q forwardOn(Q relations);
+
+	/**
+	 * Moves backwards on the given relations from the contained program locations.
+	 * @param relations the relations to move backward on
+	 * @return the resulting query
+	 */
+	Q reverseOn(Q relations);
+
+	/**
+	 * Moves forward on the contained relations from the given program locations.
+	 * @param locations the program locations to move forward from
+	 * @return the resulting query
+	 */
+	Q forward(Q locations);
+
+	/**
+	 * Moves 1 step forward on the contained relations from the given program locations.
+	 * @param locations the program locations to move forward from
+	 * @return the resulting query
+	 */
+	Q forwardStep(Q locations);
+
+	/**
+	 * Moves backwards on the contained relations from the given program locations.
+	 * @param locations the program locations to move backwards from
+	 * @return the resulting query
+	 */
+	Q reverse(Q locations);
+
+	/**
+	 * Moves 1 step backwards on the contained relations from the given program locations.
+	 * @param locations the program locations to move backwards from
+	 * @return the resulting query
+	 */
+	Q reverseStep(Q locations);
+
+	/**
+	 * Moves 1 step forward on the contained relations from the given program locations.
+	 * @param locations the program locations to move forward from
+	 * @return the resulting query
+	 */
+	Q successors(Q locations);
+
+	/**
+	 * Moves 1 step backwards on the contained relations from the given program locations.
+	 * @param locations the program locations to move backwards from
+	 * @return the resulting query
+	 */
+	Q predecessors(Q locations);
+
+	/**
+	 * For each program location in the query space, select the program location which are successors along
+	 * Tags.Relation.Contains, not including the origin.
+	 * @return the resulting query
+	 */
+	Q children();
+
+	/**
+	 * Selects the program locations that contain the program locations currently in the query.
+	 * @return the resulting query
+	 */
+	Q parent();
+
+	/**
+	 * Select the program locations which are descendants along Tags.Relation.Contains, including the origin.
+	 * @return the resulting query
+	 */
+	Q contained();
+
+	/**
+	 * Select the program locations which are ancestors along Tags.Relation.Contains, including the origin.
+	 * @return the resulting query
+	 */
+	Q containers();
+
+	/**
+	 * Queries methods by name from the contained program locations.
+	 * @param methodName the name to select methods for
+	 * @return the resulting query
+	 */
+	Q methods(String methodName);
+
+	/**
+	 * Selects fields by name from the query space.
+	 * @param fieldName the name to select fields by
+	 * @return the resulting query
+	 */
+	Q fields(String fieldName);
+
+	/**
+	 * Select types in the contained program locations by given name.
+	 * @param typeName the name to select types for
+	 * @return the resulting query
+	 */
+	Q types(String typeName);
+
+	/**
+	 * Selects packages for the given name.
+	 * @param packageName the name to select packages for
+	 * @return the resulting query
+	 */
+	Q pkg(String packageName);
+
+	/**
+	 * Selects projects by name from the locations contained in the query.
+	 * @param projectName the name to select projects for
+	 * @return the resulting query
+	 */
+	Q project(String projectName);
+
+}
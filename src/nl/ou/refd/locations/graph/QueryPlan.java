@@ -0,0 +1,530 @@
+package nl.ou.refd.locations.graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class representing the operator tree of a query, as recorded in a QueryLog.
+ * The leaves of the tree are the empty query, the universe and sets of program
+ * locations given by their LocationStore ids. Every other node applies an operator
+ * of QueryOperations to the query of its first operand, with the queries of its
+ * other operands and its argument, if any. A plan can be evaluated on any
+ * QueryBackend, and encoded to and decoded from a compact binary form.
+ */
+public final class QueryPlan {
+
+	private static final Operator[] OPERATORS = Operator.values();
+	private static final Tags.ProgramLocation[] LOCATION_TAGS = Tags.ProgramLocation.values();
+	private static final Tags.Relation[] RELATION_TAGS = Tags.Relation.values();
+	private static final Tags.Attributes[] ATTRIBUTES = Tags.Attributes.values();
+	private static final int MAX_DESCRIPTION_LENGTH = 160;
+
+	private static final byte NULL_VALUE = 0;
+	private static final byte STRING_VALUE = 1;
+	private static final byte INTEGER_VALUE = 2;
+	private static final byte LONG_VALUE = 3;
+	private static final byte BOOLEAN_VALUE = 4;
+
+	private static final QueryPlan EMPTY = new QueryPlan(Operator.EMPTY, null, null, new QueryPlan[0]);
+	private static final QueryPlan UNIVERSE = new QueryPlan(Operator.UNIVERSE, null, null, new QueryPlan[0]);
+
+	/**
+	 * The kinds of arguments operators take besides their operands.
+	 */
+	enum Argument {
+		NONE,
+		LOCATION_TAGS,
+		RELATION_TAGS,
+		ATTRIBUTE,
+		NAME
+	}
+
+	/**
+	 * The operators of a plan, with the argument they take and the number of
+	 * operands they take, including the query they are applied to. Union,
+	 * intersection and difference take any number of operands more than one.
+	 */
+	enum Operator {
+		EMPTY(Argument.NONE, 0),
+		UNIVERSE(Argument.NONE, 0),
+		SET(Argument.NONE, 0),
+		LOCATIONS(Argument.LOCATION_TAGS, 1),
+		LOCATIONS_TAGGED_WITH_ALL(Argument.LOCATION_TAGS, 1),
+		RELATIONS(Argument.RELATION_TAGS, 1),
+		SELECT_LOCATION(Argument.ATTRIBUTE, 1),
+		UNION(Argument.NONE, -1),
+		INTERSECTION(Argument.NONE, -1),
+		DIFFERENCE(Argument.NONE, -1),
+		SUCCESSORS_ON(Argument.NONE, 2),
+		PREDECESSORS_ON(Argument.NONE, 2),
+		FORWARD_STEP_ON(Argument.NONE, 2),
+		REVERSE_STEP_ON(Argument.NONE, 2),
+		FORWARD_ON(Argument.NONE, 2),
+		REVERSE_ON(Argument.NONE, 2),
+		FORWARD(Argument.NONE, 2),
+		FORWARD_STEP(Argument.NONE, 2),
+		REVERSE(Argument.NONE, 2),
+		REVERSE_STEP(Argument.NONE, 2),
+		SUCCESSORS(Argument.NONE, 2),
+		PREDECESSORS(Argument.NONE, 2),
+		CHILDREN(Argument.NONE, 1),
+		PARENT(Argument.NONE, 1),
+		CONTAINED(Argument.NONE, 1),
+		CONTAINERS(Argument.NONE, 1),
+		METHODS(Argument.NAME, 1),
+		FIELDS(Argument.NAME, 1),
+		TYPES(Argument.NAME, 1),
+		PKG(Argument.NAME, 1),
+		PROJECT(Argument.NAME, 1);
+
+		private final Argument argument;
+		private final int operands;
+
+		/**
+		 * Creates an enum element from the argument and number of operands specified in its declaration
+		 * @param argument the kind of argument the operator takes
+		 * @param operands the number of operands the operator takes, or -1 if it takes any number
+		 */
+		private Operator(final Argument argument, final int operands) {
+			this.argument = argument;
+			this.operands = operands;
+		}
+	}
+
+	private final Operator operator;
+	private final Object argument;
+	private final int[] ids;
+	private final QueryPlan[] operands;
+
+	/**
+	 * Creates a node of a plan.
+	 * @param operator the operator of the node
+	 * @param argument the argument of the operator, or null if it takes none
+	 * @param ids the sorted ids of the program locations of a set, or null if the node is not a set
+	 * @param operands the operands of the operator
+	 */
+	private QueryPlan(Operator operator, Object argument, int[] ids, QueryPlan[] operands) {
+		this.operator = operator;
+		this.argument = argument;
+		this.ids = ids;
+		this.operands = operands;
+	}
+
+	/**
+	 * Gets the plan of the empty query.
+	 * @return the plan
+	 */
+	static QueryPlan empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Gets the plan of the universe.
+	 * @return the plan
+	 */
+	static QueryPlan universe() {
+		return UNIVERSE;
+	}
+
+	/**
+	 * Creates the plan of a set of program locations.
+	 * @param selection the bitmap of the ids of the program locations
+	 * @return the plan
+	 */
+	static QueryPlan set(LocationBitmap selection) {
+		int[] ids = new int[selection.cardinality()];
+		int[] index = {0};
+		selection.forEach(id -> ids[index[0]++] = id);
+		return new QueryPlan(Operator.SET, null, ids, new QueryPlan[0]);
+	}
+
+	/**
+	 * Creates the plan of an operator applied to the plans of queries.
+	 * @param operator the operator
+	 * @param argument the argument of the operator, or null if it takes none
+	 * @param operands the plans of the query the operator is applied to and of its other operands
+	 * @return the plan
+	 */
+	static QueryPlan apply(Operator operator, Object argument, QueryPlan... operands) {
+		return new QueryPlan(operator, argument, null, operands);
+	}
+
+	/**
+	 * Evaluates the plan on a backend.
+	 * @param <Q> the type of query of the backend
+	 * @param backend the backend to evaluate the plan on
+	 * @return the query the plan evaluates to
+	 */
+	public <Q extends QueryOperations<Q>> Q evaluate(QueryBackend<Q> backend) {
+		switch (this.operator) {
+		case EMPTY:
+			return backend.empty();
+		case UNIVERSE:
+			return backend.universe();
+		case SET:
+			return backend.locations(this.ids);
+		default:
+			break;
+		}
+
+		Q query = this.operands[0].evaluate(backend);
+
+		if (this.operator.operands == 1) {
+			return apply(query);
+		}
+
+		for (int index = 1; index < this.operands.length; index++) {
+			query = apply(query, this.operands[index].evaluate(backend));
+		}
+
+		return query;
+	}
+
+	/**
+	 * Applies an operator that takes a single operand.
+	 * @param <Q> the type of query of the backend
+	 * @param query the query to apply the operator to
+	 * @return the resulting query
+	 */
+	private <Q extends QueryOperations<Q>> Q apply(Q query) {
+		switch (this.operator) {
+		case LOCATIONS:
+			return query.locations((Tags.ProgramLocation[])this.argument);
+		case LOCATIONS_TAGGED_WITH_ALL:
+			return query.locationsTaggedWithAll((Tags.ProgramLocation[])this.argument);
+		case RELATIONS:
+			return query.relations((Tags.Relation[])this.argument);
+		case SELECT_LOCATION:
+			Object[] selection = (Object[])this.argument;
+			return query.selectLocation((Tags.Attributes)selection[0], selection[1]);
+		case CHILDREN:
+			return query.children();
+		case PARENT:
+			return query.parent();
+		case CONTAINED:
+			return query.contained();
+		case CONTAINERS:
+			return query.containers();
+		case METHODS:
+			return query.methods((String)this.argument);
+		case FIELDS:
+			return query.fields((String)this.argument);
+		case TYPES:
+			return query.types((String)this.argument);
+		case PKG:
+			return query.pkg((String)this.argument);
+		case PROJECT:
+			return query.project((String)this.argument);
+		default:
+			throw new IllegalStateException("Operator " + this.operator + " takes more than one operand");
+		}
+	}
+
+	/**
+	 * Applies an operator that takes two operands. Union, intersection and
+	 * difference are applied to their operands one after the other.
+	 * @param <Q> the type of query of the backend
+	 * @param query the query to apply the operator to
+	 * @param operand the other operand
+	 * @return the resulting query
+	 */
+	private <Q extends QueryOperations<Q>> Q apply(Q query, Q operand) {
+		switch (this.operator) {
+		case UNION:
+			return query.union(operand);
+		case INTERSECTION:
+			return query.intersection(operand);
+		case DIFFERENCE:
+			return query.difference(operand);
+		case SUCCESSORS_ON:
+			return query.successorsOn(operand);
+		case PREDECESSORS_ON:
+			return query.predecessorsOn(operand);
+		case FORWARD_STEP_ON:
+			return query.forwardStepOn(operand);
+		case REVERSE_STEP_ON:
+			return query.reverseStepOn(operand);
+		case FORWARD_ON:
+			return query.forwardOn(operand);
+		case REVERSE_ON:
+			return query.reverseOn(operand);
+		case FORWARD:
+			return query.forward(operand);
+		case FORWARD_STEP:
+			return query.forwardStep(operand);
+		case REVERSE:
+			return query.reverse(operand);
+		case REVERSE_STEP:
+			return query.reverseStep(operand);
+		case SUCCESSORS:
+			return query.successors(operand);
+		case PREDECESSORS:
+			return query.predecessors(operand);
+		default:
+			throw new IllegalStateException("Operator " + this.operator + " takes a single operand");
+		}
+	}
+
+	/**
+	 * Encodes the plan. Operators and tags are written as their ordinals, the ids
+	 * of a set as variable length differences between consecutive ids.
+	 * @param out the output to write the plan to
+	 * @throws IOException if the plan cannot be written
+	 */
+	void encode(DataOutput out) throws IOException {
+		out.writeByte(this.operator.ordinal());
+
+		switch (this.operator.argument) {
+		case LOCATION_TAGS:
+			Tags.ProgramLocation[] locationTags = (Tags.ProgramLocation[])this.argument;
+			out.writeByte(locationTags.length);
+			for (Tags.ProgramLocation tag : locationTags) {
+				out.writeByte(tag.ordinal());
+			}
+			break;
+		case RELATION_TAGS:
+			Tags.Relation[] relationTags = (Tags.Relation[])this.argument;
+			out.writeByte(relationTags.length);
+			for (Tags.Relation tag : relationTags) {
+				out.writeByte(tag.ordinal());
+			}
+			break;
+		case ATTRIBUTE:
+			Object[] selection = (Object[])this.argument;
+			out.writeByte(((Tags.Attributes)selection[0]).ordinal());
+			encodeValue(out, selection[1]);
+			break;
+		case NAME:
+			encodeValue(out, this.argument);
+			break;
+		default:
+			break;
+		}
+
+		if (this.operator == Operator.SET) {
+			writeVarInt(out, this.ids.length);
+			int previous = 0;
+			for (int id : this.ids) {
+				writeVarInt(out, id - previous);
+				previous = id;
+			}
+		}
+		else if (this.operator.operands < 0) {
+			writeVarInt(out, this.operands.length);
+		}
+
+		for (QueryPlan operand : this.operands) {
+			operand.encode(out);
+		}
+	}
+
+	/**
+	 * Decodes a plan encoded by encode().
+	 * @param in the input to read the plan from
+	 * @return the plan
+	 * @throws IOException if the plan cannot be read
+	 */
+	static QueryPlan decode(DataInput in) throws IOException {
+		Operator operator = OPERATORS[in.readUnsignedByte()];
+		Object argument = null;
+
+		switch (operator.argument) {
+		case LOCATION_TAGS:
+			Tags.ProgramLocation[] locationTags = new Tags.ProgramLocation[in.readUnsignedByte()];
+			for (int index = 0; index < locationTags.length; index++) {
+				locationTags[index] = LOCATION_TAGS[in.readUnsignedByte()];
+			}
+			argument = locationTags;
+			break;
+		case RELATION_TAGS:
+			Tags.Relation[] relationTags = new Tags.Relation[in.readUnsignedByte()];
+			for (int index = 0; index < relationTags.length; index++) {
+				relationTags[index] = RELATION_TAGS[in.readUnsignedByte()];
+			}
+			argument = relationTags;
+			break;
+		case ATTRIBUTE:
+			Tags.Attributes attribute = ATTRIBUTES[in.readUnsignedByte()];
+			argument = new Object[] {attribute, decodeValue(in)};
+			break;
+		case NAME:
+			argument = decodeValue(in);
+			break;
+		default:
+			break;
+		}
+
+		switch (operator) {
+		case EMPTY:
+			return EMPTY;
+		case UNIVERSE:
+			return UNIVERSE;
+		case SET:
+			int[] ids = new int[readVarInt(in)];
+			int previous = 0;
+			for (int index = 0; index < ids.length; index++) {
+				previous += readVarInt(in);
+				ids[index] = previous;
+			}
+			return new QueryPlan(operator, null, ids, new QueryPlan[0]);
+		default:
+			break;
+		}
+
+		QueryPlan[] operands = new QueryPlan[operator.operands < 0 ? readVarInt(in) : operator.operands];
+
+		for (int index = 0; index < operands.length; index++) {
+			operands[index] = decode(in);
+		}
+
+		return new QueryPlan(operator, argument, null, operands);
+	}
+
+	/**
+	 * Encodes the value of an argument. Values other than strings, integers, longs
+	 * and booleans are encoded as their string representation.
+	 * @param out the output to write the value to
+	 * @param value the value
+	 * @throws IOException if the value cannot be written
+	 */
+	private static void encodeValue(DataOutput out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL_VALUE);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(INTEGER_VALUE);
+			out.writeInt((Integer)value);
+		}
+		else if (value instanceof Long) {
+			out.writeByte(LONG_VALUE);
+			out.writeLong((Long)value);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN_VALUE);
+			out.writeBoolean((Boolean)value);
+		}
+		else {
+			out.writeByte(STRING_VALUE);
+			out.writeUTF(value.toString());
+		}
+	}
+
+	/**
+	 * Decodes the value of an argument encoded by encodeValue().
+	 * @param in the input to read the value from
+	 * @return the value
+	 * @throws IOException if the value cannot be read
+	 */
+	private static Object decodeValue(DataInput in) throws IOException {
+		switch (in.readUnsignedByte()) {
+		case NULL_VALUE:
+			return null;
+		case INTEGER_VALUE:
+			return in.readInt();
+		case LONG_VALUE:
+			return in.readLong();
+		case BOOLEAN_VALUE:
+			return in.readBoolean();
+		case STRING_VALUE:
+			return in.readUTF();
+		default:
+			throw new IOException("Unknown type of argument value");
+		}
+	}
+
+	/**
+	 * Writes a non-negative int in as few bytes as possible, seven bits per byte.
+	 * @param out the output to write to
+	 * @param value the value to write
+	 * @throws IOException if the value cannot be written
+	 */
+	private static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Reads an int written by writeVarInt().
+	 * @param in the input to read from
+	 * @return the value read
+	 * @throws IOException if the value cannot be read
+	 */
+	private static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder description = new StringBuilder();
+		describe(description);
+
+		if (description.length() > MAX_DESCRIPTION_LENGTH) {
+			description.setLength(MAX_DESCRIPTION_LENGTH - 3);
+			description.append("...");
+		}
+
+		return description.toString();
+	}
+
+	/**
+	 * Appends the description of the plan.
+	 * @param description the description to append to
+	 */
+	private void describe(StringBuilder description) {
+		if (description.length() > MAX_DESCRIPTION_LENGTH) {
+			return;
+		}
+
+		switch (this.operator) {
+		case EMPTY:
+			description.append("empty");
+			return;
+		case UNIVERSE:
+			description.append("universe");
+			return;
+		case SET:
+			description.append("set[").append(this.ids.length).append(']');
+			return;
+		default:
+			break;
+		}
+
+		this.operands[0].describe(description);
+		description.append('.').append(this.operator.name().toLowerCase()).append('(');
+
+		if (this.argument instanceof Object[]) {
+			description.append(Arrays.toString((Object[])this.argument));
+		}
+		else if (this.argument != null) {
+			description.append(this.argument);
+		}
+
+		for (int index = 1; index < this.operands.length; index++) {
+			if (index > 1) {
+				description.append(", ");
+			}
+			this.operands[index].describe(description);
+		}
+
+		description.append(')');
+	}
+
+}
@@ -0,0 +1,117 @@
+package nl.ou.refd.locations.graph;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Class representing the tool that replays a QueryLog headlessly. Every logged
+ * query is evaluated on the CsrGraph snapshot that was current when it was
+ * logged, and its latency and result size are reported next to the ones that
+ * were logged. Sizes that differ are flagged, which shows where a backend does
+ * not evaluate an operator the way Atlas does.
+ *
+ * Usage: QueryReplay &lt;log directory&gt; [iterations]. Every query is evaluated
+ * the given number of times, one by default, and the fastest time is reported.
+ */
+public final class QueryReplay {
+
+	private static final QueryLog.Terminal[] TERMINALS = QueryLog.Terminal.values();
+
+	/**
+	 * Private constructor, the tool is only run through main().
+	 */
+	private QueryReplay(){}
+
+	/**
+	 * Replays a query log and prints the report to standard output.
+	 * @param args the log directory and, optionally, the number of iterations per query
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: QueryReplay <log directory> [iterations]");
+			System.exit(2);
+		}
+
+		try {
+			int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+			int mismatches = replay(Paths.get(args[0]), Math.max(1, iterations), System.out);
+			System.exit(mismatches == 0 ? 0 : 1);
+		}
+		catch (IOException | NumberFormatException e) {
+			System.err.println("Could not replay " + args[0] + ": " + e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Replays a query log and prints a line per query, followed by the totals.
+	 * @param directory the directory the log was captured into
+	 * @param iterations the number of times every query is evaluated
+	 * @param out the stream to print the report to
+	 * @return the number of queries whose replayed result size differs from the logged one
+	 * @throws IOException if the log or one of its snapshots cannot be read
+	 */
+	public static int replay(Path directory, int iterations, PrintStream out) throws IOException {
+		CsrGraph snapshot = null;
+		int queries = 0;
+		int mismatches = 0;
+		long recordedTotal = 0;
+		long replayedTotal = 0;
+
+		out.printf("%6s %-14s %12s %12s %10s %10s  %s%n", "query", "terminal", "logged us", "replayed us", "logged", "replayed", "plan");
+
+		try (DataInputStream in = QueryLog.open(directory)) {
+			while (true) {
+				int record;
+
+				try {
+					record = in.readUnsignedByte();
+				}
+				catch (EOFException e) {
+					break;
+				}
+
+				if (record == QueryLog.SNAPSHOT_RECORD) {
+					snapshot = CsrGraph.open(directory.resolve(in.readUTF()));
+					continue;
+				}
+
+				if (record != QueryLog.QUERY_RECORD || snapshot == null) {
+					throw new IOException("Query log " + directory + " is corrupt");
+				}
+
+				QueryLog.Terminal terminal = TERMINALS[in.readUnsignedByte()];
+				long recordedNanos = in.readLong();
+				long recordedSize = in.readLong();
+				QueryPlan plan = QueryPlan.decode(in);
+
+				long replayedNanos = Long.MAX_VALUE;
+				long replayedSize = 0;
+
+				for (int iteration = 0; iteration < iterations; iteration++) {
+					long start = System.nanoTime();
+					CsrQuery query = plan.evaluate(snapshot);
+					replayedSize = terminal == QueryLog.Terminal.RELATIONS ? query.relationCount() : query.locationCount();
+					replayedNanos = Math.min(replayedNanos, System.nanoTime() - start);
+				}
+
+				boolean mismatch = replayedSize != recordedSize;
+				mismatches += mismatch ? 1 : 0;
+				recordedTotal += recordedNanos;
+				replayedTotal += replayedNanos;
+
+				out.printf("%6d %-14s %12d %12d %10d %10d%s %s%n", queries++, terminal, recordedNanos / 1000,
+						replayedNanos / 1000, recordedSize, replayedSize, mismatch ? "!" : " ", plan);
+			}
+		}
+
+		out.printf("%6d %-14s %12d %12d  %d size mismatches%n", queries, "total", recordedTotal / 1000,
+				replayedTotal / 1000, mismatches);
+		return mismatches;
+	}
+
+}
@@ -0,0 +1,251 @@
+package nl.ou.refd.locations.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class representing a cache of summaries of the members methods reference. The
+ * summary of a method holds every site contained in the method at which a method
+ * is called or a field is accessed, as selected by the MethodsCalledAt and
+ * FieldsCalledAt subdetectors, with the member referenced and the classes it is a
+ * member of: the classes declaring a method, directly or through nested classes,
+ * and the classes containing a field. Finding the sites in a method referencing
+ * the members of some classes is then a set test on its summary, instead of
+ * following all call sites and field accesses of those classes.
+ *
+ * The summary of a method is computed the first time it is used. It is dropped
+ * when a relation is created to or from a program location it was computed from,
+ * or such a program location is removed. The classes a member is a member of only
+ * change by relations created to them, so a relation created from one of those,
+ * such as a class added to a package, does not drop the summary. All summaries
+ * are dropped when the graph is invalidated.
+ */
+public final class ReferenceSummaries implements GraphListener {
+
+	private static ReferenceSummaries instance;
+
+	private final Map<ProgramLocation, List<Reference>> summaries = new HashMap<ProgramLocation, List<Reference>>();
+	private final Map<ProgramLocation, Set<ProgramLocation>> readers = new HashMap<ProgramLocation, Set<ProgramLocation>>();
+	private final Map<ProgramLocation, Set<ProgramLocation>> ancestorReaders = new HashMap<ProgramLocation, Set<ProgramLocation>>();
+
+	/**
+	 * Gets the singleton instance of the cache.
+	 * @return the singleton instance
+	 */
+	public static synchronized ReferenceSummaries getInstance() {
+		if (instance == null) {
+			instance = new ReferenceSummaries();
+			Graph.getInstance().addListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private ReferenceSummaries(){}
+
+	/**
+	 * Finds the sites in methods which reference a member of some classes.
+	 * @param methods the program locations of the methods
+	 * @param classes the program locations of the classes
+	 * @return the program locations of the sites referencing a method or field of one of the classes
+	 */
+	public synchronized Set<ProgramLocation> sitesReferencing(Set<ProgramLocation> methods, Set<ProgramLocation> classes) {
+		Set<ProgramLocation> sites = new HashSet<ProgramLocation>();
+
+		if (classes.isEmpty()) {
+			return sites;
+		}
+
+		for (ProgramLocation method : methods) {
+			for (Reference reference : summary(method)) {
+				if (!Collections.disjoint(reference.memberOf, classes)) {
+					sites.add(reference.site);
+				}
+			}
+		}
+
+		return sites;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void relationCreated(Relation relation) {
+		drop(relation.from(), this.readers);
+		drop(relation.to(), this.readers);
+		drop(relation.to(), this.ancestorReaders);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationRemoved(ProgramLocation location) {
+		drop(location, this.readers);
+		drop(location, this.ancestorReaders);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void invalidated() {
+		this.summaries.clear();
+		this.readers.clear();
+		this.ancestorReaders.clear();
+	}
+
+	/**
+	 * Gets the summary of a method, computing it if necessary.
+	 * @param method the program location of the method
+	 * @return the references in the method
+	 */
+	private List<Reference> summary(ProgramLocation method) {
+		List<Reference> summary = this.summaries.get(method);
+
+		if (summary != null) {
+			return summary;
+		}
+
+		summary = new ArrayList<Reference>();
+		Set<ProgramLocation> read = new HashSet<ProgramLocation>();
+		Set<ProgramLocation> reached = new HashSet<ProgramLocation>();
+
+		for (ProgramLocation site : Graph.query(method).contained().locations()) {
+			read.add(site);
+
+			// Static calls and calls by signature.
+			for (Tags.Relation tag : new Tags.Relation[] {Tags.Relation.INVOKED_FUNCTION, Tags.Relation.INVOKED_SIGNATURE}) {
+				for (Relation invoked : site.out(tag)) {
+					addMethod(summary, site, invoked.to(), reached);
+				}
+			}
+
+			// Dynamic calls, from the identity pass at the site to the implicit 'this' parameter of the methods.
+			for (Relation passedTo : site.in(Tags.Relation.IDENTITY_PASSED_TO)) {
+				ProgramLocation identityPass = passedTo.from();
+				read.add(identityPass);
+
+				if (!identityPass.taggedWith(Tags.ProgramLocation.IDENTITY_PASS)) {
+					continue;
+				}
+
+				for (Relation dataflow : identityPass.out(Tags.Relation.DATAFLOW)) {
+					ProgramLocation identity = dataflow.to();
+					read.add(identity);
+
+					if (identity.taggedWith(Tags.ProgramLocation.IDENTITY)) {
+						for (ProgramLocation callee : ancestors(identity, Tags.Relation.CONTAINS, reached)) {
+							addMethod(summary, site, callee, reached);
+						}
+					}
+				}
+			}
+
+			// Field accesses.
+			for (Relation dataflow : site.in(Tags.Relation.DATAFLOW)) {
+				ProgramLocation field = dataflow.from();
+				reached.add(field);
+
+				if (field.taggedWith(Tags.ProgramLocation.FIELD)) {
+					summary.add(new Reference(site, ancestors(field, Tags.Relation.CONTAINS, reached)));
+				}
+			}
+		}
+
+		read.add(method);
+
+		for (ProgramLocation location : read) {
+			this.readers.computeIfAbsent(location, key -> new HashSet<ProgramLocation>()).add(method);
+		}
+
+		for (ProgramLocation location : reached) {
+			this.ancestorReaders.computeIfAbsent(location, key -> new HashSet<ProgramLocation>()).add(method);
+		}
+
+		this.summaries.put(method, summary);
+		return summary;
+	}
+
+	/**
+	 * Adds a call of a method to a summary, if the method would be selected by the Methods subdetector.
+	 * @param summary the summary
+	 * @param site the call site
+	 * @param callee the program location called
+	 * @param reached the program locations the ancestors are computed from, to add the ones read to
+	 */
+	private static void addMethod(List<Reference> summary, ProgramLocation site, ProgramLocation callee, Set<ProgramLocation> reached) {
+		reached.add(callee);
+
+		if (callee.taggedWith(Tags.ProgramLocation.METHOD)
+				&& (callee.taggedWith(Tags.ProgramLocation.ABSTRACT_METHOD)
+						|| callee.taggedWith(Tags.ProgramLocation.INSTANCE_METHOD)
+						|| callee.taggedWith(Tags.ProgramLocation.CLASS_METHOD))) {
+			summary.add(new Reference(site, ancestors(callee, Tags.Relation.DECLARES, reached)));
+		}
+	}
+
+	/**
+	 * Gets the program locations a program location can be reached from along relations with a tag.
+	 * @param location the program location
+	 * @param tag the tag of the relations
+	 * @param reached the program locations the ancestors are computed from, to add the ones read to
+	 * @return the program locations reaching the program location, not including itself
+	 */
+	private static Set<ProgramLocation> ancestors(ProgramLocation location, Tags.Relation tag, Set<ProgramLocation> reached) {
+		Set<ProgramLocation> ancestors = new HashSet<ProgramLocation>();
+		List<ProgramLocation> pending = new ArrayList<ProgramLocation>(Collections.singleton(location));
+
+		while (!pending.isEmpty()) {
+			for (Relation relation : pending.remove(pending.size() - 1).in(tag)) {
+				if (ancestors.add(relation.from())) {
+					pending.add(relation.from());
+				}
+			}
+		}
+
+		reached.addAll(ancestors);
+		return ancestors;
+	}
+
+	/**
+	 * Drops the summaries which were computed from a program location.
+	 * @param location the program location
+	 * @param readers the methods with summaries computed from each program location
+	 */
+	private void drop(ProgramLocation location, Map<ProgramLocation, Set<ProgramLocation>> readers) {
+		Set<ProgramLocation> methods = readers.remove(location);
+
+		if (methods != null) {
+			this.summaries.keySet().removeAll(methods);
+		}
+	}
+
+	/**
+	 * Class representing a reference to a member at a site.
+	 */
+	private static final class Reference {
+		private final ProgramLocation site;
+		private final Set<ProgramLocation> memberOf;
+
+		/**
+		 * Creates the reference.
+		 * @param site the program location of the site
+		 * @param memberOf the program locations of the classes the member referenced is a member of
+		 */
+		private Reference(ProgramLocation site, Set<ProgramLocation> memberOf) {
+			this.site = site;
+			this.memberOf = memberOf;
+		}
+	}
+
+}
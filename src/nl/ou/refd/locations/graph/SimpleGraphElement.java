@@ -122,9 +122,22 @@ class SimpleGraphElement<GraphElementType extends com.ensoftcorp.atlas.core.db.g
 
 	/**
 	 * {@inheritDoc}
+	 * Two graph elements are equal if they wrap the same Atlas graph element.
 	 */
 	@Override
 	public boolean equals(Object obj) {
-		return this.graphElement.equals(obj);
+		if (!(obj instanceof SimpleGraphElement)) {
+			return false;
+		}
+		
+		return this.graphElement.equals(((SimpleGraphElement<?, ?>)obj).graphElement);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return this.graphElement.hashCode();
 	}
 }
@@ -60,6 +60,8 @@ public final class Tags {
 		FINAL_CLASS(XCSG.Java.finalClass),
 		CLASSIFIER(XCSG.Classifier),
 		FIELD(XCSG.Field),
+		PRIMITIVE_TYPE(XCSG.Primitive),
+		ARRAY_TYPE(XCSG.ArrayType),
 		
 		CLASS_METHOD(XCSG.ClassMethod),
 		INSTANCE_METHOD(XCSG.InstanceMethod),
@@ -80,7 +82,9 @@ public final class Tags {
 		
 		REFACTOR_CREATED_METHOD("ModelAdapter.REFACTOR_CREATED_METHOD"),
 		REFACTOR_CREATED_CLASS("ModelAdapter.REFACTOR_CREATED_CLASS"),
-		REFACTOR_CREATED_PARAMETER("ModelAdapter.REFACTOR_CREATED_PARAMETER");
+		REFACTOR_CREATED_PARAMETER("ModelAdapter.REFACTOR_CREATED_PARAMETER"),
+		
+		LIBRARY_SUMMARY("ModelAdapter.LIBRARY_SUMMARY");
 		
 		private final String tag;
 		
@@ -0,0 +1,246 @@
+package nl.ou.refd.locations.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.ou.refd.exceptions.LocationSetException;
+
+/**
+ * Class representing an index of the types and packages in the program graph,
+ * so specifications can find the types and packages they refer to without
+ * querying the whole graph. Types are indexed by their fully qualified name and
+ * by their simple name, and include classes, primitive types and array types.
+ *
+ * The index is built the first time it is used, and is kept up to date with
+ * the types created by specifications and the program locations removed from
+ * the graph. It is built again when the graph is invalidated.
+ */
+public final class TypeIndex implements GraphListener {
+
+	private static final String JAVA_LANG_PREFIX = "java.lang.";
+	private static final String ARRAY_SUFFIX = "[]";
+
+	private static TypeIndex instance;
+
+	private final Map<String, ProgramLocation> typesByQualifiedName = new HashMap<String, ProgramLocation>();
+	private final Map<String, List<ProgramLocation>> typesBySimpleName = new HashMap<String, List<ProgramLocation>>();
+	private final Map<ProgramLocation, String> qualifiedNames = new HashMap<ProgramLocation, String>();
+	private final Map<String, ProgramLocation> packages = new HashMap<String, ProgramLocation>();
+	private boolean built;
+
+	/**
+	 * Gets the singleton instance of the index.
+	 * @return the singleton instance
+	 */
+	public static synchronized TypeIndex getInstance() {
+		if (instance == null) {
+			instance = new TypeIndex();
+			Graph.getInstance().addListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private TypeIndex(){}
+
+	/**
+	 * Finds the type with the given name. The name can be fully qualified, such as
+	 * java.lang.String, or simple, such as String or int[]. A simple name that belongs
+	 * to more than one type is resolved to the type in java.lang, if there is one.
+	 * @param typeName the name of the type
+	 * @return the program location of the type
+	 * @throws LocationSetException if there is no type with the name, or if a simple
+	 * name cannot be resolved to a single type
+	 */
+	public synchronized ProgramLocation type(String typeName) {
+		build();
+
+		ProgramLocation type = this.typesByQualifiedName.get(typeName);
+
+		if (type != null) {
+			return type;
+		}
+
+		List<ProgramLocation> candidates = this.typesBySimpleName.get(typeName);
+
+		if (candidates == null && typeName.endsWith(ARRAY_SUFFIX) && typeName.contains(".")) {
+			candidates = this.typesBySimpleName.get(typeName.substring(typeName.lastIndexOf('.') + 1));
+		}
+
+		if (candidates == null || candidates.isEmpty()) {
+			throw new LocationSetException("No type found with name " + typeName);
+		}
+
+		if (candidates.size() == 1) {
+			return candidates.get(0);
+		}
+
+		for (ProgramLocation candidate : candidates) {
+			if (this.qualifiedNames.get(candidate).equals(JAVA_LANG_PREFIX + typeName)) {
+				return candidate;
+			}
+		}
+
+		throw new LocationSetException("Type name " + typeName + " is ambiguous");
+	}
+
+	/**
+	 * Finds all types with the given simple name, in the way Atlas selects types by name.
+	 * @param simpleName the simple name of the types
+	 * @return the program locations of the types, empty if there are none
+	 */
+	public synchronized List<ProgramLocation> typesNamed(String simpleName) {
+		build();
+
+		List<ProgramLocation> types = this.typesBySimpleName.get(simpleName);
+		return types == null ? new ArrayList<ProgramLocation>() : new ArrayList<ProgramLocation>(types);
+	}
+
+	/**
+	 * Finds the package with the given name.
+	 * @param packageName the fully qualified name of the package
+	 * @return the program location of the package
+	 * @throws LocationSetException if there is no package with the name
+	 */
+	public synchronized ProgramLocation pkg(String packageName) {
+		build();
+
+		ProgramLocation pkg = this.packages.get(packageName);
+
+		if (pkg == null) {
+			throw new LocationSetException("No package found with name " + packageName);
+		}
+
+		return pkg;
+	}
+
+	/**
+	 * Adds a type to the index, such as a class created by a specification. The type
+	 * should already have its name and be contained in its package.
+	 * @param type the program location of the type
+	 */
+	public synchronized void add(ProgramLocation type) {
+		if (this.built) {
+			index(type);
+		}
+	}
+
+	/**
+	 * Gets the fully qualified name of an indexed type.
+	 * @param type the program location of the type
+	 * @return the fully qualified name, or null if the type is not indexed
+	 */
+	public synchronized String qualifiedName(ProgramLocation type) {
+		build();
+		return this.qualifiedNames.get(type);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationRemoved(ProgramLocation location) {
+		String qualifiedName = this.qualifiedNames.remove(location);
+
+		if (qualifiedName != null) {
+			this.typesByQualifiedName.remove(qualifiedName, location);
+			this.typesBySimpleName.getOrDefault(location.<String>getAttribute(Tags.Attributes.NAME), new ArrayList<ProgramLocation>()).remove(location);
+		}
+
+		this.packages.values().remove(location);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void invalidated() {
+		this.typesByQualifiedName.clear();
+		this.typesBySimpleName.clear();
+		this.qualifiedNames.clear();
+		this.packages.clear();
+		this.built = false;
+	}
+
+	/**
+	 * Builds the index from the whole program graph, if it has not been built yet.
+	 */
+	private void build() {
+		if (this.built) {
+			return;
+		}
+
+		for (ProgramLocation pkg : Graph.query().universe().locations(Tags.ProgramLocation.PACKAGE).locations()) {
+			this.packages.put(pkg.<String>getAttribute(Tags.Attributes.NAME), pkg);
+		}
+
+		for (ProgramLocation type : Graph.query().universe().locations(Tags.ProgramLocation.TYPE).locations()) {
+			index(type);
+		}
+
+		this.built = true;
+	}
+
+	/**
+	 * Adds a single type to the index.
+	 * @param type the program location of the type
+	 */
+	private void index(ProgramLocation type) {
+		String simpleName = type.<String>getAttribute(Tags.Attributes.NAME);
+
+		if (simpleName == null) {
+			return;
+		}
+
+		String qualifiedName = qualify(type, simpleName);
+
+		this.typesByQualifiedName.put(qualifiedName, type);
+		this.typesBySimpleName.computeIfAbsent(simpleName, name -> new ArrayList<ProgramLocation>()).add(type);
+		this.qualifiedNames.put(type, qualifiedName);
+	}
+
+	/**
+	 * Determines the fully qualified name of a type by walking up its containers,
+	 * through enclosing classes, up to its package. Primitive types and other types
+	 * without a package keep their simple name.
+	 * @param type the program location of the type
+	 * @param simpleName the simple name of the type
+	 * @return the fully qualified name of the type
+	 */
+	private static String qualify(ProgramLocation type, String simpleName) {
+		StringBuilder qualifiedName = new StringBuilder(simpleName);
+		ProgramLocation current = type;
+
+		while (true) {
+			ProgramLocation parent = Graph.query(current).parent().locations().stream().findFirst().orElse(null);
+
+			if (parent == null) {
+				break;
+			}
+
+			String parentName = parent.<String>getAttribute(Tags.Attributes.NAME);
+
+			if (parent.taggedWith(Tags.ProgramLocation.PACKAGE)) {
+				if (parentName != null && !parentName.isEmpty()) {
+					qualifiedName.insert(0, parentName + ".");
+				}
+				break;
+			}
+
+			if (!parent.taggedWith(Tags.ProgramLocation.TYPE) || parentName == null) {
+				break;
+			}
+
+			qualifiedName.insert(0, parentName + ".");
+			current = parent;
+		}
+
+		return qualifiedName.toString();
+	}
+
+}
@@ -0,0 +1,191 @@
+package nl.ou.refd.locations.libraries;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.ou.refd.exceptions.LibrarySummaryException;
+
+/**
+ * Class representing a minimal reader of Java class files. It only reads what a
+ * ClassSummary holds: the name, superclass, interfaces and access flags of the
+ * class, and the name, descriptor and access flags of its methods. Fields and
+ * all attributes, including the code of the methods, are skipped.
+ */
+final class ClassFileReader {
+
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final int ACC_SYNTHETIC = 0x1000;
+	private static final int ACC_BRIDGE = 0x0040;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private ClassFileReader(){}
+
+	/**
+	 * Reads the summary of a class from a class file. Synthetic and bridge methods,
+	 * constructors and static initializers are left out.
+	 * @param input the class file
+	 * @return the summary of the class
+	 * @throws LibrarySummaryException if the input is not a valid class file
+	 */
+	static ClassSummary read(InputStream input) {
+		try {
+			DataInputStream data = new DataInputStream(input);
+
+			if (data.readInt() != MAGIC) {
+				throw new LibrarySummaryException("Not a class file");
+			}
+
+			data.readUnsignedShort();
+			data.readUnsignedShort();
+
+			String[] utf8 = new String[data.readUnsignedShort()];
+			int[] classNames = new int[utf8.length];
+
+			for (int index = 1; index < utf8.length; index++) {
+				int tag = data.readUnsignedByte();
+
+				switch (tag) {
+					case CONSTANT_UTF8:
+						utf8[index] = data.readUTF();
+						break;
+					case CONSTANT_CLASS:
+						classNames[index] = data.readUnsignedShort();
+						break;
+					case CONSTANT_STRING:
+					case CONSTANT_METHOD_TYPE:
+					case CONSTANT_MODULE:
+					case CONSTANT_PACKAGE:
+						skip(data, 2);
+						break;
+					case CONSTANT_METHOD_HANDLE:
+						skip(data, 3);
+						break;
+					case CONSTANT_INTEGER:
+					case CONSTANT_FLOAT:
+					case CONSTANT_FIELDREF:
+					case CONSTANT_METHODREF:
+					case CONSTANT_INTERFACE_METHODREF:
+					case CONSTANT_NAME_AND_TYPE:
+					case CONSTANT_DYNAMIC:
+					case CONSTANT_INVOKE_DYNAMIC:
+						skip(data, 4);
+						break;
+					case CONSTANT_LONG:
+					case CONSTANT_DOUBLE:
+						skip(data, 8);
+						index++;
+						break;
+					default:
+						throw new LibrarySummaryException("Unknown constant pool tag " + tag);
+				}
+			}
+
+			int access = data.readUnsignedShort();
+			String name = className(utf8, classNames, data.readUnsignedShort());
+			int superIndex = data.readUnsignedShort();
+			String superclass = superIndex == 0 ? null : className(utf8, classNames, superIndex);
+
+			List<String> interfaces = new ArrayList<String>();
+			int interfaceCount = data.readUnsignedShort();
+
+			for (int index = 0; index < interfaceCount; index++) {
+				interfaces.add(className(utf8, classNames, data.readUnsignedShort()));
+			}
+
+			int fieldCount = data.readUnsignedShort();
+
+			for (int index = 0; index < fieldCount; index++) {
+				skip(data, 6);
+				skipAttributes(data);
+			}
+
+			List<MethodSummary> methods = new ArrayList<MethodSummary>();
+			int methodCount = data.readUnsignedShort();
+
+			for (int index = 0; index < methodCount; index++) {
+				int methodAccess = data.readUnsignedShort();
+				String methodName = utf8[data.readUnsignedShort()];
+				String descriptor = utf8[data.readUnsignedShort()];
+				skipAttributes(data);
+
+				if ((methodAccess & (ACC_SYNTHETIC | ACC_BRIDGE)) == 0 && !methodName.startsWith("<")) {
+					methods.add(new MethodSummary(methodName, descriptor, methodAccess));
+				}
+			}
+
+			return new ClassSummary(name, superclass, interfaces, access, methods);
+		}
+		catch (IOException | IndexOutOfBoundsException e) {
+			throw new LibrarySummaryException("Could not read class file", e);
+		}
+	}
+
+	/**
+	 * Skips the attributes of a field or method.
+	 * @param data the class file, positioned at the attribute count
+	 * @throws IOException if the class file cannot be read
+	 */
+	private static void skipAttributes(DataInputStream data) throws IOException {
+		int attributeCount = data.readUnsignedShort();
+
+		for (int index = 0; index < attributeCount; index++) {
+			skip(data, 2);
+			skip(data, data.readInt());
+		}
+	}
+
+	/**
+	 * Skips a number of bytes of the class file.
+	 * @param data the class file
+	 * @param length the number of bytes to skip
+	 * @throws IOException if the class file ends before all bytes are skipped
+	 */
+	private static void skip(DataInputStream data, int length) throws IOException {
+		int remaining = length;
+
+		while (remaining > 0) {
+			int skipped = data.skipBytes(remaining);
+
+			if (skipped <= 0) {
+				throw new IOException("Unexpected end of class file");
+			}
+
+			remaining -= skipped;
+		}
+	}
+
+	/**
+	 * Gets the fully qualified name of a class referred to from the constant pool.
+	 * @param utf8 the UTF-8 constants of the constant pool
+	 * @param classNames the name indices of the class constants of the constant pool
+	 * @param index the index of the class constant
+	 * @return the fully qualified name
+	 */
+	private static String className(String[] utf8, int[] classNames, int index) {
+		return MethodSummary.className(utf8[classNames[index]]);
+	}
+
+}
@@ -0,0 +1,131 @@
+package nl.ou.refd.locations.libraries;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import nl.ou.refd.locations.specifications.LocationSpecification.AccessModifier;
+
+/**
+ * Class representing the facts about a library class that the detectors consult
+ * for binary types: its supertypes, its declared methods, whether it is abstract,
+ * final or an interface, and its visibility. Class names are fully qualified, with
+ * nested classes separated by a dot.
+ */
+public final class ClassSummary {
+
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_INTERFACE = 0x0200;
+	static final int ACC_ABSTRACT = 0x0400;
+
+	private final String name;
+	private final String superclass;
+	private final List<String> interfaces;
+	private final int access;
+	private final List<MethodSummary> methods;
+
+	/**
+	 * Creates the summary of a class.
+	 * @param name the fully qualified name of the class
+	 * @param superclass the fully qualified name of the superclass, or null if the class has none
+	 * @param interfaces the fully qualified names of the interfaces the class implements
+	 * @param access the access flags as found in the class file
+	 * @param methods the summaries of the methods the class declares
+	 */
+	ClassSummary(String name, String superclass, List<String> interfaces, int access, List<MethodSummary> methods) {
+		this.name = name;
+		this.superclass = superclass;
+		this.interfaces = Collections.unmodifiableList(new ArrayList<String>(interfaces));
+		this.access = access;
+		this.methods = Collections.unmodifiableList(new ArrayList<MethodSummary>(methods));
+	}
+
+	/**
+	 * Gets the fully qualified name of the class.
+	 * @return the fully qualified name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Gets the simple name of the class.
+	 * @return the simple name
+	 */
+	public String getSimpleName() {
+		return this.name.substring(this.name.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * Gets the fully qualified name of the superclass.
+	 * @return the fully qualified name of the superclass, or null if the class has none
+	 */
+	public String getSuperclass() {
+		return this.superclass;
+	}
+
+	/**
+	 * Gets the interfaces the class implements.
+	 * @return the fully qualified names of the interfaces
+	 */
+	public List<String> getInterfaces() {
+		return this.interfaces;
+	}
+
+	/**
+	 * Gets the methods the class declares.
+	 * @return the summaries of the declared methods
+	 */
+	public List<MethodSummary> getMethods() {
+		return this.methods;
+	}
+
+	/**
+	 * Gets the access flags as found in the class file.
+	 * @return the access flags
+	 */
+	int getAccess() {
+		return this.access;
+	}
+
+	/**
+	 * Gets the visibility of the class.
+	 * @return the visibility of the class
+	 */
+	public AccessModifier getVisibility() {
+		return MethodSummary.visibility(this.access);
+	}
+
+	/**
+	 * Checks if the class is abstract. Interfaces are abstract as well.
+	 * @return true if the class is abstract
+	 */
+	public boolean isAbstract() {
+		return (this.access & ACC_ABSTRACT) != 0;
+	}
+
+	/**
+	 * Checks if the class is final.
+	 * @return true if the class is final
+	 */
+	public boolean isFinal() {
+		return (this.access & ACC_FINAL) != 0;
+	}
+
+	/**
+	 * Checks if the class is an interface.
+	 * @return true if the class is an interface
+	 */
+	public boolean isInterface() {
+		return (this.access & ACC_INTERFACE) != 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.name;
+	}
+
+}
@@ -0,0 +1,375 @@
+package nl.ou.refd.locations.libraries;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.ou.refd.exceptions.LibrarySummaryException;
+import nl.ou.refd.exceptions.LocationSetException;
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.Relation;
+import nl.ou.refd.locations.graph.Tags;
+import nl.ou.refd.locations.graph.TypeIndex;
+import nl.ou.refd.locations.specifications.LocationSpecification.AccessModifier;
+
+/**
+ * Class representing the library summaries known to the plugin. Summary files are
+ * written offline by the LibrarySummaryBuilder. Registering a file only reads its
+ * index; the record of a class is read the first time the class is looked up.
+ *
+ * With summaries, libraries such as the JDK can be left unmapped or mapped as stubs
+ * by Atlas: the library classes the analysed project extends are completed from
+ * their summaries with the methods, parameters and supertypes the detectors consult.
+ * The plugin registers the summary files in its state location when it starts, and
+ * the ProjectView of a project completes the library types the project extends.
+ * Completed types are part of the mapped program: their program locations and
+ * relations are created through Graph.createMappedProgramLocation() and
+ * Graph.createMappedRelation(), so they are not taken for changes made by a
+ * refactoring, and are kept when a refactoring is rolled back.
+ */
+public final class LibrarySummaries {
+
+	/**
+	 * The magic number a summary file starts with, "RFDS".
+	 */
+	static final int MAGIC = 0x52464453;
+
+	/**
+	 * The version of the summary file format.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * The size of the header of a summary file: the magic number, the version and the offset of the index.
+	 */
+	static final int HEADER_SIZE = 16;
+
+	private static final String SUMMARY_EXTENSION = ".rfds";
+	private static final String PARAMETER_NAME_PREFIX = "arg";
+
+	private static LibrarySummaries instance;
+
+	private final Map<String, Path> files = new HashMap<String, Path>();
+	private final Map<String, Long> offsets = new HashMap<String, Long>();
+	private final Map<String, ClassSummary> summaries = new HashMap<String, ClassSummary>();
+
+	/**
+	 * Gets the singleton instance of the library summaries.
+	 * @return the library summaries
+	 */
+	public static synchronized LibrarySummaries getInstance() {
+		if (instance == null) {
+			instance = new LibrarySummaries();
+		}
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private LibrarySummaries(){}
+
+	/**
+	 * Registers all summary files, with the extension .rfds, in a directory. Nothing
+	 * is registered if the directory does not exist.
+	 * @param directory the directory containing the summary files
+	 * @throws LibrarySummaryException if a summary file cannot be read
+	 */
+	public void registerAll(Path directory) {
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+
+		try (DirectoryStream<Path> summaryFiles = Files.newDirectoryStream(directory, "*" + SUMMARY_EXTENSION)) {
+			for (Path file : summaryFiles) {
+				register(file);
+			}
+		}
+		catch (IOException e) {
+			throw new LibrarySummaryException("Could not read " + directory, e);
+		}
+	}
+
+	/**
+	 * Registers a summary file by reading its index. Classes summarized in a file
+	 * registered before are replaced by the summaries in this file.
+	 * @param file the summary file
+	 * @throws LibrarySummaryException if the file is not a valid summary file
+	 */
+	public synchronized void register(Path file) {
+		try (RandomAccessFile summaryFile = new RandomAccessFile(file.toFile(), "r")) {
+			if (summaryFile.readInt() != MAGIC) {
+				throw new LibrarySummaryException(file + " is not a library summary");
+			}
+
+			int version = summaryFile.readInt();
+
+			if (version != VERSION) {
+				throw new LibrarySummaryException(file + " has unsupported version " + version);
+			}
+
+			summaryFile.seek(summaryFile.readLong());
+			DataInputStream index = new DataInputStream(new BufferedInputStream(Channels.newInputStream(summaryFile.getChannel())));
+			int classCount = index.readInt();
+
+			for (int i = 0; i < classCount; i++) {
+				String name = index.readUTF();
+				this.files.put(name, file);
+				this.offsets.put(name, index.readLong());
+				this.summaries.remove(name);
+			}
+		}
+		catch (IOException e) {
+			throw new LibrarySummaryException("Could not read " + file, e);
+		}
+	}
+
+	/**
+	 * Gets the summary of a class, reading its record if it was not read before.
+	 * @param qualifiedName the fully qualified name of the class
+	 * @return the summary of the class, or null if no registered file summarizes it
+	 * @throws LibrarySummaryException if the record of the class cannot be read
+	 */
+	public synchronized ClassSummary summary(String qualifiedName) {
+		ClassSummary summary = this.summaries.get(qualifiedName);
+
+		if (summary != null) {
+			return summary;
+		}
+
+		Path file = this.files.get(qualifiedName);
+
+		if (file == null) {
+			return null;
+		}
+
+		summary = read(file, this.offsets.get(qualifiedName), qualifiedName);
+		this.summaries.put(qualifiedName, summary);
+		return summary;
+	}
+
+	/**
+	 * Completes library types from their summaries. A type is completed if it is
+	 * summarized and the graph does not hold any of its methods, as is the case for
+	 * types Atlas did not map or mapped as stubs: its methods and their parameters are
+	 * created, and the types it extends or implements are linked and completed in turn.
+	 * Types that are not in the graph are left out.
+	 * @param types the program locations of the types to complete
+	 * @return the types that were completed
+	 */
+	public synchronized Set<ProgramLocation> complete(Set<ProgramLocation> types) {
+		Set<ProgramLocation> completed = new HashSet<ProgramLocation>();
+
+		if (this.files.isEmpty()) {
+			return completed;
+		}
+
+		List<ProgramLocation> pending = new ArrayList<ProgramLocation>(types);
+		Set<ProgramLocation> visited = new HashSet<ProgramLocation>();
+
+		while (!pending.isEmpty()) {
+			ProgramLocation type = pending.remove(pending.size() - 1);
+
+			if (!visited.add(type)) {
+				continue;
+			}
+
+			String qualifiedName = TypeIndex.getInstance().qualifiedName(type);
+			ClassSummary summary = qualifiedName == null ? null : summary(qualifiedName);
+
+			if (summary == null || !Graph.query(type).children().locations(Tags.ProgramLocation.METHOD).locations().isEmpty()) {
+				continue;
+			}
+
+			for (MethodSummary method : summary.getMethods()) {
+				createMethod(type, method);
+			}
+
+			pending.addAll(linkSupertypes(type, summary));
+			completed.add(type);
+		}
+
+		return completed;
+	}
+
+	/**
+	 * Reads the record of a class from a summary file.
+	 * @param file the summary file
+	 * @param offset the offset of the record
+	 * @param qualifiedName the fully qualified name of the class
+	 * @return the summary of the class
+	 * @throws LibrarySummaryException if the record cannot be read
+	 */
+	private static ClassSummary read(Path file, long offset, String qualifiedName) {
+		try (RandomAccessFile summaryFile = new RandomAccessFile(file.toFile(), "r")) {
+			summaryFile.seek(offset);
+			DataInputStream record = new DataInputStream(new BufferedInputStream(Channels.newInputStream(summaryFile.getChannel())));
+
+			int access = record.readInt();
+			String superclass = record.readUTF();
+
+			List<String> interfaces = new ArrayList<String>();
+			int interfaceCount = record.readUnsignedShort();
+
+			for (int index = 0; index < interfaceCount; index++) {
+				interfaces.add(record.readUTF());
+			}
+
+			List<MethodSummary> methods = new ArrayList<MethodSummary>();
+			int methodCount = record.readUnsignedShort();
+
+			for (int index = 0; index < methodCount; index++) {
+				int methodAccess = record.readInt();
+				String name = record.readUTF();
+				methods.add(new MethodSummary(name, record.readUTF(), methodAccess));
+			}
+
+			return new ClassSummary(qualifiedName, superclass.isEmpty() ? null : superclass, interfaces, access, methods);
+		}
+		catch (IOException e) {
+			throw new LibrarySummaryException("Could not read the summary of " + qualifiedName + " from " + file, e);
+		}
+	}
+
+	/**
+	 * Creates a method of a library type, with its parameters, from its summary.
+	 * Relations to types that are not in the graph are left out.
+	 * @param type the program location of the library type
+	 * @param summary the summary of the method
+	 */
+	private static void createMethod(ProgramLocation type, MethodSummary summary) {
+		Graph graph = Graph.getInstance();
+
+		ProgramLocation method = graph.createMappedProgramLocation();
+		method.tag(Tags.ProgramLocation.METHOD);
+		method.tag(Tags.ProgramLocation.FUNCTION);
+		method.tag(Tags.ProgramLocation.LIBRARY_SUMMARY);
+		method.tag(summary.isStatic() ? Tags.ProgramLocation.CLASS_METHOD : Tags.ProgramLocation.INSTANCE_METHOD);
+		method.tag(visibility(summary.getVisibility()));
+
+		if (summary.isAbstract()) {
+			method.tag(Tags.ProgramLocation.ABSTRACT_METHOD);
+		}
+
+		if (summary.isFinal()) {
+			method.tag(Tags.ProgramLocation.FINAL_METHOD);
+		}
+
+		method.putAttribute(Tags.Attributes.NAME, summary.getName());
+
+		Relation contains = graph.createMappedRelation(type, method);
+		contains.tag(Tags.Relation.CONTAINS);
+
+		ProgramLocation returnType = typeOrNull(summary.getReturnType());
+
+		if (returnType != null) {
+			Relation returns = graph.createMappedRelation(method, returnType);
+			returns.tag(Tags.Relation.RETURNS);
+		}
+
+		int parIndex = 0;
+		for (String parameterType : summary.getParameterTypes()) {
+			ProgramLocation param = graph.createMappedProgramLocation();
+			param.tag(Tags.ProgramLocation.PARAMETER);
+			param.tag(Tags.ProgramLocation.VARIABLE);
+			param.tag(Tags.ProgramLocation.LIBRARY_SUMMARY);
+			param.putAttribute(Tags.Attributes.NAME, PARAMETER_NAME_PREFIX + parIndex);
+			param.putAttribute(Tags.Attributes.PARAMETER_INDEX, parIndex++);
+
+			Relation hasParam = graph.createMappedRelation(method, param);
+			hasParam.tag(Tags.Relation.HAS_VARIABLE);
+			hasParam.tag(Tags.Relation.CONTAINS);
+			hasParam.tag(Tags.Relation.HAS_PARAMETER);
+
+			ProgramLocation paramType = typeOrNull(parameterType);
+
+			if (paramType != null) {
+				Relation typeOf = graph.createMappedRelation(param, paramType);
+				typeOf.tag(Tags.Relation.TYPE_OF);
+			}
+		}
+	}
+
+	/**
+	 * Links a library type to the types it extends or implements according to its summary,
+	 * if the graph does not link them yet.
+	 * @param type the program location of the library type
+	 * @param summary the summary of the type
+	 * @return the supertypes that are in the graph
+	 */
+	private static Set<ProgramLocation> linkSupertypes(ProgramLocation type, ClassSummary summary) {
+		List<String> supertypeNames = new ArrayList<String>(summary.getInterfaces());
+
+		if (summary.getSuperclass() != null) {
+			supertypeNames.add(summary.getSuperclass());
+		}
+
+		Set<ProgramLocation> linked = Graph.query(type)
+				.successorsOn(Graph.query().universe().relations(Tags.Relation.EXTENDS, Tags.Relation.SUPERTYPE))
+				.locations();
+		Set<ProgramLocation> supertypes = new HashSet<ProgramLocation>();
+
+		for (String supertypeName : supertypeNames) {
+			ProgramLocation supertype = typeOrNull(supertypeName);
+
+			if (supertype == null) {
+				continue;
+			}
+
+			if (!linked.contains(supertype)) {
+				Relation extendsRelation = Graph.getInstance().createMappedRelation(type, supertype);
+				extendsRelation.tag(Tags.Relation.EXTENDS);
+				extendsRelation.tag(Tags.Relation.SUPERTYPE);
+			}
+
+			supertypes.add(supertype);
+		}
+
+		return supertypes;
+	}
+
+	/**
+	 * Finds a type by its fully qualified name.
+	 * @param qualifiedName the fully qualified name of the type
+	 * @return the program location of the type, or null if the type is not in the graph
+	 */
+	private static ProgramLocation typeOrNull(String qualifiedName) {
+		try {
+			return TypeIndex.getInstance().type(qualifiedName);
+		}
+		catch (LocationSetException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the tag for a visibility.
+	 * @param visibility the visibility
+	 * @return the tag for the visibility
+	 */
+	private static Tags.ProgramLocation visibility(AccessModifier visibility) {
+		switch (visibility) {
+			case PUBLIC:
+				return Tags.ProgramLocation.PUBLIC_VISIBILITY;
+			case PROTECTED:
+				return Tags.ProgramLocation.PROTECTED_PACKAGE_VISIBILITY;
+			case PRIVATE:
+				return Tags.ProgramLocation.PRIVATE_VISIBILITY;
+			default:
+				return Tags.ProgramLocation.PACKAGE_VISIBILITY;
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+package nl.ou.refd.locations.libraries;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import nl.ou.refd.exceptions.LibrarySummaryException;
+
+/**
+ * Class representing the offline builder of library summaries. It reads the class
+ * files in jar files and directories and writes the summaries of the classes in
+ * them to a single summary file, which LibrarySummaries can load. The builder
+ * can be run from the command line:
+ * <br><br>
+ * <code>LibrarySummaryBuilder &lt;summary file&gt; &lt;jar or directory&gt;...</code>
+ * <br><br>
+ * The file holds a header, the records of the classes and an index of class names
+ * with the offsets of their records, so a class can be read without reading the
+ * records of the other classes.
+ */
+public final class LibrarySummaryBuilder {
+
+	private final TreeMap<String, ClassSummary> classes = new TreeMap<String, ClassSummary>();
+
+	/**
+	 * Builds a summary file from the command line.
+	 * @param args the summary file to write, followed by the jar files and directories to summarize
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: LibrarySummaryBuilder <summary file> <jar or directory>...");
+			System.exit(1);
+		}
+
+		LibrarySummaryBuilder builder = new LibrarySummaryBuilder();
+
+		for (int index = 1; index < args.length; index++) {
+			builder.add(Paths.get(args[index]));
+		}
+
+		builder.write(Paths.get(args[0]));
+	}
+
+	/**
+	 * Adds the classes in a jar file or directory to the summary.
+	 * @param path the jar file or directory
+	 * @throws LibrarySummaryException if the jar file or directory cannot be read
+	 */
+	public void add(Path path) {
+		try {
+			if (Files.isDirectory(path)) {
+				try (Stream<Path> files = Files.walk(path)) {
+					for (Path file : (Iterable<Path>)files::iterator) {
+						if (file.toString().endsWith(".class")) {
+							try (InputStream input = Files.newInputStream(file)) {
+								add(ClassFileReader.read(input));
+							}
+						}
+					}
+				}
+			}
+			else {
+				try (ZipFile jar = new ZipFile(path.toFile())) {
+					Enumeration<? extends ZipEntry> entries = jar.entries();
+
+					while (entries.hasMoreElements()) {
+						ZipEntry entry = entries.nextElement();
+
+						if (entry.getName().endsWith(".class") && !entry.getName().endsWith("module-info.class")) {
+							try (InputStream input = jar.getInputStream(entry)) {
+								add(ClassFileReader.read(input));
+							}
+						}
+					}
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new LibrarySummaryException("Could not read " + path, e);
+		}
+	}
+
+	/**
+	 * Adds the summary of a class. A class summarized before with the same name is replaced.
+	 * @param summary the summary of the class
+	 */
+	void add(ClassSummary summary) {
+		this.classes.put(summary.getName(), summary);
+	}
+
+	/**
+	 * Writes the summaries added so far to a summary file.
+	 * @param file the summary file to write
+	 * @throws LibrarySummaryException if the summary file cannot be written
+	 */
+	public void write(Path file) {
+		try (OutputStream output = Files.newOutputStream(file)) {
+			write(output);
+		}
+		catch (IOException e) {
+			throw new LibrarySummaryException("Could not write " + file, e);
+		}
+	}
+
+	/**
+	 * Writes the summaries added so far.
+	 * @param output the stream to write to
+	 * @throws IOException if the summaries cannot be written
+	 */
+	private void write(OutputStream output) throws IOException {
+		List<byte[]> records = new ArrayList<byte[]>();
+
+		for (ClassSummary summary : this.classes.values()) {
+			records.add(record(summary));
+		}
+
+		long offset = LibrarySummaries.HEADER_SIZE;
+		List<Long> offsets = new ArrayList<Long>();
+
+		for (byte[] record : records) {
+			offsets.add(offset);
+			offset += record.length;
+		}
+
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+		data.writeInt(LibrarySummaries.MAGIC);
+		data.writeInt(LibrarySummaries.VERSION);
+		data.writeLong(offset);
+
+		for (byte[] record : records) {
+			data.write(record);
+		}
+
+		data.writeInt(this.classes.size());
+		int index = 0;
+
+		for (String name : this.classes.keySet()) {
+			data.writeUTF(name);
+			data.writeLong(offsets.get(index++));
+		}
+
+		data.flush();
+	}
+
+	/**
+	 * Serializes the summary of a class to a record.
+	 * @param summary the summary of the class
+	 * @return the record
+	 * @throws IOException if the record cannot be written
+	 */
+	private static byte[] record(ClassSummary summary) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+
+		data.writeInt(summary.getAccess());
+		data.writeUTF(summary.getSuperclass() == null ? "" : summary.getSuperclass());
+		data.writeShort(summary.getInterfaces().size());
+
+		for (String implemented : summary.getInterfaces()) {
+			data.writeUTF(implemented);
+		}
+
+		data.writeShort(summary.getMethods().size());
+
+		for (MethodSummary method : summary.getMethods()) {
+			data.writeInt(method.getAccess());
+			data.writeUTF(method.getName());
+			data.writeUTF(method.getDescriptor());
+		}
+
+		data.flush();
+		return bytes.toByteArray();
+	}
+
+}
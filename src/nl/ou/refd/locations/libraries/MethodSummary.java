@@ -0,0 +1,215 @@
+package nl.ou.refd.locations.libraries;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import nl.ou.refd.locations.specifications.LocationSpecification.AccessModifier;
+
+/**
+ * Class representing the facts about a method of a library class that the
+ * detectors consult: its name, its signature, its visibility and whether it
+ * is abstract, static or final. Types are given by their fully qualified name,
+ * with nested classes separated by a dot and arrays suffixed with [].
+ */
+public final class MethodSummary {
+
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_PRIVATE = 0x0002;
+	static final int ACC_PROTECTED = 0x0004;
+	static final int ACC_STATIC = 0x0008;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_ABSTRACT = 0x0400;
+
+	private final String name;
+	private final String descriptor;
+	private final int access;
+
+	/**
+	 * Creates the summary of a method.
+	 * @param name the name of the method
+	 * @param descriptor the method descriptor as found in the class file
+	 * @param access the access flags as found in the class file
+	 */
+	MethodSummary(String name, String descriptor, int access) {
+		this.name = name;
+		this.descriptor = descriptor;
+		this.access = access;
+	}
+
+	/**
+	 * Gets the name of the method.
+	 * @return the name of the method
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Gets the method descriptor as found in the class file.
+	 * @return the method descriptor
+	 */
+	public String getDescriptor() {
+		return this.descriptor;
+	}
+
+	/**
+	 * Gets the access flags as found in the class file.
+	 * @return the access flags
+	 */
+	int getAccess() {
+		return this.access;
+	}
+
+	/**
+	 * Gets the types of the parameters of the method.
+	 * @return the fully qualified names of the parameter types, in order
+	 */
+	public List<String> getParameterTypes() {
+		List<String> parameterTypes = new ArrayList<String>();
+		int index = 1;
+
+		while (this.descriptor.charAt(index) != ')') {
+			int end = typeEnd(this.descriptor, index);
+			parameterTypes.add(typeName(this.descriptor.substring(index, end)));
+			index = end;
+		}
+
+		return Collections.unmodifiableList(parameterTypes);
+	}
+
+	/**
+	 * Gets the return type of the method.
+	 * @return the fully qualified name of the return type
+	 */
+	public String getReturnType() {
+		return typeName(this.descriptor.substring(this.descriptor.indexOf(')') + 1));
+	}
+
+	/**
+	 * Gets the visibility of the method.
+	 * @return the visibility of the method
+	 */
+	public AccessModifier getVisibility() {
+		return visibility(this.access);
+	}
+
+	/**
+	 * Checks if the method is abstract.
+	 * @return true if the method is abstract
+	 */
+	public boolean isAbstract() {
+		return (this.access & ACC_ABSTRACT) != 0;
+	}
+
+	/**
+	 * Checks if the method is static.
+	 * @return true if the method is static
+	 */
+	public boolean isStatic() {
+		return (this.access & ACC_STATIC) != 0;
+	}
+
+	/**
+	 * Checks if the method is final.
+	 * @return true if the method is final
+	 */
+	public boolean isFinal() {
+		return (this.access & ACC_FINAL) != 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.name + this.descriptor;
+	}
+
+	/**
+	 * Determines the visibility from access flags.
+	 * @param access the access flags
+	 * @return the visibility
+	 */
+	static AccessModifier visibility(int access) {
+		if ((access & ACC_PUBLIC) != 0) {
+			return AccessModifier.PUBLIC;
+		}
+		else if ((access & ACC_PROTECTED) != 0) {
+			return AccessModifier.PROTECTED;
+		}
+		else if ((access & ACC_PRIVATE) != 0) {
+			return AccessModifier.PRIVATE;
+		}
+		else {
+			return AccessModifier.PACKAGE;
+		}
+	}
+
+	/**
+	 * Finds the end of the field descriptor starting at an index.
+	 * @param descriptor the descriptor
+	 * @param start the index the field descriptor starts at
+	 * @return the index after the field descriptor
+	 */
+	private static int typeEnd(String descriptor, int start) {
+		int index = start;
+
+		while (descriptor.charAt(index) == '[') {
+			index++;
+		}
+
+		if (descriptor.charAt(index) == 'L') {
+			index = descriptor.indexOf(';', index);
+		}
+
+		return index + 1;
+	}
+
+	/**
+	 * Converts a field descriptor to a fully qualified type name.
+	 * @param descriptor the field descriptor
+	 * @return the fully qualified type name
+	 */
+	static String typeName(String descriptor) {
+		int dimensions = 0;
+
+		while (descriptor.charAt(dimensions) == '[') {
+			dimensions++;
+		}
+
+		String element;
+
+		switch (descriptor.charAt(dimensions)) {
+			case 'B': element = "byte"; break;
+			case 'C': element = "char"; break;
+			case 'D': element = "double"; break;
+			case 'F': element = "float"; break;
+			case 'I': element = "int"; break;
+			case 'J': element = "long"; break;
+			case 'S': element = "short"; break;
+			case 'Z': element = "boolean"; break;
+			case 'V': element = "void"; break;
+			default: element = className(descriptor.substring(dimensions + 1, descriptor.length() - 1));
+		}
+
+		StringBuilder name = new StringBuilder(element);
+
+		for (int dimension = 0; dimension < dimensions; dimension++) {
+			name.append("[]");
+		}
+
+		return name.toString();
+	}
+
+	/**
+	 * Converts an internal class name, such as java/util/Map$Entry, to a fully
+	 * qualified name, such as java.util.Map.Entry.
+	 * @param internalName the internal class name
+	 * @return the fully qualified name
+	 */
+	static String className(String internalName) {
+		return internalName.replace('/', '.').replace('$', '.');
+	}
+
+}
@@ -1,12 +1,11 @@
 package nl.ou.refd.locations.specifications;
 
-import java.util.stream.Collectors;
-
 import nl.ou.refd.exceptions.IncompatibleProgramLocationException;
 import nl.ou.refd.locations.graph.Graph;
 import nl.ou.refd.locations.graph.ProgramLocation;
 import nl.ou.refd.locations.graph.Relation;
 import nl.ou.refd.locations.graph.Tags;
+import nl.ou.refd.locations.graph.TypeIndex;
 
 /**
  * Class representing a specification of a single class location
@@ -124,14 +123,7 @@ public class ClassSpecification extends LocationSpecification {
 	 */
 	@Override
 	public ProgramLocation construct(Graph graph) {
-		ProgramLocation parentPackage = Graph.query()
-				 .universe()
-				 .locations(Tags.ProgramLocation.PACKAGE)
-				 .locations()
-				 .stream()
-				 .filter(node -> (node.<String>getAttribute(Tags.Attributes.NAME)).equals(this.getEnclosingPackage().getPackageName()))
-				 .collect(Collectors.toList())
-				 .get(0);
+		ProgramLocation parentPackage = TypeIndex.getInstance().pkg(this.getEnclosingPackage().getPackageName());
 
 		ProgramLocation nClass = createClass(graph);
 		nClass.tag(this.accessModifier.toTag());
@@ -140,6 +132,8 @@ public class ClassSpecification extends LocationSpecification {
 		Relation contains = graph.createRelation(parentPackage, nClass);
 		contains.tag(Tags.Relation.CONTAINS);
 		
+		TypeIndex.getInstance().add(nClass);
+		
 		return nClass;
 	}
 	
@@ -8,12 +8,13 @@ import java.util.stream.Collectors;
 
 import nl.ou.refd.exceptions.IncompatibleProgramLocationException;
 import nl.ou.refd.locations.collections.ClassSet;
-import nl.ou.refd.locations.generators.ProgramComponentsGenerator;
+import nl.ou.refd.locations.collections.MethodSet;
 import nl.ou.refd.locations.graph.Graph;
 import nl.ou.refd.locations.graph.GraphQuery;
 import nl.ou.refd.locations.graph.ProgramLocation;
 import nl.ou.refd.locations.graph.Relation;
 import nl.ou.refd.locations.graph.Tags;
+import nl.ou.refd.locations.graph.TypeIndex;
 import nl.ou.refd.locations.streams.InstructionStream;
 
 /**
@@ -92,7 +93,7 @@ public class MethodSpecification extends LocationSpecification {
 		this.isStatic = pl.taggedWith(Tags.ProgramLocation.CLASS_METHOD);
 		this.isAbstract = pl.taggedWith(Tags.ProgramLocation.ABSTRACT_METHOD);
 		
-		this.enclosingClass = new ClassSpecification(Graph.query(pl).parent().singleLocation());
+		this.enclosingClass = SpecificationBindings.getInstance().classSpecification(Graph.query(pl).parent().singleLocation());
 	}
 	
 	/**
@@ -249,13 +250,7 @@ public class MethodSpecification extends LocationSpecification {
 	 * @return the body of the method as a stream of instructions
 	 */
 	public InstructionStream getBody() {
-		return new ProgramComponentsGenerator()
-		.stream()
-		.classes()
-		.classesByName(this.getEnclosingClass().getClassName())
-		.methods()
-		.methodsWithSignature(this.getMethodName(), this.getParameterTypes())
-		.bodies();
+		return new MethodSet(this).stream().bodies();
 	}
 
 	/**
@@ -333,18 +328,15 @@ public class MethodSpecification extends LocationSpecification {
 		return rNode;
 	}
 	
-	/*
-	 * TODO: this method should use a package qualifier to determine
-	 * which exact type is being queried. Right now, types with the same
-	 * name, but located in different packages, are not supported.
-	 */
 	/**
-	 * Gets the ProgramLocation representing the type provided as String.
+	 * Gets the ProgramLocation representing the type provided as String. The type
+	 * can be given by its fully qualified name, or by its simple name if that name
+	 * is unambiguous.
 	 * @param typeName the type provided as String
 	 * @return the ProgramLocation corresponding to the type
 	 */
 	private static ProgramLocation getType(String typeName) {
-		return Graph.query().universe().types(typeName).singleLocation();
+		return TypeIndex.getInstance().type(typeName);
 	}
 	
 }
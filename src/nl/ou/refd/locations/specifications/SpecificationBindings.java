@@ -0,0 +1,208 @@
+package nl.ou.refd.locations.specifications;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.GraphListener;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.Relation;
+
+/**
+ * Class representing a cache which binds class and method specifications to the
+ * program locations they represent, in both directions. Creating a specification
+ * from a program location, or resolving the program location of a specification,
+ * queries the program graph. The cache remembers the outcome of both, so the same
+ * program location or specification is not queried twice. A specification created
+ * from a program location is also bound the other way around, so resolving it
+ * again does not query the graph.
+ *
+ * The bindings of a program location are dropped when it is created, removed, or
+ * gets a relation, as its specification is read from its attributes and relations.
+ * The bindings of other program locations stay valid while a refactoring changes
+ * the graph. All bindings are dropped when the graph is invalidated, as the
+ * workspace is then mapped again. Specifications are mutable, so the cache only
+ * hands out copies of the specifications it holds.
+ */
+public final class SpecificationBindings implements GraphListener {
+
+	private static SpecificationBindings instance;
+
+	private final Map<ProgramLocation, ClassSpecification> classSpecifications = new HashMap<ProgramLocation, ClassSpecification>();
+	private final Map<ProgramLocation, MethodSpecification> methodSpecifications = new HashMap<ProgramLocation, MethodSpecification>();
+	private final Map<Object, ProgramLocation> locations = new HashMap<Object, ProgramLocation>();
+	private final Map<ProgramLocation, Set<Object>> keys = new HashMap<ProgramLocation, Set<Object>>();
+
+	/**
+	 * Gets the singleton instance of the cache.
+	 * @return the singleton instance
+	 */
+	public static synchronized SpecificationBindings getInstance() {
+		if (instance == null) {
+			instance = new SpecificationBindings();
+			Graph.getInstance().addListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Private constructor to enforce the singleton.
+	 */
+	private SpecificationBindings(){}
+
+	/**
+	 * Gets the specification of a class location.
+	 * @param location the class location
+	 * @return a copy of the bound specification
+	 */
+	public synchronized ClassSpecification classSpecification(ProgramLocation location) {
+		ClassSpecification specification = this.classSpecifications.get(location);
+
+		if (specification == null) {
+			specification = new ClassSpecification(location);
+			this.classSpecifications.put(location, specification);
+			bind(key(specification), location);
+		}
+
+		return specification.copy();
+	}
+
+	/**
+	 * Gets the specification of a method location.
+	 * @param location the method location
+	 * @return a copy of the bound specification
+	 */
+	public synchronized MethodSpecification methodSpecification(ProgramLocation location) {
+		MethodSpecification specification = this.methodSpecifications.get(location);
+
+		if (specification == null) {
+			specification = new MethodSpecification(location);
+			this.methodSpecifications.put(location, specification);
+			bind(key(specification), location);
+		}
+
+		return specification.copy();
+	}
+
+	/**
+	 * Gets the program location a class specification represents.
+	 * @param specification the class specification
+	 * @param resolve queries the graph for the program location if it is not bound yet
+	 * @return the bound program location
+	 */
+	public synchronized ProgramLocation classLocation(ClassSpecification specification, Supplier<ProgramLocation> resolve) {
+		return location(key(specification), resolve);
+	}
+
+	/**
+	 * Gets the program location a method specification represents.
+	 * @param specification the method specification
+	 * @param resolve queries the graph for the program location if it is not bound yet
+	 * @return the bound program location
+	 */
+	public synchronized ProgramLocation methodLocation(MethodSpecification specification, Supplier<ProgramLocation> resolve) {
+		return location(key(specification), resolve);
+	}
+
+	/**
+	 * Gets the program location bound to a key, resolving and binding it if necessary.
+	 * @param key the key of the specification
+	 * @param resolve queries the graph for the program location
+	 * @return the bound program location
+	 */
+	private ProgramLocation location(Object key, Supplier<ProgramLocation> resolve) {
+		ProgramLocation location = this.locations.get(key);
+
+		if (location == null) {
+			location = resolve.get();
+			bind(key, location);
+		}
+
+		return location;
+	}
+
+	/**
+	 * Binds a key to a program location, unless the key is already bound.
+	 * @param key the key of the specification
+	 * @param location the program location
+	 */
+	private void bind(Object key, ProgramLocation location) {
+		if (this.locations.putIfAbsent(key, location) == null) {
+			this.keys.computeIfAbsent(location, bound -> new HashSet<Object>()).add(key);
+		}
+	}
+
+	/**
+	 * Drops the bindings of a program location in both directions.
+	 * @param location the program location
+	 */
+	private void drop(ProgramLocation location) {
+		this.classSpecifications.remove(location);
+		this.methodSpecifications.remove(location);
+		Set<Object> keys = this.keys.remove(location);
+
+		if (keys != null) {
+			keys.forEach(this.locations::remove);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationCreated(ProgramLocation location) {
+		drop(location);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void relationCreated(Relation relation) {
+		drop(relation.from());
+		drop(relation.to());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void locationRemoved(ProgramLocation location) {
+		drop(location);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void invalidated() {
+		this.classSpecifications.clear();
+		this.methodSpecifications.clear();
+		this.locations.clear();
+		this.keys.clear();
+	}
+
+	/**
+	 * Creates the key a class specification is resolved by.
+	 * @param specification the class specification
+	 * @return the key
+	 */
+	private static Object key(ClassSpecification specification) {
+		return Arrays.asList(specification.getClassName());
+	}
+
+	/**
+	 * Creates the key a method specification is resolved by.
+	 * @param specification the method specification
+	 * @return the key
+	 */
+	private static Object key(MethodSpecification specification) {
+		return Arrays.asList(specification.getEnclosingClass().getClassName(), specification.getMethodName(), specification.getParameterTypes());
+	}
+
+}
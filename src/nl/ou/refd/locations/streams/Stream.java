@@ -4,6 +4,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import nl.ou.refd.analysis.AnalysisMonitor;
+import nl.ou.refd.analysis.metrics.AnalysisMetrics;
+import nl.ou.refd.analysis.metrics.AnalysisMetrics.Kind;
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.metrics.AnalysisTrace.Span;
 import nl.ou.refd.analysis.subdetectors.Subdetector;
 import nl.ou.refd.locations.collections.LocationSet;
 import nl.ou.refd.locations.graph.ProgramLocation;
@@ -16,6 +21,11 @@ import nl.ou.refd.locations.graph.ProgramLocation;
  */
 public abstract class Stream {
 
+	/**
+	 * The category of the spans of streams in the AnalysisTrace.
+	 */
+	public static final String TRACE_CATEGORY = "stream";
+	
 	private final LocationSet source;
 	private List<Subdetector> subdetectorChain;
 	
@@ -43,15 +53,73 @@ public abstract class Stream {
 	
 	/**
 	 * Returns the locations resulting from this stream as a Set of ProgramLocation objects.
-	 * This method is only available in this package.
+	 * This method is only available in this package. When the stream is evaluated as part
+	 * of a cancelled analysis, the evaluation stops before the next subdetector. The time
+	 * taken by each subdetector and the sizes of its input and output are recorded in the
+	 * AnalysisMetrics, and in the AnalysisTrace when tracing is enabled.
 	 * @return a Set of Programlocation objects resulting from the stream
+	 * @throws org.eclipse.core.runtime.OperationCanceledException if the analysis evaluating this stream is cancelled
 	 */
 	protected Set<ProgramLocation> locations() {
+		AnalysisMetrics metrics = AnalysisMetrics.getInstance();
+		Span span = AnalysisTrace.getInstance().begin(TRACE_CATEGORY, this.getClass());
 		Set<ProgramLocation> temp = this.source.locations();
-		for (Subdetector s : this.subdetectorChain) {
-			temp = s.applyOn(temp);
+		
+		try {
+			if (span.isRecording()) {
+				span.arg("source", temp.size());
+				span.arg("subdetectors", this.subdetectorChain.size());
+			}
+			
+			for (Subdetector s : this.subdetectorChain) {
+				AnalysisMonitor.checkCanceled();
+				temp = apply(s, temp, metrics, span.isRecording());
+			}
+			
+			if (span.isRecording()) {
+				span.arg("result", temp.size());
+			}
+			return temp;
+		}
+		finally {
+			span.end();
+		}
+	}
+	
+	/**
+	 * Applies a subdetector to a set of program locations, recording the time it takes
+	 * and the sizes of its input and output in the AnalysisMetrics, and in the
+	 * AnalysisTrace when the evaluation it is part of is traced.
+	 * @param subdetector the subdetector to apply
+	 * @param input the program locations to apply the subdetector on
+	 * @param metrics the metrics to record the subdetector in
+	 * @param tracing true if the evaluation the subdetector is part of is traced
+	 * @return the program locations the input maps to
+	 */
+	static Set<ProgramLocation> apply(Subdetector subdetector, Set<ProgramLocation> input, AnalysisMetrics metrics, boolean tracing) {
+		if (!metrics.isEnabled() && !tracing) {
+			return subdetector.applyOn(input);
+		}
+		
+		long start = System.nanoTime();
+		Set<ProgramLocation> output = null;
+		Span span = AnalysisTrace.getInstance().begin(Subdetector.TRACE_CATEGORY, subdetector.getClass());
+		
+		try {
+			output = subdetector.applyOn(input);
+		}
+		finally {
+			if (span.isRecording() && output != null) {
+				span.arg("input", input.size()).arg("output", output.size());
+			}
+			span.end();
+		}
+		
+		if (metrics.isEnabled()) {
+			metrics.metrics(Kind.SUBDETECTOR, subdetector.getClass()).record(System.nanoTime() - start, input.size(), output.size());
 		}
-		return temp;
+		
+		return output;
 	}
 	
 	/**
@@ -0,0 +1,178 @@
+package nl.ou.refd.locations.streams;
+
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import nl.ou.refd.analysis.AnalysisMonitor;
+import nl.ou.refd.analysis.metrics.AnalysisMetrics;
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.metrics.AnalysisTrace.Span;
+import nl.ou.refd.analysis.subdetectors.Subdetector;
+import nl.ou.refd.locations.collections.LocationSet;
+import nl.ou.refd.locations.generators.ProgramComponentsGenerator;
+import nl.ou.refd.locations.graph.ProgramLocation;
+
+/**
+ * Class representing a prepared stream of program locations, with a parameter
+ * slot for the context of the detector it belongs to, such as a method or class
+ * specification. Where a Stream is built again for every evaluation, a plan is
+ * built once, kept in a constant, and executed with the parameter bound to it.
+ * A plan is immutable and can be executed by several threads at the same time.
+ *
+ * Selecting classes by name from all program components is done through the
+ * TypeIndex instead of by filtering the whole project. Steps are not applied to
+ * an empty set, as subdetectors map an empty set to an empty set.
+ *
+ * A plan can mark the program locations resulting from one of its steps as read,
+ * so a detector can derive the part of the program graph it read from the same
+ * execution that finds its risks, instead of querying the graph again.
+ * @param <P> the type of the parameter the plan is executed with
+ */
+public final class StreamPlan<P> {
+
+	/**
+	 * The category of the spans of plans in the AnalysisTrace.
+	 */
+	public static final String TRACE_CATEGORY = "plan";
+
+	private final Function<? super P, Set<ProgramLocation>> source;
+	private final StreamPlan<P> input;
+	private final Function<? super P, ? extends Subdetector> step;
+	private final boolean read;
+
+	/**
+	 * Creates a plan.
+	 * @param source the source of the plan, or null if it is not a source
+	 * @param input the plan the last step is applied on, or null if it is a source
+	 * @param step the subdetector of the last step, bound to the parameter, or null if
+	 * it is a source or a read mark
+	 * @param read true if the plan marks the result of its input as read
+	 */
+	private StreamPlan(Function<? super P, Set<ProgramLocation>> source, StreamPlan<P> input,
+			Function<? super P, ? extends Subdetector> step, boolean read) {
+		this.source = source;
+		this.input = input;
+		this.step = step;
+		this.read = read;
+	}
+
+	/**
+	 * Creates a plan starting at a set of program locations determined by the parameter.
+	 * @param <P> the type of the parameter
+	 * @param source gets the source set from the parameter
+	 * @return the plan
+	 */
+	public static <P> StreamPlan<P> from(Function<? super P, ? extends LocationSet> source) {
+		return new StreamPlan<P>(parameter -> source.apply(parameter).locations(), null, null, false);
+	}
+
+	/**
+	 * Creates a plan starting at the classes with a name, among all program components.
+	 * It selects the same classes as the stream of all program components filtered on
+	 * classes and by that name, but looks the classes up in the TypeIndex.
+	 * @param <P> the type of the parameter
+	 * @param className gets the simple name of the classes from the parameter
+	 * @return the plan
+	 */
+	public static <P> StreamPlan<P> classesByName(Function<? super P, String> className) {
+		return new StreamPlan<P>(parameter -> new ProgramComponentsGenerator().classesNamed(className.apply(parameter)), null, null, false);
+	}
+
+	/**
+	 * Appends a subdetector which does not depend on the parameter. The subdetector
+	 * is shared by every execution of the plan.
+	 * @param subdetector the subdetector
+	 * @return the plan with the subdetector appended
+	 */
+	public StreamPlan<P> then(Subdetector subdetector) {
+		return new StreamPlan<P>(null, this, parameter -> subdetector, false);
+	}
+
+	/**
+	 * Appends a subdetector which depends on the parameter. The subdetector is created
+	 * with the parameter bound to it when the plan is executed.
+	 * @param subdetector creates the subdetector from the parameter
+	 * @return the plan with the subdetector appended
+	 */
+	public StreamPlan<P> then(Function<? super P, ? extends Subdetector> subdetector) {
+		return new StreamPlan<P>(null, this, subdetector, false);
+	}
+
+	/**
+	 * Marks the program locations resulting from the plan so far as read. When the
+	 * plan is executed with a reader, they are passed to it.
+	 * @return the plan with the mark appended
+	 */
+	public StreamPlan<P> read() {
+		return new StreamPlan<P>(null, this, null, true);
+	}
+
+	/**
+	 * Executes the plan with a parameter bound to it. When the plan is executed as
+	 * part of a cancelled analysis, the execution stops before the next step. The
+	 * subdetectors are recorded in the AnalysisMetrics and AnalysisTrace like they are
+	 * for streams.
+	 * @param parameter the parameter
+	 * @return the resulting program locations
+	 * @throws org.eclipse.core.runtime.OperationCanceledException if the analysis executing this plan is cancelled
+	 */
+	public Set<ProgramLocation> execute(P parameter) {
+		return execute(parameter, locations -> {});
+	}
+
+	/**
+	 * Executes the plan with a parameter bound to it, passing the program locations
+	 * marked as read to a reader, which must not change them.
+	 * @param parameter the parameter
+	 * @param reader receives the program locations resulting from every step marked as read
+	 * @return the resulting program locations
+	 * @throws org.eclipse.core.runtime.OperationCanceledException if the analysis executing this plan is cancelled
+	 */
+	public Set<ProgramLocation> execute(P parameter, Consumer<Set<ProgramLocation>> reader) {
+		Span span = AnalysisTrace.getInstance().begin(TRACE_CATEGORY, StreamPlan.class);
+		Set<ProgramLocation> result = null;
+
+		try {
+			result = evaluate(parameter, reader, AnalysisMetrics.getInstance(), span.isRecording());
+			return result;
+		}
+		finally {
+			if (span.isRecording() && result != null) {
+				span.arg("result", result.size());
+			}
+			span.end();
+		}
+	}
+
+	/**
+	 * Evaluates the plan, evaluating the plan its last step is applied on first.
+	 * The sets of program locations are not changed after they are evaluated.
+	 * @param parameter the parameter bound to the plan
+	 * @param reader receives the program locations marked as read
+	 * @param metrics the metrics to record the subdetectors in
+	 * @param tracing true if the execution is traced
+	 * @return the resulting program locations
+	 */
+	private Set<ProgramLocation> evaluate(P parameter, Consumer<Set<ProgramLocation>> reader, AnalysisMetrics metrics, boolean tracing) {
+		AnalysisMonitor.checkCanceled();
+
+		if (this.source != null) {
+			return this.source.apply(parameter);
+		}
+
+		Set<ProgramLocation> input = this.input.evaluate(parameter, reader, metrics, tracing);
+
+		if (this.read) {
+			reader.accept(input);
+			return input;
+		}
+
+		if (input.isEmpty()) {
+			return input;
+		}
+
+		return Stream.apply(this.step.apply(parameter), input, metrics, tracing);
+	}
+
+}
@@ -0,0 +1,88 @@
+package nl.ou.refd.plugin;
+
+import java.util.function.Supplier;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import nl.ou.refd.analysis.DangerAnalyser;
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.refactorings.Refactoring;
+import nl.ou.refd.locations.generators.ProjectView;
+
+/**
+ * Eclipse job which runs the danger analysis of a refactoring in the background.
+ * The job reports progress per microstep and can be cancelled by the user. Only
+ * one analysis runs at the same time. Markers of earlier runs are
+ * only cleaned up when the analysis completes, so a cancelled analysis leaves
+ * them in place.
+ */
+class AnalysisJob extends Job {
+
+	/**
+	 * The family all analysis jobs belong to.
+	 */
+	public static final Object FAMILY = AnalysisJob.class;
+
+	private final IProject project;
+	private final Supplier<Refactoring> refactoring;
+	private final IncrementalMarkerPlacer markerPlacer;
+
+	/**
+	 * Creates the analysis job. The refactoring is created when the job runs, because
+	 * creating a refactoring already queries the program graph.
+	 * @param name the name of the job shown to the user
+	 * @param project the project the analysis runs on
+	 * @param refactoring supplies the refactoring to analyse
+	 * @param markerPlacer the marker placer to push the dangers found to
+	 */
+	public AnalysisJob(String name, IProject project, Supplier<Refactoring> refactoring, IncrementalMarkerPlacer markerPlacer) {
+		super(name);
+		this.project = project;
+		this.refactoring = refactoring;
+		this.markerPlacer = markerPlacer;
+		
+		setRule(new AnalysisSchedulingRule());
+		setPriority(Job.LONG);
+		setUser(true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		try {
+			ProjectView.activate(this.project.getName());
+			AnalysisTrace.getInstance().clear();
+			new DangerAnalyser(this.refactoring.get()).analyse(this.markerPlacer, monitor);
+			this.markerPlacer.complete();
+			return Status.OK_STATUS;
+		}
+		catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		}
+		finally {
+			Controller controller = Controller.getController();
+			
+			if (controller != null) {
+				controller.writeTrace(getName());
+			}
+			
+			monitor.done();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == FAMILY;
+	}
+
+}
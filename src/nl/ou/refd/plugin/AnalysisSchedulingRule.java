@@ -0,0 +1,30 @@
+package nl.ou.refd.plugin;
+
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+
+/**
+ * Scheduling rule for refactoring analyses. All analyses conflict with each
+ * other, also analyses on different projects, because they simulate their
+ * refactoring on the same program graph, which is shared by the whole workspace.
+ * The rule does not conflict with workspace operations, so builds and edits
+ * are not blocked while an analysis runs.
+ */
+class AnalysisSchedulingRule implements ISchedulingRule {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(ISchedulingRule rule) {
+		return rule == this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isConflicting(ISchedulingRule rule) {
+		return rule instanceof AnalysisSchedulingRule;
+	}
+
+}
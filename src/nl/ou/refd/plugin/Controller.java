@@ -1,15 +1,30 @@
 package nl.ou.refd.plugin;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
-import nl.ou.refd.analysis.DangerAnalyser;
+import nl.ou.refd.analysis.DestinationComparison;
+import nl.ou.refd.analysis.metrics.AnalysisMetrics;
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.refactorings.Refactoring;
 import nl.ou.refd.analysis.refactorings.CombineMethodsIntoClass;
 import nl.ou.refd.analysis.refactorings.PullUpMethod;
 import nl.ou.refd.exceptions.NoActiveProjectException;
+import nl.ou.refd.locations.graph.GraphExport;
+import nl.ou.refd.locations.graph.QueryLog;
+import nl.ou.refd.locations.libraries.LibrarySummaries;
 import nl.ou.refd.locations.specifications.ClassSpecification;
 import nl.ou.refd.locations.specifications.MethodSpecification;
 import nl.ou.refd.plugin.ui.EclipseUtil;
@@ -21,8 +36,52 @@ import nl.ou.refd.plugin.ui.EclipseUtil;
  */
 public class Controller extends AbstractUIPlugin {
 
+	/**
+	 * The identifier of the plugin.
+	 */
+	public static final String PLUGIN_ID = "RefD";
+	
+	/**
+	 * The default maximum number of markers placed for a single detector during one analysis.
+	 */
+	public static final int DEFAULT_MAX_MARKERS_PER_DETECTOR = 100;
+	
+	/**
+	 * The directory in the state location of the plugin holding the library summaries.
+	 */
+	public static final String LIBRARY_SUMMARY_DIRECTORY = "summaries";
+	
+	/**
+	 * The directory in the state location of the plugin the traces of analyses are written to.
+	 */
+	public static final String TRACE_DIRECTORY = "traces";
+	
+	/**
+	 * The directory in the state location of the plugin graph queries are captured into.
+	 */
+	public static final String QUERY_LOG_DIRECTORY = "queries";
+	
+	/**
+	 * The directory in the state location of the plugin the program graph is exported to.
+	 */
+	public static final String EXPORT_DIRECTORY = "exports";
+	
+	/**
+	 * The preference holding the maximum number of markers placed for a single detector during one analysis.
+	 */
+	public static final String MAX_MARKERS_PREFERENCE = "maxMarkersPerDetector";
+	
+	/**
+	 * The preference holding whether analyses are live.
+	 */
+	public static final String LIVE_PREFERENCE = "live";
+	
 	private static Controller controller;
 	
+	private int maxMarkersPerDetector = DEFAULT_MAX_MARKERS_PER_DETECTOR;
+	private boolean live;
+	private final Map<IProject, LiveAnalysis> liveAnalyses = new HashMap<IProject, LiveAnalysis>();
+	
 	/**
 	 * Singleton of controller.
 	 * @return
@@ -34,24 +93,46 @@ public class Controller extends AbstractUIPlugin {
 	/**
 	 * Standard method to start Eclipse plugin. This gets called before
 	 * internal methods of the plugin, so it initialized the singleton
-	 * of controller as well.
+	 * of controller as well. The library summaries in the state location
+	 * of the plugin are registered, the settings are read from the preferences
+	 * of the plugin, and graph queries are captured if the query log property
+	 * names a directory.
 	 */
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		controller = this;
+		getPreferenceStore().setDefault(MAX_MARKERS_PREFERENCE, DEFAULT_MAX_MARKERS_PER_DETECTOR);
+		this.maxMarkersPerDetector = getPreferenceStore().getInt(MAX_MARKERS_PREFERENCE);
+		this.live = getPreferenceStore().getBoolean(LIVE_PREFERENCE);
+		LibrarySummaries.getInstance().registerAll(getStateLocation().append(LIBRARY_SUMMARY_DIRECTORY).toFile().toPath());
+		
+		String queryLogDirectory = System.getProperty(QueryLog.LOG_PROPERTY);
+		
+		if (queryLogDirectory != null) {
+			try {
+				QueryLog.getInstance().start(Paths.get(queryLogDirectory));
+			}
+			catch (UncheckedIOException e) {
+				log(IStatus.ERROR, "Could not capture graph queries into " + queryLogDirectory, e);
+			}
+		}
 	}
 
 	/**
-	 * Standard method to stop Eclipse plugin.
+	 * Standard method to stop Eclipse plugin. Live analyses are stopped, the
+	 * MBeans exposing the analysis metrics are unregistered and the query log is closed.
 	 */
 	public void stop(BundleContext context) throws Exception {
+		stopLiveAnalyses();
+		AnalysisMetrics.getInstance().unregisterAll();
+		QueryLog.getInstance().stop();
 		controller = null;
 		super.stop(context);
 	}
 	
 	/**
 	 * Start a refactoring analysis for the Pull Up Method refactoring.
-	 * This method starts a new thread to not block the program during analysis.
+	 * The analysis runs as a cancellable background job to not block the program during analysis.
 	 * @param target the method to pull up
 	 * @param destination the class to pull target up to
 	 * @throws NoActiveProjectException 
@@ -59,19 +140,27 @@ public class Controller extends AbstractUIPlugin {
 	public void pullUpMethod(MethodSpecification target, ClassSpecification destination) throws NoActiveProjectException {
 		final IProject project = EclipseUtil.currentProject();
 		
-		new Thread(new Runnable() {
-			
-			@Override
-			public void run() {
-				PullUpMethod refactoring = new PullUpMethod(target, destination);
-				new DangerAnalyser(refactoring).analyse().forEach(danger -> danger.mark(new MarkerCreator(project)::defaultMarker));
-			}
-		}).start();
+		analyse("Pull Up Method analysis", project, () -> new PullUpMethod(target, destination));
+	}
+	
+	/**
+	 * Start a comparison of the Pull Up Method refactoring for a number of destinations.
+	 * The refactoring is analysed for every destination in one pass, after which the
+	 * dangers per destination are shown. The comparison runs as a cancellable background job.
+	 * @param target the method to pull up
+	 * @param destinations the classes to compare pulling target up to
+	 * @throws NoActiveProjectException 
+	 */
+	public void comparePullUpMethodDestinations(MethodSpecification target, List<ClassSpecification> destinations) throws NoActiveProjectException {
+		final IProject project = EclipseUtil.currentProject();
+		
+		new DestinationComparisonJob("Pull Up Method destination comparison", project,
+				() -> new DestinationComparison(destination -> new PullUpMethod(target, destination), destinations)).schedule();
 	}
 	
 	/**
 	 * Start a refactoring analysis for the Combine Methods into Class refactoring.
-	 * This method starts a new thread to not block the program during analysis.
+	 * The analysis runs as a cancellable background job to not block the program during analysis.
 	 * @param targets the methods to move to the new class
 	 * @param destination the new class to combine the targets into
 	 * @throws NoActiveProjectException 
@@ -79,13 +168,193 @@ public class Controller extends AbstractUIPlugin {
 	public void combineMethodsIntoClass(List<MethodSpecification> targets, ClassSpecification destination) throws NoActiveProjectException {
 		final IProject project = EclipseUtil.currentProject();
 		
-		new Thread(new Runnable() {
-			
-			@Override
-			public void run() {
-				CombineMethodsIntoClass refactoring = new CombineMethodsIntoClass(destination, targets);
-				new DangerAnalyser(refactoring).analyse().forEach(danger -> danger.mark(new MarkerCreator(project)::defaultMarker));
-			}
-		}).start();
+		analyse("Combine Methods into Class analysis", project, () -> new CombineMethodsIntoClass(destination, targets));
+	}
+	
+	/**
+	 * Start an export of the program graph to a new file in the exports directory in
+	 * the state location of the plugin, which can be imported headlessly by GraphExport.
+	 * The export runs as a background job, and not at the same time as an analysis.
+	 * @return the file the program graph is exported to
+	 */
+	public Path exportGraph() {
+		Path file = getStateLocation().append(EXPORT_DIRECTORY).append("graph-" + System.currentTimeMillis() + GraphExport.EXTENSION).toFile().toPath();
+		
+		new GraphExportJob(file).schedule();
+		return file;
+	}
+	
+	/**
+	 * Gets the maximum number of markers placed for a single detector during one analysis.
+	 * @return the maximum number of markers per detector, zero or less if not capped
+	 */
+	public int getMaxMarkersPerDetector() {
+		return maxMarkersPerDetector;
+	}
+	
+	/**
+	 * Sets the maximum number of markers placed for a single detector during one analysis.
+	 * @param maxMarkersPerDetector the maximum number of markers per detector. A value of
+	 * zero or less means the number of markers is not capped. The setting is kept in the
+	 * preferences of the plugin.
+	 */
+	public void setMaxMarkersPerDetector(int maxMarkersPerDetector) {
+		this.maxMarkersPerDetector = maxMarkersPerDetector;
+		getPreferenceStore().setValue(MAX_MARKERS_PREFERENCE, maxMarkersPerDetector);
+	}
+	
+	/**
+	 * Checks if analyses are live.
+	 * @return true if analyses are repeated when the project is edited
+	 */
+	public boolean isLive() {
+		return live;
+	}
+	
+	/**
+	 * Switches live analyses on or off. While analyses are live, the last analysis
+	 * started on a project is repeated whenever Java sources of the project are saved,
+	 * and its markers are kept up to date. Switching live analyses off stops the running ones.
+	 * The setting is kept in the preferences of the plugin.
+	 * @param live true to make analyses live
+	 */
+	public synchronized void setLive(boolean live) {
+		this.live = live;
+		getPreferenceStore().setValue(LIVE_PREFERENCE, live);
+		
+		if (!live) {
+			stopLiveAnalyses();
+		}
+	}
+	
+	/**
+	 * Checks if analyses are traced.
+	 * @return true if analyses are traced
+	 */
+	public boolean isTracing() {
+		return AnalysisTrace.getInstance().isEnabled();
+	}
+	
+	/**
+	 * Switches tracing of analyses on or off. While tracing is on, the trace of
+	 * every analysis is written to the traces directory in the state location of
+	 * the plugin, in the trace event format read by chrome://tracing and Perfetto.
+	 * @param tracing true to trace analyses
+	 */
+	public void setTracing(boolean tracing) {
+		AnalysisTrace.getInstance().setEnabled(tracing);
+	}
+	
+	/**
+	 * Checks if graph queries are captured.
+	 * @return true if graph queries are captured
+	 */
+	public boolean isCapturingQueries() {
+		return QueryLog.getInstance().isCapturing();
+	}
+	
+	/**
+	 * Switches capturing of graph queries on or off. Every capture is written to
+	 * a new directory in the queries directory in the state location of the plugin,
+	 * which can be replayed headlessly by QueryReplay. If the log cannot be created,
+	 * this is logged and queries are not captured.
+	 * @param capturing true to capture graph queries
+	 */
+	public void setCapturingQueries(boolean capturing) {
+		QueryLog log = QueryLog.getInstance();
+		
+		if (!capturing) {
+			log.stop();
+			return;
+		}
+		
+		try {
+			log.start(getStateLocation().append(QUERY_LOG_DIRECTORY).append(String.valueOf(System.currentTimeMillis())).toFile().toPath());
+		}
+		catch (UncheckedIOException e) {
+			log(IStatus.ERROR, "Could not capture graph queries", e);
+		}
+	}
+	
+	/**
+	 * Writes the trace of an analysis that has finished, if analyses are traced,
+	 * and clears the trace for the next analysis.
+	 * @param analysisName the name of the analysis, used in the name of the trace file
+	 */
+	void writeTrace(String analysisName) {
+		AnalysisTrace trace = AnalysisTrace.getInstance();
+		
+		if (!trace.isEnabled()) {
+			return;
+		}
+		
+		String fileName = analysisName.replaceAll("[^A-Za-z0-9]+", "-") + "-" + System.currentTimeMillis() + ".json";
+		
+		try {
+			trace.write(getStateLocation().append(TRACE_DIRECTORY).append(fileName).toFile().toPath());
+		}
+		catch (IOException e) {
+			log(IStatus.ERROR, "Could not write the trace of " + analysisName, e);
+		}
+		finally {
+			trace.clear();
+		}
+	}
+	
+	/**
+	 * Logs a problem of the plugin in the error log of Eclipse.
+	 * @param severity the severity of the problem, one of the severities of IStatus
+	 * @param message the description of the problem
+	 * @param exception the exception causing the problem, or null if there is none
+	 */
+	static void log(int severity, String message, Throwable exception) {
+		Controller controller = getController();
+		
+		if (controller != null) {
+			controller.getLog().log(new Status(severity, PLUGIN_ID, message, exception));
+		}
+	}
+	
+	/**
+	 * Starts the analysis of a refactoring on a project, live if analyses are live.
+	 * A live analysis replaces the live analysis running on the project before. The
+	 * live analysis itself checks if the refactoring can be repeated.
+	 * @param name the name of the analysis shown to the user
+	 * @param project the project to analyse the refactoring on
+	 * @param refactoring supplies the refactoring to analyse
+	 */
+	private synchronized void analyse(String name, IProject project, Supplier<Refactoring> refactoring) {
+		LiveAnalysis previous = this.liveAnalyses.remove(project);
+		
+		if (previous != null) {
+			previous.dispose();
+		}
+		
+		if (this.live) {
+			LiveAnalysis analysis = new LiveAnalysis(name, project, refactoring, this.maxMarkersPerDetector);
+			this.liveAnalyses.put(project, analysis);
+			analysis.start();
+			return;
+		}
+		
+		new AnalysisJob(name, project, refactoring, markerPlacer(project)).schedule();
+	}
+	
+	/**
+	 * Stops all live analyses, leaving their markers in place.
+	 */
+	private synchronized void stopLiveAnalyses() {
+		this.liveAnalyses.values().forEach(LiveAnalysis::dispose);
+		this.liveAnalyses.clear();
+	}
+	
+	/**
+	 * Creates the aggregator which places markers in the project while an analysis is
+	 * still running.
+	 * @param project the project to place markers in
+	 * @return the aggregator placing markers incrementally
+	 */
+	private IncrementalMarkerPlacer markerPlacer(IProject project) {
+		return new IncrementalMarkerPlacer(new MarkerCreator(project), this.maxMarkersPerDetector);
 	}
-}
\ No newline at end of file
+}
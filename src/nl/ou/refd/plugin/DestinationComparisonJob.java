@@ -0,0 +1,110 @@
+package nl.ou.refd.plugin;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.ensoftcorp.open.commons.ui.utilities.DisplayUtils;
+
+import nl.ou.refd.analysis.DestinationComparison;
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.locations.collections.LabeledLocationSet;
+import nl.ou.refd.locations.generators.ProjectView;
+import nl.ou.refd.locations.specifications.ClassSpecification;
+
+/**
+ * Eclipse job which compares the dangers of a refactoring for a number of candidate
+ * destinations in the background. When the comparison is done, a table with the
+ * number of dangers per detector for every destination is shown. No markers are placed.
+ */
+class DestinationComparisonJob extends Job {
+
+	private final IProject project;
+	private final Supplier<DestinationComparison> comparison;
+
+	/**
+	 * Creates the comparison job. The comparison is created when the job runs.
+	 * @param name the name of the job shown to the user
+	 * @param project the project the comparison runs on
+	 * @param comparison supplies the comparison to run
+	 */
+	public DestinationComparisonJob(String name, IProject project, Supplier<DestinationComparison> comparison) {
+		super(name);
+		this.project = project;
+		this.comparison = comparison;
+
+		setRule(new AnalysisSchedulingRule());
+		setPriority(Job.LONG);
+		setUser(true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		try {
+			ProjectView.activate(this.project.getName());
+			AnalysisTrace.getInstance().clear();
+			DestinationComparison comparison = this.comparison.get();
+			Map<ClassSpecification, List<LabeledLocationSet>> dangers = comparison.analyse(monitor);
+			DisplayUtils.showMessage(table(dangers) + "\n\nDetector results reused between destinations: " + comparison.getReusedResults());
+			return Status.OK_STATUS;
+		}
+		catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		}
+		finally {
+			Controller controller = Controller.getController();
+			
+			if (controller != null) {
+				controller.writeTrace(getName());
+			}
+			
+			monitor.done();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == AnalysisJob.FAMILY;
+	}
+
+	/**
+	 * Formats the dangers found per destination as a table, with one row per destination
+	 * listing the total number of dangers and the number of dangers per detector.
+	 * @param dangers the dangers found per destination
+	 * @return the formatted table
+	 */
+	private static String table(Map<ClassSpecification, List<LabeledLocationSet>> dangers) {
+		StringBuilder table = new StringBuilder("Dangers per destination:\n");
+
+		for (Map.Entry<ClassSpecification, List<LabeledLocationSet>> destination : dangers.entrySet()) {
+			Map<String, Long> perDetector = new LinkedHashMap<String, Long>();
+			long total = 0;
+
+			for (LabeledLocationSet set : destination.getValue()) {
+				String[] splitLabel = set.getLabel().split("\\.");
+				perDetector.merge(splitLabel[splitLabel.length-1].replace("$", " - "), set.size(), Long::sum);
+				total += set.size();
+			}
+
+			table.append("\n").append(destination.getKey()).append(": ").append(total);
+			perDetector.forEach((detector, count) -> table.append("\n    ").append(detector).append(": ").append(count));
+		}
+
+		return table.toString();
+	}
+
+}
@@ -0,0 +1,58 @@
+package nl.ou.refd.plugin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.ensoftcorp.open.commons.ui.utilities.DisplayUtils;
+
+import nl.ou.refd.locations.graph.GraphExport;
+
+/**
+ * Eclipse job which exports the program graph to a file in the background. The
+ * export does not run at the same time as an analysis, which would change the
+ * program graph while it is written.
+ */
+class GraphExportJob extends Job {
+
+	private final Path file;
+
+	/**
+	 * Creates the export job.
+	 * @param file the file to export the program graph to
+	 */
+	public GraphExportJob(Path file) {
+		super("Program graph export");
+		this.file = file;
+		
+		setRule(new AnalysisSchedulingRule());
+		setPriority(Job.LONG);
+		setUser(true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		try {
+			Files.createDirectories(this.file.getParent());
+			GraphExport.write(this.file);
+			DisplayUtils.showMessage("The program graph was exported to " + this.file);
+			return Status.OK_STATUS;
+		}
+		catch (IOException | UncheckedIOException e) {
+			return new Status(IStatus.ERROR, Controller.PLUGIN_ID, "Could not export the program graph to " + this.file, e);
+		}
+		finally {
+			monitor.done();
+		}
+	}
+
+}
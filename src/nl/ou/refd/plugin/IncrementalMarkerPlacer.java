@@ -0,0 +1,61 @@
+package nl.ou.refd.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import nl.ou.refd.analysis.DangerAggregator;
+import nl.ou.refd.locations.collections.LabeledLocationSet;
+
+/**
+ * Danger aggregator which places source markers as soon as dangers are
+ * found by a running analysis, instead of waiting for the analysis to finish.
+ * The number of markers placed for a single detector can be capped, so a
+ * detector with a very large result does not flood the problems view.
+ * The markers of each set of dangers are placed as one batch, and markers
+ * of earlier runs which were not found again are removed once the analysis
+ * is complete.
+ */
+class IncrementalMarkerPlacer implements DangerAggregator {
+
+	private final MarkerCreator markerCreator;
+	private final int maxMarkersPerDetector;
+	private final Map<String, Long> markersPlaced = new HashMap<String, Long>();
+
+	/**
+	 * Creates the marker placer.
+	 * @param markerCreator the marker creator used to place the markers
+	 * @param maxMarkersPerDetector the maximum number of markers placed per detector.
+	 * A value of zero or less means the number of markers is not capped.
+	 */
+	public IncrementalMarkerPlacer(MarkerCreator markerCreator, int maxMarkersPerDetector) {
+		this.markerCreator = markerCreator;
+		this.maxMarkersPerDetector = maxMarkersPerDetector;
+	}
+
+	/**
+	 * Places markers for the given dangers, respecting the cap on the number
+	 * of markers of the detector the dangers were labeled by.
+	 */
+	@Override
+	public synchronized void aggregateDangers(LabeledLocationSet dangers) {
+		long placed = this.markersPlaced.getOrDefault(dangers.getLabel(), 0L);
+		long remaining = this.maxMarkersPerDetector > 0 ? this.maxMarkersPerDetector - placed : Long.MAX_VALUE;
+
+		if (remaining <= 0) {
+			return;
+		}
+
+		placed += dangers.mark(this.markerCreator::defaultMarker, remaining);
+		this.markersPlaced.put(dangers.getLabel(), placed);
+		this.markerCreator.flush();
+	}
+
+	/**
+	 * Completes the placement of markers after the analysis finished, removing
+	 * the markers of earlier runs which were not found again.
+	 */
+	public synchronized void complete() {
+		this.markerCreator.finish();
+	}
+
+}
@@ -0,0 +1,229 @@
+package nl.ou.refd.plugin;
+
+import java.util.function.Supplier;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.ensoftcorp.open.commons.ui.utilities.DisplayUtils;
+import com.ensoftcorp.open.commons.utilities.MappingUtils;
+
+import nl.ou.refd.analysis.DangerAnalyser;
+import nl.ou.refd.analysis.metrics.AnalysisTrace;
+import nl.ou.refd.analysis.refactorings.Refactoring;
+import nl.ou.refd.locations.generators.ProjectView;
+import nl.ou.refd.locations.graph.Graph;
+
+/**
+ * Eclipse job which keeps the danger markers of a refactoring analysis up to date
+ * while the project is edited. The analysis runs once when the job is started, and
+ * again shortly after Java sources of the project are saved, added or removed.
+ * Before it runs again, the workspace is mapped again, which replaces all program
+ * locations of the program graph, so every run analyses the whole refactoring
+ * again. The markers are updated from the difference with the markers already
+ * placed.
+ *
+ * The analysis leaves the program graph as it was, so it can be repeated on it.
+ * A refactoring which cannot be analysed in that way, as checked by
+ * DangerAnalyser.canRestore() when the job runs, is analysed once, after which
+ * the job stops listening for changes.
+ */
+class LiveAnalysis extends Job implements IResourceChangeListener {
+
+	/**
+	 * The family all live analysis jobs belong to.
+	 */
+	public static final Object FAMILY = LiveAnalysis.class;
+
+	/**
+	 * The time in milliseconds the analysis waits after a change, so a series of saves runs it only once.
+	 */
+	public static final long CHANGE_DELAY = 750;
+
+	private final IProject project;
+	private final Supplier<Refactoring> refactoring;
+	private final int maxMarkersPerDetector;
+
+	private boolean changed;
+	private volatile boolean disposed;
+
+	/**
+	 * Creates the live analysis job. The refactoring is created every time the job
+	 * runs, because creating a refactoring already queries the program graph.
+	 * @param name the name of the job shown to the user
+	 * @param project the project the analysis runs on
+	 * @param refactoring supplies the refactoring to analyse
+	 * @param maxMarkersPerDetector the maximum number of markers placed per detector,
+	 * zero or less if not capped
+	 */
+	public LiveAnalysis(String name, IProject project, Supplier<Refactoring> refactoring, int maxMarkersPerDetector) {
+		super(name);
+		this.project = project;
+		this.refactoring = refactoring;
+		this.maxMarkersPerDetector = maxMarkersPerDetector;
+
+		setRule(new AnalysisSchedulingRule());
+		setPriority(Job.LONG);
+	}
+
+	/**
+	 * Gets the project the analysis runs on.
+	 * @return the project
+	 */
+	public IProject getProject() {
+		return this.project;
+	}
+
+	/**
+	 * Runs the analysis and starts listening for changes to the project.
+	 */
+	public void start() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+		schedule();
+	}
+
+	/**
+	 * Stops listening for changes to the project and cancels a pending analysis.
+	 * The markers placed so far are left in place.
+	 */
+	public void dispose() {
+		stopListening();
+		cancel();
+	}
+
+	/**
+	 * Stops listening for changes to the project, without cancelling the analysis.
+	 */
+	private void stopListening() {
+		this.disposed = true;
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+	}
+
+	/**
+	 * Checks if Java sources of the project were changed, added or removed, and
+	 * schedules the analysis if so. Changes to markers only are ignored, so placing
+	 * markers does not run the analysis again.
+	 */
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		if (this.disposed || event.getDelta() == null) {
+			return;
+		}
+
+		boolean[] changed = new boolean[1];
+
+		try {
+			event.getDelta().accept(delta -> {
+				if (delta.getResource().getProject() != null && !this.project.equals(delta.getResource().getProject())) {
+					return false;
+				}
+
+				if (delta.getResource() instanceof IFile && "java".equals(delta.getResource().getFileExtension())
+						&& (delta.getKind() == IResourceDelta.ADDED || delta.getKind() == IResourceDelta.REMOVED
+						|| (delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0)) {
+					changed[0] = true;
+				}
+
+				return true;
+			});
+
+			synchronized (this) {
+				this.changed |= changed[0];
+			}
+		}
+		catch (CoreException e) {
+			Controller.log(IStatus.ERROR, "The changes to " + this.project.getName() + " could not be read for " + getName(), e);
+		}
+
+		if (changed[0]) {
+			schedule(CHANGE_DELAY);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		boolean changed;
+
+		synchronized (this) {
+			changed = this.changed;
+			this.changed = false;
+		}
+
+		try {
+			if (this.disposed) {
+				return Status.CANCEL_STATUS;
+			}
+
+			if (changed) {
+				try {
+					remap();
+				}
+				catch (Exception e) {
+					return new Status(IStatus.ERROR, Controller.PLUGIN_ID, "The workspace could not be mapped again for " + getName(), e);
+				}
+			}
+
+			ProjectView.activate(this.project.getName());
+			AnalysisTrace.getInstance().clear();
+
+			IncrementalMarkerPlacer markerPlacer = new IncrementalMarkerPlacer(new MarkerCreator(this.project), this.maxMarkersPerDetector);
+			DangerAnalyser analyser = new DangerAnalyser(this.refactoring.get());
+
+			if (analyser.canRestore()) {
+				analyser.analyseAndRestore(markerPlacer, monitor);
+			}
+			else {
+				stopListening();
+				DisplayUtils.showMessage(getName() + " cannot be repeated live, as the refactoring removes methods before its final step. It is analysed once.");
+				analyser.analyse(markerPlacer, monitor);
+			}
+
+			markerPlacer.complete();
+			return Status.OK_STATUS;
+		}
+		catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		}
+		finally {
+			Controller controller = Controller.getController();
+
+			if (controller != null) {
+				controller.writeTrace(getName());
+			}
+
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Maps the workspace again after a change, and lets the caches of the program
+	 * graph drop the program locations of the previous mapping.
+	 * @throws Exception if the workspace could not be mapped
+	 */
+	private void remap() throws Exception {
+		MappingUtils.mapWorkspace();
+		Graph.getInstance().invalidate();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == FAMILY;
+	}
+
+}
@@ -1,11 +1,22 @@
 package nl.ou.refd.plugin;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 
 import nl.ou.refd.locations.collections.LabeledLocationSet.SourceCorrespondence;
@@ -13,13 +24,26 @@ import nl.ou.refd.locations.collections.LabeledLocationSet.SourceCorrespondence;
 /**
  * Central class to place source markers in a project. These markers show up
  * in the problems section of the Eclipse environment.
+ *
+ * One marker creator is used for one analysis run. Markers are not created
+ * directly, but collected and applied in batches by flush(), each batch inside
+ * a single workspace operation. The markers of a run are diffed against the
+ * markers already present in the project, keyed by file, offset, length and
+ * label, so markers which are found again are left untouched. When the run is
+ * finished, finish() removes the markers of earlier runs which were not found
+ * again.
  */
 class MarkerCreator {
-	
+
 	private final static String MARKER_TYPE = "nl.ou.refd.markers.dangerMarker";
-	
+	private final static String LABEL_ATTRIBUTE = "nl.ou.refd.markers.label";
+
 	private final IProject project;
-	
+
+	private final Map<MarkerKey, Map<String, Object>> pending = new LinkedHashMap<MarkerKey, Map<String, Object>>();
+	private final Set<MarkerKey> produced = new HashSet<MarkerKey>();
+	private Map<MarkerKey, IMarker> existing;
+
 	/**
 	 * Central class to place source markers in a project. These markers show up
 	 * in the problems section of the Eclipse environment.
@@ -32,35 +56,185 @@ class MarkerCreator {
 
 	/**
 	 * Place a default marker on a location in the project. Default markers show up as
-	 * information markers, meaning they are neither an error, nor a warning.
+	 * information markers, meaning they are neither an error, nor a warning. The marker
+	 * is placed by the next call to flush().
 	 * @param label the label (description) for the marker
 	 * @param location the location within the project
 	 * @param sc the source file and location in this file. If sc is null, the entire
 	 * project is chosen as correspondence.
 	 */
-	public void defaultMarker(String label, String location, SourceCorrespondence sc) {
-		try {
-			List<String> splitLabel = Arrays.asList(label.split("\\."));
-			
-			IMarker marker;
-			
-			if (sc != null) {
-				marker = project.getFile(new Path(sc.filePath)).createMarker(MARKER_TYPE);
-				marker.setAttribute(IMarker.CHAR_START, sc.offset);
-				marker.setAttribute(IMarker.CHAR_END, sc.offset + sc.length);
+	public synchronized void defaultMarker(String label, String location, SourceCorrespondence sc) {
+		List<String> splitLabel = Arrays.asList(label.split("\\."));
+
+		Map<String, Object> attributes = new HashMap<String, Object>();
+
+		if (sc != null) {
+			attributes.put(IMarker.CHAR_START, sc.offset);
+			attributes.put(IMarker.CHAR_END, sc.offset + sc.length);
+		}
+
+		attributes.put(IMarker.SEVERITY, IMarker.SEVERITY_INFO);
+		attributes.put(IMarker.MESSAGE, splitLabel.get(splitLabel.size()-1).replace("$", " - "));
+		attributes.put(IMarker.PRIORITY, IMarker.PRIORITY_HIGH);
+		attributes.put(IMarker.LOCATION, location);
+		attributes.put(LABEL_ATTRIBUTE, label);
+
+		MarkerKey key = sc != null
+				? new MarkerKey(sc.filePath, sc.offset, sc.length, label)
+				: new MarkerKey("", -1, -1, label);
+
+		if (this.produced.add(key)) {
+			this.pending.put(key, attributes);
+		}
+	}
+
+	/**
+	 * Places the markers collected since the last flush in a single workspace
+	 * operation. Markers which are already present in the project are not placed again.
+	 */
+	public synchronized void flush() {
+		if (this.pending.isEmpty()) {
+			return;
+		}
+
+		Map<MarkerKey, Map<String, Object>> batch = new LinkedHashMap<MarkerKey, Map<String, Object>>(this.pending);
+		this.pending.clear();
+
+		run(monitor -> {
+			Map<MarkerKey, IMarker> present = existingMarkers();
+
+			placeMarkers(batch, present);
+		});
+	}
+
+	/**
+	 * Finishes the analysis run: places the remaining collected markers and removes
+	 * the markers of earlier runs which were not found again in this run, all in a
+	 * single workspace operation.
+	 */
+	public synchronized void finish() {
+		Map<MarkerKey, Map<String, Object>> batch = new LinkedHashMap<MarkerKey, Map<String, Object>>(this.pending);
+		this.pending.clear();
+
+		run(monitor -> {
+			Map<MarkerKey, IMarker> present = existingMarkers();
+
+			for (Map.Entry<MarkerKey, IMarker> entry : present.entrySet()) {
+				if (!this.produced.contains(entry.getKey())) {
+					entry.getValue().delete();
+				}
+			}
+
+			placeMarkers(batch, present);
+		});
+	}
+
+	/**
+	 * Places the markers of a batch which are not already present in the project.
+	 * Each marker is created with all its attributes in a single call.
+	 * @param batch the markers to place, keyed by file, offset, length and label
+	 * @param present the markers already present in the project
+	 * @throws CoreException if a marker could not be created
+	 */
+	private void placeMarkers(Map<MarkerKey, Map<String, Object>> batch, Map<MarkerKey, IMarker> present) throws CoreException {
+		for (Map.Entry<MarkerKey, Map<String, Object>> entry : batch.entrySet()) {
+			if (present.containsKey(entry.getKey())) {
+				continue;
 			}
-			else {
-				marker = project.createMarker(MARKER_TYPE);
+
+			IResource resource = entry.getKey().filePath.isEmpty()
+					? project
+					: project.getFile(new Path(entry.getKey().filePath));
+			resource.createMarker(MARKER_TYPE).setAttributes(entry.getValue());
+		}
+	}
+
+	/**
+	 * Gets the markers which were present in the project before this run placed
+	 * any markers, keyed by file, offset, length and label. The markers are read
+	 * from the project only once.
+	 * @return the markers present before this run
+	 * @throws CoreException if the markers of the project could not be read
+	 */
+	private Map<MarkerKey, IMarker> existingMarkers() throws CoreException {
+		if (this.existing == null) {
+			this.existing = new HashMap<MarkerKey, IMarker>();
+
+			for (IMarker marker : project.findMarkers(MARKER_TYPE, true, IResource.DEPTH_INFINITE)) {
+				int start = marker.getAttribute(IMarker.CHAR_START, -1);
+				int end = marker.getAttribute(IMarker.CHAR_END, -1);
+
+				this.existing.put(new MarkerKey(
+						marker.getResource().getProjectRelativePath().toString(),
+						start,
+						start < 0 ? -1 : end - start,
+						marker.getAttribute(LABEL_ATTRIBUTE, "")), marker);
 			}
-			
-			marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_INFO);
-			marker.setAttribute(IMarker.MESSAGE, splitLabel.get(splitLabel.size()-1).replace("$", " - "));
-			marker.setAttribute(IMarker.PRIORITY, IMarker.PRIORITY_HIGH);
-			marker.setAttribute(IMarker.LOCATION, location);
+		}
+
+		return this.existing;
+	}
+
+	/**
+	 * Runs a marker update as one workspace operation, so resource change
+	 * notifications are sent once for the whole update.
+	 * @param update the marker update to run
+	 */
+	private void run(IWorkspaceRunnable update) {
+		try {
+			ResourcesPlugin.getWorkspace().run(update, null, IWorkspace.AVOID_UPDATE, null);
 		} catch (CoreException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			Controller.log(IStatus.ERROR, "Could not update the danger markers of " + this.project.getName(), e);
 		}
 	}
-	
+
+	/**
+	 * Key identifying a danger marker by the file, offset, length and label
+	 * it was placed with.
+	 */
+	private static class MarkerKey {
+		private final String filePath;
+		private final int offset;
+		private final int length;
+		private final String label;
+
+		/**
+		 * Creates the marker key.
+		 * @param filePath the project relative path of the file, empty for the project itself
+		 * @param offset the offset of the marker in the file, -1 for the project itself
+		 * @param length the length of the marker in the file, -1 for the project itself
+		 * @param label the label the marker was placed with
+		 */
+		MarkerKey(String filePath, int offset, int length, String label) {
+			this.filePath = filePath;
+			this.offset = offset;
+			this.length = length;
+			this.label = label;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof MarkerKey)) {
+				return false;
+			}
+
+			MarkerKey other = (MarkerKey)obj;
+			return this.offset == other.offset
+					&& this.length == other.length
+					&& this.filePath.equals(other.filePath)
+					&& this.label.equals(other.label);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return Objects.hash(filePath, offset, length, label);
+		}
+	}
+
 }
@@ -14,6 +14,7 @@ import com.ensoftcorp.open.commons.utilities.MappingUtils;
 
 import nl.ou.refd.exceptions.NoActiveProjectException;
 import nl.ou.refd.locations.generators.ProjectProgramComponentsGenerator;
+import nl.ou.refd.locations.graph.Graph;
 import nl.ou.refd.locations.specifications.ClassSpecification;
 import nl.ou.refd.locations.specifications.MethodSpecification;
 import nl.ou.refd.locations.specifications.PackageSpecification;
@@ -35,6 +36,7 @@ public class CombineMethodsIntoClassButton extends MenuButtonHandler {
 	public void handle(ExecutionEvent event) {
 		try {
 			MappingUtils.mapWorkspace();
+			Graph.getInstance().invalidate();
 			Thread.sleep(1000);
 		} catch (Exception e) {
 			e.printStackTrace();
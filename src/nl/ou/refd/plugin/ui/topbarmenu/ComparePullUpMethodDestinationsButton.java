@@ -0,0 +1,75 @@
+package nl.ou.refd.plugin.ui.topbarmenu;
+
+import java.util.List;
+
+import org.eclipse.core.commands.ExecutionEvent;
+
+import com.ensoftcorp.open.commons.ui.utilities.DisplayUtils;
+import com.ensoftcorp.open.commons.utilities.MappingUtils;
+
+import nl.ou.refd.exceptions.NoActiveProjectException;
+import nl.ou.refd.locations.collections.MethodSet;
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.GraphQuery;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.SelectionUtil;
+import nl.ou.refd.locations.specifications.ClassSpecification;
+import nl.ou.refd.locations.specifications.MethodSpecification;
+import nl.ou.refd.locations.specifications.SpecificationBindings;
+import nl.ou.refd.plugin.Controller;
+
+/**
+ * Class representing the menu button for comparing all destinations of the
+ * Pull Up Method refactoring: the method is analysed for being pulled up to
+ * each of its superclasses at once. The presence of this button can be
+ * configured in plugin.xml.
+ */
+public class ComparePullUpMethodDestinationsButton extends MenuButtonHandler {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handle(ExecutionEvent event) {
+		GraphQuery selectedElement = SelectionUtil.getSelection();
+		
+		if (selectedElement.locationCount() < 1) {
+			DisplayUtils.showMessage("Error: No selection made");
+			return;
+		}
+		
+		ProgramLocation location = selectedElement.singleLocation();
+		
+		MethodSpecification methodSource = null;
+		
+		if (MethodSpecification.locationIsMethod(location)) {
+			methodSource = SpecificationBindings.getInstance().methodSpecification(location);
+		}
+		else {
+			DisplayUtils.showMessage("Error: Selection was not a method");
+			return;
+		}
+		
+		try {
+			MappingUtils.mapWorkspace();
+			Graph.getInstance().invalidate();
+			Thread.sleep(1000);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		
+		List<ClassSpecification> destinations = new MethodSet(methodSource).stream().parentClasses().allSuperClasses().collect().toLocationSpecifications();
+		
+		if (destinations.isEmpty()) {
+			DisplayUtils.showMessage("Error: Method has no superclass to pull up to");
+			return;
+		}
+		
+		try {
+			Controller.getController().comparePullUpMethodDestinations(methodSource, destinations);
+		} catch (NoActiveProjectException e) {
+			DisplayUtils.showMessage("Error: No active project");
+			return;
+		}
+	}
+}
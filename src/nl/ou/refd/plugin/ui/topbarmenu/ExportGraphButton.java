@@ -0,0 +1,21 @@
+package nl.ou.refd.plugin.ui.topbarmenu;
+
+import org.eclipse.core.commands.ExecutionEvent;
+
+import nl.ou.refd.plugin.Controller;
+
+/**
+ * Class representing the menu button for exporting the program graph, so it
+ * can be imported and queried outside the IDE. The presence of this button can
+ * be configured in plugin.xml.
+ */
+public class ExportGraphButton extends MenuButtonHandler {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handle(ExecutionEvent event) {
+		Controller.getController().exportGraph();
+	}
+}
@@ -0,0 +1,36 @@
+package nl.ou.refd.plugin.ui.topbarmenu;
+
+import org.eclipse.core.commands.ExecutionEvent;
+
+import com.ensoftcorp.open.commons.ui.utilities.DisplayUtils;
+
+import nl.ou.refd.plugin.Controller;
+
+/**
+ * Class representing the menu button for setting the maximum number of markers
+ * placed for a single detector during one analysis. The presence of this button
+ * can be configured in plugin.xml.
+ */
+public class MaxMarkersButton extends MenuButtonHandler {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handle(ExecutionEvent event) {
+		Controller controller = Controller.getController();
+		String maxMarkersString = DisplayUtils.promptString("Maximum Markers per Detector",
+				"Please provide the maximum number of markers placed for a single detector during one analysis, 0 to place all markers (currently " + controller.getMaxMarkersPerDetector() + ")");
+		
+		if (maxMarkersString == null) {
+			return;
+		}
+		
+		try {
+			controller.setMaxMarkersPerDetector(Integer.parseInt(maxMarkersString.trim()));
+		}
+		catch (NumberFormatException e) {
+			DisplayUtils.showMessage("Error: Maximum number of markers was not a number");
+		}
+	}
+}
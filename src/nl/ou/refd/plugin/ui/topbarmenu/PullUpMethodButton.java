@@ -10,11 +10,13 @@ import com.ensoftcorp.open.commons.utilities.MappingUtils;
 
 import nl.ou.refd.exceptions.NoActiveProjectException;
 import nl.ou.refd.locations.collections.MethodSet;
+import nl.ou.refd.locations.graph.Graph;
 import nl.ou.refd.locations.graph.GraphQuery;
 import nl.ou.refd.locations.graph.ProgramLocation;
 import nl.ou.refd.locations.graph.SelectionUtil;
 import nl.ou.refd.locations.specifications.ClassSpecification;
 import nl.ou.refd.locations.specifications.MethodSpecification;
+import nl.ou.refd.locations.specifications.SpecificationBindings;
 import nl.ou.refd.plugin.Controller;
 
 /**
@@ -40,7 +42,7 @@ public class PullUpMethodButton extends MenuButtonHandler {
 		MethodSpecification methodSource = null;
 		
 		if (MethodSpecification.locationIsMethod(location)) {
-			methodSource = new MethodSpecification(location);
+			methodSource = SpecificationBindings.getInstance().methodSpecification(location);
 		}
 		else {
 			DisplayUtils.showMessage("Error: Selection was not a method");
@@ -49,6 +51,7 @@ public class PullUpMethodButton extends MenuButtonHandler {
 		
 		try {
 			MappingUtils.mapWorkspace();
+			Graph.getInstance().invalidate();
 			Thread.sleep(1000);
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -0,0 +1,32 @@
+package nl.ou.refd.plugin.ui.topbarmenu;
+
+import org.eclipse.core.commands.ExecutionEvent;
+
+import com.ensoftcorp.open.commons.ui.utilities.DisplayUtils;
+
+import nl.ou.refd.plugin.Controller;
+
+/**
+ * Class representing the menu button for switching live analyses on or off.
+ * While analyses are live, the last analysis started on a project is repeated
+ * whenever Java sources of the project are saved. The presence of this button
+ * can be configured in plugin.xml.
+ */
+public class ToggleLiveAnalysisButton extends MenuButtonHandler {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handle(ExecutionEvent event) {
+		Controller controller = Controller.getController();
+		controller.setLive(!controller.isLive());
+
+		if (controller.isLive()) {
+			DisplayUtils.showMessage("Live analysis is on. The next analysis started on a project is repeated whenever its Java sources are saved.");
+		}
+		else {
+			DisplayUtils.showMessage("Live analysis is off. Running live analyses have been stopped.");
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package nl.ou.refd.plugin.ui.topbarmenu;
+
+import org.eclipse.core.commands.ExecutionEvent;
+
+import com.ensoftcorp.open.commons.ui.utilities.DisplayUtils;
+
+import nl.ou.refd.plugin.Controller;
+
+/**
+ * Class representing the menu button for switching capturing of graph queries
+ * on or off. Every capture is written to a new directory in the queries directory
+ * in the state location of the plugin. The presence of this button can be
+ * configured in plugin.xml.
+ */
+public class ToggleQueryCaptureButton extends MenuButtonHandler {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handle(ExecutionEvent event) {
+		Controller controller = Controller.getController();
+		boolean capturing = !controller.isCapturingQueries();
+		controller.setCapturingQueries(capturing);
+
+		if (controller.isCapturingQueries()) {
+			DisplayUtils.showMessage("Graph queries are captured into the " + Controller.QUERY_LOG_DIRECTORY + " directory in the state location of the plugin.");
+		}
+		else if (capturing) {
+			DisplayUtils.showMessage("Error: Graph queries could not be captured, see the error log");
+		}
+		else {
+			DisplayUtils.showMessage("Graph queries are no longer captured.");
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package nl.ou.refd.plugin.ui.topbarmenu;
+
+import org.eclipse.core.commands.ExecutionEvent;
+
+import com.ensoftcorp.open.commons.ui.utilities.DisplayUtils;
+
+import nl.ou.refd.plugin.Controller;
+
+/**
+ * Class representing the menu button for switching tracing of analyses on or
+ * off. While tracing is on, the trace of every analysis is written to the traces
+ * directory in the state location of the plugin. The presence of this button
+ * can be configured in plugin.xml.
+ */
+public class ToggleTracingButton extends MenuButtonHandler {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handle(ExecutionEvent event) {
+		Controller controller = Controller.getController();
+		controller.setTracing(!controller.isTracing());
+
+		if (controller.isTracing()) {
+			DisplayUtils.showMessage("Tracing of analyses is on. Traces are written to the " + Controller.TRACE_DIRECTORY + " directory in the state location of the plugin.");
+		}
+		else {
+			DisplayUtils.showMessage("Tracing of analyses is off.");
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package nl.ou.refd.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import nl.ou.refd.analysis.detectors.BrokenLocalReferences;
+import nl.ou.refd.analysis.detectors.BrokenSubTyping;
+import nl.ou.refd.analysis.detectors.CorrespondingSubclassSpecification;
+import nl.ou.refd.analysis.detectors.Detector;
+import nl.ou.refd.analysis.detectors.DoubleDefinition;
+import nl.ou.refd.analysis.detectors.LostSpecification;
+import nl.ou.refd.analysis.detectors.MissingAbstractImplementation;
+import nl.ou.refd.analysis.detectors.MissingDefinition;
+import nl.ou.refd.analysis.detectors.MissingSuperImplementation;
+import nl.ou.refd.analysis.detectors.OverloadParameterConversion;
+import nl.ou.refd.analysis.detectors.RemovedConcreteOverride;
+import nl.ou.refd.analysis.microsteps.AddClass;
+import nl.ou.refd.analysis.refactorings.Refactoring;
+import nl.ou.refd.locations.collections.LabeledLocationSet;
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.specifications.ClassSpecification;
+import nl.ou.refd.locations.specifications.LocationSpecification.AccessModifier;
+import nl.ou.refd.locations.specifications.PackageSpecification;
+
+/**
+ * Tests for the DangerAnalyser, checking that microsteps are analysed one after
+ * another, and that their dangers are reported in order and pushed to the
+ * subscriber as they are found. The microsteps add classes to a simulated program
+ * instead of the program graph, and their detectors report whether the class they
+ * check already exists in it.
+ */
+class DangerAnalyserTest {
+
+	private static final String[] CLASSES = {"A", "B", "C", "A", "D", "B", "E", "F", "A"};
+
+	@Test
+	void laterMicrostepsSeeTheClassesAddedBefore() {
+		List<String> labels = new ArrayList<String>();
+		new DangerAnalyser(new SimulatedRefactoring(CLASSES)).analyse().forEach(dangers -> labels.add(dangers.getLabel()));
+
+		assertEquals(List.of("A new", "B new", "C new", "A exists", "D new", "B exists", "E new", "F new", "A exists"), labels);
+	}
+
+	@Test
+	void dangersArePushedToTheSubscriberInOrder() {
+		List<String> pushed = new ArrayList<String>();
+		List<LabeledLocationSet> dangers = new DangerAnalyser(new SimulatedRefactoring(CLASSES))
+				.analyse(found -> pushed.add(found.getLabel()));
+
+		List<String> labels = new ArrayList<String>();
+		dangers.forEach(found -> labels.add(found.getLabel()));
+		assertEquals(labels, pushed);
+	}
+
+	/**
+	 * Refactoring adding classes to a simulated program, one class per microstep.
+	 */
+	private static final class SimulatedRefactoring extends Refactoring {
+
+		private final Set<String> program = Collections.synchronizedSet(new HashSet<String>());
+		private final Map<Detector<?>, String> checkedClasses = new HashMap<Detector<?>, String>();
+
+		/**
+		 * Creates the refactoring.
+		 * @param classNames the names of the classes to add, in order
+		 */
+		private SimulatedRefactoring(String... classNames) {
+			for (String className : classNames) {
+				SimulatedAddClass microstep = new SimulatedAddClass(className, this.program);
+				microstep.getDetectors().forEach(detector -> this.checkedClasses.put(detector, className));
+				microstep(microstep);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public VerdictFunction verdictFunction(DangerAggregator aggregator) {
+			return new VerdictFunction(aggregator) {
+
+				@Override
+				public void visit(DoubleDefinition.Class detector) {
+					String className = checkedClasses.get(detector);
+					aggregator.aggregateDangers(new LabeledLocationSet(new HashSet<ProgramLocation>(),
+							className + (program.contains(className) ? " exists" : " new")));
+				}
+
+				@Override
+				public void visit(BrokenLocalReferences.Body detector) {}
+
+				@Override
+				public void visit(BrokenSubTyping.Method detector) {}
+
+				@Override
+				public void visit(CorrespondingSubclassSpecification.Method detector) {}
+
+				@Override
+				public void visit(DoubleDefinition.Method detector) {}
+
+				@Override
+				public void visit(LostSpecification.Method detector) {}
+
+				@Override
+				public void visit(MissingAbstractImplementation.Method detector) {}
+
+				@Override
+				public void visit(MissingDefinition.Method detector) {}
+
+				@Override
+				public void visit(MissingSuperImplementation.Method detector) {}
+
+				@Override
+				public void visit(OverloadParameterConversion.Method detector) {}
+
+				@Override
+				public void visit(RemovedConcreteOverride.Method detector) {}
+			};
+		}
+	}
+
+	/**
+	 * AddClass microstep adding its class to a simulated program instead of the program graph.
+	 */
+	private static final class SimulatedAddClass extends AddClass {
+
+		private final String className;
+		private final Set<String> program;
+
+		/**
+		 * Creates the microstep.
+		 * @param className the name of the class to add
+		 * @param program the names of the classes in the simulated program
+		 */
+		private SimulatedAddClass(String className, Set<String> program) {
+			super(new ClassSpecification(className, AccessModifier.PUBLIC, new PackageSpecification("simulated")));
+			this.className = className;
+			this.program = program;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void executeOnGraph(Graph graph) {
+			Thread.yield();
+			this.program.add(this.className);
+		}
+	}
+
+}
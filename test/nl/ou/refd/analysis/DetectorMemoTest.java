@@ -0,0 +1,69 @@
+package nl.ou.refd.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+import nl.ou.refd.locations.collections.LocationSet;
+import nl.ou.refd.locations.collections.MethodSet;
+import nl.ou.refd.locations.graph.ProgramLocation;
+
+/**
+ * Tests for the DetectorMemo, which shares detector results between microsteps
+ * and between the analyses of the destinations of a refactoring.
+ */
+class DetectorMemoTest {
+
+	private static final LocationSet RESULT = new MethodSet(new HashSet<ProgramLocation>());
+
+	@Test
+	void resultIsKeptUntilAnOverlappingWrite() {
+		DetectorMemo memo = new DetectorMemo();
+		memo.store("key", RESULT, new Footprint().withMember("Source", "method"));
+
+		memo.invalidate(new Footprint().withMember("Destination", "method"));
+		assertSame(RESULT, memo.lookup("key"));
+
+		memo.invalidate(new Footprint().withClass("Source"));
+		assertNull(memo.lookup("key"));
+	}
+
+	@Test
+	void resultsOfEarlierAnalysesCountAsReused() {
+		DetectorMemo memo = new DetectorMemo();
+
+		memo.beginAnalysis();
+		memo.store("source", RESULT, new Footprint().withMember("Source", "method"));
+		memo.lookup("source");
+		assertEquals(0, memo.getReusedHits());
+
+		memo.beginAnalysis();
+		memo.store("destination", RESULT, new Footprint().withMember("Destination", "method"));
+		assertSame(RESULT, memo.lookup("source"));
+		assertSame(RESULT, memo.lookup("destination"));
+
+		assertEquals(3, memo.getHits());
+		assertEquals(1, memo.getReusedHits());
+	}
+
+	@Test
+	void onlyWritesOfExecutedMicrostepsDropSharedResults() {
+		DetectorMemo memo = new DetectorMemo();
+		Footprint addedToDestination = new Footprint().withMember("Destination", "method");
+
+		// The detectors of removing the source method, which is never executed.
+		memo.store("removeMethod", RESULT, new Footprint().withMember("Source", "method").withDeclaration("Destination"));
+		// A detector which read the destination while the method was added to it.
+		memo.store("addMethod", RESULT, new Footprint().withClass("Destination"));
+
+		memo.invalidate(addedToDestination);
+
+		assertSame(RESULT, memo.lookup("removeMethod"));
+		assertNull(memo.lookup("addMethod"));
+	}
+
+}
@@ -0,0 +1,110 @@
+package nl.ou.refd.analysis.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for AnalysisMetrics and the OperationMetrics it registers as MBeans.
+ */
+class AnalysisMetricsTest {
+
+	@AfterEach
+	void unregister() {
+		AnalysisMetrics.getInstance().unregisterAll();
+	}
+
+	@Test
+	void invocationsAreSummed() {
+		OperationMetrics metrics = new OperationMetrics();
+
+		metrics.record(500, 2, 1);
+		metrics.record(2_000_000, 4, 3);
+
+		assertEquals(2, metrics.getInvocations());
+		assertEquals(2_000_500, metrics.getTotalTimeNanos());
+		assertEquals(1_000_250, metrics.getMeanTimeNanos());
+		assertEquals(2_000_000, metrics.getMaxTimeNanos());
+		assertEquals(6, metrics.getInputCardinality());
+		assertEquals(4, metrics.getOutputCardinality());
+		assertEquals(3.0, metrics.getMeanInputCardinality(), 0);
+		assertEquals(2.0, metrics.getMeanOutputCardinality(), 0);
+	}
+
+	@Test
+	void latenciesAreCountedPerBucket() {
+		OperationMetrics metrics = new OperationMetrics();
+
+		metrics.record(1_000, 0, 0);
+		metrics.record(1_001, 0, 0);
+		metrics.record(2_000_000, 0, 0);
+		metrics.record(20_000_000_000L, 0, 0);
+
+		assertEquals(metrics.getLatencyBucketBoundsNanos().length + 1, metrics.getLatencyHistogram().length);
+		assertArrayEquals(new long[] {1, 1, 0, 0, 1, 0, 0, 0, 1}, metrics.getLatencyHistogram());
+	}
+
+	@Test
+	void cacheHitRatioIsTheShareOfHits() {
+		OperationMetrics metrics = new OperationMetrics();
+		assertEquals(0.0, metrics.getCacheHitRatio(), 0);
+
+		metrics.recordCacheLookup(true);
+		metrics.recordCacheLookup(true);
+		metrics.recordCacheLookup(true);
+		metrics.recordCacheLookup(false);
+
+		assertEquals(3, metrics.getCacheHits());
+		assertEquals(1, metrics.getCacheMisses());
+		assertEquals(0.75, metrics.getCacheHitRatio(), 0);
+	}
+
+	@Test
+	void resetClearsAllMetrics() {
+		OperationMetrics metrics = new OperationMetrics();
+		metrics.record(2_000_000, 4, 3);
+		metrics.recordCacheLookup(true);
+
+		metrics.reset();
+
+		assertEquals(0, metrics.getInvocations());
+		assertEquals(0, metrics.getMeanTimeNanos());
+		assertEquals(0, metrics.getMaxTimeNanos());
+		assertEquals(0, metrics.getInputCardinality());
+		assertEquals(0, metrics.getCacheHits());
+		assertArrayEquals(new long[metrics.getLatencyHistogram().length], metrics.getLatencyHistogram());
+	}
+
+	@Test
+	void metricsAreRegisteredAsMBeansPerOperation() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(AnalysisMetrics.DOMAIN + ":type=Subdetector,name=" + ObjectName.quote("AnalysisMetricsTest.Probe"));
+
+		OperationMetrics metrics = AnalysisMetrics.getInstance().metrics(AnalysisMetrics.Kind.SUBDETECTOR, Probe.class);
+		metrics.record(500, 2, 1);
+
+		assertSame(metrics, AnalysisMetrics.getInstance().metrics(AnalysisMetrics.Kind.SUBDETECTOR, "AnalysisMetricsTest.Probe"));
+		assertTrue(server.isRegistered(name));
+		assertEquals(1L, server.getAttribute(name, "Invocations"));
+
+		AnalysisMetrics.getInstance().unregisterAll();
+
+		assertFalse(server.isRegistered(name));
+	}
+
+	/**
+	 * Class standing in for an operation metrics are kept for.
+	 */
+	private static final class Probe {}
+
+}
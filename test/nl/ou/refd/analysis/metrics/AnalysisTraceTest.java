@@ -0,0 +1,119 @@
+package nl.ou.refd.analysis.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for AnalysisTrace, writing the spans it records in the trace event format.
+ */
+class AnalysisTraceTest {
+
+	private static final Pattern TIMES = Pattern.compile("\"ts\":([0-9.]+),\"dur\":([0-9.]+)");
+
+	private final AnalysisTrace trace = AnalysisTrace.getInstance();
+
+	@BeforeEach
+	void enable() {
+		this.trace.clear();
+		this.trace.setEnabled(true);
+	}
+
+	@AfterEach
+	void disable() {
+		this.trace.setEnabled(false);
+		this.trace.clear();
+	}
+
+	@Test
+	void disabledTraceRecordsNothing() throws IOException {
+		this.trace.setEnabled(false);
+
+		AnalysisTrace.Span span = this.trace.begin("detector", "name");
+		span.arg("size", 1).end();
+
+		assertSame(AnalysisTrace.Span.NONE, span);
+		assertFalse(span.isRecording());
+		assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n]}\n", write());
+	}
+
+	@Test
+	void spanIsWrittenWithItsCategoryNameAndArguments() throws IOException {
+		AnalysisTrace.Span span = this.trace.begin("detector", Probe.class);
+		assertTrue(span.isRecording());
+		span.arg("specification", "A.m()").arg("size", 3).arg("reused", false).end();
+
+		String written = write();
+
+		assertTrue(written.contains("{\"name\":\"AnalysisTraceTest.Probe\",\"cat\":\"detector\",\"ph\":\"X\",\"ts\":"), written);
+		assertTrue(written.contains(",\"args\":{\"specification\":\"A.m()\",\"size\":3,\"reused\":false}}"), written);
+		assertTrue(written.contains(",\"tid\":" + Thread.currentThread().getId()), written);
+	}
+
+	@Test
+	void stringsAreEscaped() throws IOException {
+		this.trace.begin("query", "a \"b\"\\c\nd").end();
+
+		assertTrue(write().contains("\"name\":\"a \\\"b\\\"\\\\c\\u000ad\""));
+	}
+
+	@Test
+	void nestedSpanLiesWithinItsParent() throws IOException {
+		AnalysisTrace.Span outer = this.trace.begin("microstep", "outer");
+		this.trace.begin("detector", "inner").end();
+		outer.end();
+
+		List<double[]> times = new ArrayList<double[]>();
+		Matcher matcher = TIMES.matcher(write());
+
+		while (matcher.find()) {
+			times.add(new double[] {Double.parseDouble(matcher.group(1)), Double.parseDouble(matcher.group(2))});
+		}
+
+		assertEquals(2, times.size());
+		double[] inner = times.get(0), parent = times.get(1);
+		assertTrue(parent[0] <= inner[0]);
+		assertTrue(inner[0] + inner[1] <= parent[0] + parent[1]);
+	}
+
+	@Test
+	void clearDropsEarlierSpans() throws IOException {
+		this.trace.begin("detector", "before").end();
+		this.trace.clear();
+		this.trace.begin("detector", "after").end();
+
+		String written = write();
+
+		assertFalse(written.contains("\"before\""));
+		assertTrue(written.contains("\"after\""));
+	}
+
+	/**
+	 * Writes the trace to a string.
+	 * @return the written trace
+	 * @throws IOException if the trace cannot be written
+	 */
+	private String write() throws IOException {
+		StringWriter writer = new StringWriter();
+		this.trace.write(writer);
+		return writer.toString();
+	}
+
+	/**
+	 * Class standing in for an operation being traced.
+	 */
+	private static final class Probe {}
+
+}
@@ -0,0 +1,75 @@
+package nl.ou.refd.analysis.subdetectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nl.ou.refd.analysis.subdetectors.Constants.Types;
+
+/**
+ * Tests for the narrowing table of OverloadTable, checking it against the lists of
+ * type precedence it was computed from, as they were checked for every candidate
+ * overload before the table existed.
+ */
+class OverloadTableTest {
+
+	private static final List<String> TYPES = Arrays.asList(Types.BOOLEAN, Types.BYTE, Types.SHORT, Types.CHAR,
+			Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE, "java.lang.Integer", "java.lang.Object", "int[]", "T");
+
+	@Test
+	void narrowingMatchesTheListsOfTypePrecedence() {
+		for (String type1 : TYPES) {
+			for (String type2 : TYPES) {
+				assertEquals(isNarrowingConversion(type1, type2), OverloadTable.isNarrowing(type1, type2), type2 + " narrower than " + type1);
+			}
+		}
+	}
+
+	@Test
+	void widerPrimitiveParameterIsNarrowing() {
+		assertTrue(OverloadTable.isNarrowing(Types.LONG, Types.INT));
+		assertTrue(OverloadTable.isNarrowing(Types.DOUBLE, Types.BYTE));
+		assertTrue(OverloadTable.isNarrowing(Types.INT, Types.CHAR));
+		assertFalse(OverloadTable.isNarrowing(Types.INT, Types.LONG));
+		assertFalse(OverloadTable.isNarrowing(Types.INT, Types.INT));
+	}
+
+	@Test
+	void charIsUnrelatedToByteAndShort() {
+		assertFalse(OverloadTable.isNarrowing(Types.CHAR, Types.BYTE));
+		assertFalse(OverloadTable.isNarrowing(Types.SHORT, Types.CHAR));
+		assertFalse(OverloadTable.isNarrowing(new String(Types.SHORT), new String(Types.CHAR)));
+	}
+
+	@Test
+	void referenceTypesNeverNarrow() {
+		assertFalse(OverloadTable.isNarrowing("java.lang.Long", Types.INT));
+		assertFalse(OverloadTable.isNarrowing(Types.LONG, "java.lang.Integer"));
+		assertFalse(OverloadTable.isNarrowing("long[]", "int[]"));
+		assertFalse(OverloadTable.isNarrowing(Types.DOUBLE, Types.BOOLEAN));
+	}
+
+	/**
+	 * Restates the check of type precedence the table is computed from, comparing
+	 * type names by value.
+	 * @param type1 the reference type
+	 * @param type2 the type to check narrowing for
+	 * @return true if type2 is narrowing, false otherwise
+	 */
+	private static boolean isNarrowingConversion(String type1, String type2) {
+		List<String> charRelations = Arrays.asList(Types.CHAR, Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE);
+		List<String> byteRelations = Arrays.asList(Types.BYTE, Types.SHORT, Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE);
+		List<String> relations = type1.equals(Types.CHAR) || type2.equals(Types.CHAR) ? charRelations : byteRelations;
+
+		int type1Index = relations.indexOf(type1);
+		int type2Index = relations.indexOf(type2);
+
+		return type1Index >= 0 && type2Index >= 0 && type1Index > type2Index;
+	}
+
+}
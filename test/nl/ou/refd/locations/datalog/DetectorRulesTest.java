@@ -0,0 +1,332 @@
+package nl.ou.refd.locations.datalog;
+
+import static nl.ou.refd.locations.datalog.Atom.not;
+import static nl.ou.refd.locations.datalog.Atom.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests checking that the rules of the MissingSuperImplementation and
+ * MissingAbstractImplementation detectors find the same risks as the subdetector
+ * streams they replaced, for every method of a small class hierarchy. The real
+ * queries read their facts from the program graph, so the rules of DetectorRules
+ * and of both detectors are restated here on facts of a fixture, and the streams
+ * are restated as set operations on the same facts.
+ */
+class DetectorRulesTest {
+
+	private static final int A = 1, B = 2, C = 3, D = 4, E = 5, F = 6, INNER = 7;
+
+	private static final Atom[][] PROGRAM = {
+			{of("ancestor", "C", "S"), of("extends", "C", "S")},
+			{of("ancestor", "C", "S"), of("ancestor", "C", "X"), of("extends", "X", "S")},
+			{of("superclass", "C", "S"), of("ancestor", "C", "S"), of("class", "S")},
+			{of("declared", "C", "X"), of("declares", "C", "X")},
+			{of("declared", "C", "X"), of("declared", "C", "Y"), of("declares", "Y", "X")},
+			{of("classMethod", "C", "M"), of("declared", "C", "M"), of("method", "M"), of("memberMethod", "M")},
+			{of("overridden", "M", "O"), of("overrides", "M", "O")},
+			{of("overridden", "M", "O"), of("overridden", "M", "X"), of("overrides", "X", "O")},
+	};
+
+	private static final Atom[][] MISSING_SUPER_IMPLEMENTATION = {
+			{of("concrete", "M"), of("subject", "M"), of("method", "M"), not("abstractMethod", "M")},
+			{of("overriderClass", "P"), of("concrete", "M"), of("overrides", "X", "M"), of("contains", "P", "X")},
+			{of("subclass", "D"), of("concrete", "M"), of("contains", "C", "M"), of("extends", "D", "C"), of("class", "D")},
+			{of("risk", "D"), of("subclass", "D"), not("overriderClass", "D")},
+	};
+
+	private static final Atom[][] MISSING_ABSTRACT_IMPLEMENTATION = {
+			{of("concrete", "M"), of("subject", "M"), of("method", "M"), not("abstractMethod", "M")},
+			{of("overriddenMethod", "O"), of("concrete", "M"), of("overridden", "M", "O"), of("method", "O")},
+			{of("inheritedAbstract", "O"), of("concrete", "M"), of("contains", "C", "M"), of("superclass", "C", "S"),
+					of("abstractClass", "S"), of("classMethod", "S", "O"), of("abstractMethod", "O")},
+			{of("risk", "O"), of("overriddenMethod", "O"), of("inheritedAbstract", "O")},
+	};
+
+	private final Map<String, List<int[]>> facts = new HashMap<String, List<int[]>>();
+	private final Set<Integer> methods = new HashSet<Integer>();
+
+	/**
+	 * Creates the fixture: the abstract classes A and B extending it, the classes C and
+	 * D extending B, E extending C, and F extending A, and a class nested in A. The
+	 * methods m and k are declared abstract high in the hierarchy and implemented below
+	 * it, some implementations overriding others.
+	 */
+	DetectorRulesTest() {
+		fact("abstractClass", A);
+		fact("abstractClass", B);
+
+		for (int type : new int[] {A, B, C, D, E, F, INNER}) {
+			fact("class", type);
+		}
+
+		fact("extends", B, A);
+		fact("extends", C, B);
+		fact("extends", D, B);
+		fact("extends", E, C);
+		fact("extends", F, A);
+		fact("declares", A, INNER);
+		fact("contains", A, INNER);
+
+		method(11, A, true);
+		method(12, B, true, 11);
+		method(13, C, false, 12);
+		method(14, D, false);
+		method(15, E, false, 13);
+		method(16, F, false, 11);
+		method(17, A, false);
+		method(18, B, false, 17);
+		method(19, INNER, true);
+		method(20, D, false, 19);
+	}
+
+	@Test
+	void missingSuperImplementationRulesMatchTheStream() {
+		for (int subject : this.methods) {
+			assertEquals(missingSuperImplementationStream(subject), evaluate(MISSING_SUPER_IMPLEMENTATION, subject, "risk"), "method " + subject);
+		}
+	}
+
+	@Test
+	void missingAbstractImplementationRulesMatchTheStream() {
+		for (int subject : this.methods) {
+			assertEquals(missingAbstractImplementationStream(subject), evaluate(MISSING_ABSTRACT_IMPLEMENTATION, subject, "risk"), "method " + subject);
+		}
+	}
+
+	@Test
+	void missingSuperImplementationReadsTheSubclassesOfTheConcreteSubject() {
+		for (int subject : this.methods) {
+			Set<Integer> subclasses = tagged(predecessors("extends", predecessors("contains", concrete(subject))), "class");
+			assertEquals(subclasses, evaluate(MISSING_SUPER_IMPLEMENTATION, subject, "subclass"), "method " + subject);
+		}
+	}
+
+	@Test
+	void missingAbstractImplementationReadsTheMethodsOverriddenByTheConcreteSubject() {
+		for (int subject : this.methods) {
+			Set<Integer> overridden = tagged(descendants("overrides", concrete(subject)), "method");
+			assertEquals(overridden, evaluate(MISSING_ABSTRACT_IMPLEMENTATION, subject, "overriddenMethod"), "method " + subject);
+		}
+	}
+
+	@Test
+	void fixtureHasRisksForBothDetectors() {
+		boolean superRisks = false;
+		boolean abstractRisks = false;
+
+		for (int subject : this.methods) {
+			superRisks |= !missingSuperImplementationStream(subject).isEmpty();
+			abstractRisks |= !missingAbstractImplementationStream(subject).isEmpty();
+		}
+
+		assertFalse(!superRisks || !abstractRisks);
+	}
+
+	/**
+	 * Evaluates the rules of a detector for a subject, on the facts materialized by
+	 * the rules of DetectorRules, the way DatalogQuery evaluates them.
+	 * @param rules the rules of the detector, each as its head followed by its body
+	 * @param subject the method the detector is executed for
+	 * @param result the unary predicate to get, such as the risks
+	 * @return the values the predicate holds for
+	 */
+	private Set<Integer> evaluate(Atom[][] rules, int subject, String result) {
+		Map<String, Integer> arities = new HashMap<String, Integer>();
+		List<Rule> program = new ArrayList<Rule>();
+
+		for (String predicate : this.facts.keySet()) {
+			arities.put(predicate, this.facts.get(predicate).get(0).length);
+		}
+
+		for (Atom[] rule : PROGRAM) {
+			for (Atom atom : rule) {
+				DatalogProgram.checkArity(arities, atom);
+			}
+			program.add(new Rule(rule[0], Arrays.asList(rule).subList(1, rule.length), Collections.emptySet()));
+		}
+
+		Materialization materialization = new Materialization(arities, Evaluation.stratify(program), this.facts);
+		Map<String, Table> tables = new HashMap<String, Table>();
+		List<Rule> query = new ArrayList<Rule>();
+
+		tables.put("subject", new Table(1));
+		tables.get("subject").add(new int[] {subject});
+
+		for (Atom[] rule : rules) {
+			tables.putIfAbsent(rule[0].predicate(), new Table(rule[0].arity()));
+			query.add(new Rule(rule[0], Arrays.asList(rule).subList(1, rule.length), Collections.emptySet()));
+		}
+
+		Map<String, List<int[]>> delta = new HashMap<String, List<int[]>>();
+		delta.put("subject", new ArrayList<int[]>(Collections.singletonList(new int[] {subject})));
+
+		new Evaluation(predicate -> tables.getOrDefault(predicate, materialization.table(predicate)), (predicate, id) -> false)
+				.propagate(Evaluation.stratify(query), delta, tables.keySet(), (predicate, fact) -> tables.get(predicate).add(fact));
+
+		Set<Integer> values = new HashSet<Integer>();
+		tables.get(result).facts().forEach(fact -> values.add(fact[0]));
+		return values;
+	}
+
+	/**
+	 * Restates the stream of MissingSuperImplementation: the direct subclasses of the
+	 * parent class of the concrete subject, except the parent classes of its overriders.
+	 * @param subject the method
+	 * @return the risks
+	 */
+	private Set<Integer> missingSuperImplementationStream(int subject) {
+		Set<Integer> concrete = concrete(subject);
+		Set<Integer> subclasses = tagged(predecessors("extends", predecessors("contains", concrete)), "class");
+		subclasses.removeAll(predecessors("contains", predecessors("overrides", concrete)));
+		return subclasses;
+	}
+
+	/**
+	 * Restates the stream of MissingAbstractImplementation: the methods overridden by
+	 * the concrete subject, intersected with the abstract methods of the abstract
+	 * superclasses of its parent class.
+	 * @param subject the method
+	 * @return the risks
+	 */
+	private Set<Integer> missingAbstractImplementationStream(int subject) {
+		Set<Integer> concrete = concrete(subject);
+		Set<Integer> overridden = tagged(descendants("overrides", concrete), "method");
+		Set<Integer> superclasses = tagged(descendants("extends", predecessors("contains", concrete)), "class");
+		Set<Integer> declared = descendants("declares", tagged(superclasses, "abstractClass"));
+		overridden.retainAll(tagged(tagged(tagged(declared, "method"), "memberMethod"), "abstractMethod"));
+		return overridden;
+	}
+
+	/**
+	 * Restates ConcreteMethods for a subject.
+	 * @param subject the method
+	 * @return the subject if it is a concrete method, otherwise nothing
+	 */
+	private Set<Integer> concrete(int subject) {
+		Set<Integer> concrete = tagged(Collections.singleton(subject), "method");
+		concrete.removeAll(tagged(concrete, "abstractMethod"));
+		return concrete;
+	}
+
+	/**
+	 * Follows a relation one step forwards, from locations to the targets of their edges.
+	 * @param relation the relation
+	 * @param locations the locations to start from
+	 * @return the targets of the edges from the locations
+	 */
+	private Set<Integer> successors(String relation, Set<Integer> locations) {
+		Set<Integer> result = new HashSet<Integer>();
+
+		for (int[] edge : this.facts.get(relation)) {
+			if (locations.contains(edge[0])) {
+				result.add(edge[1]);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Follows a relation one step backwards, from locations to the sources of their edges.
+	 * @param relation the relation
+	 * @param locations the locations to start from
+	 * @return the sources of the edges to the locations
+	 */
+	private Set<Integer> predecessors(String relation, Set<Integer> locations) {
+		Set<Integer> result = new HashSet<Integer>();
+
+		for (int[] edge : this.facts.get(relation)) {
+			if (locations.contains(edge[1])) {
+				result.add(edge[0]);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Follows a relation transitively.
+	 * @param relation the relation
+	 * @param locations the locations to start from
+	 * @return the locations reachable in at least one step
+	 */
+	private Set<Integer> descendants(String relation, Set<Integer> locations) {
+		Set<Integer> result = new HashSet<Integer>();
+		Deque<Integer> pending = new ArrayDeque<Integer>(locations);
+
+		while (!pending.isEmpty()) {
+			for (int next : successors(relation, Collections.singleton(pending.pop()))) {
+				if (result.add(next)) {
+					pending.push(next);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Keeps the locations with a tag.
+	 * @param locations the locations
+	 * @param tag the predicate of the tag
+	 * @return the tagged locations
+	 */
+	private Set<Integer> tagged(Set<Integer> locations, String tag) {
+		Set<Integer> result = new HashSet<Integer>();
+
+		for (int[] fact : this.facts.get(tag)) {
+			if (locations.contains(fact[0])) {
+				result.add(fact[0]);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Adds a method to the fixture.
+	 * @param method the method
+	 * @param type the class declaring the method
+	 * @param isAbstract true if the method is abstract
+	 * @param overridden the methods it overrides directly
+	 */
+	private void method(int method, int type, boolean isAbstract, int... overridden) {
+		this.methods.add(method);
+		fact("method", method);
+		fact("memberMethod", method);
+		fact("declares", type, method);
+		fact("contains", type, method);
+
+		if (isAbstract) {
+			fact("abstractMethod", method);
+		}
+
+		for (int target : overridden) {
+			fact("overrides", method, target);
+		}
+	}
+
+	/**
+	 * Adds a fact to the fixture.
+	 * @param predicate the predicate
+	 * @param values the values of the fact
+	 */
+	private void fact(String predicate, int... values) {
+		this.facts.computeIfAbsent(predicate, name -> new ArrayList<int[]>()).add(values);
+	}
+
+}
@@ -0,0 +1,172 @@
+package nl.ou.refd.locations.datalog;
+
+import static nl.ou.refd.locations.datalog.Atom.not;
+import static nl.ou.refd.locations.datalog.Atom.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import nl.ou.refd.exceptions.DatalogException;
+
+/**
+ * Tests for the bottom-up evaluation of Datalog rules by Materialization: recursive
+ * rules, joins, termination on cyclic facts, stratified negation, and incremental
+ * maintenance, which must give the same facts as materializing from scratch.
+ */
+class MaterializationTest {
+
+	private static final Atom[][] CLOSURE = {
+			{of("path", "X", "Y"), of("edge", "X", "Y")},
+			{of("path", "X", "Z"), of("path", "X", "Y"), of("edge", "Y", "Z")},
+	};
+
+	@Test
+	void recursiveRuleDerivesTheTransitiveClosure() {
+		Materialization materialization = materialize(CLOSURE, facts("edge", 1, 2, 2, 3, 3, 4));
+
+		assertEquals(pairs(1, 2, 1, 3, 1, 4, 2, 3, 2, 4, 3, 4), pairs(materialization, "path"));
+	}
+
+	@Test
+	void evaluationTerminatesOnCycles() {
+		Materialization materialization = materialize(CLOSURE, facts("edge", 1, 2, 2, 3, 3, 1));
+
+		assertEquals(pairs(1, 1, 1, 2, 1, 3, 2, 1, 2, 2, 2, 3, 3, 1, 3, 2, 3, 3), pairs(materialization, "path"));
+	}
+
+	@Test
+	void ruleJoinsAtomsOnSharedVariables() {
+		Atom[][] rules = {
+				{of("grandparent", "X", "Z"), of("parent", "X", "Y"), of("parent", "Y", "Z"), of("person", "Z")},
+		};
+		Map<String, List<int[]>> facts = facts("parent", 1, 2, 2, 3, 2, 4, 5, 6);
+		facts.putAll(facts("person", 3));
+
+		assertEquals(pairs(1, 3), pairs(materialize(rules, facts), "grandparent"));
+	}
+
+	@Test
+	void negatedPredicateIsDerivedInAnEarlierStratum() {
+		Atom[][] rules = {
+				CLOSURE[0],
+				CLOSURE[1],
+				{of("unreachable", "X", "Y"), of("node", "X"), of("node", "Y"), not("path", "X", "Y")},
+		};
+		Map<String, List<int[]>> facts = facts("edge", 1, 2);
+		facts.putAll(facts("node", 1, 2));
+
+		assertEquals(pairs(1, 1, 2, 1, 2, 2), pairs(materialize(rules, facts), "unreachable"));
+	}
+
+	@Test
+	void predicateDependingOnItsOwnNegationIsRejected() {
+		List<Rule> rules = Arrays.asList(
+				new Rule(of("p", "X"), Arrays.asList(of("node", "X"), not("q", "X")), Collections.emptySet()),
+				new Rule(of("q", "X"), Arrays.asList(of("node", "X"), not("p", "X")), Collections.emptySet()));
+
+		assertThrows(DatalogException.class, () -> Evaluation.stratify(rules));
+	}
+
+	@Test
+	void unsafeRuleIsRejected() {
+		assertThrows(DatalogException.class,
+				() -> new Rule(of("p", "X", "Y"), Arrays.asList(of("node", "X")), Collections.emptySet()));
+	}
+
+	@Test
+	void insertedFactsArePropagatedLikeAMaterializationFromScratch() {
+		Materialization materialization = materialize(CLOSURE, facts("edge", 1, 2, 3, 4));
+		materialization.insert(facts("edge", 2, 3, 4, 1));
+
+		assertEquals(pairs(materialize(CLOSURE, facts("edge", 1, 2, 3, 4, 2, 3, 4, 1)), "path"), pairs(materialization, "path"));
+	}
+
+	@Test
+	void deletedFactsAreRetractedLikeAMaterializationFromScratch() {
+		Materialization materialization = materialize(CLOSURE, facts("edge", 1, 2, 2, 3, 1, 3, 3, 4, 4, 2));
+		materialization.delete(facts("edge", 2, 3));
+
+		assertEquals(pairs(materialize(CLOSURE, facts("edge", 1, 2, 1, 3, 3, 4, 4, 2)), "path"), pairs(materialization, "path"));
+	}
+
+	/**
+	 * Materializes rules on facts.
+	 * @param rules the rules, each as its head followed by its body
+	 * @param facts the given facts by predicate
+	 * @return the materialization
+	 */
+	private static Materialization materialize(Atom[][] rules, Map<String, List<int[]>> facts) {
+		Map<String, Integer> arities = new HashMap<String, Integer>();
+		List<Rule> compiled = new ArrayList<Rule>();
+
+		for (Atom[] rule : rules) {
+			for (Atom atom : rule) {
+				DatalogProgram.checkArity(arities, atom);
+			}
+			compiled.add(new Rule(rule[0], Arrays.asList(rule).subList(1, rule.length), Collections.emptySet()));
+		}
+
+		return new Materialization(arities, Evaluation.stratify(compiled), facts);
+	}
+
+	/**
+	 * Creates the facts of a predicate.
+	 * @param predicate the name of the predicate
+	 * @param values the values of the facts, pairwise if the predicate is binary
+	 * @return the facts by predicate
+	 */
+	private static Map<String, List<int[]>> facts(String predicate, int... values) {
+		int arity = predicate.equals("node") || predicate.equals("person") ? 1 : 2;
+		List<int[]> facts = new ArrayList<int[]>();
+
+		for (int index = 0; index < values.length; index += arity) {
+			facts.add(Arrays.copyOfRange(values, index, index + arity));
+		}
+
+		Map<String, List<int[]>> byPredicate = new HashMap<String, List<int[]>>();
+		byPredicate.put(predicate, facts);
+		return byPredicate;
+	}
+
+	/**
+	 * Creates a set of pairs.
+	 * @param values the values of the pairs, pairwise
+	 * @return the pairs, as lists
+	 */
+	private static Set<List<Integer>> pairs(int... values) {
+		Set<List<Integer>> pairs = new HashSet<List<Integer>>();
+
+		for (int index = 0; index < values.length; index += 2) {
+			pairs.add(Arrays.asList(values[index], values[index + 1]));
+		}
+
+		return pairs;
+	}
+
+	/**
+	 * Gets the facts of a binary predicate.
+	 * @param materialization the materialization
+	 * @param predicate the name of the predicate
+	 * @return the facts, as lists
+	 */
+	private static Set<List<Integer>> pairs(Materialization materialization, String predicate) {
+		Set<List<Integer>> pairs = new HashSet<List<Integer>>();
+
+		for (int[] fact : materialization.table(predicate).facts()) {
+			pairs.add(Arrays.asList(fact[0], fact[1]));
+		}
+
+		return pairs;
+	}
+
+}
@@ -0,0 +1,89 @@
+package nl.ou.refd.locations.generators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.GraphFixture;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.Tags;
+
+/**
+ * Tests for ProjectView, on a project with the class A in a package, declaring
+ * the method m and extending the library class L, which declares the method k.
+ * Runs as a plug-in test, with Atlas.
+ */
+class ProjectViewTest {
+
+	private static final String PROJECT = "ProjectViewTest";
+
+	private final GraphFixture fixture = new GraphFixture();
+	private ProgramLocation a, m, l, k;
+
+	@BeforeEach
+	void createProject() {
+		ProgramLocation project = this.fixture.location(PROJECT, Tags.ProgramLocation.PROJECT);
+		ProgramLocation pkg = this.fixture.location("p", Tags.ProgramLocation.PACKAGE);
+		this.a = this.fixture.location("A", Tags.ProgramLocation.CLASS);
+		this.l = this.fixture.location("L", Tags.ProgramLocation.CLASS);
+
+		this.fixture.relate(project, pkg, Tags.Relation.CONTAINS);
+		this.fixture.relate(pkg, this.a, Tags.Relation.CONTAINS);
+		this.fixture.relate(this.a, this.l, Tags.Relation.EXTENDS);
+		this.m = this.fixture.method(this.a, "m", Tags.ProgramLocation.INSTANCE_METHOD);
+		this.k = this.fixture.method(this.l, "k", Tags.ProgramLocation.INSTANCE_METHOD);
+
+		Graph.getInstance().invalidate();
+	}
+
+	@AfterEach
+	void removeProject() {
+		this.fixture.remove();
+	}
+
+	@Test
+	void componentsAreTheProjectAndTheLibraryClassesItExtends() {
+		ProjectView view = ProjectView.of(PROJECT);
+
+		assertEquals(Set.of(this.a, this.m), view.projectComponents());
+		assertEquals(Set.of(this.a, this.m, this.l, this.k), view.components());
+		assertTrue(view.contains(this.k));
+	}
+
+	@Test
+	void componentsAreSharedUntilTheViewChanges() {
+		ProjectView view = ProjectView.of(PROJECT);
+		Set<ProgramLocation> components = view.components();
+
+		assertSame(components, view.components());
+		assertThrows(UnsupportedOperationException.class, () -> components.add(this.a));
+
+		ProgramLocation n = this.fixture.method(this.a, "n", Tags.ProgramLocation.INSTANCE_METHOD);
+
+		assertNotSame(components, view.components());
+		assertEquals(Set.of(this.a, this.m, n, this.l, this.k), view.components());
+		assertFalse(components.contains(n));
+	}
+
+	@Test
+	void removedComponentsAreDropped() {
+		ProjectView view = ProjectView.of(PROJECT);
+		Set<ProgramLocation> components = view.components();
+
+		this.fixture.remove(this.m);
+
+		assertEquals(Set.of(this.a, this.l, this.k), view.components());
+		assertTrue(components.contains(this.m));
+	}
+
+}
@@ -0,0 +1,160 @@
+package nl.ou.refd.locations.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for CsrGraph, writing a small snapshot through its Builder and reading it
+ * back detached, as tools outside the IDE do. The snapshot holds the classes A, B
+ * extending A and C extending B, with a method and its parameter in C.
+ */
+class CsrGraphTest {
+
+	private static final int A = 0, B = 1, C = 2, METHOD = 4, PARAMETER = 5;
+
+	private Path file;
+
+	@BeforeEach
+	void writeSnapshot() throws IOException {
+		this.file = Files.createTempFile("refd", ".csr");
+
+		int[] outDegrees = new int[6];
+		int[] inDegrees = new int[6];
+		int[][] relations = {{B, A}, {C, B}, {C, METHOD}, {METHOD, PARAMETER}};
+
+		for (int[] relation : relations) {
+			outDegrees[relation[0]]++;
+			inDegrees[relation[1]]++;
+		}
+
+		try (FileChannel channel = CsrGraph.create(this.file)) {
+			CsrGraph.Builder builder = new CsrGraph.Builder(channel, outDegrees, inDegrees, 15,
+					List.of("/project/src/A.java", "/project/src/\u00c7.java"), CsrGraph.DETACHED, CsrGraph.DETACHED);
+
+			builder.location(A, LocationStore.mask(Tags.ProgramLocation.CLASS), -1, encode("A"), 0, 13, 20);
+			builder.location(B, LocationStore.mask(Tags.ProgramLocation.CLASS), -1, encode("B"), 0, 40, 20);
+			builder.location(C, LocationStore.mask(Tags.ProgramLocation.CLASS), -1, encode("\u00c7"), 1, 0, 99);
+			builder.location(METHOD, LocationStore.mask(Tags.ProgramLocation.METHOD), -1, encode("run"), 1, 30, 50);
+			builder.location(PARAMETER, LocationStore.mask(Tags.ProgramLocation.PARAMETER), 0, encode("argument"), -1, 0, 0);
+
+			builder.relation(B, A, CsrGraph.relationMask(Tags.Relation.EXTENDS));
+			builder.relation(C, B, CsrGraph.relationMask(Tags.Relation.EXTENDS));
+			builder.relation(C, METHOD, CsrGraph.relationMask(Tags.Relation.CONTAINS));
+			builder.relation(METHOD, PARAMETER, CsrGraph.relationMask(Tags.Relation.CONTAINS));
+			builder.finish();
+		}
+	}
+
+	@AfterEach
+	void deleteSnapshot() throws IOException {
+		Files.deleteIfExists(this.file);
+	}
+
+	@Test
+	void locationsAreReadBack() {
+		CsrGraph graph = CsrGraph.open(this.file);
+
+		assertTrue(graph.isDetached());
+		assertEquals(6, graph.nodeCount());
+		assertEquals("\u00c7", graph.name(C));
+		assertTrue(graph.nameEquals(METHOD, encode("run")));
+		assertFalse(graph.nameEquals(METHOD, encode("ran")));
+		assertEquals(LocationStore.mask(Tags.ProgramLocation.METHOD), graph.tags(METHOD));
+		assertEquals(0, graph.parameterIndex(PARAMETER));
+		assertEquals(-1, graph.parameterIndex(METHOD));
+		assertEquals("/project/src/\u00c7.java", graph.sourceFile(METHOD));
+		assertEquals(30, graph.sourceOffset(METHOD));
+		assertEquals(50, graph.sourceLength(METHOD));
+		assertNull(graph.sourceFile(PARAMETER));
+	}
+
+	@Test
+	void skippedLocationIsWrittenWithoutTagsOrName() {
+		CsrGraph graph = CsrGraph.open(this.file);
+
+		assertEquals(0, graph.tags(3));
+		assertEquals("", graph.name(3));
+		assertNull(graph.sourceFile(3));
+		assertEquals(5, graph.universe().locationCount());
+	}
+
+	@Test
+	void relationsAreReadBackInBothDirections() {
+		CsrGraph graph = CsrGraph.open(this.file);
+
+		assertEquals(List.of(B, METHOD), successors(graph, C, CsrGraph.relationMask(Tags.Relation.EXTENDS, Tags.Relation.CONTAINS)));
+		assertEquals(List.of(B), successors(graph, C, CsrGraph.relationMask(Tags.Relation.EXTENDS)));
+
+		List<Integer> predecessors = new ArrayList<Integer>();
+		graph.forEachPredecessor(B, CsrGraph.relationMask(Tags.Relation.EXTENDS), predecessors::add);
+		assertEquals(List.of(C), predecessors);
+	}
+
+	@Test
+	void queriesAreEvaluatedOnADetachedSnapshot() {
+		CsrGraph graph = CsrGraph.open(this.file);
+		CsrQuery extendsRelations = graph.universe().relations(Tags.Relation.EXTENDS);
+
+		assertEquals(2, graph.locations(new int[] {C}).descendantsOn(extendsRelations).locationCount());
+		assertEquals(3, graph.universe().locations(Tags.ProgramLocation.CLASS).locationCount());
+		assertEquals(1, graph.locations(new int[] {C}).forwardOn(graph.universe().relations(Tags.Relation.CONTAINS))
+				.locations(Tags.ProgramLocation.PARAMETER).locationCount());
+	}
+
+	@Test
+	void locationsOutOfOrderAreRejected() throws IOException {
+		try (FileChannel channel = CsrGraph.create(this.file)) {
+			CsrGraph.Builder builder = new CsrGraph.Builder(channel, new int[2], new int[2], 0, List.of(),
+					CsrGraph.DETACHED, CsrGraph.DETACHED);
+			builder.location(1, 0, -1, null, -1, 0, 0);
+
+			assertThrows(IllegalArgumentException.class, () -> builder.location(0, 0, -1, null, -1, 0, 0));
+		}
+	}
+
+	@Test
+	void fileWithoutSnapshotIsNotOpened() throws IOException {
+		Files.write(this.file, new byte[64]);
+
+		assertThrows(UncheckedIOException.class, () -> CsrGraph.open(this.file));
+	}
+
+	/**
+	 * Gets the program locations one forward relation away.
+	 * @param graph the snapshot
+	 * @param id the id of the program location to start from
+	 * @param mask the bitmask of the relation tags to follow
+	 * @return the ids of the program locations reached, in the order they were written
+	 */
+	private static List<Integer> successors(CsrGraph graph, int id, long mask) {
+		List<Integer> successors = new ArrayList<Integer>();
+		graph.forEachSuccessor(id, mask, successors::add);
+		return successors;
+	}
+
+	/**
+	 * Encodes a name as it is stored in a snapshot.
+	 * @param name the name
+	 * @return the UTF-8 encoded name
+	 */
+	private static byte[] encode(String name) {
+		return name.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,251 @@
+package nl.ou.refd.locations.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for importing exports with GraphExport.load, headlessly. The exports are
+ * written record by record, as an older or newer version of the plugin could have
+ * written them: the class A, the class B extending A, and the method m with its
+ * parameter in A. The id 2 is not used by a program location.
+ */
+class GraphExportTest {
+
+	private static final int MAGIC = 0x52464447;
+	private static final int A = 0, B = 1, METHOD = 3, PARAMETER = 4;
+
+	private Path export;
+	private Path snapshot;
+
+	@BeforeEach
+	void createFiles() throws IOException {
+		this.export = Files.createTempFile("refd", GraphExport.EXTENSION);
+		this.snapshot = Files.createTempFile("refd", ".csr");
+	}
+
+	@AfterEach
+	void deleteFiles() throws IOException {
+		Files.deleteIfExists(this.export);
+		Files.deleteIfExists(this.snapshot);
+	}
+
+	@Test
+	void locationsAreImportedWithTheirAttributes() throws IOException {
+		writeExport(1, List.of("CLASS", "METHOD", "PARAMETER"), List.of("EXTENDS", "CONTAINS"));
+
+		CsrGraph graph = GraphExport.load(this.export, this.snapshot);
+
+		assertTrue(graph.isDetached());
+		assertEquals(5, graph.nodeCount());
+		assertEquals(4, graph.universe().locationCount());
+		assertEquals("B", graph.name(B));
+		assertEquals(LocationStore.mask(Tags.ProgramLocation.CLASS), graph.tags(A));
+		assertEquals(LocationStore.mask(Tags.ProgramLocation.METHOD), graph.tags(METHOD));
+		assertEquals(0, graph.tags(2));
+		assertEquals(0, graph.parameterIndex(PARAMETER));
+		assertEquals("/project/src/A.java", graph.sourceFile(A));
+		assertEquals("/project/src/A.java", graph.sourceFile(METHOD));
+		assertEquals(30, graph.sourceOffset(METHOD));
+		assertEquals(12, graph.sourceLength(METHOD));
+		assertEquals("/project/src/B.java", graph.sourceFile(B));
+		assertNull(graph.sourceFile(PARAMETER));
+	}
+
+	@Test
+	void relationsAreImportedWithTheirTags() throws IOException {
+		writeExport(1, List.of("CLASS", "METHOD", "PARAMETER"), List.of("EXTENDS", "CONTAINS"));
+
+		CsrGraph graph = GraphExport.load(this.export, this.snapshot);
+
+		assertEquals(List.of(A), successors(graph, B, CsrGraph.relationMask(Tags.Relation.EXTENDS)));
+		assertEquals(List.of(METHOD), successors(graph, A, CsrGraph.relationMask(Tags.Relation.CONTAINS)));
+		assertEquals(List.of(), successors(graph, A, CsrGraph.relationMask(Tags.Relation.EXTENDS)));
+		assertEquals(3, graph.locations(new int[] {A}).forwardOn(graph.universe().relations(Tags.Relation.CONTAINS)).locationCount());
+	}
+
+	@Test
+	void tagsAreMatchedByNameAndUnknownTagsAreDropped() throws IOException {
+		writeExport(1, List.of("REMOVED_TAG", "PARAMETER", "METHOD", "CLASS"), List.of("CONTAINS", "REMOVED_TAG", "EXTENDS"));
+
+		CsrGraph graph = GraphExport.load(this.export, this.snapshot);
+
+		assertEquals(LocationStore.mask(Tags.ProgramLocation.CLASS), graph.tags(A));
+		assertEquals(LocationStore.mask(Tags.ProgramLocation.METHOD), graph.tags(METHOD));
+		assertEquals(List.of(A), successors(graph, B, CsrGraph.relationMask(Tags.Relation.EXTENDS)));
+		assertEquals(List.of(METHOD), successors(graph, A, CsrGraph.relationMask(Tags.Relation.CONTAINS)));
+	}
+
+	@Test
+	void exportOfAnotherVersionIsRejected() throws IOException {
+		writeExport(2, List.of("CLASS", "METHOD", "PARAMETER"), List.of("EXTENDS", "CONTAINS"));
+
+		UncheckedIOException error = assertThrows(UncheckedIOException.class, () -> GraphExport.load(this.export, this.snapshot));
+
+		assertTrue(error.getCause().getMessage().contains("version 2"), error.getCause().getMessage());
+	}
+
+	@Test
+	void fileThatIsNoExportIsRejected() throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(this.export)))) {
+			out.writeInt(0);
+			out.writeInt(1);
+		}
+
+		assertThrows(UncheckedIOException.class, () -> GraphExport.load(this.export, this.snapshot));
+	}
+
+	/**
+	 * Writes the export of the graph of the tests.
+	 * @param version the version of the format to write in the header
+	 * @param locationTags the names of the location tags in the dictionary, in order
+	 * @param relationTags the names of the relation tags in the dictionary, in order
+	 * @throws IOException if the export cannot be written
+	 */
+	private void writeExport(int version, List<String> locationTags, List<String> relationTags) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(this.export)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(version);
+			writeDictionary(out, locationTags);
+			writeDictionary(out, relationTags);
+			writeVarLong(out, 5);
+
+			// A, with a name and a new source file
+			out.writeByte(1);
+			writeVarLong(out, A + 1);
+			writeVarLong(out, tags(locationTags, "CLASS", "REMOVED_TAG"));
+			out.writeByte(1 | 4);
+			out.writeUTF("A");
+			writeVarLong(out, 0);
+			out.writeUTF("/project/src/A.java");
+			writeVarLong(out, 0);
+			writeVarLong(out, 50);
+
+			// B, with a name and a new source file
+			out.writeByte(1);
+			writeVarLong(out, B - A);
+			writeVarLong(out, tags(locationTags, "CLASS"));
+			out.writeByte(1 | 4);
+			out.writeUTF("B");
+			writeVarLong(out, 1);
+			out.writeUTF("/project/src/B.java");
+			writeVarLong(out, 0);
+			writeVarLong(out, 20);
+
+			// m, with a name and the source file of A
+			out.writeByte(1);
+			writeVarLong(out, METHOD - B);
+			writeVarLong(out, tags(locationTags, "METHOD"));
+			out.writeByte(1 | 4);
+			out.writeUTF("m");
+			writeVarLong(out, 0);
+			writeVarLong(out, 30);
+			writeVarLong(out, 12);
+
+			// The parameter of m, with a parameter index
+			out.writeByte(1);
+			writeVarLong(out, PARAMETER - METHOD);
+			writeVarLong(out, tags(locationTags, "PARAMETER"));
+			out.writeByte(2);
+			writeVarLong(out, 0);
+
+			writeRelation(out, B, A, tags(relationTags, "EXTENDS"));
+			writeRelation(out, A, METHOD, tags(relationTags, "CONTAINS", "REMOVED_TAG"));
+			writeRelation(out, METHOD, PARAMETER, tags(relationTags, "CONTAINS"));
+
+			out.writeByte(0);
+			writeVarLong(out, 4);
+			writeVarLong(out, 3);
+		}
+	}
+
+	/**
+	 * Writes a dictionary of tag names.
+	 * @param out the output to write to
+	 * @param names the names of the tags
+	 * @throws IOException if the dictionary cannot be written
+	 */
+	private static void writeDictionary(DataOutputStream out, List<String> names) throws IOException {
+		writeVarLong(out, names.size());
+
+		for (String name : names) {
+			out.writeUTF(name);
+		}
+	}
+
+	/**
+	 * Writes a relation record.
+	 * @param out the output to write to
+	 * @param from the id the relation starts at
+	 * @param to the id the relation ends at
+	 * @param tags the exported bitmask of the tags of the relation
+	 * @throws IOException if the record cannot be written
+	 */
+	private static void writeRelation(DataOutputStream out, int from, int to, long tags) throws IOException {
+		out.writeByte(2);
+		writeVarLong(out, from);
+		writeVarLong(out, to);
+		writeVarLong(out, tags);
+	}
+
+	/**
+	 * Creates the exported bitmask of tags, as positions in a dictionary. Tags missing
+	 * from the dictionary are left out.
+	 * @param dictionary the names of the tags in the dictionary, in order
+	 * @param names the names of the tags to set
+	 * @return the bitmask
+	 */
+	private static long tags(List<String> dictionary, String... names) {
+		long tags = 0;
+
+		for (String name : names) {
+			if (dictionary.contains(name)) {
+				tags |= 1L << dictionary.indexOf(name);
+			}
+		}
+
+		return tags;
+	}
+
+	/**
+	 * Writes a long seven bits per byte, as the export does.
+	 * @param out the output to write to
+	 * @param value the value to write, treated as unsigned
+	 * @throws IOException if the value cannot be written
+	 */
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int)(value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int)value);
+	}
+
+	/**
+	 * Gets the program locations one forward relation away.
+	 * @param graph the snapshot
+	 * @param id the id of the program location to start from
+	 * @param mask the bitmask of the relation tags to follow
+	 * @return the ids of the program locations reached
+	 */
+	private static List<Integer> successors(CsrGraph graph, int id, long mask) {
+		List<Integer> successors = new ArrayList<Integer>();
+		graph.forEachSuccessor(id, mask, successors::add);
+		return successors;
+	}
+
+}
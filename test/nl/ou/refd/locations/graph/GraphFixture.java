@@ -0,0 +1,93 @@
+package nl.ou.refd.locations.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class building program locations and relations in the program graph for tests,
+ * and removing them again afterwards. The program graph is stored in the Atlas
+ * universe graph, so tests using a fixture run as plug-in tests, with Atlas.
+ */
+public final class GraphFixture {
+
+	private final List<ProgramLocation> created = new ArrayList<ProgramLocation>();
+
+	/**
+	 * Creates a program location.
+	 * @param name the name of the program location
+	 * @param tags the tags of the program location
+	 * @return the program location
+	 */
+	public ProgramLocation location(String name, Tags.ProgramLocation... tags) {
+		ProgramLocation location = Graph.getInstance().createProgramLocation();
+		this.created.add(location);
+		location.putAttribute(Tags.Attributes.NAME, name);
+
+		for (Tags.ProgramLocation tag : tags) {
+			location.tag(tag);
+		}
+
+		return location;
+	}
+
+	/**
+	 * Creates a method declared by a class, with parameters of the given types. The
+	 * relation from the class is a containment relation, as declarations are in Atlas.
+	 * @param type the class declaring the method
+	 * @param name the name of the method
+	 * @param kind the tag of the kind of method
+	 * @param parameterTypes the names of the types of the parameters, in order
+	 * @return the method
+	 */
+	public ProgramLocation method(ProgramLocation type, String name, Tags.ProgramLocation kind, String... parameterTypes) {
+		ProgramLocation method = location(name, Tags.ProgramLocation.METHOD, kind);
+
+		for (int index = 0; index < parameterTypes.length; index++) {
+			ProgramLocation parameter = location("p" + index, Tags.ProgramLocation.PARAMETER);
+			parameter.putAttribute(Tags.Attributes.PARAMETER_INDEX, index);
+			relate(method, parameter, Tags.Relation.HAS_PARAMETER);
+			relate(parameter, location(parameterTypes[index], Tags.ProgramLocation.TYPE), Tags.Relation.TYPE_OF);
+		}
+
+		relate(type, method, Tags.Relation.CONTAINS, Tags.Relation.DECLARES);
+		return method;
+	}
+
+	/**
+	 * Creates a relation.
+	 * @param from the program location the relation starts at
+	 * @param to the program location the relation ends at
+	 * @param tags the tags of the relation
+	 * @return the relation
+	 */
+	public Relation relate(ProgramLocation from, ProgramLocation to, Tags.Relation... tags) {
+		Relation relation = Graph.getInstance().createRelation(from, to);
+
+		for (Tags.Relation tag : tags) {
+			relation.tag(tag);
+		}
+
+		return relation;
+	}
+
+	/**
+	 * Removes a program location created by the fixture, with its relations.
+	 * @param location the program location to remove
+	 */
+	public void remove(ProgramLocation location) {
+		this.created.remove(location);
+		Graph.getInstance().removeProgramLocation(location);
+	}
+
+	/**
+	 * Removes all program locations created by the fixture, with their relations.
+	 */
+	public void remove() {
+		for (int index = this.created.size() - 1; index >= 0; index--) {
+			Graph.getInstance().removeProgramLocation(this.created.get(index));
+		}
+
+		this.created.clear();
+	}
+
+}
@@ -0,0 +1,109 @@
+package nl.ou.refd.locations.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for InheritedMembers, on a hierarchy in the program graph: the class B
+ * extending A, and the class C extending B and the interface I. A declares the
+ * overloads m(int) and m(long) and a nested class N declaring k(), B declares n(),
+ * and I declares m(int). Runs as a plug-in test, with Atlas.
+ */
+class InheritedMembersTest {
+
+	private final GraphFixture fixture = new GraphFixture();
+	private ProgramLocation a, b, c, i;
+	private ProgramLocation mInt, mLong, k, n, iMInt;
+
+	@BeforeEach
+	void createHierarchy() {
+		this.a = this.fixture.location("A", Tags.ProgramLocation.CLASS);
+		this.b = this.fixture.location("B", Tags.ProgramLocation.CLASS);
+		this.c = this.fixture.location("C", Tags.ProgramLocation.CLASS);
+		this.i = this.fixture.location("I", Tags.ProgramLocation.TYPE);
+		ProgramLocation nested = this.fixture.location("N", Tags.ProgramLocation.CLASS);
+
+		this.mInt = this.fixture.method(this.a, "m", Tags.ProgramLocation.INSTANCE_METHOD, "int");
+		this.mLong = this.fixture.method(this.a, "m", Tags.ProgramLocation.INSTANCE_METHOD, "long");
+		this.k = this.fixture.method(nested, "k", Tags.ProgramLocation.INSTANCE_METHOD);
+		this.n = this.fixture.method(this.b, "n", Tags.ProgramLocation.CLASS_METHOD);
+		this.iMInt = this.fixture.method(this.i, "m", Tags.ProgramLocation.ABSTRACT_METHOD, "int");
+
+		this.fixture.relate(this.a, nested, Tags.Relation.CONTAINS, Tags.Relation.DECLARES);
+		this.fixture.relate(this.b, this.a, Tags.Relation.EXTENDS);
+		this.fixture.relate(this.c, this.b, Tags.Relation.EXTENDS);
+		this.fixture.relate(this.c, this.i, Tags.Relation.EXTENDS);
+	}
+
+	@AfterEach
+	void removeHierarchy() {
+		this.fixture.remove();
+	}
+
+	@Test
+	void methodsOfSuperclassesAreFoundBySignature() {
+		InheritedMembers members = InheritedMembers.getInstance();
+
+		assertEquals(Set.of(this.mInt), members.inheritedMethods(this.c, "m", List.of("int")));
+		assertEquals(Set.of(this.mLong), members.inheritedMethods(this.c, "m", List.of("long")));
+		assertEquals(Set.of(this.n), members.inheritedMethods(this.c, "n", List.of()));
+		assertEquals(Set.of(), members.inheritedMethods(this.c, "m", List.of()));
+		assertEquals(Set.of(), members.inheritedMethods(this.b, "n", List.of()));
+	}
+
+	@Test
+	void methodsOfNestedClassesAreInheritedFromTheOuterClass() {
+		InheritedMembers members = InheritedMembers.getInstance();
+
+		assertEquals(Set.of(this.k), members.inheritedMethods(this.c, "k", List.of()));
+		assertEquals(this.a, members.declaringClass(this.c, this.k));
+	}
+
+	@Test
+	void superclassesAreTheClassesExtendedTransitively() {
+		InheritedMembers members = InheritedMembers.getInstance();
+
+		assertEquals(Set.of(this.a, this.b), members.superclasses(this.c));
+		assertEquals(Set.of(), members.superclasses(this.a));
+	}
+
+	@Test
+	void declaringClassIsTheSuperclassOfTheMethod() {
+		InheritedMembers members = InheritedMembers.getInstance();
+
+		assertEquals(this.a, members.declaringClass(this.c, this.mInt));
+		assertEquals(this.b, members.declaringClass(this.c, this.n));
+		assertNull(members.declaringClass(this.c, this.iMInt));
+		assertNull(members.declaringClass(this.a, this.mInt));
+	}
+
+	@Test
+	void tableIsRebuiltWhenASuperclassDeclaresAMethod() {
+		InheritedMembers members = InheritedMembers.getInstance();
+		assertEquals(Set.of(this.mInt), members.inheritedMethods(this.c, "m", List.of("int")));
+
+		ProgramLocation override = this.fixture.method(this.b, "m", Tags.ProgramLocation.INSTANCE_METHOD, "int");
+
+		assertEquals(Set.of(this.mInt, override), members.inheritedMethods(this.c, "m", List.of("int")));
+		assertEquals(this.b, members.declaringClass(this.c, override));
+	}
+
+	@Test
+	void cyclicHierarchyTerminates() {
+		ProgramLocation d = this.fixture.location("D", Tags.ProgramLocation.CLASS);
+		ProgramLocation e = this.fixture.location("E", Tags.ProgramLocation.CLASS);
+		this.fixture.relate(d, e, Tags.Relation.EXTENDS);
+		this.fixture.relate(e, d, Tags.Relation.EXTENDS);
+
+		assertTrue(InheritedMembers.getInstance().superclasses(d).contains(e));
+	}
+
+}
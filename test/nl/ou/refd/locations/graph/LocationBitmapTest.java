@@ -0,0 +1,154 @@
+package nl.ou.refd.locations.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for LocationBitmap, comparing it with a sorted set of the same ids. The ids
+ * are chosen so chunks are converted between arrays and bitsets in both directions.
+ */
+class LocationBitmapTest {
+
+	@Test
+	void addAndRemoveKeepTheSameIdsAsASortedSet() {
+		Random random = new Random(35);
+		LocationBitmap bitmap = new LocationBitmap();
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+
+		for (int step = 0; step < 40000; step++) {
+			int id = id(random);
+
+			if (random.nextInt(3) == 0) {
+				bitmap.remove(id);
+				expected.remove(id);
+			}
+			else {
+				bitmap.add(id);
+				expected.add(id);
+			}
+		}
+
+		assertIds(expected, bitmap);
+	}
+
+	@Test
+	void chunkIsConvertedToABitsetAndBack() {
+		LocationBitmap bitmap = new LocationBitmap();
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+
+		for (int id = 0; id < 10000; id += 2) {
+			bitmap.add(id);
+			expected.add(id);
+		}
+
+		assertIds(expected, bitmap);
+
+		for (int id = 0; id < 9000; id += 2) {
+			bitmap.remove(id);
+			expected.remove(id);
+		}
+
+		assertIds(expected, bitmap);
+		assertFalse(bitmap.contains(8998));
+		assertTrue(bitmap.contains(9000));
+	}
+
+	@Test
+	void combinationsMatchTheSetOperations() {
+		Random random = new Random(36);
+
+		for (int run = 0; run < 20; run++) {
+			TreeSet<Integer> left = ids(random, random.nextInt(8000));
+			TreeSet<Integer> right = ids(random, random.nextInt(8000));
+			LocationBitmap leftBitmap = bitmap(left);
+			LocationBitmap rightBitmap = bitmap(right);
+
+			TreeSet<Integer> and = new TreeSet<Integer>(left);
+			and.retainAll(right);
+			TreeSet<Integer> or = new TreeSet<Integer>(left);
+			or.addAll(right);
+			TreeSet<Integer> andNot = new TreeSet<Integer>(left);
+			andNot.removeAll(right);
+
+			assertIds(and, leftBitmap.and(rightBitmap));
+			assertIds(or, leftBitmap.or(rightBitmap));
+			assertIds(andNot, leftBitmap.andNot(rightBitmap));
+			assertIds(left, leftBitmap);
+			assertIds(right, rightBitmap);
+		}
+	}
+
+	@Test
+	void copyIsIndependentOfTheOriginal() {
+		LocationBitmap bitmap = bitmap(new TreeSet<Integer>(List.of(1, 70000, 140000)));
+		LocationBitmap copy = bitmap.copy();
+
+		copy.add(2);
+		bitmap.remove(70000);
+
+		assertIds(new TreeSet<Integer>(List.of(1, 140000)), bitmap);
+		assertIds(new TreeSet<Integer>(List.of(1, 2, 70000, 140000)), copy);
+	}
+
+	/**
+	 * Chooses an id, mostly in dense ranges of the first chunks and sometimes far away.
+	 * @param random the source of randomness
+	 * @return the id
+	 */
+	private static int id(Random random) {
+		return random.nextInt(4) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(3 * 65536);
+	}
+
+	/**
+	 * Chooses a number of ids.
+	 * @param random the source of randomness
+	 * @param count the number of ids to choose
+	 * @return the ids
+	 */
+	private static TreeSet<Integer> ids(Random random, int count) {
+		TreeSet<Integer> ids = new TreeSet<Integer>();
+
+		for (int index = 0; index < count; index++) {
+			ids.add(id(random));
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Creates a bitmap of ids.
+	 * @param ids the ids
+	 * @return the bitmap
+	 */
+	private static LocationBitmap bitmap(TreeSet<Integer> ids) {
+		LocationBitmap bitmap = new LocationBitmap();
+		ids.forEach(bitmap::add);
+		return bitmap;
+	}
+
+	/**
+	 * Checks that a bitmap holds exactly the ids of a sorted set, in the same order.
+	 * @param expected the ids
+	 * @param bitmap the bitmap
+	 */
+	private static void assertIds(TreeSet<Integer> expected, LocationBitmap bitmap) {
+		List<Integer> actual = new ArrayList<Integer>();
+		bitmap.forEach(actual::add);
+
+		assertEquals(new ArrayList<Integer>(expected), actual);
+		assertEquals(expected.size(), bitmap.cardinality());
+
+		for (int id : expected) {
+			assertTrue(bitmap.contains(id));
+		}
+	}
+
+}
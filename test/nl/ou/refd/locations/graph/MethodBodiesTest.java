@@ -0,0 +1,92 @@
+package nl.ou.refd.locations.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for MethodBodies, on the class A in the program graph declaring the
+ * method m, with the statements s1 and s2 in its control flow, and the method n,
+ * with the statement s3. Runs as a plug-in test, with Atlas.
+ */
+class MethodBodiesTest {
+
+	private final GraphFixture fixture = new GraphFixture();
+	private ProgramLocation m, n, s1, s2, s3;
+
+	@BeforeEach
+	void createMethods() {
+		ProgramLocation a = this.fixture.location("A", Tags.ProgramLocation.CLASS);
+		this.m = this.fixture.method(a, "m", Tags.ProgramLocation.INSTANCE_METHOD);
+		this.n = this.fixture.method(a, "n", Tags.ProgramLocation.INSTANCE_METHOD);
+		this.s1 = statement(this.m);
+		this.s2 = statement(this.s1);
+		this.s3 = statement(this.n);
+	}
+
+	@AfterEach
+	void removeMethods() {
+		this.fixture.remove();
+	}
+
+	@Test
+	void bodyIsReachedAlongControlFlow() {
+		MethodBodies bodies = MethodBodies.getInstance();
+
+		assertEquals(Set.of(this.s1, this.s2), bodies.bodies(Set.of(this.m)));
+		assertEquals(Set.of(this.s1, this.s2, this.s3), bodies.bodies(Set.of(this.m, this.n)));
+		assertEquals(Set.of(), bodies.bodies(Set.of()));
+	}
+
+	@Test
+	void methodsAreLeftOutOfTheBodies() {
+		assertEquals(Set.of(this.s2), MethodBodies.getInstance().bodies(Set.of(this.m, this.s1)));
+	}
+
+	@Test
+	void bodyIsDroppedWhenAStatementGainsControlFlow() {
+		MethodBodies bodies = MethodBodies.getInstance();
+		assertEquals(Set.of(this.s1, this.s2), bodies.bodies(Set.of(this.m)));
+
+		ProgramLocation s4 = statement(this.s2);
+
+		assertEquals(Set.of(this.s1, this.s2, s4), bodies.bodies(Set.of(this.m)));
+		assertEquals(Set.of(this.s3), bodies.bodies(Set.of(this.n)));
+	}
+
+	@Test
+	void bodyIsDroppedWhenAStatementIsRemoved() {
+		MethodBodies bodies = MethodBodies.getInstance();
+		assertEquals(Set.of(this.s1, this.s2), bodies.bodies(Set.of(this.m)));
+
+		this.fixture.remove(this.s2);
+
+		assertEquals(Set.of(this.s1), bodies.bodies(Set.of(this.m)));
+	}
+
+	@Test
+	void bodiesAreRecomputedWhenTheGraphIsInvalidated() {
+		MethodBodies bodies = MethodBodies.getInstance();
+		assertEquals(Set.of(this.s3), bodies.bodies(Set.of(this.n)));
+
+		Graph.getInstance().invalidate();
+
+		assertEquals(Set.of(this.s3), bodies.bodies(Set.of(this.n)));
+	}
+
+	/**
+	 * Creates a statement following another program location in the control flow.
+	 * @param previous the method or statement the statement follows
+	 * @return the statement
+	 */
+	private ProgramLocation statement(ProgramLocation previous) {
+		ProgramLocation statement = this.fixture.location("statement", Tags.ProgramLocation.DATAFLOW);
+		this.fixture.relate(previous, statement, Tags.Relation.HAS_CONTROL_FLOW);
+		return statement;
+	}
+
+}
@@ -0,0 +1,217 @@
+package nl.ou.refd.locations.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for QueryPlan and QueryReplay, encoding plans as the QueryLog does and
+ * replaying a log headlessly on a CsrGraph snapshot. The snapshot holds the
+ * classes A, B extending A and C extending B, with a method contained in C.
+ */
+class QueryReplayTest {
+
+	private static final int A = 0, B = 1, C = 2, METHOD = 3;
+	private static final String SNAPSHOT = "graph-0.csr";
+
+	private Path directory;
+	private CsrGraph graph;
+
+	@BeforeEach
+	void writeSnapshot() throws IOException {
+		this.directory = Files.createTempDirectory("refd");
+
+		int[][] relations = {{B, A}, {C, B}, {C, METHOD}};
+		int[] outDegrees = new int[4];
+		int[] inDegrees = new int[4];
+
+		for (int[] relation : relations) {
+			outDegrees[relation[0]]++;
+			inDegrees[relation[1]]++;
+		}
+
+		try (FileChannel channel = CsrGraph.create(this.directory.resolve(SNAPSHOT))) {
+			CsrGraph.Builder builder = new CsrGraph.Builder(channel, outDegrees, inDegrees, 6, List.of(),
+					CsrGraph.DETACHED, CsrGraph.DETACHED);
+
+			builder.location(A, LocationStore.mask(Tags.ProgramLocation.CLASS), -1, encode("A"), -1, 0, 0);
+			builder.location(B, LocationStore.mask(Tags.ProgramLocation.CLASS), -1, encode("B"), -1, 0, 0);
+			builder.location(C, LocationStore.mask(Tags.ProgramLocation.CLASS), -1, encode("C"), -1, 0, 0);
+			builder.location(METHOD, LocationStore.mask(Tags.ProgramLocation.METHOD), -1, encode("m"), -1, 0, 0);
+
+			builder.relation(B, A, CsrGraph.relationMask(Tags.Relation.EXTENDS));
+			builder.relation(C, B, CsrGraph.relationMask(Tags.Relation.EXTENDS));
+			builder.relation(C, METHOD, CsrGraph.relationMask(Tags.Relation.CONTAINS));
+			builder.finish();
+		}
+
+		this.graph = CsrGraph.open(this.directory.resolve(SNAPSHOT));
+	}
+
+	@AfterEach
+	void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.list(this.directory)) {
+			for (Path file : (Iterable<Path>)files::iterator) {
+				Files.delete(file);
+			}
+		}
+
+		Files.delete(this.directory);
+	}
+
+	@Test
+	void planEvaluatesTheSameAfterDecoding() throws IOException {
+		QueryPlan classes = QueryPlan.apply(QueryPlan.Operator.LOCATIONS, new Tags.ProgramLocation[] {Tags.ProgramLocation.CLASS},
+				QueryPlan.universe());
+		QueryPlan extendsRelations = QueryPlan.apply(QueryPlan.Operator.RELATIONS, new Tags.Relation[] {Tags.Relation.EXTENDS},
+				QueryPlan.universe());
+		QueryPlan plan = QueryPlan.apply(QueryPlan.Operator.FORWARD_ON, null, set(C), extendsRelations);
+
+		assertEquals(3, roundTrip(classes).evaluate(this.graph).locationCount());
+		assertEquals(3, roundTrip(plan).evaluate(this.graph).locationCount());
+		assertEquals(2, roundTrip(extendsRelations).evaluate(this.graph).relationCount());
+		assertEquals(plan.toString(), roundTrip(plan).toString());
+	}
+
+	@Test
+	void setsAndArgumentsSurviveEncoding() throws IOException {
+		QueryPlan union = QueryPlan.apply(QueryPlan.Operator.UNION, null, set(A), set(B, C), set(METHOD));
+		QueryPlan named = QueryPlan.apply(QueryPlan.Operator.SELECT_LOCATION, new Object[] {Tags.Attributes.NAME, "m"},
+				QueryPlan.universe());
+
+		assertEquals(4, roundTrip(union).evaluate(this.graph).locationCount());
+		assertEquals(1, roundTrip(named).evaluate(this.graph).locationCount());
+		assertEquals(0, roundTrip(QueryPlan.empty()).evaluate(this.graph).locationCount());
+	}
+
+	@Test
+	void replayFlagsQueriesWhoseSizeDiffers() throws IOException {
+		QueryPlan classes = QueryPlan.apply(QueryPlan.Operator.LOCATIONS, new Tags.ProgramLocation[] {Tags.ProgramLocation.CLASS},
+				QueryPlan.universe());
+		QueryPlan extendsRelations = QueryPlan.apply(QueryPlan.Operator.RELATIONS, new Tags.Relation[] {Tags.Relation.EXTENDS},
+				QueryPlan.universe());
+
+		try (DataOutputStream out = log()) {
+			snapshot(out);
+			query(out, QueryLog.Terminal.LOCATIONS, 3, classes);
+			query(out, QueryLog.Terminal.RELATIONS, 2, extendsRelations);
+			query(out, QueryLog.Terminal.LOCATION_COUNT, 7, classes);
+		}
+
+		ByteArrayOutputStream report = new ByteArrayOutputStream();
+		int mismatches = QueryReplay.replay(this.directory, 2, new PrintStream(report, true, StandardCharsets.UTF_8));
+		String lines = report.toString(StandardCharsets.UTF_8);
+
+		assertEquals(1, mismatches);
+		assertTrue(lines.contains("3 total"), lines);
+		assertTrue(lines.contains("1 size mismatches"), lines);
+	}
+
+	@Test
+	void queryBeforeASnapshotIsCorrupt() throws IOException {
+		try (DataOutputStream out = log()) {
+			query(out, QueryLog.Terminal.LOCATIONS, 0, QueryPlan.empty());
+		}
+
+		assertThrows(IOException.class, () -> QueryReplay.replay(this.directory, 1, new PrintStream(new ByteArrayOutputStream())));
+	}
+
+	@Test
+	void fileWithoutHeaderIsNotALog() throws IOException {
+		Files.write(this.directory.resolve(QueryLog.LOG_FILE), new byte[8]);
+
+		assertThrows(IOException.class, () -> QueryLog.open(this.directory));
+	}
+
+	/**
+	 * Creates the plan of a set of program locations.
+	 * @param ids the ids of the program locations
+	 * @return the plan
+	 */
+	private static QueryPlan set(int... ids) {
+		LocationBitmap selection = new LocationBitmap();
+
+		for (int id : ids) {
+			selection.add(id);
+		}
+
+		return QueryPlan.set(selection);
+	}
+
+	/**
+	 * Encodes a plan and decodes it again.
+	 * @param plan the plan
+	 * @return the decoded plan
+	 * @throws IOException if the plan cannot be encoded
+	 */
+	private static QueryPlan roundTrip(QueryPlan plan) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		plan.encode(new DataOutputStream(bytes));
+		return QueryPlan.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	/**
+	 * Creates the log file in the log directory and writes its header.
+	 * @return the output to write the records of the log to
+	 * @throws IOException if the log cannot be created
+	 */
+	private DataOutputStream log() throws IOException {
+		DataOutputStream out = new DataOutputStream(Files.newOutputStream(this.directory.resolve(QueryLog.LOG_FILE)));
+		out.writeInt(QueryLog.MAGIC);
+		out.writeInt(QueryLog.VERSION);
+		return out;
+	}
+
+	/**
+	 * Writes a record of the snapshot to a log.
+	 * @param out the output of the log
+	 * @throws IOException if the record cannot be written
+	 */
+	private static void snapshot(DataOutputStream out) throws IOException {
+		out.writeByte(QueryLog.SNAPSHOT_RECORD);
+		out.writeUTF(SNAPSHOT);
+	}
+
+	/**
+	 * Writes a record of an evaluated query to a log.
+	 * @param out the output of the log
+	 * @param terminal the way the result was evaluated
+	 * @param size the size of the result
+	 * @param plan the plan of the query
+	 * @throws IOException if the record cannot be written
+	 */
+	private static void query(DataOutputStream out, QueryLog.Terminal terminal, long size, QueryPlan plan) throws IOException {
+		out.writeByte(QueryLog.QUERY_RECORD);
+		out.writeByte(terminal.ordinal());
+		out.writeLong(1_000);
+		out.writeLong(size);
+		plan.encode(out);
+	}
+
+	/**
+	 * Encodes a name as it is stored in a snapshot.
+	 * @param name the name
+	 * @return the UTF-8 encoded name
+	 */
+	private static byte[] encode(String name) {
+		return name.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
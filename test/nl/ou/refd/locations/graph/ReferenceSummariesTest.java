@@ -0,0 +1,106 @@
+package nl.ou.refd.locations.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for ReferenceSummaries, on a method in the program graph with a static
+ * call of a method of the class Y, a dynamic call of a method of the class V, and
+ * an access of a field of the class Z. Runs as a plug-in test, with Atlas.
+ */
+class ReferenceSummariesTest {
+
+	private final GraphFixture fixture = new GraphFixture();
+	private ProgramLocation x, y, v, z;
+	private ProgramLocation caller, callee;
+	private ProgramLocation staticCall, dynamicCall, fieldAccess;
+
+	@BeforeEach
+	void createMethods() {
+		this.x = this.fixture.location("X", Tags.ProgramLocation.CLASS);
+		this.y = this.fixture.location("Y", Tags.ProgramLocation.CLASS);
+		this.v = this.fixture.location("V", Tags.ProgramLocation.CLASS);
+		this.z = this.fixture.location("Z", Tags.ProgramLocation.CLASS);
+		this.caller = this.fixture.method(this.x, "caller", Tags.ProgramLocation.INSTANCE_METHOD);
+		this.callee = this.fixture.method(this.y, "callee", Tags.ProgramLocation.CLASS_METHOD);
+
+		this.staticCall = site("callee()");
+		this.fixture.relate(this.staticCall, this.callee, Tags.Relation.INVOKED_FUNCTION);
+
+		ProgramLocation run = this.fixture.method(this.v, "run", Tags.ProgramLocation.INSTANCE_METHOD);
+		ProgramLocation identity = this.fixture.location("this", Tags.ProgramLocation.IDENTITY);
+		ProgramLocation identityPass = this.fixture.location("this", Tags.ProgramLocation.IDENTITY_PASS);
+		this.dynamicCall = site("run()");
+		this.fixture.relate(run, identity, Tags.Relation.CONTAINS);
+		this.fixture.relate(identityPass, this.dynamicCall, Tags.Relation.IDENTITY_PASSED_TO);
+		this.fixture.relate(identityPass, identity, Tags.Relation.DATAFLOW);
+
+		ProgramLocation field = this.fixture.location("f", Tags.ProgramLocation.FIELD);
+		this.fieldAccess = site("f");
+		this.fixture.relate(this.z, field, Tags.Relation.CONTAINS);
+		this.fixture.relate(field, this.fieldAccess, Tags.Relation.DATAFLOW);
+	}
+
+	@AfterEach
+	void removeMethods() {
+		this.fixture.remove();
+	}
+
+	@Test
+	void sitesAreFoundByTheClassOfTheMemberReferenced() {
+		ReferenceSummaries summaries = ReferenceSummaries.getInstance();
+
+		assertEquals(Set.of(this.staticCall), summaries.sitesReferencing(Set.of(this.caller), Set.of(this.y)));
+		assertEquals(Set.of(this.dynamicCall), summaries.sitesReferencing(Set.of(this.caller), Set.of(this.v)));
+		assertEquals(Set.of(this.fieldAccess), summaries.sitesReferencing(Set.of(this.caller), Set.of(this.z)));
+		assertEquals(Set.of(this.staticCall, this.fieldAccess), summaries.sitesReferencing(Set.of(this.caller), Set.of(this.y, this.z)));
+	}
+
+	@Test
+	void noSitesReferenceOtherClasses() {
+		ReferenceSummaries summaries = ReferenceSummaries.getInstance();
+
+		assertEquals(Set.of(), summaries.sitesReferencing(Set.of(this.caller), Set.of(this.x)));
+		assertEquals(Set.of(), summaries.sitesReferencing(Set.of(this.caller), Set.of()));
+		assertEquals(Set.of(), summaries.sitesReferencing(Set.of(this.callee), Set.of(this.y)));
+	}
+
+	@Test
+	void summaryIsDroppedWhenASiteIsAdded() {
+		ReferenceSummaries summaries = ReferenceSummaries.getInstance();
+		assertEquals(Set.of(this.staticCall), summaries.sitesReferencing(Set.of(this.caller), Set.of(this.y)));
+
+		ProgramLocation signatureCall = site("callee()");
+		this.fixture.relate(signatureCall, this.callee, Tags.Relation.INVOKED_SIGNATURE);
+
+		assertEquals(Set.of(this.staticCall, signatureCall), summaries.sitesReferencing(Set.of(this.caller), Set.of(this.y)));
+	}
+
+	@Test
+	void summaryIsDroppedWhenAClassIsNestedInAnother() {
+		ReferenceSummaries summaries = ReferenceSummaries.getInstance();
+		ProgramLocation outer = this.fixture.location("W", Tags.ProgramLocation.CLASS);
+		assertEquals(Set.of(), summaries.sitesReferencing(Set.of(this.caller), Set.of(outer)));
+
+		this.fixture.relate(outer, this.y, Tags.Relation.CONTAINS, Tags.Relation.DECLARES);
+
+		assertEquals(Set.of(this.staticCall), summaries.sitesReferencing(Set.of(this.caller), Set.of(outer)));
+	}
+
+	/**
+	 * Creates a site contained in the calling method.
+	 * @param name the name of the site
+	 * @return the site
+	 */
+	private ProgramLocation site(String name) {
+		ProgramLocation site = this.fixture.location(name, Tags.ProgramLocation.DATAFLOW);
+		this.fixture.relate(this.caller, site, Tags.Relation.CONTAINS);
+		return site;
+	}
+
+}
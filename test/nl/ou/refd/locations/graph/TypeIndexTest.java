@@ -0,0 +1,141 @@
+package nl.ou.refd.locations.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.ou.refd.exceptions.LocationSetException;
+
+/**
+ * Tests for TypeIndex, on types in the program graph: the class A in the package
+ * t.p, declaring the nested class N, the class Shadowed both in java.lang and in
+ * the package t.q, the class B both in t.p and in t.q, the primitive type int and
+ * the array type A[]. Runs as a plug-in test, with Atlas.
+ */
+class TypeIndexTest {
+
+	private final GraphFixture fixture = new GraphFixture();
+	private ProgramLocation p, q;
+	private ProgramLocation a, n, langShadowed, qShadowed, pB, qB, primitive, array;
+
+	@BeforeEach
+	void createTypes() {
+		this.p = this.fixture.location("t.p", Tags.ProgramLocation.PACKAGE);
+		this.q = this.fixture.location("t.q", Tags.ProgramLocation.PACKAGE);
+		ProgramLocation lang = this.fixture.location("java.lang", Tags.ProgramLocation.PACKAGE);
+
+		this.a = type(this.p, "A");
+		this.n = type(this.a, "N");
+		this.langShadowed = type(lang, "Shadowed");
+		this.qShadowed = type(this.q, "Shadowed");
+		this.pB = type(this.p, "B");
+		this.qB = type(this.q, "B");
+		this.primitive = this.fixture.location("int", Tags.ProgramLocation.TYPE, Tags.ProgramLocation.PRIMITIVE_TYPE);
+		this.array = this.fixture.location("A[]", Tags.ProgramLocation.TYPE, Tags.ProgramLocation.ARRAY_TYPE);
+
+		Graph.getInstance().invalidate();
+	}
+
+	@AfterEach
+	void removeTypes() {
+		this.fixture.remove();
+	}
+
+	@Test
+	void typesAreFoundByQualifiedAndSimpleName() {
+		TypeIndex index = TypeIndex.getInstance();
+
+		assertEquals(this.a, index.type("t.p.A"));
+		assertEquals(this.a, index.type("A"));
+		assertEquals(this.n, index.type("t.p.A.N"));
+		assertEquals(this.primitive, index.type("int"));
+		assertEquals(this.array, index.type("A[]"));
+		assertEquals(this.array, index.type("t.p.A[]"));
+	}
+
+	@Test
+	void qualifiedNamesIncludeEnclosingClassesAndPackage() {
+		TypeIndex index = TypeIndex.getInstance();
+
+		assertEquals("t.p.A", index.qualifiedName(this.a));
+		assertEquals("t.p.A.N", index.qualifiedName(this.n));
+		assertEquals("int", index.qualifiedName(this.primitive));
+		assertNull(index.qualifiedName(this.p));
+	}
+
+	@Test
+	void ambiguousSimpleNameResolvesToJavaLang() {
+		TypeIndex index = TypeIndex.getInstance();
+
+		assertEquals(this.langShadowed, index.type("Shadowed"));
+		assertEquals(this.qShadowed, index.type("t.q.Shadowed"));
+		assertThrows(LocationSetException.class, () -> index.type("B"));
+		assertEquals(Set.of(this.pB, this.qB), new HashSet<ProgramLocation>(index.typesNamed("B")));
+		assertEquals(Set.of(), new HashSet<ProgramLocation>(index.typesNamed("Missing")));
+	}
+
+	@Test
+	void packagesAreFoundByName() {
+		TypeIndex index = TypeIndex.getInstance();
+
+		assertEquals(this.p, index.pkg("t.p"));
+		assertThrows(LocationSetException.class, () -> index.pkg("t.missing"));
+		assertThrows(LocationSetException.class, () -> index.type("t.p.Missing"));
+	}
+
+	@Test
+	void addedTypeIsIndexed() {
+		TypeIndex index = TypeIndex.getInstance();
+		assertEquals(this.a, index.type("A"));
+
+		ProgramLocation c = type(this.p, "C");
+		assertThrows(LocationSetException.class, () -> index.type("t.p.C"));
+
+		index.add(c);
+
+		assertEquals(c, index.type("t.p.C"));
+		assertEquals(c, index.type("C"));
+	}
+
+	@Test
+	void removedTypeIsDropped() {
+		TypeIndex index = TypeIndex.getInstance();
+		assertEquals(this.pB, index.type("t.p.B"));
+
+		this.fixture.remove(this.pB);
+
+		assertThrows(LocationSetException.class, () -> index.type("t.p.B"));
+		assertEquals(this.qB, index.type("B"));
+	}
+
+	@Test
+	void indexIsRebuiltWhenTheGraphIsInvalidated() {
+		TypeIndex index = TypeIndex.getInstance();
+		assertEquals(this.a, index.type("A"));
+
+		ProgramLocation c = type(this.p, "C");
+		Graph.getInstance().invalidate();
+
+		assertEquals(c, index.type("t.p.C"));
+	}
+
+	/**
+	 * Creates a class contained in a package or an enclosing class.
+	 * @param parent the package or enclosing class
+	 * @param name the simple name of the class
+	 * @return the class
+	 */
+	private ProgramLocation type(ProgramLocation parent, String name) {
+		ProgramLocation type = this.fixture.location(name, Tags.ProgramLocation.TYPE, Tags.ProgramLocation.CLASS);
+		this.fixture.relate(parent, type, Tags.Relation.CONTAINS);
+		return type;
+	}
+
+}
@@ -0,0 +1,181 @@
+package nl.ou.refd.locations.libraries;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import nl.ou.refd.exceptions.LibrarySummaryException;
+import nl.ou.refd.locations.specifications.LocationSpecification.AccessModifier;
+
+/**
+ * Tests for ClassFileReader, reading the class files of fixtures compiled with the
+ * tests and of a class of the JDK. The fixtures have constants of every width in
+ * their constant pool, and constructors, static initializers, lambdas and bridge
+ * methods, which are left out of their summaries.
+ */
+class ClassFileReaderTest {
+
+	@Test
+	void classIsSummarized() throws IOException {
+		ClassSummary summary = read(Fixture.class);
+
+		assertEquals("nl.ou.refd.locations.libraries.ClassFileReaderTest.Fixture", summary.getName());
+		assertEquals("Fixture", summary.getSimpleName());
+		assertEquals("java.util.AbstractList", summary.getSuperclass());
+		assertEquals(List.of("java.lang.Comparable", "java.io.Serializable"), summary.getInterfaces());
+		assertTrue(summary.isAbstract());
+		assertFalse(summary.isInterface());
+	}
+
+	@Test
+	void onlyDeclaredMethodsAreSummarized() throws IOException {
+		Map<String, MethodSummary> methods = methods(read(Fixture.class));
+
+		assertEquals(4, methods.size(), methods.keySet().toString());
+
+		MethodSummary get = methods.get("get");
+		assertEquals(List.of("int"), get.getParameterTypes());
+		assertEquals("java.lang.String", get.getReturnType());
+		assertEquals(AccessModifier.PUBLIC, get.getVisibility());
+
+		MethodSummary sizes = methods.get("sizes");
+		assertEquals(List.of("long", "java.util.Map.Entry", "java.lang.String[]"), sizes.getParameterTypes());
+		assertEquals("int[][]", sizes.getReturnType());
+		assertEquals(AccessModifier.PROTECTED, sizes.getVisibility());
+		assertTrue(sizes.isAbstract());
+
+		MethodSummary helper = methods.get("helper");
+		assertEquals(List.of("char", "boolean", "double"), helper.getParameterTypes());
+		assertEquals(AccessModifier.PRIVATE, helper.getVisibility());
+		assertTrue(helper.isStatic());
+		assertTrue(helper.isFinal());
+
+		assertEquals(List.of("nl.ou.refd.locations.libraries.ClassFileReaderTest.Fixture"), methods.get("compareTo").getParameterTypes());
+	}
+
+	@Test
+	void interfaceIsSummarized() throws IOException {
+		ClassSummary summary = read(Contract.class);
+
+		assertTrue(summary.isInterface());
+		assertEquals("java.lang.Object", summary.getSuperclass());
+		assertEquals(AccessModifier.PUBLIC, methods(summary).get("apply").getVisibility());
+		assertTrue(methods(summary).get("apply").isAbstract());
+		assertFalse(methods(summary).get("defaultApply").isAbstract());
+	}
+
+	@Test
+	void classWithoutSuperclassIsSummarized() throws IOException {
+		ClassSummary summary = read(Object.class);
+
+		assertEquals("java.lang.Object", summary.getName());
+		assertNull(summary.getSuperclass());
+		assertEquals(List.of("java.lang.Object"), methods(summary).get("equals").getParameterTypes());
+		assertEquals("boolean", methods(summary).get("equals").getReturnType());
+	}
+
+	@Test
+	void invalidClassFileIsRejected() throws IOException {
+		byte[] classFile;
+
+		try (InputStream input = classFile(Fixture.class)) {
+			classFile = input.readAllBytes();
+		}
+
+		assertThrows(LibrarySummaryException.class, () -> ClassFileReader.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5})));
+		assertThrows(LibrarySummaryException.class,
+				() -> ClassFileReader.read(new ByteArrayInputStream(Arrays.copyOf(classFile, classFile.length / 2))));
+	}
+
+	/**
+	 * Reads the summary of a compiled class.
+	 * @param type the class
+	 * @return the summary
+	 * @throws IOException if the class file cannot be closed
+	 */
+	private static ClassSummary read(Class<?> type) throws IOException {
+		try (InputStream input = classFile(type)) {
+			return ClassFileReader.read(input);
+		}
+	}
+
+	/**
+	 * Opens the class file of a compiled class.
+	 * @param type the class
+	 * @return the class file
+	 */
+	private static InputStream classFile(Class<?> type) {
+		String name = type.getName();
+		return type.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class");
+	}
+
+	/**
+	 * Gets the methods of a summary by name.
+	 * @param summary the summary
+	 * @return the methods, by name
+	 */
+	private static Map<String, MethodSummary> methods(ClassSummary summary) {
+		Map<String, MethodSummary> methods = new HashMap<String, MethodSummary>();
+		summary.getMethods().forEach(method -> methods.put(method.getName(), method));
+		return methods;
+	}
+
+	/**
+	 * Class compiled to a class file with long, double and string constants, a
+	 * constructor, a static initializer with a lambda, and bridge methods for
+	 * get and compareTo.
+	 */
+	abstract static class Fixture extends AbstractList<String> implements Comparable<Fixture>, Serializable {
+
+		private static final long serialVersionUID = 35L;
+		static double ratio = 2.5;
+		static final Runnable TASK = () -> System.out.println("ratio " + ratio * 1.5f);
+
+		Fixture() {
+			super();
+		}
+
+		@Override
+		public String get(int index) {
+			return String.valueOf(index);
+		}
+
+		protected abstract int[][] sizes(long count, Map.Entry<String, Integer> entry, String... names);
+
+		private static final void helper(char c, boolean b, double d) {
+			TASK.run();
+		}
+
+		@Override
+		public int compareTo(Fixture other) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Interface compiled to a class file with an abstract and a default method.
+	 */
+	interface Contract {
+
+		int apply(int value);
+
+		default int defaultApply(int value) {
+			return apply(value);
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package nl.ou.refd.locations.specifications;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.GraphFixture;
+import nl.ou.refd.locations.graph.ProgramLocation;
+import nl.ou.refd.locations.graph.Tags;
+
+/**
+ * Tests for SpecificationBindings, on the public classes A and B in a package.
+ * Runs as a plug-in test, with Atlas.
+ */
+class SpecificationBindingsTest {
+
+	private final GraphFixture fixture = new GraphFixture();
+	private ProgramLocation a, b;
+	private int resolved;
+
+	@BeforeEach
+	void createClasses() {
+		ProgramLocation pkg = this.fixture.location("p", Tags.ProgramLocation.PACKAGE);
+		this.a = this.fixture.location("A", Tags.ProgramLocation.CLASS, Tags.ProgramLocation.PUBLIC_VISIBILITY);
+		this.b = this.fixture.location("B", Tags.ProgramLocation.CLASS, Tags.ProgramLocation.PUBLIC_VISIBILITY);
+		this.fixture.relate(pkg, this.a, Tags.Relation.CONTAINS);
+		this.fixture.relate(pkg, this.b, Tags.Relation.CONTAINS);
+
+		Graph.getInstance().invalidate();
+	}
+
+	@AfterEach
+	void removeClasses() {
+		this.fixture.remove();
+	}
+
+	@Test
+	void specificationIsBoundInBothDirections() {
+		SpecificationBindings bindings = SpecificationBindings.getInstance();
+		ClassSpecification specification = bindings.classSpecification(this.a);
+
+		assertEquals("A", specification.getClassName());
+		assertSame(this.a, bindings.classLocation(specification, resolve(this.b)));
+		assertEquals(0, this.resolved);
+	}
+
+	@Test
+	void bindingsOfOtherLocationsSurviveAChange() {
+		SpecificationBindings bindings = SpecificationBindings.getInstance();
+		ClassSpecification specification = bindings.classSpecification(this.a);
+
+		this.fixture.method(this.b, "m", Tags.ProgramLocation.INSTANCE_METHOD);
+
+		assertSame(this.a, bindings.classLocation(specification, resolve(this.b)));
+		assertEquals(0, this.resolved);
+	}
+
+	@Test
+	void bindingsOfAChangedLocationAreDropped() {
+		SpecificationBindings bindings = SpecificationBindings.getInstance();
+		ClassSpecification specification = bindings.classSpecification(this.a);
+
+		this.fixture.method(this.a, "m", Tags.ProgramLocation.INSTANCE_METHOD);
+
+		assertSame(this.a, bindings.classLocation(specification, resolve(this.a)));
+		assertEquals(1, this.resolved);
+	}
+
+	@Test
+	void bindingsOfARemovedLocationAreDropped() {
+		SpecificationBindings bindings = SpecificationBindings.getInstance();
+		ClassSpecification specification = bindings.classSpecification(this.a);
+
+		this.fixture.remove(this.a);
+
+		assertSame(this.b, bindings.classLocation(specification, resolve(this.b)));
+		assertEquals(1, this.resolved);
+	}
+
+	@Test
+	void allBindingsAreDroppedWhenTheGraphIsInvalidated() {
+		SpecificationBindings bindings = SpecificationBindings.getInstance();
+		ClassSpecification specification = bindings.classSpecification(this.a);
+
+		Graph.getInstance().invalidate();
+
+		assertSame(this.a, bindings.classLocation(specification, resolve(this.a)));
+		assertEquals(1, this.resolved);
+	}
+
+	/**
+	 * Creates a resolver which counts how often it is asked for the program location.
+	 * @param location the program location the resolver gives
+	 * @return the resolver
+	 */
+	private Supplier<ProgramLocation> resolve(ProgramLocation location) {
+		return () -> {
+			this.resolved++;
+			return location;
+		};
+	}
+
+}
@@ -0,0 +1,130 @@
+package nl.ou.refd.locations.streams;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import nl.ou.refd.analysis.AnalysisMonitor;
+import nl.ou.refd.analysis.subdetectors.Subdetector;
+import nl.ou.refd.locations.collections.MethodSet;
+import nl.ou.refd.locations.graph.Graph;
+import nl.ou.refd.locations.graph.ProgramLocation;
+
+/**
+ * Tests for StreamPlan, executing plans of subdetectors which map program locations
+ * to each other by a table. The tests with program locations create them in the
+ * program graph, so they run as plug-in tests, with Atlas.
+ */
+class StreamPlanTest {
+
+	private final List<ProgramLocation> created = new ArrayList<ProgramLocation>();
+
+	@AfterEach
+	void removeLocations() {
+		AnalysisMonitor.uninstall();
+		this.created.forEach(Graph.getInstance()::removeProgramLocation);
+	}
+
+	@Test
+	void stepsAreAppliedInOrder() {
+		ProgramLocation a = location(), b = location(), c = location();
+		StreamPlan<Set<ProgramLocation>> plan = StreamPlan.<Set<ProgramLocation>>from(MethodSet::new)
+				.then(map(Map.of(a, b)))
+				.then(map(Map.of(b, c)));
+
+		assertEquals(Set.of(c), plan.execute(Set.of(a)));
+		assertEquals(Set.of(), plan.execute(Set.of(b)));
+	}
+
+	@Test
+	void stepIsBoundToTheParameter() {
+		ProgramLocation a = location(), b = location(), c = location();
+		StreamPlan<ProgramLocation> plan = StreamPlan.<ProgramLocation>from(target -> new MethodSet(Set.of(a)))
+				.then(target -> map(Map.of(a, target)));
+
+		assertEquals(Set.of(b), plan.execute(b));
+		assertEquals(Set.of(c), plan.execute(c));
+	}
+
+	@Test
+	void stepsAreNotAppliedToAnEmptySet() {
+		StreamPlan<Set<ProgramLocation>> plan = StreamPlan.<Set<ProgramLocation>>from(MethodSet::new)
+				.then(new Subdetector() {
+					@Override
+					public Set<ProgramLocation> applyOn(Set<ProgramLocation> locations) {
+						throw new AssertionError("applied to " + locations);
+					}
+				});
+
+		assertEquals(Set.of(), plan.execute(new HashSet<ProgramLocation>()));
+	}
+
+	@Test
+	void readStepPassesItsResultToTheReader() {
+		ProgramLocation a = location(), b = location(), c = location();
+		StreamPlan<Set<ProgramLocation>> plan = StreamPlan.<Set<ProgramLocation>>from(MethodSet::new)
+				.then(map(Map.of(a, b)))
+				.read()
+				.then(map(Map.of(b, c)));
+		List<Set<ProgramLocation>> read = new ArrayList<Set<ProgramLocation>>();
+
+		assertEquals(Set.of(c), plan.execute(Set.of(a), read::add));
+		assertEquals(List.of(Set.of(b)), read);
+		assertEquals(Set.of(c), plan.execute(Set.of(a)));
+	}
+
+	@Test
+	void cancelledExecutionStops() {
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		AnalysisMonitor.install(monitor);
+
+		StreamPlan<Set<ProgramLocation>> plan = StreamPlan.<Set<ProgramLocation>>from(MethodSet::new);
+
+		assertThrows(OperationCanceledException.class, () -> plan.execute(new HashSet<ProgramLocation>()));
+	}
+
+	/**
+	 * Creates a program location in the program graph, which is removed after the test.
+	 * @return the program location
+	 */
+	private ProgramLocation location() {
+		ProgramLocation location = Graph.getInstance().createProgramLocation();
+		this.created.add(location);
+		return location;
+	}
+
+	/**
+	 * Creates a subdetector mapping program locations by a table. Program locations
+	 * not in the table are mapped to nothing.
+	 * @param table the table
+	 * @return the subdetector
+	 */
+	private static Subdetector map(Map<ProgramLocation, ProgramLocation> table) {
+		return new Subdetector() {
+			@Override
+			public Set<ProgramLocation> applyOn(Set<ProgramLocation> locations) {
+				Set<ProgramLocation> mapped = new HashSet<ProgramLocation>();
+
+				for (ProgramLocation location : locations) {
+					if (table.containsKey(location)) {
+						mapped.add(table.get(location));
+					}
+				}
+
+				return mapped;
+			}
+		};
+	}
+
+}
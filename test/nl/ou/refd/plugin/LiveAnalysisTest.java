@@ -0,0 +1,205 @@
+package nl.ou.refd.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the changes LiveAnalysis runs again on, on resource deltas of the
+ * project P and the project Q. The analysis is not started, a change that runs it
+ * again only schedules it. Runs as a plug-in test, with the Eclipse job manager.
+ */
+class LiveAnalysisTest {
+
+	private final IProject p = project("P");
+	private final IProject q = project("Q");
+	private final LiveAnalysis analysis = new LiveAnalysis("Live analysis", this.p, () -> {
+		throw new AssertionError("analysed");
+	}, 0);
+
+	@AfterEach
+	void dispose() {
+		this.analysis.dispose();
+	}
+
+	@Test
+	void savedJavaSourceRunsTheAnalysisAgain() {
+		this.analysis.resourceChanged(event(this.p, file(this.p, "A.java"), IResourceDelta.CHANGED, IResourceDelta.CONTENT));
+
+		assertEquals(Job.SLEEPING, this.analysis.getState());
+	}
+
+	@Test
+	void addedOrRemovedJavaSourceRunsTheAnalysisAgain() {
+		this.analysis.resourceChanged(event(this.p, file(this.p, "A.java"), IResourceDelta.ADDED, 0));
+		assertEquals(Job.SLEEPING, this.analysis.getState());
+
+		this.analysis.cancel();
+		this.analysis.resourceChanged(event(this.p, file(this.p, "B.java"), IResourceDelta.REMOVED, 0));
+		assertEquals(Job.SLEEPING, this.analysis.getState());
+	}
+
+	@Test
+	void changedMarkersAreIgnored() {
+		this.analysis.resourceChanged(event(this.p, file(this.p, "A.java"), IResourceDelta.CHANGED, IResourceDelta.MARKERS));
+
+		assertEquals(Job.NONE, this.analysis.getState());
+	}
+
+	@Test
+	void otherFilesAreIgnored() {
+		this.analysis.resourceChanged(event(this.p, file(this.p, "notes.txt"), IResourceDelta.CHANGED, IResourceDelta.CONTENT));
+
+		assertEquals(Job.NONE, this.analysis.getState());
+	}
+
+	@Test
+	void sourcesOfOtherProjectsAreIgnored() {
+		this.analysis.resourceChanged(event(this.q, file(this.q, "A.java"), IResourceDelta.CHANGED, IResourceDelta.CONTENT));
+
+		assertEquals(Job.NONE, this.analysis.getState());
+	}
+
+	@Test
+	void disposedAnalysisIgnoresChanges() {
+		this.analysis.dispose();
+		this.analysis.resourceChanged(event(this.p, file(this.p, "A.java"), IResourceDelta.CHANGED, IResourceDelta.CONTENT));
+
+		assertEquals(Job.NONE, this.analysis.getState());
+	}
+
+	/**
+	 * Creates the event of a change to a file, with the deltas of the workspace root,
+	 * the project and the file.
+	 * @param project the project of the file
+	 * @param file the file
+	 * @param kind the kind of change to the file
+	 * @param flags the flags of the change to the file
+	 * @return the event
+	 */
+	private static IResourceChangeEvent event(IProject project, IFile file, int kind, int flags) {
+		IResourceDelta fileDelta = delta(file, kind, flags, List.of());
+		IResourceDelta projectDelta = delta(project, IResourceDelta.CHANGED, 0, List.of(fileDelta));
+		IResourceDelta rootDelta = delta(resource(IResource.class, null, ""), IResourceDelta.CHANGED, 0, List.of(projectDelta));
+
+		return (IResourceChangeEvent)Proxy.newProxyInstance(LiveAnalysisTest.class.getClassLoader(),
+				new Class<?>[] {IResourceChangeEvent.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getDelta":
+						return rootDelta;
+					case "getType":
+						return IResourceChangeEvent.POST_CHANGE;
+					default:
+						return identity(proxy, method.getName(), args);
+					}
+				});
+	}
+
+	/**
+	 * Creates the delta of a resource, which visits itself and then its children.
+	 * @param resource the resource
+	 * @param kind the kind of change
+	 * @param flags the flags of the change
+	 * @param children the deltas of the children of the resource
+	 * @return the delta
+	 */
+	private static IResourceDelta delta(IResource resource, int kind, int flags, List<IResourceDelta> children) {
+		return (IResourceDelta)Proxy.newProxyInstance(LiveAnalysisTest.class.getClassLoader(),
+				new Class<?>[] {IResourceDelta.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "accept":
+						if (((IResourceDeltaVisitor)args[0]).visit((IResourceDelta)proxy)) {
+							for (IResourceDelta child : children) {
+								child.accept((IResourceDeltaVisitor)args[0]);
+							}
+						}
+						return null;
+					case "getResource":
+						return resource;
+					case "getKind":
+						return kind;
+					case "getFlags":
+						return flags;
+					default:
+						return identity(proxy, method.getName(), args);
+					}
+				});
+	}
+
+	/**
+	 * Creates a project.
+	 * @param name the name of the project
+	 * @return the project
+	 */
+	private static IProject project(String name) {
+		IProject[] project = new IProject[1];
+		project[0] = resource(IProject.class, () -> project[0], name);
+		return project[0];
+	}
+
+	/**
+	 * Creates a file in a project.
+	 * @param project the project
+	 * @param name the name of the file
+	 * @return the file
+	 */
+	private static IFile file(IProject project, String name) {
+		return resource(IFile.class, () -> project, name);
+	}
+
+	/**
+	 * Creates a resource, which answers its project, name and file extension.
+	 * @param <R> the type of resource
+	 * @param type the interface of the type of resource
+	 * @param project supplies the project of the resource, or null for the workspace root
+	 * @param name the name of the resource
+	 * @return the resource
+	 */
+	private static <R extends IResource> R resource(Class<R> type, Supplier<IProject> project, String name) {
+		return type.cast(Proxy.newProxyInstance(LiveAnalysisTest.class.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "getProject":
+				return project == null ? null : project.get();
+			case "getName":
+				return name;
+			case "getFileExtension":
+				return name.contains(".") ? name.substring(name.lastIndexOf('.') + 1) : null;
+			default:
+				return identity(proxy, method.getName(), args);
+			}
+		}));
+	}
+
+	/**
+	 * Answers the methods of Object for a proxy, which is only equal to itself.
+	 * @param proxy the proxy
+	 * @param method the name of the method called
+	 * @param args the arguments of the call
+	 * @return the answer
+	 */
+	private static Object identity(Object proxy, String method, Object[] args) {
+		switch (method) {
+		case "equals":
+			return proxy == args[0];
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		case "toString":
+			return "proxy@" + Integer.toHexString(System.identityHashCode(proxy));
+		default:
+			throw new UnsupportedOperationException(method);
+		}
+	}
+
+}